@@ -2,8 +2,15 @@ package net.sf.jclec;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
 
+import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.XMLConfiguration;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
@@ -11,23 +18,34 @@ import org.w3c.dom.NodeList;
 
 /**
  * Experiments builder
- * 
+ *
+ * An experiment file can contain multi-valued elements and attributes:
+ *
+ * <ul>
+ * <li>
+ * An element with a <code>multi</code> attribute is replaced, in turn,
+ * by each one of the elements with its same name that it contains.
+ * </li><li>
+ * An attribute whose value is <code>multi</code> takes, in turn, the
+ * text of each one of the elements with its name that the owner
+ * element contains.
+ * </li>
+ * </ul>
+ *
+ * The experiment is expanded to all the combinations of values. The
+ * expansion is done in memory over the parsed experiment document,
+ * producing configurations lazily; files are only written if they are
+ * requested.
+ *
  * @author Sebastian Ventura
- * @author Jose M. Luna 
- * @author Alberto Cano 
+ * @author Jose M. Luna
+ * @author Alberto Cano
  * @author Juan Luis Olmo
  * @author Amelia Zafra
  */
 
-public class ExperimentBuilder 
+public class ExperimentBuilder
 {
-	/////////////////////////////////////////////////////////////////
-	// --------------------------------------------------- Properties
-	/////////////////////////////////////////////////////////////////
-
-	/** Control the depth size */
-	private ArrayList<Integer> combinationBase;
-	
 	/////////////////////////////////////////////////////////////////
 	// -------------------------------------------------- Constructor
 	/////////////////////////////////////////////////////////////////
@@ -35,446 +53,367 @@ public class ExperimentBuilder
 	/**
 	 * Empty constructor
 	 */
-	
+
 	public ExperimentBuilder() {
-		
+
 	}
-	
+
 	/**
-	 * Expands the experiments for the configuration file
+	 * Expands the experiments for the configuration file, and writes
+	 * them to the experiments folder.
+	 *
+	 * @param experimentFileName Experiment file
+	 *
+	 * @return Names of the expanded configuration files (the
+	 * experiment file itself if it has not multi-valued elements)
 	 */
-	
+
 	public ArrayList<String> buildExperiment(String experimentFileName)
 	{
-		ArrayList<String> configurations = expandElements(experimentFileName);
-		ArrayList<String> allCreatedExperiments = new ArrayList<String>();
-		int numberExperiments = 1;
-		
-		allCreatedExperiments.addAll(configurations);
-		
-		/** Expand multi-valued elements */
-		do
-		{
-			numberExperiments = configurations.size();
-			
-			ArrayList<String> createdExperiments = new ArrayList<String>();
-			
-			for(String experiment : configurations)
-				createdExperiments.addAll(expandElements(experiment));
-			
-			allCreatedExperiments.addAll(createdExperiments);
-			
-			configurations = createdExperiments;
-			
-		}while(configurations.size() != numberExperiments);
-		
-		/** Expand multi-valued attributes */
-		do
-		{
-			numberExperiments = configurations.size();
-			
-			ArrayList<String> createdExperiments = new ArrayList<String>();
-			
-			for(String experiment : configurations)
-				createdExperiments.addAll(expandAttributes(experiment));
-			
-			allCreatedExperiments.addAll(createdExperiments);
-			
-			configurations = createdExperiments;
-			
-		}while(configurations.size() != numberExperiments);
-		
-		allCreatedExperiments.removeAll(configurations);
-		
-		/** Remove temp files */
-		for(String temp : allCreatedExperiments)
-		{
-			if(!temp.equals(experimentFileName))
-				new File(temp).delete();
-		}
-		
-		/** Move the expanded configuration files to the experiments folder */
-		if(configurations.size() > 1)
-		{
+		ArrayList<String> configurations = new ArrayList<String>();
+
+		Iterator<XMLConfiguration> experiments = null;
+
+		try {
+			experiments = expandExperiment(experimentFileName);
+
+			/** Multi-valued element without values */
+			if(!experiments.hasNext())
+				return configurations;
+
+			XMLConfiguration first = experiments.next();
+
+			/** Experiment without multi-valued elements */
+			if(!experiments.hasNext())
+			{
+				configurations.add(experimentFileName);
+				return configurations;
+			}
+
 			File dir = new File("experiments");
-			
+
 			/** If the directory exists, delete all files */
 			if(dir.exists()){
 				File [] experimentFiles = dir.listFiles();
 				for(File f: experimentFiles)
 					f.delete();
 			}
-			
+
 			/** Else, create the directory */
 			else{
 				dir.mkdir();
 			}
 
-			for(int i = 0; i < configurations.size(); i++)
-			{
-				File file = new File(configurations.get(i));
-				file.renameTo(new File(dir, file.getName()));
-				String[] files = configurations.get(i).split("/");
-				String fileName = files[files.length-1];
-				configurations.set(i, dir.getPath() + "/" + fileName);
+			/** Write the expanded configuration files to the experiments folder */
+			configurations.add(save(first, dir));
+
+			while(experiments.hasNext())
+				configurations.add(save(experiments.next(), dir));
+		}
+		catch (ConfigurationException e) {
+			if(!new File(experimentFileName).exists()) {
+				System.out.println("Job file not found");
+				System.exit(1);
 			}
+			e.printStackTrace();
 		}
-		
+
 		/** Return the configuration filenames */
 		return configurations;
 	}
-	
+
 	/**
-	 * Expands the multi-valued elements for the jobFilename configuration file
+	 * Expands the experiments for the configuration file. The file is
+	 * parsed once, and each configuration is created when requested.
+	 * The file name of each configuration is set to the experiment
+	 * file name followed by the indexes of the values chosen, so it can
+	 * be written with <code>save()</code>.
+	 *
+	 * @param experimentFileName Experiment file
+	 *
+	 * @return Iterator over the expanded configurations
+	 *
+	 * @throws ConfigurationException If the file cannot be parsed
 	 */
-	
-	private ArrayList<String> expandElements(String jobFilename)
+
+	public Iterator<XMLConfiguration> expandExperiment(String experimentFileName) throws ConfigurationException
 	{
-		combinationBase = new ArrayList<Integer>();
-		
-		ArrayList<String> configurationFileNames = new ArrayList<String>();
-		
-		// Try open job file
-		File jobFile = new File(jobFilename);
-		
-		if (jobFile.exists()) {
-			try {
-				
-				// Find the number of combinations to perform
-				expandElementsIterateElements(new XMLConfiguration(jobFile).getDocument().getChildNodes());
-				
-				int numberCombinations = 1;
-				
-				// Calculate the amount of combinations
-				for(Integer i : combinationBase)
-					numberCombinations *= i;
-				
-				int[][] configurationSchema = new int[numberCombinations][];
-				
-				for(int i = 0; i < numberCombinations; i++)
-					configurationSchema[i] = new int[combinationBase.size()];
-				
-				int consecutiveElements = numberCombinations;
-				int accProduct = 1;
-				
-				// Calculate the combinations of each element
-				for(int i = 0; i < combinationBase.size(); i++)
-				{
-					consecutiveElements /= combinationBase.get(i);
-					
-					for(int j = 0; j < combinationBase.get(i); j++)
-					{
-						for(int k = 0; k < consecutiveElements; k++)
-						{
-							for(int r = 0; r < accProduct; r++)
-							{
-								int step = consecutiveElements*combinationBase.get(i);
-								configurationSchema[r*step + j*consecutiveElements + k][i] = j;
-							}
-						}
-					}
-					
-					accProduct *= combinationBase.get(i);
-				}
-				
-				XMLConfiguration[] configurations = new XMLConfiguration[numberCombinations];
-				
-				for(int i = 0; i < numberCombinations; i++)
-				{
-					configurations[i] = new XMLConfiguration(jobFile);
-					
-					expandElementsIterateElements(configurations[i].getDocument().getChildNodes(), configurationSchema[i].clone());
-				}
-				
-				for(int i = 0; i < numberCombinations; i++)
-				{
-					String fileName = jobFilename;
-					
-					for(int j = 0; j < configurationSchema[i].length; j++)
-						fileName += "_" + configurationSchema[i][j];
-					
-					if(!fileName.equals(jobFilename))
-						configurations[i].save(new File(fileName));
-					
-					configurationFileNames.add(fileName);
-				}
-			}
-			catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
-		else {
-			System.out.println("Job file not found");
-			System.exit(1);			
-		}
-		
-		return configurationFileNames;
+		Document document = new XMLConfiguration(new File(experimentFileName)).getDocument();
+
+		return new ExpansionIterator(document, experimentFileName);
 	}
-	
-	private int expandElementsIterateElements(NodeList elements)
+
+	/**
+	 * Expands the experiments of a parsed document.
+	 *
+	 * @param document Experiment document. It is not modified
+	 * @param baseName Base of the configuration file names
+	 *
+	 * @return Iterator over the expanded configurations
+	 */
+
+	public Iterator<XMLConfiguration> expandExperiment(Document document, String baseName)
 	{
-		for(int i = 0; i < elements.getLength(); i++)
-		{
-			if(elements.item(i) instanceof Element)
-			{
-				Element element = (Element) elements.item(i);
-				
-				if(expandElementsIterateAttributes(element) == 1)
-					return 1;
-				
-				expandElementsIterateElements(element.getChildNodes());
-			}
-		}
-		
-		return 0;
+		return new ExpansionIterator(document, baseName);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Write a configuration in a directory
+	 */
+
+	private String save(XMLConfiguration configuration, File dir) throws ConfigurationException
+	{
+		File file = new File(dir, new File(configuration.getFileName()).getName());
+
+		configuration.save(file);
+
+		return dir.getPath() + "/" + file.getName();
 	}
-	
-	private int expandElementsIterateAttributes(Element element)
+
+	/**
+	 * Find the first multi-valued element of a document (in document
+	 * order) or, if there is none, the first multi-valued attribute.
+	 *
+	 * @return Element and attribute (null for multi-valued elements),
+	 * or null if the document is fully expanded
+	 */
+
+	private static Node [] findMultiValued(Document document)
 	{
-		NamedNodeMap attributes = element.getAttributes();
-		
-		for(int i = 0; i < attributes.getLength(); i++)
-		{
-			Node attribute = attributes.item(i);
-		
-			if(attribute.getNodeName().equals("multi"))
-			{
-				combinationBase.add(element.getElementsByTagName(element.getNodeName()).getLength());
-				return 1;
-			}
-		}
-		
-		return 0;
+		Element root = document.getDocumentElement();
+
+		Element element = findMultiElement(root);
+
+		if(element != null)
+			return new Node [] {element, null};
+
+		return findMultiAttribute(root);
 	}
-	
-	private int expandElementsIterateElements(NodeList elements, int[] configurationSchema)
+
+	private static Element findMultiElement(Element element)
 	{
-		for(int i = 0; i < elements.getLength(); i++)
+		if(element.hasAttribute("multi"))
+			return element;
+
+		NodeList children = element.getChildNodes();
+
+		for(int i = 0; i < children.getLength(); i++)
 		{
-			if(elements.item(i) instanceof Element)
+			if(children.item(i) instanceof Element)
 			{
-				Element element = (Element) elements.item(i);
-				
-				if(expandElementsIterateAtributes(element, configurationSchema) == 1)
-					return 1;
-				
-				expandElementsIterateElements(element.getChildNodes(), configurationSchema);
+				Element result = findMultiElement((Element) children.item(i));
+
+				if(result != null)
+					return result;
 			}
 		}
-		
-		return 0;
+
+		return null;
 	}
-	
-	private int expandElementsIterateAtributes(Element element, int[] configurationSchema)
+
+	private static Node [] findMultiAttribute(Element element)
 	{
 		NamedNodeMap attributes = element.getAttributes();
-		
+
 		for(int i = 0; i < attributes.getLength(); i++)
 		{
 			Node attribute = attributes.item(i);
-			
-			if(attribute.getNodeName().equals("multi"))
+
+			if(attribute.getNodeValue().equals("multi"))
+				return new Node [] {element, attribute};
+		}
+
+		NodeList children = element.getChildNodes();
+
+		for(int i = 0; i < children.getLength(); i++)
+		{
+			if(children.item(i) instanceof Element)
 			{
-				NodeList list = element.getElementsByTagName(element.getNodeName());
-				
-				for(int j = 0; j < configurationSchema.length; j++)
-					if(configurationSchema[j] != -1)
-					{
-						element.getParentNode().replaceChild(list.item(configurationSchema[j]), element);
-						
-						configurationSchema[j] = -1;
-						break;
-					}
-				
-				list = element.getChildNodes();
-				
-				for(int j = 0; j < list.getLength(); j++)
-				{
-					if(list.item(j).getNodeName().equals(attribute.getNodeName()))
-					{
-						element.removeChild(list.item(j));
-					}
-				}
-				
-				return 1;
+				Node [] result = findMultiAttribute((Element) children.item(i));
+
+				if(result != null)
+					return result;
 			}
 		}
-		
-		return 0;
+
+		return null;
 	}
-	
-	private ArrayList<String> expandAttributes(String jobFilename)
+
+	/**
+	 * Number of values of a multi-valued element or attribute
+	 */
+
+	private static int numberOfValues(Node [] multiValued)
 	{
-		combinationBase = new ArrayList<Integer>();
-		
-		ArrayList<String> configurationFileNames = new ArrayList<String>();
-		
-		// Try open job file
-		File jobFile = new File(jobFilename);
-		
-		if (jobFile.exists()) {
-			try {
-				
-				// Find the number of combinations to perform
-				expandAttributesIterateElements(new XMLConfiguration(jobFile).getDocument().getChildNodes());
-				
-				int numberCombinations = 1;
-				
-				// Calculate the amount of combinations
-				for(Integer i : combinationBase)
-					numberCombinations *= i;
-				
-				int[][] configurationSchema = new int[numberCombinations][];
-				
-				for(int i = 0; i < numberCombinations; i++)
-					configurationSchema[i] = new int[combinationBase.size()];
-				
-				int consecutiveElements = numberCombinations;
-				int accProduct = 1;
-				
-				// Calculate the combinations of each element
-				for(int i = 0; i < combinationBase.size(); i++)
-				{
-					consecutiveElements /= combinationBase.get(i);
-					
-					for(int j = 0; j < combinationBase.get(i); j++)
-					{
-						for(int k = 0; k < consecutiveElements; k++)
-						{
-							for(int r = 0; r < accProduct; r++)
-							{
-								int step = consecutiveElements*combinationBase.get(i);
-								configurationSchema[r*step + j*consecutiveElements + k][i] = j;
-							}
-						}
-					}
-					
-					accProduct *= combinationBase.get(i);
-				}
-				
-				XMLConfiguration[] configurations = new XMLConfiguration[numberCombinations];
-				
-				for(int i = 0; i < numberCombinations; i++)
-				{
-					configurations[i] = new XMLConfiguration(jobFile);
-					
-					//Build the document for each combination
-					expandAttributesIterateElements(configurations[i].getDocument().getChildNodes(), configurationSchema[i].clone());
-				}
-				
-				for(int i = 0; i < numberCombinations; i++)
-				{
-					String fileName = jobFilename;
-					
-					for(int j = 0; j < configurationSchema[i].length; j++)
-						fileName += "_" + configurationSchema[i][j];
-					
-					if(!fileName.equals(jobFilename))
-						configurations[i].save(new File(fileName));
-					
-					configurationFileNames.add(fileName);
-				}
-			}
-			catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
-		else {
-			System.out.println("Job file not found");
-			System.exit(1);			
-		}
-		
-		return configurationFileNames;
+		Element element = (Element) multiValued[0];
+
+		String name = (multiValued[1] == null) ? element.getNodeName() : multiValued[1].getNodeName();
+
+		return element.getElementsByTagName(name).getLength();
 	}
-	
-	private int expandAttributesIterateElements(NodeList elements)
+
+	/**
+	 * Set the value of a multi-valued element or attribute
+	 */
+
+	private static void chooseValue(Node [] multiValued, int value)
 	{
-		for(int i = 0; i < elements.getLength(); i++)
+		Element element = (Element) multiValued[0];
+
+		/** Replace the element by the chosen one */
+		if(multiValued[1] == null)
 		{
-			if(elements.item(i) instanceof Element)
-			{
-				Element element = (Element) elements.item(i);
-				
-				if(expandAttributesIterateAttributes(element) == 1)
-					return 1;
-				
-				expandAttributesIterateElements(element.getChildNodes());
-			}
+			Node chosen = element.getElementsByTagName(element.getNodeName()).item(value);
+
+			element.getParentNode().replaceChild(chosen, element);
 		}
-		
-		return 0;
-	}
-	
-	private int expandAttributesIterateAttributes(Element element)
-	{
-		NamedNodeMap attributes = element.getAttributes();
-		
-		for(int i = 0; i < attributes.getLength(); i++)
+
+		/** Set the attribute value and remove the values list */
+		else
 		{
-			Node attribute = attributes.item(i);
-		
-			if(attribute.getNodeValue().equals("multi"))
-			{
-				combinationBase.add(element.getElementsByTagName(attribute.getNodeName()).getLength());
-				return 1;
-			}
+			Attr attribute = (Attr) multiValued[1];
+
+			NodeList values = element.getElementsByTagName(attribute.getNodeName());
+
+			attribute.setValue(values.item(value).getTextContent());
+
+			List<Node> remove = new ArrayList<Node>();
+
+			NodeList children = element.getChildNodes();
+
+			for(int i = 0; i < children.getLength(); i++)
+				if(children.item(i).getNodeName().equals(attribute.getNodeName()))
+					remove.add(children.item(i));
+
+			for(Node child : remove)
+				element.removeChild(child);
 		}
-		
-		return 0;
 	}
-	
-	private int expandAttributesIterateElements(NodeList elements, int[] configurationSchema)
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Depth-first expansion of a document. Each stack frame keeps a
+	 * partially expanded document and the next value to choose for its
+	 * first multi-valued element or attribute.
+	 */
+
+	private static final class ExpansionIterator implements Iterator<XMLConfiguration>
 	{
-		for(int i = 0; i < elements.getLength(); i++)
+		/** Partially expanded documents */
+
+		private final LinkedList<Frame> stack = new LinkedList<Frame>();
+
+		/** Base of configuration file names */
+
+		private final String baseName;
+
+		/** Next configuration (null if not computed yet) */
+
+		private XMLConfiguration next;
+
+		ExpansionIterator(Document document, String baseName)
 		{
-			if(elements.item(i) instanceof Element)
-			{
-				Element element = (Element) elements.item(i);
-				
-				if(expandAttributesIterateAtributes(element, configurationSchema) == 1)
-					return 1;
-				
-				expandAttributesIterateElements(element.getChildNodes(), configurationSchema);
-			}
+			this.baseName = baseName;
+
+			stack.push(new Frame((Document) document.cloneNode(true), ""));
 		}
-		
-		return 0;
-	}
-	
-	private int expandAttributesIterateAtributes(Element element, int[] configurationSchema)
-	{
-		NamedNodeMap attributes = element.getAttributes();
-		
-		for(int i = 0; i < attributes.getLength(); i++)
+
+		public boolean hasNext()
 		{
-			Node attribute = attributes.item(i);
-			
-			if(attribute.getNodeValue().equals("multi"))
+			if(next == null)
+				next = advance();
+
+			return next != null;
+		}
+
+		public XMLConfiguration next()
+		{
+			if(!hasNext())
+				throw new NoSuchElementException();
+
+			XMLConfiguration result = next;
+
+			next = null;
+
+			return result;
+		}
+
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		private XMLConfiguration advance()
+		{
+			while(!stack.isEmpty())
 			{
-				NodeList list = element.getElementsByTagName(attribute.getNodeName());
-				
-				for(int j = 0; j < configurationSchema.length; j++)
-					if(configurationSchema[j] != -1)
-					{
-						attribute.setNodeValue(list.item(configurationSchema[j]).getFirstChild().getNodeValue());
-						configurationSchema[j] = -1;
-						break;
-					}
-			
-				list = element.getChildNodes();
-				
-				for(int j = 0; j < list.getLength(); j++)
+				Frame frame = stack.peek();
+
+				/** Fully expanded document */
+				if(frame.multiValued == null)
 				{
-					if(list.item(j).getNodeName().equals(attribute.getNodeName()))
-					{
-						element.removeChild(list.item(j));
-					}
+					stack.pop();
+
+					XMLConfiguration configuration = new XMLConfiguration();
+
+					configuration.initProperties(frame.document, false);
+
+					configuration.setFileName(baseName + frame.suffix);
+
+					return configuration;
+				}
+
+				/** All values tried */
+				if(frame.nextValue >= frame.numberOfValues)
+				{
+					stack.pop();
+
+					continue;
 				}
-				
-				return 1;
+
+				/** Choose next value in a copy of the document */
+				Document copy = (Document) frame.document.cloneNode(true);
+
+				chooseValue(findMultiValued(copy), frame.nextValue);
+
+				stack.push(new Frame(copy, frame.suffix + "_" + frame.nextValue));
+
+				frame.nextValue++;
 			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Partially expanded document
+	 */
+
+	private static final class Frame
+	{
+		final Document document;
+
+		final String suffix;
+
+		final Node [] multiValued;
+
+		final int numberOfValues;
+
+		int nextValue;
+
+		Frame(Document document, String suffix)
+		{
+			this.document = document;
+			this.suffix = suffix;
+			this.multiValued = findMultiValued(document);
+			this.numberOfValues = (multiValued == null) ? 0 : numberOfValues(multiValued);
 		}
-		
-		return 0;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,506 @@
+package net.sf.jclec;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.jclec.util.JobContext;
+
+/**
+ * Runs a set of experiment files concurrently.
+ *
+ * <ul>
+ * <li>
+ * Jobs run on a fixed number of threads.
+ * </li><li>
+ * Console output of each job (and of the threads it creates) is written
+ * to its own log file in the output directory.
+ * </li><li>
+ * Runtimes of finished jobs are recorded, so that next sweeps start
+ * the longest jobs first. Jobs without history are started first.
+ * </li><li>
+ * Finished jobs are appended to a manifest file. A sweep can be resumed
+ * skipping the jobs already recorded there. Resumed jobs restart from
+ * their last checkpoint, if they have a Checkpointer listener.
+ * </li>
+ * </ul>
+ *
+ * Jobs are identified by a digest of their configuration file contents,
+ * so history and manifest entries survive renaming of expanded files.
+ * Identical files of a sweep are told apart by their order (the second
+ * one has the key digest-2, and so on).
+ *
+ * Each job has its own directory in the output directory, named as its
+ * log. Listeners resolve their relative report and checkpoint paths in
+ * it with JobContext.resolve(), so jobs expanded from the same
+ * experiment do not overwrite each other's files. Absolute paths are
+ * not changed.
+ *
+ * Limits of output isolation:
+ *
+ * <ul>
+ * <li>
+ * Console output is routed by thread. Threads created by a job inherit
+ * its log and its directory, even if they are shared and later work for
+ * other jobs (for instance, the fork/join pools of ParallelRows are
+ * created by the first job that uses them). Output of such threads may
+ * go to the log of another job.
+ * </li><li>
+ * Output written by threads of a job after it has finished (daemon
+ * threads, for instance) goes to the console.
+ * </li><li>
+ * Files written by other means (paths built by the algorithm itself)
+ * are not redirected.
+ * </li>
+ * </ul>
+ */
+
+public class ExperimentScheduler
+{
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------------- Constants
+	/////////////////////////////////////////////////////////////////
+
+	/** Name of the runtimes history file */
+
+	public static final String HISTORY_FILENAME = "runtimes.properties";
+
+	/** Name of the manifest file */
+
+	public static final String MANIFEST_FILENAME = "manifest.txt";
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of jobs executed concurrently */
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/** Directory for logs, history and manifest */
+
+	private File outputDirectory = new File("experiments-output");
+
+	/** Skip jobs already recorded in the manifest, restart the others */
+
+	private boolean resume;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Recorded runtimes (job key -> milliseconds) */
+
+	private Properties history;
+
+	/** Manifest writer */
+
+	private PrintWriter manifest;
+
+	/** Number of failed jobs in last run */
+
+	private int numberOfFailures;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public ExperimentScheduler()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism)
+	{
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive");
+		}
+		this.parallelism = parallelism;
+	}
+
+	public File getOutputDirectory()
+	{
+		return outputDirectory;
+	}
+
+	public void setOutputDirectory(File outputDirectory)
+	{
+		this.outputDirectory = outputDirectory;
+	}
+
+	public boolean isResume()
+	{
+		return resume;
+	}
+
+	public void setResume(boolean resume)
+	{
+		this.resume = resume;
+	}
+
+	public int getNumberOfFailures()
+	{
+		return numberOfFailures;
+	}
+
+	// Execution
+
+	/**
+	 * Execute a set of jobs and wait for all of them.
+	 *
+	 * @param jobFilenames Experiment files to execute
+	 *
+	 * @throws IOException If history or manifest cannot be accessed
+	 */
+
+	public void run(List<String> jobFilenames) throws IOException
+	{
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			throw new IOException("Cannot create output directory " + outputDirectory);
+		}
+		// Load runtimes history
+		history = new Properties();
+		File historyFile = new File(outputDirectory, HISTORY_FILENAME);
+		if (historyFile.exists()) {
+			InputStream in = new FileInputStream(historyFile);
+			try {
+				history.load(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		// Jobs already finished
+		File manifestFile = new File(outputDirectory, MANIFEST_FILENAME);
+		Set<String> finished = resume ? readManifest(manifestFile) : new HashSet<String>();
+		manifest = new PrintWriter(new FileWriter(manifestFile, resume), true);
+		// Create pending jobs
+		List<Job> jobs = new ArrayList<Job>();
+		Set<String> keys = new HashSet<String>(), names = new HashSet<String>();
+		for (String jobFilename : jobFilenames) {
+			File file = new File(jobFilename);
+			if (!file.exists()) {
+				throw new IOException("Job file not found: " + jobFilename);
+			}
+			// Unique keys
+			Job job = new Job(file, JobContext.unique(JobContext.key(file), keys));
+			if (finished.contains(job.key)) {
+				continue;
+			}
+			// Unique log names
+			job.name = JobContext.unique(file.getName(), names);
+			job.directory = new File(outputDirectory, job.name).getAbsoluteFile();
+			String runtime = history.getProperty(job.key);
+			job.expectedTime = (runtime == null) ? Long.MAX_VALUE : Long.parseLong(runtime);
+			jobs.add(job);
+		}
+		// Longest jobs first (stable, so ties keep file order)
+		Collections.sort(jobs, new Comparator<Job>() {
+			public int compare(Job one, Job other) {
+				return (one.expectedTime > other.expectedTime) ? -1 :
+					((one.expectedTime < other.expectedTime) ? 1 : 0);
+			}
+		});
+		System.out.println("Scheduling " + jobs.size() + " jobs (" + (jobFilenames.size() - jobs.size())
+			+ " already finished) on " + parallelism + " threads");
+		// Redirect console output by job
+		PrintStream stdout = System.out, stderr = System.err;
+		JobOutput out = new JobOutput(stdout), err = new JobOutput(stderr);
+		System.setOut(new PrintStream(out, true));
+		System.setErr(new PrintStream(err, true));
+		numberOfFailures = 0;
+		try {
+			ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+			AtomicInteger counter = new AtomicInteger();
+			for (Job job : jobs) {
+				executor.execute(new JobRunner(job, out, err, stdout, counter, jobs.size()));
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				// Keep waiting
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			System.setOut(stdout);
+			System.setErr(stderr);
+			manifest.close();
+			saveHistory(historyFile);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Keys of the jobs finished successfully in the manifest.
+	 */
+
+	private static Set<String> readManifest(File manifestFile) throws IOException
+	{
+		Set<String> result = new HashSet<String>();
+		if (manifestFile.exists()) {
+			BufferedReader in = new BufferedReader(new FileReader(manifestFile));
+			try {
+				for (String line; (line = in.readLine()) != null; ) {
+					// key, status, milliseconds, name
+					String [] fields = line.split("\t");
+					if (fields.length >= 2 && "ok".equals(fields[1])) {
+						result.add(fields[0]);
+					}
+				}
+			}
+			finally {
+				in.close();
+			}
+		}
+		return result;
+	}
+
+	private synchronized void jobFinished(Job job, boolean ok, long time)
+	{
+		if (ok) {
+			history.setProperty(job.key, Long.toString(time));
+		}
+		else {
+			numberOfFailures++;
+		}
+		manifest.println(job.key + "\t" + (ok ? "ok" : "failed") + "\t" + time + "\t" + job.file.getPath());
+	}
+
+	private synchronized void saveHistory(File historyFile) throws IOException
+	{
+		OutputStream out = new FileOutputStream(historyFile);
+		try {
+			history.store(out, "JCLEC job runtimes (milliseconds)");
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Scheduled job.
+	 */
+
+	private static final class Job
+	{
+		final File file;
+
+		final String key;
+
+		String name;
+
+		File directory;
+
+		long expectedTime;
+
+		Job(File file, String key)
+		{
+			this.file = file;
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Executes one job with its console output redirected.
+	 */
+
+	private final class JobRunner implements Runnable
+	{
+		private final Job job;
+
+		private final JobOutput out, err;
+
+		private final PrintStream console;
+
+		private final AtomicInteger counter;
+
+		private final int numberOfJobs;
+
+		JobRunner(Job job, JobOutput out, JobOutput err, PrintStream console, AtomicInteger counter, int numberOfJobs)
+		{
+			this.job = job;
+			this.out = out;
+			this.err = err;
+			this.console = console;
+			this.counter = counter;
+			this.numberOfJobs = numberOfJobs;
+		}
+
+		public void run()
+		{
+			boolean ok = false;
+			long start = System.currentTimeMillis();
+			JobLog log = null;
+			try {
+				log = new JobLog(new FileOutputStream(new File(outputDirectory, job.name + ".log")));
+				out.set(log);
+				err.set(log);
+				if (!job.directory.isDirectory() && !job.directory.mkdirs()) {
+					throw new IOException("Cannot create job directory " + job.directory);
+				}
+				JobContext.enter(job.key, job.directory);
+				RunExperiment.runJob(job.file, resume);
+				ok = true;
+			}
+			catch (Throwable t) {
+				RunExperiment.reportFailure(job.key, t);
+			}
+			finally {
+				JobContext.exit();
+				out.set(null);
+				err.set(null);
+				if (log != null) {
+					log.close();
+				}
+			}
+			long time = System.currentTimeMillis() - start;
+			jobFinished(job, ok, time);
+			synchronized (console) {
+				console.println("[" + counter.incrementAndGet() + "/" + numberOfJobs + "] " + job.file.getPath()
+					+ (ok ? " finished in " : " FAILED after ") + (time/1000.0) + " s");
+			}
+		}
+	}
+
+	/**
+	 * Log file of a job. Once closed, writes of the threads that still
+	 * use it go to the default stream.
+	 */
+
+	private static final class JobLog
+	{
+		private final OutputStream stream;
+
+		private boolean closed;
+
+		JobLog(OutputStream stream)
+		{
+			this.stream = stream;
+		}
+
+		/**
+		 * Write to the log, if it is open.
+		 *
+		 * @return false if the log is closed
+		 */
+
+		synchronized boolean write(byte [] b, int off, int len) throws IOException
+		{
+			if (closed) {
+				return false;
+			}
+			stream.write(b, off, len);
+			return true;
+		}
+
+		synchronized void flush() throws IOException
+		{
+			if (!closed) {
+				stream.flush();
+			}
+		}
+
+		synchronized void close()
+		{
+			closed = true;
+			try {
+				stream.close();
+			}
+			catch (IOException e) {
+				// Nothing to do
+			}
+		}
+	}
+
+	/**
+	 * Output stream that writes to the log set by the current thread
+	 * (or the thread that created it), or to a default stream.
+	 */
+
+	private static final class JobOutput extends OutputStream
+	{
+		private final OutputStream defaultStream;
+
+		private final InheritableThreadLocal<JobLog> target = new InheritableThreadLocal<JobLog>();
+
+		JobOutput(OutputStream defaultStream)
+		{
+			this.defaultStream = defaultStream;
+		}
+
+		void set(JobLog log)
+		{
+			target.set(log);
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			write(new byte [] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte [] b, int off, int len) throws IOException
+		{
+			JobLog log = target.get();
+			if (log == null || !log.write(b, off, len)) {
+				synchronized (defaultStream) {
+					defaultStream.write(b, off, len);
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			JobLog log = target.get();
+			if (log != null) {
+				log.flush();
+			}
+			defaultStream.flush();
+		}
+	}
+}
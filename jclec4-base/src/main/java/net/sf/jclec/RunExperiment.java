@@ -1,8 +1,17 @@
 package net.sf.jclec;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
+import net.sf.jclec.algorithm.Checkpointer;
+import net.sf.jclec.algorithm.PopulationAlgorithm;
+
+import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
 import org.apache.commons.configuration.XMLConfiguration;
 
 /**
@@ -15,7 +24,12 @@ public class RunExperiment
 {
 	/** Usage message error */
 	
-	private static final String USAGE_MES = "\tnet.sf.jclec.RunExperiment <experiment file>\t\t(Execute experiment)";
+	private static final String USAGE_MES = "\tnet.sf.jclec.RunExperiment [options] <experiment file>\t\t(Execute experiment)\n"
+		+ "Options:\n"
+		+ "\t-parallelism <n>\tNumber of jobs executed concurrently (default 1)\n"
+		+ "\t-output <dir>\t\tDirectory for job logs, runtimes and manifest (default experiments-output)\n"
+		+ "\t-resume\t\t\tSkip jobs already finished in a previous execution, and restart\n"
+		+ "\t\t\t\tunfinished jobs from their last checkpoint (if any)";
 	
 	/**
 	 * Main method
@@ -25,7 +39,31 @@ public class RunExperiment
 	
 	public static void main(String[] args) 
 	{
-		if (args.length == 0) {
+		// Parse options
+		int parallelism = 1;
+		String output = null;
+		boolean resume = false;
+		String experimentFilename = null;
+		try {
+			for (int i=0; i<args.length; i++) {
+				if ("-parallelism".equals(args[i])) {
+					parallelism = Integer.parseInt(args[++i]);
+				}
+				else if ("-output".equals(args[i])) {
+					output = args[++i];
+				}
+				else if ("-resume".equals(args[i])) {
+					resume = true;
+				}
+				else {
+					experimentFilename = args[i];
+				}
+			}
+		}
+		catch (RuntimeException e) {
+			experimentFilename = null;
+		}
+		if (experimentFilename == null || parallelism < 1) {
 			System.out.println("Usage:" + USAGE_MES);
 			System.exit(1);
 		}
@@ -35,12 +73,44 @@ public class RunExperiment
 			
 			System.out.println("Initializing job");
 			
-			// Expand the processes and execute them
-			for(String experiment : builder.buildExperiment(args[0]))
-			{
-				System.out.println("Algorithm started");
-				executeJob(experiment);
-				System.out.println("Algorithm finished");
+			// Expand the processes in memory and execute them one 
+			// after another
+			if (parallelism == 1 && output == null && !resume) {
+				Iterator<XMLConfiguration> experiments = null;
+				try {
+					experiments = builder.expandExperiment(experimentFilename);
+				}
+				catch (ConfigurationException e) {
+					System.out.println("Job file not found");
+					System.exit(1);
+				}
+				while (experiments.hasNext())
+				{
+					System.out.println("Algorithm started");
+					executeJob(experiments.next());
+					System.out.println("Algorithm finished");
+				}
+			}
+			// Write the expanded processes and schedule them concurrently
+			else {
+				List<String> experiments = builder.buildExperiment(experimentFilename);
+				
+				ExperimentScheduler scheduler = new ExperimentScheduler();
+				scheduler.setParallelism(parallelism);
+				scheduler.setResume(resume);
+				if (output != null) {
+					scheduler.setOutputDirectory(new File(output));
+				}
+				try {
+					scheduler.run(experiments);
+				}
+				catch (IOException e) {
+					System.out.println("Scheduler error: " + e.getMessage());
+					System.exit(1);
+				}
+				if (scheduler.getNumberOfFailures() > 0) {
+					System.out.println(scheduler.getNumberOfFailures() + " jobs failed");
+				}
 			}
 			
 			System.out.println("Job finished");
@@ -50,41 +120,118 @@ public class RunExperiment
 	/**
 	 * Execute experiment
 	 * 
-	 * @param jobFilename
+	 * @param jobConf Job configuration
+	 */
+	
+	private static void executeJob(XMLConfiguration jobConf) 
+	{
+		try {
+			runJob(jobConf, false);
+		}
+		catch (Exception e) {
+			reportFailure(jobConf.getFileName(), e);
+		}			
+	}
+	
+	/**
+	 * Report the failure of a job. Configuration errors are reported
+	 * with a message for the user, followed by the stack trace.
+	 * 
+	 * @param job Job key (or name)
+	 * @param t Failure
+	 */
+	
+	static void reportFailure(String job, Throwable t) 
+	{
+		if (t instanceof ConfigurationException || t instanceof ConfigurationRuntimeException) {
+			System.out.println("Configuration exception in job " + job + ": " + t.getMessage());
+		}
+		t.printStackTrace();
+	}
+	
+	/**
+	 * Create, configure and execute the algorithm of an experiment
+	 * file.
+	 * 
+	 * @param jobFile Experiment file
+	 * @param restart Restart the algorithm from its last checkpoint
+	 * 
+	 * @throws Exception If the algorithm cannot be created or fails
+	 */
+	
+	static void runJob(File jobFile, boolean restart) throws Exception 
+	{
+		runJob(new XMLConfiguration(jobFile), restart);
+	}
+	
+	/**
+	 * Create, configure and execute the algorithm of an experiment
+	 * configuration.
+	 * 
+	 * @param jobConf Experiment configuration
+	 * @param restart Restart the algorithm from the last checkpoint
+	 * written by its Checkpointer listeners (if any)
+	 * 
+	 * @throws Exception If the algorithm cannot be created or fails
 	 */
 	
 	@SuppressWarnings("unchecked")
-	private static void executeJob(String jobFilename) 
+	static void runJob(XMLConfiguration jobConf, boolean restart) throws Exception 
 	{
-		// Try open job file
-		File jobFile = new File(jobFilename);		
-		if (jobFile.exists()) {
-			try {
-				// Job configuration
-				XMLConfiguration jobConf = new XMLConfiguration(jobFile);
-				// Process header
-				String header = "process";
-				// Create and configure algorithms
-				String aname = jobConf.getString(header+"[@algorithm-type]");
-				Class<IAlgorithm> aclass = (Class<IAlgorithm>) Class.forName(aname);
-				IAlgorithm algorithm = aclass.newInstance();
-				// Configure runner
-				if (algorithm instanceof IConfigure) {
-					((IConfigure) algorithm).configure(jobConf.subset(header));
+		// Process header
+		String header = "process";
+		// Create and configure algorithms
+		String aname = jobConf.getString(header+"[@algorithm-type]");
+		Class<IAlgorithm> aclass = (Class<IAlgorithm>) Class.forName(aname);
+		IAlgorithm algorithm = aclass.newInstance();
+		// Configure runner
+		if (algorithm instanceof IConfigure) {
+			((IConfigure) algorithm).configure(jobConf.subset(header));
+		}
+		// Restart from last checkpoint
+		if (restart && algorithm instanceof PopulationAlgorithm) {
+			File checkpoint = null;
+			Checkpointer owner = null;
+			for (Checkpointer checkpointer : checkpointers(jobConf.subset(header), new ArrayList<Checkpointer>())) {
+				File latest = checkpointer.latest();
+				if (latest != null && (checkpoint == null || latest.lastModified() > checkpoint.lastModified())) {
+					checkpoint = latest;
+					owner = checkpointer;
 				}
-				// Execute algorithm runner
-				algorithm.execute();
 			}
-			catch (ConfigurationException e) {
-				System.out.println("Configuration exception ");
-			}			
-			catch (Exception e) {
-				e.printStackTrace();
-			}			
+			if (checkpoint != null) {
+				System.out.println("Restarting from " + checkpoint);
+				owner.restore((PopulationAlgorithm) algorithm, checkpoint);
+			}
 		}
-		else {
-			System.out.println("Job file not found");
-			System.exit(1);			
+		// Execute algorithm runner
+		algorithm.execute();
+	}
+	
+	/**
+	 * Checkpointer listeners of a job, including those decorated by
+	 * other listeners (as AsyncListener).
+	 * 
+	 * @param settings Configuration of an algorithm or a listener
+	 * @param result List where checkpointers are added
+	 * 
+	 * @return result
+	 */
+	
+	private static List<Checkpointer> checkpointers(Configuration settings, List<Checkpointer> result) 
+	{
+		int numberOfListeners = settings.getList("listener[@type]").size();
+		for (int i=0; i<numberOfListeners; i++) {
+			Configuration listenerSettings = settings.subset("listener("+i+")");
+			if (Checkpointer.class.getName().equals(listenerSettings.getString("[@type]"))) {
+				Checkpointer checkpointer = new Checkpointer();
+				checkpointer.configure(listenerSettings);
+				result.add(checkpointer);
+			}
+			else {
+				checkpointers(listenerSettings, result);
+			}
 		}
+		return result;
 	}
-}
\ No newline at end of file
+}
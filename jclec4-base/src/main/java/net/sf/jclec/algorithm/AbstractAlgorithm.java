@@ -41,6 +41,10 @@ public abstract class AbstractAlgorithm implements IAlgorithm, IConfigure
 
 	protected ArrayList<IAlgorithmListener> listeners = new ArrayList<IAlgorithmListener>();
 	
+	/** Event fired to listeners (it only refers to this algorithm) */
+	
+	private transient AlgorithmEvent event;
+	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -229,7 +233,7 @@ public abstract class AbstractAlgorithm implements IAlgorithm, IConfigure
 	
 	protected final void fireAlgorithmStarted()
 	{
-		AlgorithmEvent event = new AlgorithmEvent(this);
+		AlgorithmEvent event = event();
 		
 		for (IAlgorithmListener listener : listeners) {
 			listener.algorithmStarted(event);
@@ -238,7 +242,7 @@ public abstract class AbstractAlgorithm implements IAlgorithm, IConfigure
 
 	protected final void fireIterationCompleted()
 	{
-		AlgorithmEvent event = new AlgorithmEvent(this);
+		AlgorithmEvent event = event();
 		
 		for (IAlgorithmListener listener : listeners) {
 			listener.iterationCompleted(event);
@@ -247,7 +251,7 @@ public abstract class AbstractAlgorithm implements IAlgorithm, IConfigure
 	
 	protected final void fireAlgorithmFinished()
 	{
-		AlgorithmEvent event = new AlgorithmEvent(this);
+		AlgorithmEvent event = event();
 		
 		for (IAlgorithmListener listener : listeners) {
 			listener.algorithmFinished(event);
@@ -256,11 +260,28 @@ public abstract class AbstractAlgorithm implements IAlgorithm, IConfigure
 
 	protected final void fireAlgorithmTerminated()
 	{
-		AlgorithmEvent event = new AlgorithmEvent(this);
+		AlgorithmEvent event = event();
 		
 		for (IAlgorithmListener listener : listeners) {
 			listener.algorithmTerminated(event);
 		}
 	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Event that refers to this algorithm. It is created once and
+	 * shared by all fired events.
+	 */
+	
+	private final AlgorithmEvent event()
+	{
+		if (event == null) {
+			event = new AlgorithmEvent(this);
+		}
+		return event;
+	}
 }
 
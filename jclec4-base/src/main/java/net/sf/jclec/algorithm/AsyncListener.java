@@ -0,0 +1,496 @@
+package net.sf.jclec.algorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.IPopulation;
+import net.sf.jclec.AlgorithmEvent;
+import net.sf.jclec.IAlgorithmListener;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Listener that delivers events to other listeners on a background
+ * thread, so that slow listeners (reports, files...) do not stall the
+ * evolution.
+ *
+ * Each event carries an immutable snapshot of the population (see
+ * SnapshotEvent). Events are published to a bounded buffer that is
+ * consumed by the background thread. If the buffer is full when an
+ * iteration is completed, the back-pressure policy decides:
+ *
+ * <ul>
+ * <li>
+ * <code>drop</code>: the iteration event is discarded.
+ * </li><li>
+ * <code>block</code>: the algorithm waits until there is room.
+ * </li><li>
+ * <code>sample</code>: only one of every <code>sampleInterval</code>
+ * iterations is published, and it is discarded if there is no room.
+ * </li>
+ * </ul>
+ *
+ * Start, finish and termination events are never discarded. When the
+ * algorithm finishes, it waits for all pending events to be delivered.
+ * Listener exceptions are thrown to the algorithm thread the next time
+ * it fires an event.
+ *
+ * The algorithm referred by a delivered event is the live algorithm,
+ * that may have advanced, so listeners must read its state from the
+ * snapshot. Listeners that need the live algorithm (as Checkpointer,
+ * that copies the random generators and the state of subclasses) must
+ * implement AsyncListener.Synchronous: they receive the original events
+ * on the algorithm thread, before the snapshot is published.
+ */
+
+public class AsyncListener implements IAlgorithmListener, IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 6108743201598863127L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------ Back-pressure policy
+	/////////////////////////////////////////////////////////////////
+
+	/** Discard events when buffer is full */
+
+	public static final String DROP = "drop";
+
+	/** Wait for room in buffer */
+
+	public static final String BLOCK = "block";
+
+	/** Publish one of every sampleInterval iterations */
+
+	public static final String SAMPLE = "sample";
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Event kinds
+	/////////////////////////////////////////////////////////////////
+
+	private static final int STARTED = 0;
+	private static final int ITERATION = 1;
+	private static final int FINISHED = 2;
+	private static final int TERMINATED = 3;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Listeners that receive events */
+
+	protected List<IAlgorithmListener> listeners = new ArrayList<IAlgorithmListener>();
+
+	/** Buffer capacity */
+
+	protected int capacity = 64;
+
+	/** Back-pressure policy */
+
+	protected String policy = DROP;
+
+	/** Iterations between published events (sample policy) */
+
+	protected int sampleInterval = 10;
+
+	/** Copy all inhabitants in snapshots */
+
+	protected boolean copyInhabitants;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Events buffer */
+
+	private transient BlockingQueue<Message> buffer;
+
+	/** Background thread */
+
+	private transient Thread consumer;
+
+	/** Exception thrown by a listener */
+
+	private transient volatile Throwable error;
+
+	/** Number of completed iterations */
+
+	private transient int iterations;
+
+	/** Number of discarded events */
+
+	private transient volatile int numberOfDroppedEvents;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public AsyncListener()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public void addListener(IAlgorithmListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	public List<IAlgorithmListener> getListeners()
+	{
+		return listeners;
+	}
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	public void setCapacity(int capacity)
+	{
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		this.capacity = capacity;
+	}
+
+	public String getPolicy()
+	{
+		return policy;
+	}
+
+	public void setPolicy(String policy)
+	{
+		if (!DROP.equals(policy) && !BLOCK.equals(policy) && !SAMPLE.equals(policy)) {
+			throw new IllegalArgumentException("Illegal back-pressure policy: " + policy);
+		}
+		this.policy = policy;
+	}
+
+	public int getSampleInterval()
+	{
+		return sampleInterval;
+	}
+
+	public void setSampleInterval(int sampleInterval)
+	{
+		if (sampleInterval < 1) {
+			throw new IllegalArgumentException("Sample interval must be positive");
+		}
+		this.sampleInterval = sampleInterval;
+	}
+
+	public boolean isCopyInhabitants()
+	{
+		return copyInhabitants;
+	}
+
+	public void setCopyInhabitants(boolean copyInhabitants)
+	{
+		this.copyInhabitants = copyInhabitants;
+	}
+
+	/**
+	 * @return Number of iteration events discarded in current execution
+	 */
+
+	public int getNumberOfDroppedEvents()
+	{
+		return numberOfDroppedEvents;
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for this listener are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>[@capacity] (int)</code></p>
+	 * Buffer capacity. Default value is 64
+	 * </li><li>
+	 * <code>[@policy] (drop|block|sample)</code></p>
+	 * Back-pressure policy. Default value is "drop"
+	 * </li><li>
+	 * <code>[@sample-interval] (int)</code></p>
+	 * Iterations between published events (sample policy). Default
+	 * value is 10
+	 * </li><li>
+	 * <code>[@copy-inhabitants] (boolean)</code></p>
+	 * Copy all inhabitants in snapshots. Default value is false
+	 * </li><li>
+	 * <code>listener: IAlgorithmListener (complex)</code></p>
+	 * Listeners that receive events (one or several)
+	 * </li>
+	 * </ul>
+	 */
+
+	@SuppressWarnings("unchecked")
+	public void configure(Configuration configuration)
+	{
+		try {
+			setCapacity(configuration.getInt("[@capacity]", capacity));
+			setPolicy(configuration.getString("[@policy]", policy));
+			setSampleInterval(configuration.getInt("[@sample-interval]", sampleInterval));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+		setCopyInhabitants(configuration.getBoolean("[@copy-inhabitants]", copyInhabitants));
+		// Number of defined listeners
+		int numberOfListeners = configuration.getList("listener[@type]").size();
+		// For each listener in list
+		for (int i=0; i<numberOfListeners; i++) {
+			String header = "listener("+i+")";
+			try {
+				// Listener classname
+				String listenerClassname =
+					configuration.getString(header+"[@type]");
+				// Listener class
+				Class<? extends IAlgorithmListener> listenerClass =
+					(Class<? extends IAlgorithmListener>) Class.forName(listenerClassname);
+				// Listener instance
+				IAlgorithmListener listener = listenerClass.newInstance();
+				// Configure listener (if necessary)
+				if (listener instanceof IConfigure) {
+					((IConfigure) listener).configure(configuration.subset(header));
+				}
+				// Add this listener
+				addListener(listener);
+			}
+			catch (ClassNotFoundException e) {
+				throw new ConfigurationRuntimeException("Illegal listener classname", e);
+			}
+			catch (InstantiationException e) {
+				throw new ConfigurationRuntimeException("Illegal listener classname", e);
+			}
+			catch (IllegalAccessException e) {
+				throw new ConfigurationRuntimeException("Illegal listener classname", e);
+			}
+		}
+	}
+
+	// IAlgorithmListener interface
+
+	public void algorithmStarted(AlgorithmEvent event)
+	{
+		for (IAlgorithmListener listener : listeners) {
+			if (listener instanceof Synchronous) {
+				listener.algorithmStarted(event);
+			}
+		}
+		buffer = new ArrayBlockingQueue<Message>(capacity);
+		error = null;
+		iterations = numberOfDroppedEvents = 0;
+		consumer = new Thread(new Consumer(buffer), "jclec-listeners");
+		consumer.setDaemon(true);
+		consumer.start();
+		put(new Message(STARTED, snapshotEvent(event)));
+	}
+
+	public void iterationCompleted(AlgorithmEvent event)
+	{
+		checkError();
+		for (IAlgorithmListener listener : listeners) {
+			if (listener instanceof Synchronous) {
+				listener.iterationCompleted(event);
+			}
+		}
+		iterations++;
+		if (BLOCK.equals(policy)) {
+			put(new Message(ITERATION, snapshotEvent(event)));
+		}
+		else if (SAMPLE.equals(policy) && iterations % sampleInterval != 0) {
+			return;
+		}
+		// Snapshots are not taken if they would be discarded
+		else if (buffer.remainingCapacity() == 0 || !buffer.offer(new Message(ITERATION, snapshotEvent(event)))) {
+			numberOfDroppedEvents++;
+		}
+	}
+
+	public void algorithmFinished(AlgorithmEvent event)
+	{
+		for (IAlgorithmListener listener : listeners) {
+			if (listener instanceof Synchronous) {
+				listener.algorithmFinished(event);
+			}
+		}
+		finish(new Message(FINISHED, snapshotEvent(event)));
+	}
+
+	public void algorithmTerminated(AlgorithmEvent event)
+	{
+		for (IAlgorithmListener listener : listeners) {
+			if (listener instanceof Synchronous) {
+				listener.algorithmTerminated(event);
+			}
+		}
+		finish(new Message(TERMINATED, snapshotEvent(event)));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private AlgorithmEvent snapshotEvent(AlgorithmEvent event)
+	{
+		if (event.getAlgorithm() instanceof IPopulation) {
+			IPopulation population = (IPopulation) event.getAlgorithm();
+			return new SnapshotEvent(event.getAlgorithm(), new PopulationSnapshot(population, copyInhabitants));
+		}
+		else {
+			return new SnapshotEvent(event.getAlgorithm(), null);
+		}
+	}
+
+	private void put(Message message)
+	{
+		try {
+			buffer.put(message);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Publish last event and wait for the consumer to deliver it.
+	 */
+
+	private void finish(Message message)
+	{
+		put(message);
+		put(new Message(-1, null));
+		try {
+			consumer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		checkError();
+	}
+
+	private void checkError()
+	{
+		Throwable t = error;
+		if (t != null) {
+			error = null;
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			}
+			else if (t instanceof Error) {
+				throw (Error) t;
+			}
+			throw new IllegalStateException("Listener failed", t);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Listener that reads the live algorithm, so it receives events on
+	 * the algorithm thread even when it is added to an AsyncListener.
+	 */
+
+	public interface Synchronous extends IAlgorithmListener
+	{
+	}
+
+	/**
+	 * Buffered event.
+	 */
+
+	private static final class Message
+	{
+		final int kind;
+
+		final AlgorithmEvent event;
+
+		Message(int kind, AlgorithmEvent event)
+		{
+			this.kind = kind;
+			this.event = event;
+		}
+	}
+
+	/**
+	 * Delivers buffered events until the end message is received.
+	 */
+
+	private final class Consumer implements Runnable
+	{
+		private final BlockingQueue<Message> buffer;
+
+		Consumer(BlockingQueue<Message> buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		public void run()
+		{
+			try {
+				for (Message message = buffer.take(); message.event != null; message = buffer.take()) {
+					// Once a listener has failed, events are discarded
+					if (error != null) {
+						continue;
+					}
+					try {
+						deliver(message);
+					}
+					catch (Throwable t) {
+						error = t;
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void deliver(Message message)
+		{
+			for (IAlgorithmListener listener : listeners) {
+				// Synchronous listeners have already received the event
+				if (listener instanceof Synchronous) {
+					continue;
+				}
+				switch (message.kind) {
+					case STARTED:
+						listener.algorithmStarted(message.event);
+						break;
+					case ITERATION:
+						listener.iterationCompleted(message.event);
+						break;
+					case FINISHED:
+						listener.algorithmFinished(message.event);
+						break;
+					case TERMINATED:
+						listener.algorithmTerminated(message.event);
+						break;
+				}
+			}
+		}
+	}
+}
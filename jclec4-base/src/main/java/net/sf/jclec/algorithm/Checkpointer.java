@@ -0,0 +1,446 @@
+package net.sf.jclec.algorithm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.AlgorithmEvent;
+
+import net.sf.jclec.util.JobContext;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Listener that writes periodic checkpoints of a population algorithm.
+ *
+ * Every <code>frequency</code> generations, the state of the algorithm
+ * is written in memory (see PopulationAlgorithm.writeCheckpoint()), and
+ * a background thread saves it to <code>name-generation.ckp</code> in
+ * the checkpoints directory, so the evolution never waits for the file
+ * system. Files are written under a temporary name and then renamed, so
+ * a checkpoint file is always complete. Only the last
+ * <code>keep</code> checkpoints are kept.
+ *
+ * Checkpoint files start with the identity of the job that wrote them
+ * (by default, the key of the scheduled job), and latest() and
+ * restore() ignore files of other jobs. In scheduled jobs, a relative
+ * checkpoints directory is resolved in the job directory (see
+ * JobContext.resolve()), so jobs expanded from the same experiment do
+ * not share it.
+ *
+ * When the algorithm finishes, it waits for pending writes. Write
+ * errors are thrown to the algorithm thread the next time it fires an
+ * event. Checkpoints need the live algorithm, so this listener is
+ * synchronous: inside an AsyncListener, it still receives events on
+ * the algorithm thread.
+ */
+
+public class Checkpointer implements AsyncListener.Synchronous, IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -6680527036614391829L;
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------------- Constants
+	/////////////////////////////////////////////////////////////////
+
+	/** Checkpoint file extension */
+
+	public static final String EXTENSION = ".ckp";
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Checkpoints directory */
+
+	protected File directory = new File("checkpoints");
+
+	/** Checkpoint file names prefix */
+
+	protected String name = "checkpoint";
+
+	/** Generations between checkpoints */
+
+	protected int frequency = 10;
+
+	/** Number of checkpoint files kept */
+
+	protected int keep = 2;
+
+	/** Identity of the job (empty if none) */
+
+	protected String job = "";
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Writer thread (created lazily) */
+
+	private transient ExecutorService writer;
+
+	/** Exception thrown by the writer */
+
+	private transient volatile Throwable error;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public Checkpointer()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	public void setDirectory(File directory)
+	{
+		this.directory = directory;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public void setName(String name)
+	{
+		this.name = name;
+	}
+
+	public int getFrequency()
+	{
+		return frequency;
+	}
+
+	public void setFrequency(int frequency)
+	{
+		if (frequency < 1) {
+			throw new IllegalArgumentException("Frequency must be positive");
+		}
+		this.frequency = frequency;
+	}
+
+	public int getKeep()
+	{
+		return keep;
+	}
+
+	public void setKeep(int keep)
+	{
+		if (keep < 1) {
+			throw new IllegalArgumentException("Number of kept checkpoints must be positive");
+		}
+		this.keep = keep;
+	}
+
+	public String getJob()
+	{
+		return job;
+	}
+
+	public void setJob(String job)
+	{
+		this.job = (job == null) ? "" : job;
+	}
+
+	// Checkpoint files
+
+	/**
+	 * Latest checkpoint file of this job.
+	 *
+	 * @return Checkpoint of the last generation, or null if there are
+	 * no checkpoints
+	 */
+
+	public File latest()
+	{
+		File result = null;
+		int last = -1;
+		File [] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				int generation = generation(file);
+				if (generation > last && owned(file)) {
+					last = generation;
+					result = file;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Restore an algorithm from a checkpoint of this job (see
+	 * PopulationAlgorithm.readCheckpoint()).
+	 *
+	 * @param algorithm Configured algorithm
+	 * @param file Checkpoint file
+	 *
+	 * @throws IOException If the file cannot be read, or it was written
+	 * by another job
+	 */
+
+	public void restore(PopulationAlgorithm algorithm, File file) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			String owner = in.readUTF();
+			if (!job.equals(owner)) {
+				throw new IOException("Checkpoint " + file + " was written by job " + owner);
+			}
+			algorithm.readCheckpoint(in);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for this listener are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>[@directory] (String)</code></p>
+	 * Checkpoints directory. Default value is "checkpoints"
+	 * </li><li>
+	 * <code>[@name] (String)</code></p>
+	 * Checkpoint file names prefix. Default value is "checkpoint"
+	 * </li><li>
+	 * <code>[@frequency] (int)</code></p>
+	 * Generations between checkpoints. Default value is 10
+	 * </li><li>
+	 * <code>[@keep] (int)</code></p>
+	 * Number of checkpoint files kept. Default value is 2
+	 * </li><li>
+	 * <code>[@job] (String)</code></p>
+	 * Identity of the job. Default value is the key of the scheduled
+	 * job (or none, out of the scheduler)
+	 * </li>
+	 * </ul>
+	 */
+
+	public void configure(Configuration configuration)
+	{
+		setDirectory(JobContext.resolve(configuration.getString("[@directory]", directory.getPath())));
+		setName(configuration.getString("[@name]", name));
+		setJob(configuration.getString("[@job]", JobContext.currentKey()));
+		try {
+			setFrequency(configuration.getInt("[@frequency]", frequency));
+			setKeep(configuration.getInt("[@keep]", keep));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	// IAlgorithmListener interface
+
+	public void algorithmStarted(AlgorithmEvent event)
+	{
+		error = null;
+	}
+
+	public void iterationCompleted(AlgorithmEvent event)
+	{
+		checkError();
+		PopulationAlgorithm algorithm = (PopulationAlgorithm) event.getAlgorithm();
+		final int generation = algorithm.getGeneration();
+		if (generation % frequency != 0) {
+			return;
+		}
+		// Write state in memory
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try {
+			new DataOutputStream(buffer).writeUTF(job);
+			algorithm.writeCheckpoint(buffer);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Cannot write checkpoint", e);
+		}
+		final byte [] contents = buffer.toByteArray();
+		// Save it in background
+		if (writer == null) {
+			writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "jclec-checkpoints");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		writer.execute(new Runnable() {
+			public void run() {
+				if (error != null) {
+					return;
+				}
+				try {
+					save(generation, contents);
+				}
+				catch (Throwable t) {
+					error = t;
+				}
+			}
+		});
+	}
+
+	public void algorithmFinished(AlgorithmEvent event)
+	{
+		finish();
+	}
+
+	public void algorithmTerminated(AlgorithmEvent event)
+	{
+		finish();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Save a checkpoint and delete old ones. Checkpoints written by
+	 * other jobs in the same directory are not deleted.
+	 */
+
+	private void save(int generation, byte [] contents) throws IOException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create checkpoints directory " + directory);
+		}
+		File file = new File(directory, name + "-" + generation + EXTENSION);
+		File tmp = new File(directory, name + "-" + generation + EXTENSION + ".tmp");
+		OutputStream out = new FileOutputStream(tmp);
+		try {
+			out.write(contents);
+			out.flush();
+			((FileOutputStream) out).getFD().sync();
+		}
+		finally {
+			out.close();
+		}
+		if ((file.exists() && !file.delete()) || !tmp.renameTo(file)) {
+			throw new IOException("Cannot rename checkpoint " + tmp);
+		}
+		// Delete old checkpoints of this job
+		File [] files = directory.listFiles();
+		if (files != null) {
+			for (File old : files) {
+				int oldGeneration = generation(old);
+				if (oldGeneration >= 0 && oldGeneration <= generation - keep*frequency && owned(old)) {
+					old.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Generation of a checkpoint file of this listener (or -1).
+	 */
+
+	private int generation(File file)
+	{
+		String filename = file.getName();
+		String prefix = name + "-";
+		if (!filename.startsWith(prefix) || !filename.endsWith(EXTENSION)) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(filename.substring(prefix.length(), filename.length() - EXTENSION.length()));
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Whether a checkpoint file was written by this job.
+	 */
+
+	private boolean owned(File file)
+	{
+		try {
+			InputStream in = new FileInputStream(file);
+			try {
+				return job.equals(new DataInputStream(in).readUTF());
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Wait for pending writes.
+	 */
+
+	private void finish()
+	{
+		if (writer != null) {
+			writer.shutdown();
+			try {
+				while (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+					// Keep waiting
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			writer = null;
+		}
+		checkError();
+	}
+
+	private void checkError()
+	{
+		Throwable t = error;
+		if (t != null) {
+			error = null;
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			}
+			else if (t instanceof Error) {
+				throw (Error) t;
+			}
+			throw new IllegalStateException("Checkpoint failed", t);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package net.sf.jclec.algorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.sf.jclec.JCLEC;
+import net.sf.jclec.IEvaluator;
+import net.sf.jclec.IIndividual;
+
+/**
+ * Evaluation stage of a breeding pipeline.
+ *
+ * Batches of individuals are evaluated on worker threads as soon as
+ * they are submitted, so the algorithm can go on breeding the next
+ * batch. <code>await()</code> waits until all submitted batches have
+ * been evaluated.
+ *
+ * The evaluator is called concurrently from the workers, so it must be
+ * thread safe: AbstractEvaluator synchronizes its statistics, but
+ * evaluate(IIndividual) is called from several threads at once. An
+ * evaluator that is not thread safe can only be used with one worker
+ * thread (batches are then evaluated one by one, while the algorithm
+ * goes on breeding). Fitness values do not depend on the order in
+ * which batches are evaluated, so results are the same as with a
+ * sequential evaluation.
+ */
+
+public class EvaluationPipeline implements JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -4482109739515806731L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Individuals per batch */
+
+	private int batchSize = 16;
+
+	/** Number of evaluation threads */
+
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Evaluation workers (created lazily) */
+
+	private transient ExecutorService workers;
+
+	/** Batches submitted and not awaited */
+
+	private transient List<Future<?>> pending = new ArrayList<Future<?>>();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public EvaluationPipeline()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize)
+	{
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+		this.batchSize = batchSize;
+	}
+
+	public int getNumberOfThreads()
+	{
+		return numberOfThreads;
+	}
+
+	public void setNumberOfThreads(int numberOfThreads)
+	{
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be positive");
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	// Pipeline
+
+	/**
+	 * Start the evaluation of a batch.
+	 *
+	 * @param evaluator Evaluator
+	 * @param batch Individuals to evaluate. The list must not be
+	 * modified until the batch is awaited
+	 */
+
+	public void submit(final IEvaluator evaluator, final List<IIndividual> batch)
+	{
+		if (batch.isEmpty()) {
+			return;
+		}
+		if (workers == null) {
+			workers = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "jclec-pipeline");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		if (pending == null) {
+			pending = new ArrayList<Future<?>>();
+		}
+		pending.add(workers.submit(new Runnable() {
+			public void run() {
+				evaluator.evaluate(batch);
+			}
+		}));
+	}
+
+	/**
+	 * Wait for all submitted batches.
+	 */
+
+	public void await()
+	{
+		if (pending == null) {
+			return;
+		}
+		try {
+			for (Future<?> result : pending) {
+				result.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException("Evaluation failed", e.getCause());
+		}
+		finally {
+			pending.clear();
+		}
+	}
+
+	/**
+	 * Stop evaluation workers. They are created again if more batches
+	 * are submitted.
+	 */
+
+	public void shutdown()
+	{
+		if (workers != null) {
+			workers.shutdownNow();
+			workers = null;
+		}
+		if (pending != null) {
+			pending.clear();
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package net.sf.jclec.algorithm;
+
+import net.sf.jclec.JCLEC;
+
+/**
+ * Stop criterion of a population algorithm.
+ *
+ * Criteria are checked in doControl(), after each generation, so they
+ * should keep their own statistics instead of iterating the population.
+ * Their non-transient state is saved in checkpoints.
+ *
+ * @see PopulationAlgorithm#addStopCriterion(IStopCriterion)
+ */
+
+public interface IStopCriterion extends JCLEC
+{
+	/**
+	 * Start a new execution. It is called once the initial population
+	 * has been evaluated.
+	 *
+	 * @param algorithm Algorithm that is checked
+	 */
+
+	public void reset(PopulationAlgorithm algorithm);
+
+	/**
+	 * Check the criterion after a generation.
+	 *
+	 * @param algorithm Algorithm that is checked
+	 *
+	 * @return true if evolution must be finished
+	 */
+
+	public boolean isFinished(PopulationAlgorithm algorithm);
+}
@@ -0,0 +1,533 @@
+package net.sf.jclec.algorithm;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.IIndividual;
+import net.sf.jclec.AlgorithmEvent;
+import net.sf.jclec.IAlgorithmListener;
+
+import net.sf.jclec.util.Ranking;
+import net.sf.jclec.util.random.Xoshiro;
+import net.sf.jclec.util.random.IRandGen;
+import net.sf.jclec.util.random.IRandGenFactory;
+import net.sf.jclec.util.random.AbstractRandGenFactory;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Island model. Runs several population algorithms (islands) on
+ * separate threads, exchanging individuals between them periodically.
+ *
+ * Every <code>migrationInterval</code> generations each island sends
+ * copies of its <code>migrationSize</code> best individuals to the
+ * islands connected to it, and replaces its worst individuals with the
+ * immigrants received since last migration. Immigrants are delivered
+ * through lock-free queues, so islands never wait for each other.
+ *
+ * Islands are configured from the <code>island</code> element, with the
+ * same syntax used for a single algorithm. The random generators seed of
+ * every island is derived from the configured one, so each island has
+ * its own random stream. Migrations use another generator, derived from
+ * the island seed, so they do not change the streams of the islands.
+ */
+
+public class IslandModel extends AbstractAlgorithm
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 3316942702563398721L;
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------------- Constants
+	/////////////////////////////////////////////////////////////////
+
+	/** Random generators seed in the island configuration */
+
+	private static final String SEED_KEY = "rand-gen-factory[@seed]";
+
+	/** Mixed with the island seed to seed its migrations generator */
+
+	private static final long MIGRATION_SALT = 0x6D6967726174696FL;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Topologies
+	/////////////////////////////////////////////////////////////////
+
+	/** Each island sends migrants to the next one */
+
+	public static final String RING = "ring";
+
+	/** Each island sends migrants to all the others */
+
+	public static final String FULL = "full";
+
+	/** Each island sends migrants to a randomly chosen one */
+
+	public static final String RANDOM = "random";
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Islands */
+
+	protected List<PopulationAlgorithm> islands = new ArrayList<PopulationAlgorithm>();
+
+	/** Migration topology */
+
+	protected String topology = RING;
+
+	/** Generations between migrations */
+
+	protected int migrationInterval = 10;
+
+	/** Number of individuals sent in each migration */
+
+	protected int migrationSize = 1;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Immigrants waiting to enter each island */
+
+	protected transient List<ConcurrentLinkedQueue<IIndividual>> immigrants;
+
+	/** Threads that run the islands */
+
+	protected transient ExecutorService executor;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty (default) constructor
+	 */
+
+	public IslandModel()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public final List<PopulationAlgorithm> getIslands()
+	{
+		return islands;
+	}
+
+	/**
+	 * Add an island to this model.
+	 *
+	 * @param island Island to add
+	 */
+
+	public final void addIsland(PopulationAlgorithm island)
+	{
+		islands.add(island);
+	}
+
+	public final String getTopology()
+	{
+		return topology;
+	}
+
+	public final void setTopology(String topology)
+	{
+		if (!RING.equals(topology) && !FULL.equals(topology) && !RANDOM.equals(topology)) {
+			throw new IllegalArgumentException("Unknown migration topology: " + topology);
+		}
+		this.topology = topology;
+	}
+
+	public final int getMigrationInterval()
+	{
+		return migrationInterval;
+	}
+
+	public final void setMigrationInterval(int migrationInterval)
+	{
+		this.migrationInterval = migrationInterval;
+	}
+
+	public final int getMigrationSize()
+	{
+		return migrationSize;
+	}
+
+	public final void setMigrationSize(int migrationSize)
+	{
+		this.migrationSize = migrationSize;
+	}
+
+	/**
+	 * Best individual of all islands.
+	 *
+	 * @return Best individual found
+	 */
+
+	public IIndividual getBestIndividual()
+	{
+		IIndividual result = null;
+		Comparator<IFitness> comparator = null;
+		for (PopulationAlgorithm island : islands) {
+			if (island.getInhabitants() == null) {
+				continue;
+			}
+			comparator = island.getEvaluator().getComparator();
+			for (IIndividual ind : island.getInhabitants()) {
+				if (result == null || comparator.compare(ind.getFitness(), result.getFitness()) > 0) {
+					result = ind;
+				}
+			}
+		}
+		return result;
+	}
+
+	// Execution methods
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * All islands are terminated too.
+	 */
+
+	@Override
+	public void terminate()
+	{
+		super.terminate();
+		for (PopulationAlgorithm island : islands) {
+			island.terminate();
+		}
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for this algorithm are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>number-of-islands (int)</code></p>
+	 * Number of islands
+	 * </li><li>
+	 * <code>island: PopulationAlgorithm (complex)</code></p>
+	 * Island algorithm. Its <code>algorithm-type</code> attribute sets
+	 * the algorithm class
+	 * </li><li>
+	 * <code>topology (ring | full | random)</code></p>
+	 * Migration topology (ring by default)
+	 * </li><li>
+	 * <code>migration-interval (int)</code></p>
+	 * Generations between migrations
+	 * </li><li>
+	 * <code>migration-size (int)</code></p>
+	 * Number of individuals sent in each migration
+	 * </li>
+	 * </ul>
+	 */
+
+	@SuppressWarnings("unchecked")
+	public void configure(Configuration configuration)
+	{
+		// Call super.configure() method
+		super.configure(configuration);
+		// Migration settings
+		setTopology(configuration.getString("topology", RING));
+		setMigrationInterval(configuration.getInt("migration-interval", 10));
+		setMigrationSize(configuration.getInt("migration-size", 1));
+		// Islands
+		int numberOfIslands = configuration.getInt("number-of-islands");
+		try {
+			// Island classname
+			String islandClassname = configuration.getString("island[@algorithm-type]");
+			// Island class
+			Class<? extends PopulationAlgorithm> islandClass =
+				(Class<? extends PopulationAlgorithm>) Class.forName(islandClassname);
+			// Island instances
+			Configuration islandConfiguration = configuration.subset("island");
+			Object configuredSeed = islandConfiguration.getProperty(SEED_KEY);
+			Integer seed = null;
+			try {
+				for (int i=0; i<numberOfIslands; i++) {
+					// Each island has its own random stream. The seed is
+					// set before configuring the island, which creates
+					// its random generators
+					if (i > 0 && seed != null) {
+						islandConfiguration.setProperty(SEED_KEY, islandSeed(seed, i));
+					}
+					PopulationAlgorithm island = islandClass.newInstance();
+					island.configure(islandConfiguration);
+					IRandGenFactory randGenFactory = island.getRandGenFactory();
+					if (i == 0 && randGenFactory instanceof AbstractRandGenFactory) {
+						seed = ((AbstractRandGenFactory) randGenFactory).getSeed();
+					}
+					addIsland(island);
+				}
+			}
+			finally {
+				// Leave the island configuration as it was
+				if (configuredSeed == null) {
+					islandConfiguration.clearProperty(SEED_KEY);
+				}
+				else {
+					islandConfiguration.setProperty(SEED_KEY, configuredSeed);
+				}
+			}
+		}
+		catch (ClassNotFoundException e) {
+			throw new ConfigurationRuntimeException("Illegal island classname");
+		}
+		catch (ClassCastException e) {
+			throw new ConfigurationRuntimeException("Islands must be population algorithms", e);
+		}
+		catch (InstantiationException e) {
+			throw new ConfigurationRuntimeException("Problems creating an instance of island", e);
+		}
+		catch (IllegalAccessException e) {
+			throw new ConfigurationRuntimeException("Problems creating an instance of island", e);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Create immigrant queues and connect islands.
+	 */
+
+	@Override
+	protected void doInit()
+	{
+		int numberOfIslands = islands.size();
+		if (numberOfIslands == 0) {
+			throw new IllegalStateException("Island model without islands");
+		}
+		// Immigrant queues
+		immigrants = new ArrayList<ConcurrentLinkedQueue<IIndividual>>(numberOfIslands);
+		for (int i=0; i<numberOfIslands; i++) {
+			immigrants.add(new ConcurrentLinkedQueue<IIndividual>());
+		}
+		// Migration listeners
+		for (int i=0; i<numberOfIslands; i++) {
+			PopulationAlgorithm island = islands.get(i);
+			island.addListener(new Migration(i, migrationRandGen(i)));
+		}
+	}
+
+	/**
+	 * Run all islands until they finish.
+	 */
+
+	@Override
+	protected void doIterate()
+	{
+		int numberOfIslands = islands.size();
+		executor = Executors.newFixedThreadPool(numberOfIslands);
+		try {
+			// Start islands
+			List<Future<?>> results = new ArrayList<Future<?>>(numberOfIslands);
+			for (final PopulationAlgorithm island : islands) {
+				results.add(executor.submit(new Runnable() {
+					public void run() {
+						island.execute();
+					}
+				}));
+			}
+			// Wait for all of them
+			for (Future<?> result : results) {
+				result.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			terminate();
+		}
+		catch (ExecutionException e) {
+			terminate();
+			throw new RuntimeException("Island execution failed", e.getCause());
+		}
+		finally {
+			executor.shutdown();
+			// Remove migration listeners
+			for (PopulationAlgorithm island : islands) {
+				for (IAlgorithmListener listener : new ArrayList<IAlgorithmListener>(island.listeners)) {
+					if (listener instanceof Migration) {
+						island.removeListener(listener);
+					}
+				}
+			}
+		}
+		if (state == RUNNING) {
+			state = FINISHED;
+		}
+	}
+
+	/**
+	 * Islands that receive the migrants of an island.
+	 *
+	 * @param from Island index
+	 * @param randgen Random generator of the island
+	 *
+	 * @return Destination islands
+	 */
+
+	protected int [] destinations(int from, IRandGen randgen)
+	{
+		int numberOfIslands = islands.size();
+		if (numberOfIslands == 1) {
+			return new int[0];
+		}
+		if (RING.equals(topology)) {
+			return new int [] {(from + 1) % numberOfIslands};
+		}
+		else if (FULL.equals(topology)) {
+			int [] result = new int[numberOfIslands - 1];
+			for (int i=0, j=0; i<numberOfIslands; i++) {
+				if (i != from) {
+					result[j++] = i;
+				}
+			}
+			return result;
+		}
+		else {
+			int to = randgen.choose(0, numberOfIslands - 1);
+			return new int [] {(to >= from) ? to + 1 : to};
+		}
+	}
+
+	/**
+	 * Random generator used to choose the destinations of the migrants
+	 * of an island. It is seeded from the island seed and index, not
+	 * created by the island factory, so the generators of the island
+	 * are the same with or without migrations.
+	 *
+	 * @param index Island index
+	 *
+	 * @return Migrations generator
+	 */
+
+	protected IRandGen migrationRandGen(int index)
+	{
+		IRandGenFactory randGenFactory = islands.get(index).getRandGenFactory();
+		int seed = (randGenFactory instanceof AbstractRandGenFactory) ?
+			((AbstractRandGenFactory) randGenFactory).getSeed() : 0;
+		return new Xoshiro((((long) index << 32) | (seed & 0xFFFFFFFFL)) ^ MIGRATION_SALT);
+	}
+
+	/**
+	 * Derive the seed of an island from the configured one.
+	 *
+	 * @param seed Configured seed
+	 * @param island Island index
+	 *
+	 * @return Island seed
+	 */
+
+	protected static int islandSeed(int seed, int island)
+	{
+		if (island == 0) {
+			return seed;
+		}
+		// SplitMix64 finalizer, so that consecutive islands get
+		// unrelated seeds
+		long z = seed + island*0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		// Positive, non-zero seed
+		int result = (int) (z >>> 33);
+		return (result == 0) ? 1 : result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Listener that performs the migrations of one island. It changes
+	 * the live island, so it is synchronous.
+	 */
+
+	protected class Migration implements AsyncListener.Synchronous
+	{
+		/** Island index */
+
+		private final int index;
+
+		/** Island random generator */
+
+		private final IRandGen randgen;
+
+		Migration(int index, IRandGen randgen)
+		{
+			this.index = index;
+			this.randgen = randgen;
+		}
+
+		public void algorithmStarted(AlgorithmEvent event)
+		{
+			// Do nothing
+		}
+
+		public void iterationCompleted(AlgorithmEvent event)
+		{
+			PopulationAlgorithm island = (PopulationAlgorithm) event.getAlgorithm();
+			if (migrationInterval <= 0 || island.getGeneration() % migrationInterval != 0) {
+				return;
+			}
+			List<IIndividual> inhabitants = island.getInhabitants();
+			Comparator<IFitness> comparator = island.getEvaluator().getComparator();
+			// Send copies of the best individuals
+			int [] to = destinations(index, randgen);
+			if (to.length > 0) {
+				for (IIndividual emigrant : Ranking.best(inhabitants, migrationSize, comparator)) {
+					for (int i=0; i<to.length; i++) {
+						immigrants.get(to[i]).offer(emigrant.copy());
+					}
+				}
+			}
+			// Receive immigrants, replacing worst individuals
+			ConcurrentLinkedQueue<IIndividual> queue = immigrants.get(index);
+			IIndividual immigrant;
+			while ((immigrant = queue.poll()) != null) {
+				int worst = Ranking.worstIndex(inhabitants, comparator);
+				if (worst >= 0 && comparator.compare(immigrant.getFitness(), inhabitants.get(worst).getFitness()) > 0) {
+					inhabitants.set(worst, immigrant);
+					island.inhabitantsChanged();
+				}
+			}
+		}
+
+		public void algorithmFinished(AlgorithmEvent event)
+		{
+			// Do nothing
+		}
+
+		public void algorithmTerminated(AlgorithmEvent event)
+		{
+			// Do nothing
+		}
+	}
+}
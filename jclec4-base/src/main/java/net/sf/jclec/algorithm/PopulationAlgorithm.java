@@ -1,6 +1,22 @@
 package net.sf.jclec.algorithm;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.IdentityHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import net.sf.jclec.ISpecies;
 import net.sf.jclec.IProvider;
@@ -9,6 +25,12 @@ import net.sf.jclec.IConfigure;
 import net.sf.jclec.IIndividual;
 import net.sf.jclec.IPopulation;
 
+import net.sf.jclec.base.AbstractEvaluator;
+
+import net.sf.jclec.util.Ranking;
+import net.sf.jclec.util.IdentityList;
+import net.sf.jclec.util.Recycler;
+import net.sf.jclec.util.PerformanceMetrics;
 import net.sf.jclec.util.random.IRandGen;
 import net.sf.jclec.util.random.IRandGenFactory;
 
@@ -21,12 +43,30 @@ import org.apache.commons.configuration.ConfigurationRuntimeException;
 /**
  * Algorithm that operates over a population. 
  * 
+ * The state of the evolution can be saved between two generations
+ * with writeCheckpoint(), and restored with readCheckpoint() before
+ * the algorithm is executed. A checkpoint contains the generation
+ * counter, the inhabitants, the number of evaluations, the state of
+ * the random generators and stop criteria, and the state that
+ * subclasses write in writeState(). The rest of the algorithm
+ * (species, operators, parameters...) is not saved: the algorithm
+ * that reads a checkpoint must have been configured as the one that
+ * wrote it.
+ * 
  * @author Sebastian Ventura
  */
 
 @SuppressWarnings("serial")
-public abstract class PopulationAlgorithm extends AbstractAlgorithm implements IPopulation 
+public abstract class PopulationAlgorithm extends AbstractAlgorithm implements IPopulation, PerformanceMetrics.Measurable 
 {
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------------- Constants
+	/////////////////////////////////////////////////////////////////
+	
+	/** First int of a checkpoint */
+	
+	private static final int CHECKPOINT_MAGIC = 0x4A434B31;
+	
 	/////////////////////////////////////////////////////////////////
 	// --------------------------------------------------- Properties
 	/////////////////////////////////////////////////////////////////
@@ -59,6 +99,10 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 	
 	protected int maxOfEvaluations;
 	
+	/** Additional stop criteria */
+	
+	protected List<IStopCriterion> stopCriteria = new ArrayList<IStopCriterion>();
+	
 	/////////////////////////////////////////////////////////////////
 	// ---------------------------- Internal variables (System state)
 	/////////////////////////////////////////////////////////////////
@@ -83,6 +127,34 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 	
 	protected transient List<IIndividual> rset;
 
+	/** Performance metrics */
+	
+	protected PerformanceMetrics metrics = new PerformanceMetrics();
+
+	/** Cached best inhabitant (null if unknown) */
+	
+	private transient IIndividual bestInhabitant;
+	
+	/** Inhabitants list for which bestInhabitant was set */
+	
+	private transient List<IIndividual> bestInhabitantSet;
+
+	/** Individuals seen by recycle() (reused between calls) */
+	
+	private transient IdentityHashMap<IIndividual, Boolean> seen;
+
+	/** Random generators created by createRandGen(), in order */
+	
+	private transient List<IRandGen> randGens = new ArrayList<IRandGen>();
+
+	/** Checkpoint to restore in next execution (null if none) */
+	
+	private transient byte [] checkpoint;
+
+	/** Checkpoint being restored (random generators and subclass state) */
+	
+	private transient ObjectInputStream restoring;
+
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -122,6 +194,11 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 		return bset;
 	}
 
+	public final PerformanceMetrics getMetrics()
+	{
+		return metrics;
+	}
+
 	// Setting and getting properties
 
 	public void setSpecies(ISpecies species) 
@@ -142,6 +219,19 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 	public final void setInhabitants(List<IIndividual> inhabitants)
 	{
 		this.bset = inhabitants;
+		inhabitantsChanged();
+	}
+
+	/**
+	 * Inform that inhabitants (or their fitness) have been changed
+	 * from outside the algorithm, for instance by a listener. Cached
+	 * information about them is discarded.
+	 */
+	
+	public void inhabitantsChanged()
+	{
+		bestInhabitant = null;
+		bestInhabitantSet = null;
 	}
 
 	public IRandGenFactory getRandGenFactory() 
@@ -198,6 +288,23 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 		this.maxOfEvaluations = maxOfEvaluations;
 	}
 
+	public final List<IStopCriterion> getStopCriteria()
+	{
+		return stopCriteria;
+	}
+
+	/**
+	 * Add a stop criterion. Evolution is finished when any criterion
+	 * is met.
+	 * 
+	 * @param stopCriterion Stop criterion
+	 */
+	
+	public final void addStopCriterion(IStopCriterion stopCriterion)
+	{
+		stopCriteria.add(stopCriterion);
+	}
+
 	// IAlgorithm interface
 
 	/**
@@ -206,7 +313,98 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 	
 	public IRandGen createRandGen() 
 	{
-		return randGenFactory.createRandGen();
+		IRandGen result = randGenFactory.createRandGen();
+		if (randGens == null) {
+			randGens = new ArrayList<IRandGen>();
+		}
+		randGens.add(result);
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * When the execution ends (but not when it is paused), evaluators
+	 * that hold external resources (Closeable evaluators, as
+	 * BinArrayProcessEvaluator) are closed. They must acquire them again
+	 * if they are used later.
+	 */
+	
+	@Override
+	public void execute()
+	{
+		try {
+			super.execute();
+		}
+		finally {
+			if (state != READY && evaluator instanceof Closeable) {
+				try {
+					((Closeable) evaluator).close();
+				}
+				catch (IOException e) {
+					throw new IllegalStateException("Cannot close evaluator", e);
+				}
+			}
+		}
+	}
+
+	// Checkpoints
+
+	/**
+	 * Write the state of the evolution. This method is called between
+	 * two generations (for instance, by a listener).
+	 * 
+	 * @param out Output stream. It is not closed
+	 * 
+	 * @throws IOException If the state cannot be written
+	 */
+	
+	public void writeCheckpoint(OutputStream out) throws IOException
+	{
+		GZIPOutputStream zout = new GZIPOutputStream(out);
+		ObjectOutputStream oout = new ObjectOutputStream(zout);
+		// Header
+		oout.writeInt(CHECKPOINT_MAGIC);
+		oout.writeUTF(getClass().getName());
+		// Population state
+		oout.writeInt(generation);
+		oout.writeInt(evaluator.getNumberOfEvaluations());
+		oout.writeObject(new ArrayList<IIndividual>(bset));
+		// Random generators
+		oout.writeObject(randGenFactory);
+		oout.writeObject((randGens == null) ? new ArrayList<IRandGen>() : new ArrayList<IRandGen>(randGens));
+		// Subclass state
+		writeState(oout);
+		// Stop criteria
+		oout.writeObject(new ArrayList<IStopCriterion>(stopCriteria));
+		oout.flush();
+		zout.finish();
+	}
+
+	/**
+	 * Read a checkpoint written by writeCheckpoint(). Next execution of
+	 * the algorithm starts from it, instead of creating a new
+	 * population.
+	 * 
+	 * @param in Input stream. It is not closed
+	 * 
+	 * @throws IOException If the checkpoint cannot be read or it was
+	 * written by another algorithm class
+	 */
+	
+	public void readCheckpoint(InputStream in) throws IOException
+	{
+		// Read all checkpoint contents
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		byte [] block = new byte[8192];
+		for (int n; (n = in.read(block)) > 0; ) {
+			buffer.write(block, 0, n);
+		}
+		byte [] contents = buffer.toByteArray();
+		// Check header
+		ObjectInputStream oin = openCheckpoint(contents);
+		oin.close();
+		checkpoint = contents;
 	}
 	
 	// IConfigure interface
@@ -232,6 +430,10 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 	 * <code>provider: IProvider (complex)</code></p>
 	 * Individuals provider
 	 * </li>
+	 * <li>
+	 * <code>stop-criterion: IStopCriterion (complex, several)</code></p>
+	 * Additional stop criteria
+	 * </li>
 	 * </ul>
 	 */
 	
@@ -263,6 +465,9 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 		
 		// Individuals provider
 		setProviderSettings(configuration);
+		
+		// Stop criteria
+		setStopCriteriaSettings(configuration);
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -392,6 +597,42 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 		}
 	}
 	
+	@SuppressWarnings("unchecked")
+	protected void setStopCriteriaSettings(Configuration configuration)
+	{
+		// Number of defined criteria
+		int numberOfCriteria = configuration.getList("stop-criterion[@type]").size();
+		// For each criterion in list
+		for (int i=0; i<numberOfCriteria; i++) {
+			String header = "stop-criterion("+i+")";
+			try {
+				// Criterion classname
+				String criterionClassname = 
+					configuration.getString(header+"[@type]");
+				// Criterion class
+				Class<? extends IStopCriterion> criterionClass = 
+					(Class<? extends IStopCriterion>) Class.forName(criterionClassname);
+				// Criterion instance
+				IStopCriterion criterion = criterionClass.newInstance();
+				// Configure criterion
+				if (criterion instanceof IConfigure) {
+					((IConfigure) criterion).configure(configuration.subset(header));
+				}
+				// Add criterion
+				addStopCriterion(criterion);
+			} 
+			catch (ClassNotFoundException e) {
+				throw new ConfigurationRuntimeException("Illegal stop criterion classname");
+			} 
+			catch (InstantiationException e) {
+				throw new ConfigurationRuntimeException("Problems creating an instance of stop criterion", e);
+			} 
+			catch (IllegalAccessException e) {
+				throw new ConfigurationRuntimeException("Problems creating an instance of stop criterion", e);
+			}
+		}
+	}
+	
 	// java.lang.Object methods
 
 	@Override
@@ -436,12 +677,36 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 	{
 		// Set the init flag to false NO NECESARIO
 		// finished = false;
-		// Create individuals
-		bset = provider.provide(populationSize);
-		// Evaluate individuals
-		evaluator.evaluate(bset);
+		// Start measuring
+		metrics.reset();
+		metrics.mark();
+		if (evaluator instanceof AbstractEvaluator) {
+			((AbstractEvaluator) evaluator).resetStatistics();
+		}
+		// Keep at most two populations of discarded individuals
+		if (species instanceof Recycler) {
+			((Recycler) species).setCapacity(2*populationSize);
+		}
+		if (checkpoint != null) {
+			// Restore individuals
+			restoreInhabitants();
+		}
+		else {
+			// Create individuals
+			bset = new IdentityList(provider.provide(populationSize));
+			inhabitantsChanged();
+			// Evaluate individuals
+			evaluator.evaluate(bset);
+		}
+		// Start stop criteria
+		for (IStopCriterion criterion : stopCriteria) {
+			criterion.reset(this);
+		}
 		// Do Control
 		doControl();
+		// Init time
+		metrics.lap(PerformanceMetrics.INIT, bset.size());
+		updateEvaluatorMetrics();
 	}
 
 	/**
@@ -450,18 +715,30 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 	
 	protected void doIterate() 
 	{
+		// Restore the rest of a checkpoint once doInit() is finished
+		if (restoring != null) {
+			restoreState();
+		}
 		generation++;
+		metrics.mark();
 		// Do selection
 		doSelection();
+		metrics.lap(PerformanceMetrics.SELECTION, size(pset));
 		// Do generation
 		doGeneration();
+		metrics.lap(PerformanceMetrics.GENERATION, size(cset));
 		// Do replacement
 		doReplacement();
+		metrics.lap(PerformanceMetrics.REPLACEMENT, size(rset));
 		// Do update
 		doUpdate();
+		metrics.lap(PerformanceMetrics.UPDATE, size(bset));
 		// Do control
 		doControl();
-		// Increments generation counter
+		metrics.lap(PerformanceMetrics.CONTROL, 0);
+		// Iteration counters
+		updateEvaluatorMetrics();
+		metrics.iterationCompleted();
 	}
 			
 	/**
@@ -505,6 +782,10 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 	 * If one individual has an  acceptable fitness, set the finished
 	 * flag to true. Else, the flag remains false. 
 	 * </li>
+	 * <li>
+	 * If any of the stop criteria is met, set the finished flag to
+	 * true.
+	 * </li>
 	 * </ul>
 	 */
 	
@@ -533,5 +814,263 @@ public abstract class PopulationAlgorithm extends AbstractAlgorithm implements I
 				return;
 			}
 		}
+		// Additional stop criteria (all of them are checked, so that
+		// they update their statistics every generation)
+		boolean finished = false;
+		for (IStopCriterion criterion : stopCriteria) {
+			finished |= criterion.isFinished(this);
+		}
+		if (finished) {
+			state = FINISHED;
+		}
 	}	
+
+	/**
+	 * Write the state of a subclass in a checkpoint. Default
+	 * implementation writes nothing. Individuals that are also in bset
+	 * are written as references to them.
+	 * 
+	 * @param out Checkpoint stream
+	 * 
+	 * @throws IOException If the state cannot be written
+	 */
+	
+	protected void writeState(ObjectOutputStream out) throws IOException
+	{
+		// Nothing to write
+	}
+
+	/**
+	 * Read the state written by writeState(). It is called after
+	 * doInit(), before the first generation of a restored execution.
+	 * 
+	 * @param in Checkpoint stream
+	 * 
+	 * @throws IOException If the state cannot be read
+	 * @throws ClassNotFoundException If a class in the state is not found
+	 */
+	
+	protected void readState(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		// Nothing to read
+	}
+
+	/**
+	 * Best individual in bset. It is computed in one pass over bset,
+	 * unless it has been set with setBestInhabitant() and bset has not
+	 * been replaced since then.
+	 * 
+	 * @return Best inhabitant
+	 */
+	
+	protected final IIndividual getBestInhabitant()
+	{
+		if (bestInhabitant == null || bestInhabitantSet != bset) {
+			setBestInhabitant(Ranking.best(bset, evaluator.getComparator()));
+		}
+		return bestInhabitant;
+	}
+	
+	/**
+	 * Cache the best individual in bset. Algorithms that know it after
+	 * updating bset set it, so the next generation does not search it.
+	 * Algorithms that change bset in place must set it again (or call
+	 * inhabitantsChanged()) before getBestInhabitant() is called.
+	 * 
+	 * @param best Best inhabitant
+	 */
+	
+	protected final void setBestInhabitant(IIndividual best)
+	{
+		bestInhabitant = best;
+		bestInhabitantSet = bset;
+	}
+
+	/**
+	 * Give discarded individuals back to the species, if it recycles
+	 * them (see Recycler). Individuals in the survivors list are never
+	 * recycled, even if they are in the discarded list, and individuals
+	 * repeated in the discarded list are recycled once.
+	 * 
+	 * Subclasses call this method in doUpdate(), once the individuals
+	 * are not referenced by any set.
+	 * 
+	 * @param discarded Individuals removed from the population
+	 * @param survivors New population
+	 */
+	
+	protected void recycle(List<IIndividual> discarded, List<IIndividual> survivors)
+	{
+		if (!(species instanceof Recycler) || !((Recycler) species).isRecycling() || discarded == null) {
+			return;
+		}
+		Recycler recycler = (Recycler) species;
+		if (seen == null) {
+			seen = new IdentityHashMap<IIndividual, Boolean>();
+		}
+		try {
+			for (IIndividual ind : survivors) {
+				seen.put(ind, Boolean.TRUE);
+			}
+			for (IIndividual ind : discarded) {
+				if (seen.put(ind, Boolean.TRUE) == null) {
+					recycler.recycle(ind);
+				}
+			}
+		}
+		finally {
+			seen.clear();
+		}
+	}
+	
+	/**
+	 * Copy an individual, using recycled memory if the species recycles
+	 * discarded individuals.
+	 * 
+	 * @param ind Individual to copy
+	 * 
+	 * @return Copy of ind
+	 */
+	
+	protected IIndividual copy(IIndividual ind)
+	{
+		if (species instanceof Recycler) {
+			return ((Recycler) species).copy(ind);
+		}
+		return ind.copy();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Copy evaluator totals to metrics. Evaluators are timed by
+	 * themselves, because they are called from several phases.
+	 */
+	
+	private final void updateEvaluatorMetrics()
+	{
+		metrics.setEvaluations(evaluator.getNumberOfEvaluations());
+		if (evaluator instanceof AbstractEvaluator) {
+			metrics.set(PerformanceMetrics.EVALUATOR, 
+				((AbstractEvaluator) evaluator).getEvaluationTime(), evaluator.getNumberOfEvaluations());
+		}
+	}
+	
+	/**
+	 * Open a checkpoint, checking its header.
+	 */
+	
+	private ObjectInputStream openCheckpoint(byte [] contents) throws IOException
+	{
+		ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new ByteArrayInputStream(contents)));
+		if (in.readInt() != CHECKPOINT_MAGIC) {
+			throw new IOException("Not a checkpoint");
+		}
+		String classname = in.readUTF();
+		if (!classname.equals(getClass().getName())) {
+			throw new IOException("Checkpoint written by " + classname);
+		}
+		return in;
+	}
+
+	/**
+	 * Restore generation, number of evaluations and inhabitants.
+	 */
+	
+	@SuppressWarnings("unchecked")
+	private final void restoreInhabitants()
+	{
+		try {
+			restoring = openCheckpoint(checkpoint);
+			checkpoint = null;
+			generation = restoring.readInt();
+			int evaluations = restoring.readInt();
+			if (evaluator instanceof AbstractEvaluator) {
+				((AbstractEvaluator) evaluator).setNumberOfEvaluations(evaluations);
+			}
+			bset = new IdentityList((List<IIndividual>) restoring.readObject());
+			inhabitantsChanged();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Cannot restore checkpoint", e);
+		}
+		catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Cannot restore checkpoint", e);
+		}
+	}
+
+	/**
+	 * Restore random generators and subclass state.
+	 */
+	
+	@SuppressWarnings("unchecked")
+	private final void restoreState()
+	{
+		try {
+			// Random generators factory
+			IRandGenFactory factory = (IRandGenFactory) restoring.readObject();
+			copyFields(factory, randGenFactory);
+			// Random generators, in creation order
+			List<IRandGen> saved = (List<IRandGen>) restoring.readObject();
+			if (randGens == null || saved.size() != randGens.size()) {
+				throw new IOException("Random generators do not match the configuration");
+			}
+			for (int i=0; i<saved.size(); i++) {
+				copyFields(saved.get(i), randGens.get(i));
+			}
+			// Subclass state
+			readState(restoring);
+			// Stop criteria
+			List<IStopCriterion> criteria = (List<IStopCriterion>) restoring.readObject();
+			if (criteria.size() != stopCriteria.size()) {
+				throw new IOException("Stop criteria do not match the configuration");
+			}
+			for (int i=0; i<criteria.size(); i++) {
+				copyFields(criteria.get(i), stopCriteria.get(i));
+			}
+			restoring.close();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Cannot restore checkpoint", e);
+		}
+		catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Cannot restore checkpoint", e);
+		}
+		finally {
+			restoring = null;
+		}
+	}
+
+	/**
+	 * Copy the non-static, non-transient fields of an object read from
+	 * a checkpoint to the object of the same class that is in use.
+	 */
+	
+	private static final void copyFields(Object source, Object target) throws IOException
+	{
+		if (source == null || target == null || source.getClass() != target.getClass()) {
+			throw new IOException("Checkpoint does not match the configuration");
+		}
+		try {
+			for (Class<?> c = source.getClass(); c != Object.class; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					int modifiers = field.getModifiers();
+					if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+						field.setAccessible(true);
+						field.set(target, field.get(source));
+					}
+				}
+			}
+		}
+		catch (IllegalAccessException e) {
+			throw new IOException("Cannot restore " + source.getClass().getName(), e);
+		}
+	}
+
+	private static final int size(List<IIndividual> list)
+	{
+		return (list == null) ? 0 : list.size();
+	}
 }
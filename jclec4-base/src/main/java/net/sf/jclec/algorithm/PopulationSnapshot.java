@@ -0,0 +1,201 @@
+package net.sf.jclec.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.sf.jclec.JCLEC;
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+import net.sf.jclec.IPopulation;
+
+import net.sf.jclec.fitness.IValueFitness;
+
+import net.sf.jclec.util.PerformanceMetrics;
+
+/**
+ * Immutable state of a population at the end of a generation.
+ *
+ * Contains the generation and evaluation counters, a copy of the best
+ * individual, statistics of fitness values (if individuals have value
+ * fitness) and, if requested, copies of all the inhabitants. Snapshots
+ * do not refer to the population they were taken from, so they can be
+ * read from any thread while the evolution goes on.
+ */
+
+public class PopulationSnapshot implements JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 2791736120947716853L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Generation */
+
+	private final int generation;
+
+	/** Number of evaluations */
+
+	private final int numberOfEvaluations;
+
+	/** Population size */
+
+	private final int populationSize;
+
+	/** Copy of the best individual (null if population is empty) */
+
+	private final IIndividual bestIndividual;
+
+	/** Fitness values statistics (NaN if not available) */
+
+	private final double minimumValue, maximumValue, averageValue, varianceValue;
+
+	/** Copies of the inhabitants (null if not requested) */
+
+	private final List<IIndividual> inhabitants;
+
+	/** Copy of performance metrics (null if not available) */
+
+	private final PerformanceMetrics metrics;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Take a snapshot of a population.
+	 *
+	 * @param population Population
+	 * @param copyInhabitants Copy all the inhabitants
+	 */
+
+	public PopulationSnapshot(IPopulation population, boolean copyInhabitants)
+	{
+		super();
+		List<IIndividual> inds = population.getInhabitants();
+		if (inds == null) {
+			inds = Collections.emptyList();
+		}
+		this.generation = population.getGeneration();
+		this.numberOfEvaluations = population.getEvaluator().getNumberOfEvaluations();
+		this.populationSize = inds.size();
+		// Best individual and fitness statistics
+		Comparator<IFitness> comparator = population.getEvaluator().getComparator();
+		IIndividual best = null;
+		double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, sum = 0., sum2 = 0.;
+		boolean values = !inds.isEmpty();
+		for (IIndividual ind : inds) {
+			IFitness fitness = ind.getFitness();
+			if (best == null || comparator.compare(fitness, best.getFitness()) > 0) {
+				best = ind;
+			}
+			if (values && fitness instanceof IValueFitness) {
+				double value = ((IValueFitness) fitness).getValue();
+				if (min > value) min = value;
+				if (max < value) max = value;
+				sum += value;
+				sum2 += value*value;
+			}
+			else {
+				values = false;
+			}
+		}
+		this.bestIndividual = (best == null) ? null : best.copy();
+		if (values) {
+			double average = sum/populationSize;
+			this.minimumValue = min;
+			this.maximumValue = max;
+			this.averageValue = average;
+			this.varianceValue = Math.max(0., sum2/populationSize - average*average);
+		}
+		else {
+			this.minimumValue = this.maximumValue = this.averageValue = this.varianceValue = Double.NaN;
+		}
+		// Inhabitants copies
+		if (copyInhabitants) {
+			List<IIndividual> copies = new ArrayList<IIndividual>(populationSize);
+			for (IIndividual ind : inds) {
+				copies.add(ind.copy());
+			}
+			this.inhabitants = Collections.unmodifiableList(copies);
+		}
+		else {
+			this.inhabitants = null;
+		}
+		// Performance metrics
+		PerformanceMetrics metrics = PerformanceMetrics.of(population);
+		this.metrics = (metrics == null) ? null : metrics.copy();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	public int getGeneration()
+	{
+		return generation;
+	}
+
+	public int getNumberOfEvaluations()
+	{
+		return numberOfEvaluations;
+	}
+
+	public int getPopulationSize()
+	{
+		return populationSize;
+	}
+
+	public IIndividual getBestIndividual()
+	{
+		return bestIndividual;
+	}
+
+	public double getMinimumValue()
+	{
+		return minimumValue;
+	}
+
+	public double getMaximumValue()
+	{
+		return maximumValue;
+	}
+
+	public double getAverageValue()
+	{
+		return averageValue;
+	}
+
+	public double getVarianceValue()
+	{
+		return varianceValue;
+	}
+
+	/**
+	 * @return Copies of the inhabitants, or null if they were not
+	 * requested
+	 */
+
+	public List<IIndividual> getInhabitants()
+	{
+		return inhabitants;
+	}
+
+	/**
+	 * @return Performance metrics, or null if the population is not
+	 * measurable
+	 */
+
+	public PerformanceMetrics getMetrics()
+	{
+		return metrics;
+	}
+}
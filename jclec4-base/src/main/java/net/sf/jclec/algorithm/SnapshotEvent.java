@@ -0,0 +1,77 @@
+package net.sf.jclec.algorithm;
+
+import net.sf.jclec.IAlgorithm;
+import net.sf.jclec.AlgorithmEvent;
+
+import net.sf.jclec.util.PerformanceMetrics;
+
+/**
+ * Algorithm event that carries a snapshot of the algorithm state.
+ *
+ * Listeners that receive events asynchronously must read the state
+ * from the snapshot, because the algorithm referred by the event may
+ * have advanced since the event was fired. Listeners that need the
+ * live algorithm must implement AsyncListener.Synchronous.
+ */
+
+public class SnapshotEvent extends AlgorithmEvent implements PerformanceMetrics.Measurable
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -7392519842371609526L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Attributes
+	/////////////////////////////////////////////////////////////////
+
+	/** Algorithm state */
+
+	protected PopulationSnapshot snapshot;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * @param algorithm Source algorithm
+	 * @param snapshot Algorithm state (null if not available)
+	 */
+
+	public SnapshotEvent(IAlgorithm algorithm, PopulationSnapshot snapshot)
+	{
+		super(algorithm);
+		this.snapshot = snapshot;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Accessors
+
+	/**
+	 * Access to algorithm state.
+	 *
+	 * @return State when the event was fired (null if not available)
+	 */
+
+	public final PopulationSnapshot getSnapshot()
+	{
+		return snapshot;
+	}
+
+	// PerformanceMetrics.Measurable interface
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public PerformanceMetrics getMetrics()
+	{
+		return (snapshot == null) ? null : snapshot.getMetrics();
+	}
+}
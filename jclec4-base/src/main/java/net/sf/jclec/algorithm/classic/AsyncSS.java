@@ -0,0 +1,498 @@
+package net.sf.jclec.algorithm.classic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
+
+import net.sf.jclec.ISelector;
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.base.FilteredMutator;
+
+import net.sf.jclec.selector.WorsesSelector;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Asynchronous steady state algorithm.
+ *
+ * New individuals are evaluated on a pool of worker threads, keeping
+ * <code>evaluationsInFlight</code> evaluations running at any time.
+ * Sons bred when all workers are busy (a litter can have more sons
+ * than free workers) wait for a free worker.
+ * Each son is inserted in the population as soon as its evaluation
+ * finishes: the replacement selector chooses an inhabitant and the son
+ * replaces it if it is better. Workers never wait for the slowest
+ * evaluation of a generation, so they stay busy even if evaluation
+ * times are very different.
+ *
+ * The staleness of a son is the number of insertions done since its
+ * parents were selected. Sons older than <code>maxStaleness</code>
+ * insertions are discarded. Each generation waits for at least one
+ * evaluation, inserts all the evaluated sons and breeds new ones to
+ * refill the workers.
+ *
+ * The evaluator is called concurrently from the workers, so it must be
+ * thread safe. Results depend on evaluation times, so two executions
+ * with the same seed can differ.
+ */
+
+public class AsyncSS extends SS
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 5318867203641125946L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of evaluations running concurrently */
+
+	protected int evaluationsInFlight = Runtime.getRuntime().availableProcessors();
+
+	/** Maximum number of insertions between breeding and insertion */
+
+	protected int maxStaleness = -1;
+
+	/** Selects the inhabitant that a son can replace */
+
+	protected ISelector replacementSelector;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Evaluation workers */
+
+	private transient ExecutorService workers;
+
+	/** Finished evaluations */
+
+	private transient CompletionService<Son> evaluations;
+
+	/** Number of evaluations submitted and not inserted yet */
+
+	private transient int pending;
+
+	/** Sons bred and not submitted yet */
+
+	private transient Queue<Son> waiting;
+
+	/** Number of insertions done */
+
+	private transient long insertions;
+
+	/** Number of sons discarded by staleness */
+
+	private transient long numberOfStaleSons;
+
+	/** Sons evaluated in this generation */
+
+	private transient List<Son> arrived;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty (default) constructor
+	 */
+
+	public AsyncSS()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Getting and setting properties
+
+	public final int getEvaluationsInFlight()
+	{
+		return evaluationsInFlight;
+	}
+
+	public final void setEvaluationsInFlight(int evaluationsInFlight)
+	{
+		if (evaluationsInFlight < 1) {
+			throw new IllegalArgumentException("Evaluations in flight must be positive");
+		}
+		this.evaluationsInFlight = evaluationsInFlight;
+	}
+
+	/**
+	 * @return Maximum staleness (by default, the population size)
+	 */
+
+	public final int getMaxStaleness()
+	{
+		return (maxStaleness < 0) ? populationSize : maxStaleness;
+	}
+
+	public final void setMaxStaleness(int maxStaleness)
+	{
+		this.maxStaleness = maxStaleness;
+	}
+
+	public final ISelector getReplacementSelector()
+	{
+		return replacementSelector;
+	}
+
+	public final void setReplacementSelector(ISelector replacementSelector)
+	{
+		// Set replacement selector
+		this.replacementSelector = replacementSelector;
+		// Contextualize selector
+		replacementSelector.contextualize(this);
+	}
+
+	/**
+	 * @return Number of evaluations submitted and not inserted yet
+	 * (never more than evaluationsInFlight)
+	 */
+
+	public final int getNumberOfPendingEvaluations()
+	{
+		return pending;
+	}
+
+	/**
+	 * @return Number of sons discarded because of their staleness
+	 */
+
+	public final long getNumberOfStaleSons()
+	{
+		return numberOfStaleSons;
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration method.
+	 *
+	 * Configuration parameters for this algorithm are those of SS and:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>evaluations-in-flight (int)</code></p>
+	 * Number of concurrent evaluations. Default value is the number of
+	 * available processors
+	 * </li><li>
+	 * <code>max-staleness (int)</code></p>
+	 * Maximum staleness of inserted sons. Default value is the
+	 * population size
+	 * </li><li>
+	 * <code>replacement-selector: ISelector (complex)</code></p>
+	 * Selector of the inhabitants to replace. Default selector is
+	 * WorsesSelector
+	 * </li>
+	 * </ul>
+	 */
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void configure(Configuration settings)
+	{
+		// Call super.configure() method
+		super.configure(settings);
+		// Evaluations in flight
+		try {
+			setEvaluationsInFlight(settings.getInt("evaluations-in-flight", evaluationsInFlight));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+		// Maximum staleness
+		setMaxStaleness(settings.getInt("max-staleness", -1));
+		// Replacement selector
+		String replacementSelectorClassname =
+			settings.getString("replacement-selector[@type]", WorsesSelector.class.getName());
+		try {
+			// Selector class
+			Class<? extends ISelector> replacementSelectorClass =
+				(Class<? extends ISelector>) Class.forName(replacementSelectorClassname);
+			// Selector instance
+			ISelector replacementSelector = replacementSelectorClass.newInstance();
+			// Configure selector if necessary
+			if (replacementSelector instanceof IConfigure) {
+				((IConfigure) replacementSelector).configure(settings.subset("replacement-selector"));
+			}
+			// Set selector
+			setReplacementSelector(replacementSelector);
+		}
+		catch (ClassNotFoundException e) {
+			throw new ConfigurationRuntimeException("Illegal replacement selector classname");
+		}
+		catch (InstantiationException e) {
+			throw new ConfigurationRuntimeException("Problems creating an instance of replacement selector", e);
+		}
+		catch (IllegalAccessException e) {
+			throw new ConfigurationRuntimeException("Problems creating an instance of replacement selector", e);
+		}
+	}
+
+	// Execution methods
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Pending evaluations are cancelled.
+	 */
+
+	@Override
+	public void terminate()
+	{
+		super.terminate();
+		stopWorkers();
+	}
+
+	// java.lang.Object methods
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof AsyncSS) {
+			AsyncSS cother = (AsyncSS) other;
+			EqualsBuilder eb = new EqualsBuilder();
+			// Call super method
+			eb.appendSuper(super.equals(other));
+			// Evaluations in flight
+			eb.append(evaluationsInFlight, cother.evaluationsInFlight);
+			// Maximum staleness
+			eb.append(maxStaleness, cother.maxStaleness);
+			// Replacement selector
+			eb.append(replacementSelector, cother.replacementSelector);
+			// Return test result
+			return eb.isEquals();
+		}
+		else {
+			return false;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	// PopulationAlgorithm methods
+
+	/**
+	 * Start evaluation workers, then call super.doInit()
+	 */
+
+	@Override
+	protected void doInit()
+	{
+		// Default replacement selector
+		if (replacementSelector == null) {
+			setReplacementSelector(new WorsesSelector());
+		}
+		// Start workers
+		stopWorkers();
+		workers = Executors.newFixedThreadPool(evaluationsInFlight, new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "jclec-evaluator");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		evaluations = new ExecutorCompletionService<Son>(workers);
+		pending = 0;
+		waiting = new ArrayDeque<Son>();
+		insertions = numberOfStaleSons = 0;
+		// Create and evaluate initial population
+		super.doInit();
+	}
+
+	/**
+	 * Select parents for enough litters to refill the workers.
+	 */
+
+	@Override
+	protected void doSelection()
+	{
+		int free = evaluationsInFlight - pending - waiting.size();
+		if (free > 0) {
+			// Each litter of numberOfParents parents produces, as in
+			// SS, about numberOfParents sons
+			int litters = (free + numberOfParents - 1)/numberOfParents;
+			pset = parentsSelector.select(bset, litters*numberOfParents);
+		}
+		else {
+			pset = new ArrayList<IIndividual>();
+		}
+	}
+
+	/**
+	 * Breed sons and submit them to the free workers. Sons are not
+	 * awaited.
+	 */
+
+	@Override
+	protected void doGeneration()
+	{
+		if (pset.isEmpty()) {
+			cset = pset;
+		}
+		else {
+			// Recombine parents
+			cset = recombinator.recombine(pset);
+			// Mutate sons
+			cset = mutator.mutate(cset);
+			// If mutator is a filtered mutator...
+			if (mutator instanceof FilteredMutator) {
+				FilteredMutator fmutator = (FilteredMutator) mutator;
+				for (IIndividual sterile : fmutator.getSterile())
+					cset.add(sterile.copy());
+			}
+		}
+		// Submit sons, in breeding order
+		for (IIndividual ind : cset) {
+			waiting.add(new Son(ind, insertions));
+		}
+		while (pending < evaluationsInFlight && !waiting.isEmpty()) {
+			evaluations.submit(waiting.poll());
+			pending++;
+		}
+	}
+
+	/**
+	 * Wait for evaluated sons, and select the inhabitants they can
+	 * replace.
+	 */
+
+	@Override
+	protected void doReplacement()
+	{
+		arrived = new ArrayList<Son>();
+		rset = new ArrayList<IIndividual>();
+		try {
+			// Wait for one son, then take all the finished ones
+			Future<Son> result = null;
+			while (result == null && state == RUNNING) {
+				result = evaluations.poll(100, TimeUnit.MILLISECONDS);
+			}
+			for (; result != null; result = evaluations.poll()) {
+				arrived.add(result.get());
+				pending--;
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			terminate();
+		}
+		catch (ExecutionException e) {
+			terminate();
+			throw new RuntimeException("Evaluation failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Insert evaluated sons in arrival order.
+	 */
+
+	@Override
+	protected void doUpdate()
+	{
+		int staleness = getMaxStaleness();
+		for (Son son : arrived) {
+			// Discard stale sons
+			if (insertions - son.birth > staleness) {
+				numberOfStaleSons++;
+				continue;
+			}
+			// Replace the selected inhabitant if son is better
+			IIndividual replaced = replacementSelector.select(bset, 1).get(0);
+			if (evaluator.getComparator().compare(son.ind.getFitness(), replaced.getFitness()) > 0) {
+				bset.set(bset.indexOf(replaced), son.ind);
+				rset.add(replaced);
+				insertions++;
+			}
+		}
+		// Cleaning sets
+		cset = pset = null;
+		arrived = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Workers are stopped when evolution is finished.
+	 */
+
+	@Override
+	protected void doControl()
+	{
+		super.doControl();
+		if (state != RUNNING) {
+			stopWorkers();
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private final void stopWorkers()
+	{
+		if (workers != null) {
+			workers.shutdownNow();
+			workers = null;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Son evaluation.
+	 */
+
+	private final class Son implements Callable<Son>
+	{
+		/** Individual */
+
+		final IIndividual ind;
+
+		/** Number of insertions when it was bred */
+
+		final long birth;
+
+		Son(IIndividual ind, long birth)
+		{
+			this.ind = ind;
+			this.birth = birth;
+		}
+
+		public Son call()
+		{
+			evaluator.evaluate(Collections.singletonList(ind));
+			return this;
+		}
+	}
+}
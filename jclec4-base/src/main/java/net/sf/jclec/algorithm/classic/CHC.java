@@ -1,9 +1,15 @@
 package net.sf.jclec.algorithm.classic;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.ListIterator;
 
+import net.sf.jclec.IFitness;
 import net.sf.jclec.IMutator;
 import net.sf.jclec.IDistance;
 import net.sf.jclec.IConfigure;
@@ -13,7 +19,8 @@ import net.sf.jclec.IRecombinator;
 import net.sf.jclec.util.random.IRandGen;
 import net.sf.jclec.util.random.IRandGenFactory;
 
-import net.sf.jclec.selector.BettersSelector;
+import net.sf.jclec.util.Ranking;
+import net.sf.jclec.util.IdentityList;
 
 import net.sf.jclec.algorithm.PopulationAlgorithm;
 
@@ -26,6 +33,13 @@ import org.apache.commons.configuration.ConfigurationRuntimeException;
  * as the recombinator to  use in the generation phase  and the mutator to use in 
  * the restarting phase (optional). 
  * 
+ * In a restart, only the new individuals are evaluated, and those at
+ * distance 0 from a survivor (or from an archived individual) take its
+ * fitness instead of being evaluated. Optionally, the restart value of
+ * d is adapted to the convergence speed observed in each epoch (see
+ * doRestart()), and the best individuals of the basins found are kept
+ * in an elite archive.
+ * 
  * @author Sebastian Ventura
  */
 
@@ -69,6 +83,14 @@ public class CHC extends PopulationAlgorithm
 	
 	protected IMutator mutator;
 
+	/** Adapt restart d to the convergence speed */
+	
+	protected boolean adaptiveRestart;
+	
+	/** Size of the elite archive (0 if there is no archive) */
+	
+	protected int archiveSize;
+
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------- Internal variables
 	/////////////////////////////////////////////////////////////////
@@ -81,9 +103,29 @@ public class CHC extends PopulationAlgorithm
 	
 	private transient int d;
 	
-	/** Best individuals selector */
+	/** Actual value of d after restart */
+	
+	private transient int actualRestartD;
+	
+	/** Generation of last restart (or start) */
+	
+	private transient int epochStart;
 	
-	private transient BettersSelector bettersSelector = new BettersSelector(this);
+	/** Best fitness at last restart (null before the first restart) */
+	
+	private transient IFitness epochBest;
+	
+	/** Best individuals of the basins found, from best to worst */
+	
+	private transient List<IIndividual> archive;
+	
+	/** Number of restarts */
+	
+	private transient int numberOfRestarts;
+	
+	/** Evaluations saved in restarts */
+	
+	private transient int savedEvaluations;
 	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -117,7 +159,7 @@ public class CHC extends PopulationAlgorithm
 		// Call super method
 		super.setRandGenFactory(randGenFactory);
 		// Set the random generator
-		randgen = randGenFactory.createRandGen();
+		randgen = createRandGen();
 	}
 
 	/**
@@ -259,6 +301,108 @@ public class CHC extends PopulationAlgorithm
 		mutator.contextualize(this);
 	}
 
+	/**
+	 * Access to adaptive restart flag
+	 * 
+	 * @return true if restart d is adapted to the convergence speed
+	 */
+	
+	public boolean isAdaptiveRestart()
+	{
+		return adaptiveRestart;
+	}
+
+	/**
+	 * Set adaptive restart flag
+	 * 
+	 * @param adaptiveRestart Adapt restart d to the convergence speed
+	 */
+	
+	public void setAdaptiveRestart(boolean adaptiveRestart)
+	{
+		this.adaptiveRestart = adaptiveRestart;
+	}
+
+	/**
+	 * Access to elite archive size
+	 * 
+	 * @return Elite archive size (0 if there is no archive)
+	 */
+	
+	public int getArchiveSize()
+	{
+		return archiveSize;
+	}
+
+	/**
+	 * Set elite archive size
+	 * 
+	 * @param archiveSize Elite archive size (0 for no archive)
+	 */
+	
+	public void setArchiveSize(int archiveSize)
+	{
+		this.archiveSize = archiveSize;
+	}
+
+	/**
+	 * Access to elite archive. It contains copies of the best
+	 * individuals of the basins found until last restart, from best to
+	 * worst.
+	 * 
+	 * @return Elite archive
+	 */
+	
+	public List<IIndividual> getArchive()
+	{
+		return archive;
+	}
+
+	/**
+	 * Access to actual d
+	 * 
+	 * @return Actual value of d parameter
+	 */
+	
+	public int getActualD()
+	{
+		return d;
+	}
+
+	/**
+	 * Access to actual restart d
+	 * 
+	 * @return Value of d after next restart
+	 */
+	
+	public int getActualRestartD()
+	{
+		return actualRestartD;
+	}
+
+	/**
+	 * Access to number of restarts
+	 * 
+	 * @return Number of restarts in this execution
+	 */
+	
+	public int getNumberOfRestarts()
+	{
+		return numberOfRestarts;
+	}
+
+	/**
+	 * Access to saved evaluations
+	 * 
+	 * @return Number of new individuals that took the fitness of a
+	 * survivor or archived individual in restarts
+	 */
+	
+	public int getSavedEvaluations()
+	{
+		return savedEvaluations;
+	}
+
 	// IConfigure interface
 	
 	/**
@@ -339,9 +483,15 @@ public class CHC extends PopulationAlgorithm
 		// Restart d
 		int restartD = configuration.getInt("restart-d");
 		setRestartD(restartD);
+		// Adaptive restart
+		boolean adaptiveRestart = configuration.getBoolean("restart-d[@adaptive]", false);
+		setAdaptiveRestart(adaptiveRestart);
 		// Number of survivors
 		int numberOfSurvivors = configuration.getInt("number-of-survivors", 1);
 		setNumberOfSurvivors(numberOfSurvivors);
+		// Archive size
+		int archiveSize = configuration.getInt("archive-size", 0);
+		setArchiveSize(archiveSize);
 		//////////////////////////
 		// Mutator used in restart
 		//////////////////////////
@@ -398,6 +548,50 @@ public class CHC extends PopulationAlgorithm
 		super.doInit();
 		// Initialize d value
 		d = initialD;
+		// Initialize restart state
+		actualRestartD = restartD;
+		epochStart = generation;
+		epochBest = null;
+		archive = new ArrayList<IIndividual>();
+		numberOfRestarts = 0;
+		savedEvaluations = 0;
+	}
+
+	/**
+	 * Write d value and restart state
+	 * 
+	 * {@inheritDoc} 
+	 */
+	
+	@Override
+	protected void writeState(ObjectOutputStream out) throws IOException
+	{
+		out.writeInt(d);
+		out.writeInt(actualRestartD);
+		out.writeInt(epochStart);
+		out.writeObject(epochBest);
+		out.writeObject(new ArrayList<IIndividual>(archive));
+		out.writeInt(numberOfRestarts);
+		out.writeInt(savedEvaluations);
+	}
+
+	/**
+	 * Read d value and restart state
+	 * 
+	 * {@inheritDoc} 
+	 */
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void readState(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		d = in.readInt();
+		actualRestartD = in.readInt();
+		epochStart = in.readInt();
+		epochBest = (IFitness) in.readObject();
+		archive = (List<IIndividual>) in.readObject();
+		numberOfRestarts = in.readInt();
+		savedEvaluations = in.readInt();
 	}
 
 	/**
@@ -475,7 +669,7 @@ public class CHC extends PopulationAlgorithm
 		// Join bset and cset individuals
 		bset.addAll(cset);
 		// Take best individuals in this join set
-		bset = bettersSelector.select(bset, populationSize);
+		bset = new IdentityList(Ranking.best(bset, populationSize, evaluator.getComparator()));
 		// If bset(t) and bset(t-1) are different -that is, if bset(t)
 		// contains at least one cset(t) element, then return
 		for (IIndividual ind : cset) {
@@ -485,37 +679,141 @@ public class CHC extends PopulationAlgorithm
 		d--;
 		// If d is less than 0, diverge ...
 		if (d<0) {
-			// Take individuals that survive restart
-			bset = bettersSelector.select(bset, numberOfSurvivors);
-			// Number of individuals to create
-			int ninds = populationSize - numberOfSurvivors;
-			// If mutator is null, create new individuals from scratch
-			if (mutator == null)
-			{
-				bset.addAll(provider. provide(ninds));
+			doRestart();
+		}
+	}
+
+	/**
+	 * Restart the population. This method includes the following
+	 * actions:
+	 * 
+	 * <ul>
+	 * <li>Archive the best individual of the converged population (if
+	 * there is an archive). If it is closer than restart d to an
+	 * archived individual, it is considered the same basin</li>
+	 * <li>Adapt restart d (if adaptive restart is set). An epoch takes
+	 * restart d + 1 unsuccessful generations, plus the successful ones.
+	 * If it did not improve the best fitness (or found an archived
+	 * basin) and it had less successful than unsuccessful generations,
+	 * the population converged too fast, and restart d is increased by
+	 * a half, up to the greatest of initial d and restart d. When an
+	 * epoch improves the best fitness, restart d is set back to its
+	 * configured value</li>
+	 * <li>Create new individuals, and evaluate those that are not at
+	 * distance 0 from a survivor or an archived individual</li>
+	 * </ul>
+	 */
+	
+	protected void doRestart()
+	{
+		Comparator<IFitness> comparator = evaluator.getComparator();
+		// Take individuals that survive restart
+		bset = new IdentityList(Ranking.best(bset, numberOfSurvivors, comparator));
+		IIndividual best = bset.get(0);
+		// Archive the best individual
+		boolean knownBasin = false;
+		if (archiveSize > 0) {
+			knownBasin = archive(best, comparator);
+		}
+		// Adapt restart d
+		boolean improved = epochBest == null || comparator.compare(best.getFitness(), epochBest) > 0;
+		if (adaptiveRestart) {
+			int epochLength = generation - epochStart;
+			if ((!improved || knownBasin) && epochLength < 2*(actualRestartD + 1)) {
+				actualRestartD = Math.min(Math.max(initialD, restartD), actualRestartD + Math.max(1, actualRestartD/2));
 			}
-			else {
-				// Use pset as auxiliary list
-				pset.clear();			
-				// Take seed individual
-				IIndividual seed = bset.get(0);
-				// Put seeds in auxiliary array 
-				for (int i=0; i<ninds; i++)
-					pset.add(seed.copy());
-				// Add mutated individuals to bset
-				bset.addAll(mutator.mutate(pset));
+			else if (improved) {
+				actualRestartD = restartD;
 			}
-			// Evaluate new individuals
-			evaluator.evaluate(bset);
-			// Update d value
-			d = restartD;
 		}
+		if (improved) {
+			epochBest = best.getFitness();
+		}
+		// Number of individuals to create
+		int ninds = populationSize - numberOfSurvivors;
+		List<IIndividual> newInds;
+		// If mutator is null, create new individuals from scratch
+		if (mutator == null)
+		{
+			newInds = provider.provide(ninds);
+		}
+		else {
+			// Use pset as auxiliary list
+			pset.clear();			
+			// Put seeds in auxiliary array 
+			for (int i=0; i<ninds; i++)
+				pset.add(best.copy());
+			// Mutated individuals
+			newInds = mutator.mutate(pset);
+		}
+		// Evaluate new individuals only
+		List<IIndividual> unknown = new ArrayList<IIndividual>(newInds.size());
+		for (IIndividual ind : newInds) {
+			if (ind.getFitness() == null && !copyKnownFitness(ind)) {
+				unknown.add(ind);
+			}
+		}
+		evaluator.evaluate(unknown);
+		bset.addAll(newInds);
+		// Update d value
+		d = actualRestartD;
+		epochStart = generation;
+		numberOfRestarts++;
 	}
 
 	//////////////////////////////////////////////////////////////////////
 	// --------------------------------------------------- Private methods
 	//////////////////////////////////////////////////////////////////////
 	
+	/**
+	 * Put a copy of the best individual of an epoch in the archive.
+	 * If an archived individual is closer than restart d, the best of
+	 * both is kept.
+	 * 
+	 * @return true if the individual is in an archived basin
+	 */
+	
+	private final boolean archive(IIndividual best, Comparator<IFitness> comparator)
+	{
+		for (int i=0; i<archive.size(); i++) {
+			IIndividual archived = archive.get(i);
+			if (distance.distance(best, archived) < actualRestartD) {
+				if (comparator.compare(best.getFitness(), archived.getFitness()) > 0) {
+					archive.set(i, best.copy());
+					archive = Ranking.best(archive, archiveSize, comparator);
+				}
+				return true;
+			}
+		}
+		archive.add(best.copy());
+		archive = Ranking.best(archive, archiveSize, comparator);
+		return false;
+	}
+	
+	/**
+	 * Set the fitness of a new individual if it is at distance 0 from
+	 * a survivor or an archived individual.
+	 * 
+	 * @return true if fitness has been set
+	 */
+	
+	private final boolean copyKnownFitness(IIndividual ind)
+	{
+		return copyKnownFitness(ind, bset) || copyKnownFitness(ind, archive);
+	}
+	
+	private final boolean copyKnownFitness(IIndividual ind, List<IIndividual> known)
+	{
+		for (IIndividual other : known) {
+			if (distance.distance(ind, other) == 0) {
+				ind.setFitness(other.getFitness().copy());
+				savedEvaluations++;
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Based on shuffle implemented in java.util.Collections
 	 */
@@ -1,5 +1,8 @@
 package net.sf.jclec.algorithm.classic;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import net.sf.jclec.IMutator;
 import net.sf.jclec.IRecombinator;
 import net.sf.jclec.ISelector;
@@ -9,6 +12,7 @@ import net.sf.jclec.IIndividual;
 import net.sf.jclec.base.FilteredMutator;
 import net.sf.jclec.base.FilteredRecombinator;
 
+import net.sf.jclec.algorithm.EvaluationPipeline;
 import net.sf.jclec.algorithm.PopulationAlgorithm;
 
 import org.apache.commons.lang.builder.EqualsBuilder;
@@ -48,6 +52,10 @@ public class SG extends PopulationAlgorithm
 
 	protected FilteredRecombinator recombinator;
 	
+	/** Evaluation pipeline (null if sons are evaluated at once) */
+	
+	protected EvaluationPipeline pipeline;
+	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -193,6 +201,36 @@ public class SG extends PopulationAlgorithm
 		}
 		mutator.setMutProb(mutProb);
 	}
+	
+	/**
+	 * Access to evaluation pipeline.
+	 * 
+	 * @return Evaluation pipeline (null if it is not used)
+	 */
+	
+	public EvaluationPipeline getPipeline()
+	{
+		return pipeline;
+	}
+	
+	/**
+	 * Set evaluation pipeline. If it is set, sons are mutated in
+	 * batches, and each batch is evaluated while the next one is
+	 * mutated. The evaluator is then called from the pipeline threads,
+	 * concurrently if there are several, so it must be thread safe
+	 * (see EvaluationPipeline).
+	 * 
+	 * @param pipeline Evaluation pipeline (null to evaluate all sons
+	 * at once)
+	 */
+	
+	public void setPipeline(EvaluationPipeline pipeline)
+	{
+		if (this.pipeline != null) {
+			this.pipeline.shutdown();
+		}
+		this.pipeline = pipeline;
+	}
 
 	// IConfigure interface
 	
@@ -246,6 +284,22 @@ public class SG extends PopulationAlgorithm
 	 * 		</li>
 	 * 		</ul> 
 	 * </li>
+	 * <li>
+	 * <code>pipeline: (complex)</code> 
+	 * 		<ul>
+	 * 		<li>
+	 * 		<code>pipeline[@enabled] boolean</code></p>
+	 * 		Evaluate sons in a pipeline (default false). Evaluator
+	 * 		must be thread safe, unless there is only one thread
+	 * 		</li><li>
+	 * 		<code>pipeline[@batch-size] int</code></p>
+	 * 		Sons per batch (default 16)
+	 * 		</li><li>
+	 * 		<code>pipeline[@threads] int</code></p>
+	 * 		Evaluation threads (default, available processors)
+	 * 		</li>
+	 * 		</ul> 
+	 * </li>
 	 * </ul>
 	 */
 	
@@ -347,6 +401,18 @@ public class SG extends PopulationAlgorithm
 		// Mutation probability 
 		double mutProb = configuration.getDouble("mutator[@mut-prob]");
 		setMutationProb(mutProb);
+		// Evaluation pipeline
+		if (configuration.getBoolean("pipeline[@enabled]", false)) {
+			EvaluationPipeline pipeline = new EvaluationPipeline();
+			try {
+				pipeline.setBatchSize(configuration.getInt("pipeline[@batch-size]", pipeline.getBatchSize()));
+				pipeline.setNumberOfThreads(configuration.getInt("pipeline[@threads]", pipeline.getNumberOfThreads()));
+			}
+			catch (IllegalArgumentException e) {
+				throw new ConfigurationRuntimeException(e.getMessage(), e);
+			}
+			setPipeline(pipeline);
+		}
 	}	
 	
 	// java.lang.Object methods
@@ -387,13 +453,17 @@ public class SG extends PopulationAlgorithm
 	@Override
 	protected void doGeneration() 
 	{
+		if (pipeline != null) {
+			doPipelinedGeneration();
+			return;
+		}
 		// Recombine parents
 		cset = recombinator.recombine(pset);
 		// Add non-recombined inds. 
 		// These individuals are references to existent individuals 
 		// (elements of bset) so we make a copy of them
 		for (IIndividual ind : recombinator.getSterile()) 
-			cset.add(ind.copy());
+			cset.add(copy(ind));
 		// Mutate filtered inds
 		cset = mutator.mutate(cset);
 		// Add non-mutated inds. 
@@ -413,6 +483,8 @@ public class SG extends PopulationAlgorithm
 	@Override
 	protected void doUpdate() 
 	{
+		// Recycle replaced individuals
+		recycle(bset, cset);
 		// Sets new bset
 		bset = cset;
 		// Clear pset, rset & cset
@@ -420,4 +492,57 @@ public class SG extends PopulationAlgorithm
 		rset = null;
 		cset = null;	
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Evaluation pipeline is stopped when evolution is finished.
+	 */
+	
+	@Override
+	protected void doControl()
+	{
+		super.doControl();
+		if (state != RUNNING && pipeline != null) {
+			pipeline.shutdown();
+		}
+	}
+	
+	/**
+	 * Same plan as doGeneration(), but sons are mutated in batches and
+	 * each batch is evaluated while the following ones are mutated.
+	 * 
+	 * Mutation of a list is equivalent to the mutation of consecutive
+	 * batches of it (the filter and the decorated mutator take their
+	 * random numbers in the same order), and non-mutated sons are added
+	 * after all the mutated ones. So the resulting population is the
+	 * same as the one produced by doGeneration().
+	 */
+	
+	protected void doPipelinedGeneration()
+	{
+		// Recombine parents
+		List<IIndividual> sons = recombinator.recombine(pset);
+		// Add copies of non-recombined inds. 
+		for (IIndividual ind : recombinator.getSterile()) 
+			sons.add(copy(ind));
+		// Mutate and evaluate sons by batches
+		int batchSize = pipeline.getBatchSize();
+		cset = new ArrayList<IIndividual>(sons.size());
+		List<IIndividual> nonMutated = new ArrayList<IIndividual>();
+		for (int from = 0; from < sons.size(); from += batchSize) {
+			List<IIndividual> batch = 
+				sons.subList(from, Math.min(from + batchSize, sons.size()));
+			List<IIndividual> mutated = mutator.mutate(batch);
+			List<IIndividual> sterile = new ArrayList<IIndividual>(mutator.getSterile());
+			cset.addAll(mutated);
+			nonMutated.addAll(sterile);
+			pipeline.submit(evaluator, mutated);
+			pipeline.submit(evaluator, sterile);
+		}
+		// Add non-mutated inds.
+		cset.addAll(nonMutated);
+		// Wait for evaluation
+		pipeline.await();
+	}
 }
@@ -1,9 +1,11 @@
 package net.sf.jclec.algorithm.classic;
 
+import java.util.Comparator;
+
+import net.sf.jclec.IFitness;
 import net.sf.jclec.IIndividual;
 
-import net.sf.jclec.selector.WorsesSelector;
-import net.sf.jclec.selector.BettersSelector;
+import net.sf.jclec.util.Ranking;
 
 /**
  * <strong><u>S</u></strong>imple  <strong><u>G</u></strong>enerational and 
@@ -23,18 +25,6 @@ public class SGE extends SG
 	
 	private static final long serialVersionUID = -2649346083463795286L;
 
-	/////////////////////////////////////////////////////////////////
-	// ------------------------------------------- Internal variables
-	/////////////////////////////////////////////////////////////////
-
-	/** Betters selector. Used in update phase */
-	
-	BettersSelector bettersSelector = new BettersSelector(this);
-	
-	/** Worses selector. Used in update phase */
-
-	WorsesSelector worsesSelector = new WorsesSelector(this);
-	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -60,18 +50,24 @@ public class SGE extends SG
 	@Override
 	protected void doUpdate() 
 	{
-		IIndividual bestb = bettersSelector.select(bset, 1).get(0);
-		IIndividual bestc = bettersSelector.select(cset, 1).get(0);
+		Comparator<IFitness> comparator = evaluator.getComparator();
+		IIndividual bestb = getBestInhabitant();
+		IIndividual bestc = Ranking.best(cset, comparator);
 		// If best individual in b set (bestb) is better that best 
 		// individual in c set (bestc), remove worst individual in 
 		// c set (worstc) and add bestb to c set
-		if (evaluator.getComparator().compare(bestb.getFitness(), bestc.getFitness()) == 1) {
-			IIndividual worstc = worsesSelector.select(cset, 1).get(0);
-			cset.remove(worstc);
+		boolean elitism = (comparator.compare(bestb.getFitness(), bestc.getFitness()) == 1);
+		if (elitism) {
+			IIndividual worstc = cset.remove(Ranking.worstIndex(cset, comparator));
 			cset.add(bestb);
+			// worstc is discarded with the old bset
+			bset.add(worstc);
 		}
-		// Sets new bset
+		// Recycle replaced individuals
+		recycle(bset, cset);
+		// Sets new bset (and its best individual)
 		bset = cset;
+		setBestInhabitant(elitism ? bestb : bestc);
 		// Clear pset, rset & cset
 		pset = null;
 		rset = null;
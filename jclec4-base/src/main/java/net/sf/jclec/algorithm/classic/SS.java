@@ -1,5 +1,7 @@
 package net.sf.jclec.algorithm.classic;
 
+import java.util.List;
+
 import net.sf.jclec.IMutator;
 import net.sf.jclec.ISelector;
 import net.sf.jclec.IConfigure;
@@ -13,6 +15,8 @@ import net.sf.jclec.algorithm.PopulationAlgorithm;
 
 import net.sf.jclec.selector.BettersSelector;
 
+import net.sf.jclec.util.Ranking;
+
 import org.apache.commons.lang.builder.EqualsBuilder;
 
 import org.apache.commons.configuration.Configuration;
@@ -58,8 +62,14 @@ public class SS extends PopulationAlgorithm
 	// ------------------------------------------- Internal variables
 	/////////////////////////////////////////////////////////////////
 
-	/** Used in update phase */
+	/** 
+	 * Used in update phase
+	 * 
+	 * @deprecated Not used by this algorithm, that selects the best 
+	 * individuals with Ranking. Kept for subclasses
+	 */
 	
+	@Deprecated
 	protected BettersSelector bettersSelector = new BettersSelector(this);
 
 	/////////////////////////////////////////////////////////////////
@@ -289,7 +299,7 @@ public class SS extends PopulationAlgorithm
 		if (mutator instanceof FilteredMutator) {
 			FilteredMutator fmutator = (FilteredMutator) mutator;
 			for (IIndividual sterile : fmutator.getSterile()) 
-				cset.add(sterile.copy());
+				cset.add(copy(sterile));
 		}
 		// Evaluate all new individuals
 		evaluator.evaluate(cset);
@@ -312,9 +322,11 @@ public class SS extends PopulationAlgorithm
 			cset.add(ind);
 		}		
 		// Selecting best individuals in bset
-		cset = bettersSelector.select(cset, numberOfParents);		
+		List<IIndividual> selected = Ranking.best(cset, numberOfParents, evaluator.getComparator());
 		// Add selected individuals to bset
-		bset.addAll(cset);
+		bset.addAll(selected);
+		// Recycle replaced individuals
+		recycle(cset, bset);
 		// Cleaning cset, pset
 		cset = pset = null;
 			
@@ -10,6 +10,9 @@ import net.sf.jclec.selector.RandomSelector;
 import net.sf.jclec.selector.BettersSelector;
 import net.sf.jclec.selector.RouletteSelector;
 
+import net.sf.jclec.util.Ranking;
+import net.sf.jclec.util.IdentityList;
+
 import net.sf.jclec.algorithm.PopulationAlgorithm;
 import net.sf.jclec.base.RepeatRecombinator;
 
@@ -72,8 +75,14 @@ public class G3 extends PopulationAlgorithm
 
 	protected transient RouletteSelector updateSelector;
 	
-	/** Selector used in update plan */
+	/** 
+	 * Selector used in update plan
+	 * 
+	 * @deprecated Not used by this algorithm, that selects the best 
+	 * individuals with Ranking. Kept for subclasses
+	 */
 	
+	@Deprecated
 	protected transient BettersSelector bettersSelector;	
 
 	/////////////////////////////////////////////////////////////////
@@ -316,7 +325,7 @@ public class G3 extends PopulationAlgorithm
 	protected void doSelection() 
 	{	
 		// Best individual in b
-		IIndividual bestInB = bettersSelector.select(bset, 1).get(0);
+		IIndividual bestInB = getBestInhabitant();
 		// Remove bestInb from b
 		bset.remove(bestInB);
 		// Select parents
@@ -338,8 +347,8 @@ public class G3 extends PopulationAlgorithm
 	@Override
 	protected void doReplacement() 
 	{
-		// Individuals in rset
-		rset = replacementSelector.select(bset, r, false);
+		// Individuals in rset (compared by identity in update)
+		rset = new IdentityList(replacementSelector.select(bset, r, false));
 		// Remove rset individuals from bset
 		bset.removeAll(rset);
 	}
@@ -350,9 +359,16 @@ public class G3 extends PopulationAlgorithm
 		// Join cset and rset individuals
 		cset.addAll(rset);
 		// rprimeset contains r best individuals
-		List<IIndividual> rprimeset = bettersSelector.select(cset,r);
+		List<IIndividual> rprimeset = Ranking.best(cset, r, evaluator.getComparator());
 		// Put rprimeset individuals in bset 
 		bset.addAll(rprimeset); 
+		// Update best individual in b (it can be replaced or improved
+		// only by the best of rprimeset)
+		IIndividual bestInB = getBestInhabitant();
+		if (!rprimeset.isEmpty() && (rset.contains(bestInB) || 
+				evaluator.getComparator().compare(rprimeset.get(0).getFitness(), bestInB.getFitness()) > 0)) {
+			setBestInhabitant(rprimeset.get(0));
+		}
 	}
 	
 	/////////////////////////////////////////////////////////////////
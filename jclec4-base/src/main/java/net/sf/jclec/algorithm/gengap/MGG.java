@@ -4,10 +4,11 @@ import net.sf.jclec.IConfigure;
 import net.sf.jclec.IIndividual;
 import net.sf.jclec.IRecombinator;
 
-import net.sf.jclec.selector.BettersSelector;
 import net.sf.jclec.selector.RandomSelector;
 import net.sf.jclec.selector.RouletteSelector;
 
+import net.sf.jclec.util.Ranking;
+
 import net.sf.jclec.algorithm.PopulationAlgorithm;
 import net.sf.jclec.base.RepeatRecombinator;
 
@@ -58,10 +59,6 @@ public class MGG extends PopulationAlgorithm
 	
 	protected transient RandomSelector parentsSelector;
 	
-	/** Selector used in update plan (take the best son produced) */
-	
-	protected transient BettersSelector bettersSelector;	
-
 	/** Selector used in update plan */ 
 
 	protected transient RouletteSelector updateSelector;
@@ -271,7 +268,6 @@ public class MGG extends PopulationAlgorithm
 		// Set number of recombinator repetitions
 		setNumberOfRecombinatorRepetitions();
 		// Initialize selectors used in algorithm
-		bettersSelector = new BettersSelector(this);
 		parentsSelector = new RandomSelector(this);
 		updateSelector  = new RouletteSelector(this);
 	}
@@ -309,10 +305,8 @@ public class MGG extends PopulationAlgorithm
 	@Override
 	protected void doUpdate() 
 	{
-		// Best individual in cset  
-		IIndividual first = bettersSelector.select(cset, 1).get(0);
-		// Remove first from cset
-		cset.remove(first);
+		// Remove best individual from cset
+		IIndividual first = cset.remove(Ranking.bestIndex(cset, evaluator.getComparator()));
 		// Join rset & cset 
 		rset.addAll(cset);
 		// Select second individual
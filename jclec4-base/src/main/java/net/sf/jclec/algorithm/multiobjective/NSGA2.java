@@ -3,8 +3,10 @@ package net.sf.jclec.algorithm.multiobjective;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Set;
 
 import net.sf.jclec.IEvaluator;
 import net.sf.jclec.IFitness;
@@ -18,6 +20,8 @@ import net.sf.jclec.fitness.CompositeFitness;
 import net.sf.jclec.fitness.IValueFitness;
 import net.sf.jclec.fitness.ParetoComparator;
 import net.sf.jclec.fitness.ValueFitnessComparator;
+import net.sf.jclec.util.random.IRandGen;
+import net.sf.jclec.util.random.IRandGenFactory;
 
 import org.apache.commons.configuration.Configuration;
 
@@ -77,6 +81,18 @@ public class NSGA2 extends PopulationAlgorithm
 
 	private boolean maximize = true;
 
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Dominance kernels */
+
+	protected transient ParetoKernels kernels = new ParetoKernels();
+
+	/** Random generator used in tournaments */
+
+	private transient IRandGen randgen;
+
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -94,6 +110,22 @@ public class NSGA2 extends PopulationAlgorithm
 	// ------------------------------- Setting and getting properties
 	/////////////////////////////////////////////////////////////////
 
+	/**
+	 * Once the randGenFactory has been set, set the random generator
+	 * used in tournament selection.
+	 * 
+	 * {@inheritDoc} 
+	 */
+
+	@Override
+	public void setRandGenFactory(IRandGenFactory randGenFactory)
+	{
+		// Call super method
+		super.setRandGenFactory(randGenFactory);
+		// Set the random generator
+		randgen = createRandGen();
+	}
+
 	/**
 	 * Access to parents recombinator
 	 * 
@@ -272,8 +304,10 @@ public class NSGA2 extends PopulationAlgorithm
 
 		aset.addAll(bset);
 
+		// Hash set of aset members (equal individuals are not repeated)
+		Set<IIndividual> members = new HashSet<IIndividual>(aset);
 		for(IIndividual ind : cset)
-			if(!aset.contains(ind))
+			if(members.add(ind))
 				aset.add((IIndividual) ind);
 
 		//Clear the list of fronts
@@ -313,8 +347,9 @@ public class NSGA2 extends PopulationAlgorithm
 		//Sets new nodominated set
 		paretoFront.clear();
 
+		members.clear();
 		for(IIndividual ind : indFronts.get(0))
-			if(!paretoFront.contains(ind))
+			if(members.add(ind))
 				paretoFront.add(ind);
 
 		bset = newSet;
@@ -368,14 +403,14 @@ public class NSGA2 extends PopulationAlgorithm
 		for (int i=0; i<grpsiz-1; i++)
 		{
 			// Random selected individual
-			tmpNum = randGenFactory.createRandGen().choose(i,grplm1);
+			tmpNum = randgen.choose(i,grplm1);
 			IIndividual tmp = group.get(individuos[tmpNum]);
 			propTmp = individualProperty.get(tmp);
 
 			// Binary Tournament
 			for (int j=1; j<tsize; j++) 
 			{
-				tmp2Num = randGenFactory.createRandGen().choose(i,grplm1);
+				tmp2Num = randgen.choose(i,grplm1);
 				IIndividual tmp2 = group.get(individuos[tmp2Num]);
 				propTmp2 = individualProperty.get(tmp2);
 				if( propTmp.getFront() > propTmp2.getFront())
@@ -469,6 +504,12 @@ public class NSGA2 extends PopulationAlgorithm
 		for(int i=0; i<pob.size();i++)
 			propInd[i] = new PropertyIndividualsNSGA2();
 
+		//Objective values are extracted once, and the dominance
+		//relation between every pair of individuals is computed
+		//in parallel
+		kernels.load(pob, paretoComparator);
+		kernels.computeDominance();
+
 		//It is established the parameters of each individuals.
 		//These are the number of individuals that they dominate and the 
 		//number of individuals that dominate to him 
@@ -479,22 +520,12 @@ public class NSGA2 extends PopulationAlgorithm
 				// The first step is to calculate the number of individuals 
 				// which dominate each individual
 
-				switch(paretoComparator.compare((CompositeFitness)pob.get(i).getFitness(), (CompositeFitness) pob.get(j).getFitness()))
-				{
-				//if the result is equal to 1 it means that i dominates j
-				case 1:
+				//i dominates j
+				if(kernels.dominates(i, j))
 					auxiliarDominated.add(pob.get(j));
-					break;
-
-					//if the result is equal to -1 it means that j dominates i
-				case -1:
+				//j dominates i
+				else if(kernels.dominates(j, i))
 					propInd[i].setDomainedBy(propInd[i].getDomainedBy()+1);
-					break;
-
-					//if the result is equal to 0 there isn`t relation of "dominancia" 
-				case 0:
-					break;
-				}
 			}
 
 			//the list of dominated individuals is added to 
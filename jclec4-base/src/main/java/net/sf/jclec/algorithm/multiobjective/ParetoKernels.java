@@ -0,0 +1,422 @@
+package net.sf.jclec.algorithm.multiobjective;
+
+import java.util.Comparator;
+import java.util.List;
+
+import net.sf.jclec.JCLEC;
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.fitness.CompositeFitness;
+import net.sf.jclec.fitness.ICompositeFitness;
+import net.sf.jclec.fitness.IValueFitness;
+import net.sf.jclec.fitness.ParetoComparator;
+import net.sf.jclec.fitness.ValueFitnessComparator;
+
+import net.sf.jclec.util.ParallelRows;
+
+/**
+ * Pareto dominance and objective-space distance kernels shared by the
+ * multiobjective algorithms.
+ *
+ * Objective values of a set of individuals are copied into a primitive
+ * array, oriented so that greater values are always better. Dominance
+ * matrix, strength, raw fitness and distance matrix are then computed
+ * in parallel over blocks of rows. Every row is computed by a single
+ * task, so results do not depend on the number of threads.
+ *
+ * Objective directions are known when every component comparator is a
+ * ValueFitnessComparator. With any other comparator, dominance is
+ * computed calling the Pareto comparator for each pair of points (from
+ * several threads, so it must be thread-safe). Distances do not depend
+ * on directions.
+ */
+
+public class ParetoKernels implements JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 5934028741203956612L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Row-block executor */
+
+	private ParallelRows executor;
+
+	/** Loaded individuals */
+
+	private transient List<IIndividual> points;
+
+	/** Number of loaded points */
+
+	private int size;
+
+	/** Number of objectives */
+
+	private int numberOfObjectives;
+
+	/** Number of 64-bit words per row in the dominance matrix */
+
+	private int words;
+
+	/** Oriented objective values (size x numberOfObjectives, row-major) */
+
+	private transient double [] objectives = new double[0];
+
+	/** Pareto comparator (if objective directions are not known) */
+
+	private transient ParetoComparator comparator;
+
+	/** Fitness of loaded points (if objective directions are not known) */
+
+	private transient ICompositeFitness [] fitnesses;
+
+	/** Dominance matrix. Bit (i,j) is set if point i dominates j */
+
+	private transient long [] dominance = new long[0];
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor. Uses all available processors.
+	 */
+
+	public ParetoKernels()
+	{
+		this(new ParallelRows());
+	}
+
+	/**
+	 * Constructor that sets the row-block executor.
+	 *
+	 * @param executor Row-block executor
+	 */
+
+	public ParetoKernels(ParallelRows executor)
+	{
+		super();
+		this.executor = executor;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public ParallelRows getExecutor()
+	{
+		return executor;
+	}
+
+	public void setExecutor(ParallelRows executor)
+	{
+		this.executor = executor;
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Informs if a list of individuals is the one currently loaded.
+	 *
+	 * @param pop List of individuals
+	 *
+	 * @return true if pop is the list passed to the last load() call,
+	 * and it has the same size
+	 */
+
+	public boolean isLoaded(List<IIndividual> pop)
+	{
+		return pop == points && pop.size() == size;
+	}
+
+	public int getNumberOfObjectives()
+	{
+		return numberOfObjectives;
+	}
+
+	/**
+	 * Access to an objective value. Values are oriented so that
+	 * greater is better, if objective directions are known.
+	 *
+	 * @param i Point index
+	 * @param objective Objective index
+	 *
+	 * @return Oriented objective value
+	 */
+
+	public double getObjective(int i, int objective)
+	{
+		return objectives[i*numberOfObjectives + objective];
+	}
+
+	// Loading points
+
+	/**
+	 * Load the objective values of a set of individuals. The direction
+	 * of each objective is taken from the component comparators of
+	 * <code>comparator</code> (inverse comparators are minimized). If
+	 * some of them is not a ValueFitnessComparator, dominance will be
+	 * computed with <code>comparator</code>.
+	 *
+	 * @param pop Individuals to load. Their fitness must be a
+	 * CompositeFitness made up of IValueFitness components
+	 * @param comparator Pareto comparator used by the algorithm
+	 */
+
+	public void load(List<IIndividual> pop, ParetoComparator comparator)
+	{
+		// Number of points and objectives
+		points = pop;
+		size = pop.size();
+		numberOfObjectives = (size == 0) ? 0 :
+			((CompositeFitness) pop.get(0).getFitness()).getComponents().length;
+		// Direction of each objective
+		double [] sign = new double[numberOfObjectives];
+		Comparator<IFitness> [] componentComparators = comparator.getComponentComparators();
+		boolean directions = true;
+		for (int o=0; o<numberOfObjectives; o++) {
+			if (componentComparators != null && o < componentComparators.length
+				&& componentComparators[o] instanceof ValueFitnessComparator) {
+				sign[o] = ((ValueFitnessComparator) componentComparators[o]).isInverse() ? -1.0 : 1.0;
+			}
+			else {
+				sign[o] = 1.0;
+				directions = false;
+			}
+		}
+		// Extract objective values
+		objectives = ensureCapacity(objectives, size*numberOfObjectives);
+		for (int i=0; i<size; i++) {
+			IFitness [] components = ((CompositeFitness) pop.get(i).getFitness()).getComponents();
+			for (int o=0; o<numberOfObjectives; o++)
+				objectives[i*numberOfObjectives + o] = sign[o]*((IValueFitness) components[o]).getValue();
+		}
+		// Fitness objects, compared with the Pareto comparator
+		if (directions) {
+			this.comparator = null;
+			this.fitnesses = null;
+		}
+		else {
+			this.comparator = comparator;
+			this.fitnesses = new ICompositeFitness[size];
+			for (int i=0; i<size; i++)
+				fitnesses[i] = (ICompositeFitness) pop.get(i).getFitness();
+		}
+	}
+
+	// Dominance kernels
+
+	/**
+	 * Compute the dominance matrix of the loaded points.
+	 */
+
+	public void computeDominance()
+	{
+		words = (size + 63) >>> 6;
+		if (dominance.length < size*words) {
+			dominance = new long[size*words];
+		}
+		final long [] matrix = dominance;
+		executor.execute(size, size*numberOfObjectives, new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				for (int i=from; i<to; i++) {
+					int base = i*words;
+					for (int w=0; w<words; w++)
+						matrix[base + w] = 0L;
+					for (int j=0; j<size; j++) {
+						if (i != j && comparePoints(i, j) == 1)
+							matrix[base + (j >>> 6)] |= (1L << j);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Informs if point i dominates point j. Requires a previous call
+	 * to computeDominance().
+	 *
+	 * @param i First point
+	 * @param j Second point
+	 *
+	 * @return true if i dominates j
+	 */
+
+	public boolean dominates(int i, int j)
+	{
+		return (dominance[i*words + (j >>> 6)] & (1L << j)) != 0L;
+	}
+
+	/**
+	 * Pareto comparison of two loaded points.
+	 *
+	 * @param i First point
+	 * @param j Second point
+	 *
+	 * @return 1 if i dominates j, -1 if j dominates i, 0 otherwise
+	 */
+
+	public int comparePoints(int i, int j)
+	{
+		if (comparator != null) {
+			return Integer.signum(comparator.compare(fitnesses[i], fitnesses[j]));
+		}
+		boolean better = false, worse = false;
+		int bi = i*numberOfObjectives, bj = j*numberOfObjectives;
+		for (int o=0; o<numberOfObjectives; o++) {
+			double vi = objectives[bi + o], vj = objectives[bj + o];
+			if (vi > vj) {
+				better = true;
+			}
+			else if (vi < vj) {
+				worse = true;
+			}
+		}
+		if (better && !worse) {
+			return 1;
+		}
+		else if (worse && !better) {
+			return -1;
+		}
+		else {
+			return 0;
+		}
+	}
+
+	/**
+	 * Number of points dominated by each point (SPEA2 strength).
+	 * Requires a previous call to computeDominance().
+	 *
+	 * @param result Array where strength values are stored
+	 */
+
+	public void strength(final long [] result)
+	{
+		final long [] matrix = dominance;
+		executor.execute(size, words, new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				for (int i=from; i<to; i++) {
+					long count = 0;
+					int base = i*words;
+					for (int w=0; w<words; w++)
+						count += Long.bitCount(matrix[base + w]);
+					result[i] = count;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Sum of the strength of the points that dominate each point
+	 * (SPEA2 raw fitness). Requires a previous call to
+	 * computeDominance().
+	 *
+	 * @param strength Strength values
+	 * @param result Array where raw fitness values are stored
+	 */
+
+	public void rawFitness(final long [] strength, final long [] result)
+	{
+		executor.execute(size, size, new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				for (int i=from; i<to; i++) {
+					long raw = 0;
+					for (int j=0; j<size; j++) {
+						if (dominates(j, i))
+							raw += strength[j];
+					}
+					result[i] = raw;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Number of points that dominate each point. Requires a previous
+	 * call to computeDominance().
+	 *
+	 * @param result Array where domination counts are stored
+	 */
+
+	public void dominatedByCount(final int [] result)
+	{
+		executor.execute(size, size, new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				for (int i=from; i<to; i++) {
+					int count = 0;
+					for (int j=0; j<size; j++) {
+						if (dominates(j, i))
+							count++;
+					}
+					result[i] = count;
+				}
+			}
+		});
+	}
+
+	// Distance kernels
+
+	/**
+	 * Euclidean distance matrix (size x size, row-major) of the
+	 * loaded points in objective space.
+	 *
+	 * @param result Array where distances are stored
+	 */
+
+	public void distances(final double [] result)
+	{
+		executor.execute(size, size*numberOfObjectives, new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				for (int i=from; i<to; i++) {
+					// Diagonal value is zero
+					result[i*size + i] = 0.0;
+					// Values over and under diagonal
+					for (int j=i+1; j<size; j++)
+						result[i*size + j] = result[j*size + i] = distance(i, j);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Euclidean distance between two loaded points.
+	 *
+	 * @param i First point
+	 * @param j Second point
+	 *
+	 * @return Distance between points i and j
+	 */
+
+	public double distance(int i, int j)
+	{
+		double result = 0.0;
+		int bi = i*numberOfObjectives, bj = j*numberOfObjectives;
+		for (int o=0; o<numberOfObjectives; o++) {
+			double diff = objectives[bi + o] - objectives[bj + o];
+			result += diff*diff;
+		}
+		return Math.sqrt(result);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private static final double [] ensureCapacity(double [] array, int length)
+	{
+		return (array == null || array.length < length) ? new double[length] : array;
+	}
+}
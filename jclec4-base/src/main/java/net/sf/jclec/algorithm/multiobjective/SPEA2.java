@@ -1,9 +1,14 @@
 package net.sf.jclec.algorithm.multiobjective;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import net.sf.jclec.IConfigure;
 import net.sf.jclec.IEvaluator;
@@ -88,6 +93,30 @@ public class SPEA2 extends PopulationAlgorithm
 
 	private boolean maximize;
 	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Dominance and distance kernels */
+	
+	protected transient ParetoKernels kernels = new ParetoKernels();
+	
+	/** Density estimation and truncation engine */
+	
+	protected transient SPEA2Density density = new SPEA2Density();
+	
+	/** Strength values (reused between generations) */
+	
+	private transient long [] sValues;
+	
+	/** Raw fitness values (reused between generations) */
+	
+	private transient long [] rValues;
+	
+	/** Density values (reused between generations) */
+	
+	private transient double [] dValues;
+	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -358,8 +387,9 @@ public class SPEA2 extends PopulationAlgorithm
 		List<IIndividual> aset = new ArrayList<IIndividual> ();
 		aset.addAll(bset);
 		
+		Set<IIndividual> members = new HashSet<IIndividual>(aset);
 		for(IIndividual ind : eset)
-			if(!aset.contains(ind))
+			if(members.add(ind))
 				aset.add((IIndividual) ind);
 		
 		//Calculate fitness value of all population individuals
@@ -372,8 +402,9 @@ public class SPEA2 extends PopulationAlgorithm
 		aset = new ArrayList<IIndividual> ();
 		aset.addAll(bset);
 		
+		members = new HashSet<IIndividual>(aset);
 		for(IIndividual ind : eset)
-			if(!aset.contains(ind))
+			if(members.add(ind))
 				aset.add((IIndividual) ind);
 
 		// Obtain the individuals from which the offspring will be created
@@ -384,6 +415,24 @@ public class SPEA2 extends PopulationAlgorithm
 		//Do nothing
 	}
 
+	/**
+	 * Write the external population. Individuals shared with the
+	 * current population are written as references.
+	 */
+	@Override
+	protected void writeState(ObjectOutputStream out) throws IOException {
+		out.writeObject(new ArrayList<IIndividual>(eset));
+	}
+
+	/**
+	 * Read the external population.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected void readState(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		eset = (List<IIndividual>) in.readObject();
+	}
+
 	@Override
 	protected void doReplacement() {
 		// Do nothing
@@ -412,18 +461,24 @@ public class SPEA2 extends PopulationAlgorithm
 	 */
 	protected void fitnessAssignment (List<IIndividual> pop)
 	{
-		long [] S = new long [pop.size()];
-		long [] R = new long [pop.size()];
-		double [] D = new double [pop.size()];
-		double [][] distance = new double [pop.size()][pop.size()]; 
+		int size = pop.size();
 		
-		//The vectors are initialized
-		for(int i=0; i<pop.size(); i++)
+		//The buffers are reused between generations
+		if (sValues == null || sValues.length < size)
 		{
-			S[i] = 0;
-			R[i] = 0;
-			D[i] = 0.0;
+			sValues = new long [size];
+			rValues = new long [size];
+			dValues = new double [size];
 		}
+		long [] S = sValues;
+		long [] R = rValues;
+		double [] D = dValues;
+		
+		//Objective values are extracted once, and the dominance
+		//relation between every pair of individuals is computed
+		//in parallel
+		kernels.load(pop, paretoComparator);
+		kernels.computeDominance();
 		
 		/**
 		 * One of the components of fitness value that we
@@ -433,51 +488,28 @@ public class SPEA2 extends PopulationAlgorithm
 		//The first step is to calculate the number of individuals
 		//to which it dominates each individual. This is the
 		//strength value of each individual
-		for(int i=0; i<pop.size(); i++)
-			for(int j=0; j<pop.size(); j++)
-				if(i!=j && paretoComparator.compare( (CompositeFitness) pop.get(i).getFitness(), (CompositeFitness)pop.get(j).getFitness()) == 1)
-					S[i] ++;
+		kernels.strength(S);
 		
 		//Now, calculates the raw fitness which is the
 		//sum of strength values of the individuals that 
 		//dominate it
-		for(int i=0; i<pop.size(); i++)
-			for(int j=0; j<pop.size(); j++)
-				if(i!=j && paretoComparator.compare((CompositeFitness)pop.get(j).getFitness(), (CompositeFitness)pop.get(i).getFitness()) == 1)
-					R[i] += S[j];
+		kernels.rawFitness(S, R);
 
 		/**
 		 * The other component of fitness that we needed
 		 * is the density of information, D
 		 */
 		
-		//Calculate the distance between the individuals
-		for(int i=0; i<pop.size(); i++)
-		{
-			for(int j=i+1; j<pop.size(); j++)
-			{
-				distance[i][j] = calculateDistance(pop.get(i), pop.get(j));
-				distance[j][i] = distance[i][j];
-			}
-			
-			distance[i][i] = 0;
-		}
+		//Distances between the individuals are computed from the
+		//loaded objectives, also in the truncation procedure
+		density.load(kernels);
 		
-		//Sort the individuals by rows
-		for(int i= 0; i<pop.size(); i++)
-			Arrays.sort(distance[i]);
-				
 		//The k_th neighbour closest is selected
-		for(int i=0; i<pop.size(); i++)
-			D[i] = (1 / ( distance[i][kValue] + 2.0 ));
+		density.density(kValue, D);
 		
 		//Finally, the fitness value is assigned
-		for(int i=0; i<pop.size(); i++)
+		for(int i=0; i<size; i++)
 			((IValueFitness) (pop.get(i)).getFitness()).setValue(D[i] + R[i]);
-		
-		S = R = null;
-		D = null;
-
 	}
 
 	/**
@@ -530,12 +562,23 @@ public class SPEA2 extends PopulationAlgorithm
 	{
 		List<IIndividual> eset = new ArrayList<IIndividual>();
 		
+		//Positions of the external population individuals in aset
+		int [] members = new int [aset.size()];
+		
 		//The individual nondominated by anybody are added
 		//in the external population
-		for(IIndividual ind : aset)
-			if(!eset.contains(ind))
+		Set<IIndividual> esetMembers = new HashSet<IIndividual>();
+		for(int i=0; i<aset.size(); i++)
+		{
+			IIndividual ind = aset.get(i);
+			if(!esetMembers.contains(ind))
 				if(((IValueFitness) ind.getFitness()).getValue() < 1)
+				{
+					members[eset.size()] = i;
 					eset.add(ind);
+					esetMembers.add(ind);
+				}
+		}
 		
 		/**
 		 * When the individuals nondominated are added in 
@@ -552,7 +595,7 @@ public class SPEA2 extends PopulationAlgorithm
 		//In this case, the external population has more individuals
 		//of it should to have, therefore we have to eliminate individuals
 		else if(externalSize < eset.size())
-			eset = decrementPopulation(eset, eset.size());
+			eset = decrementPopulation(aset, members, eset.size());
 
 		return eset;
 	}
@@ -567,77 +610,39 @@ public class SPEA2 extends PopulationAlgorithm
 	 * solutions, preserving during the whole algorithm 
 	 * execution, the range of Pareto solutions achieved.
 	 * 
+	 * At each step, the individual which has the minimum distance 
+	 * to another individual is removed; if there are several 
+	 * individuals with minimum distance, the tie is broken by 
+	 * considering the second smallest distances and so forth.
+	 * The objectives loaded in fitnessAssignment are reused, and the
+	 * nearest neighbours of each individual are updated incrementally
+	 * after each removal.
+	 * 
+	 * @param aset the population union between bset and eset
+	 * 
+	 * @param members positions in aset of the individuals that 
+	 * belong to the external population
+	 * 
 	 * @param presentExternalCensus means which is the size that
 	 * has the external population in this moment.
 	 * 
 	 */
 	
-	protected List<IIndividual> decrementPopulation(List<IIndividual> eset, int presentExternalCensus)
+	protected List<IIndividual> decrementPopulation(List<IIndividual> aset, int [] members, int presentExternalCensus)
 	{
-		double [] distance = new double[presentExternalCensus];
-		double [] k_distance = new double[presentExternalCensus];
-		double auxDistance;
-		int [] k_nearest = new int[presentExternalCensus];
-		int [] sortedIndividuals = new int[presentExternalCensus];
-		int auxSortedIndividual;
-		
-		for(int i=0; i<presentExternalCensus; i++)
+		//The loaded points must be those of aset
+		if(!kernels.isLoaded(aset))
 		{
-			k_distance[i] = Double.MAX_VALUE;
-			k_nearest[i] = i;
+			kernels.load(aset, paretoComparator);
+			density.load(kernels);
 		}
 		
-		while(presentExternalCensus > externalSize)
-		{
-			for(int i=0; i<presentExternalCensus; i++)
-			{
-				for(int j=0; j<presentExternalCensus; j++)
-				{	
-					distance[j] = calculateDistance(eset.get(i), eset.get(j));
-					sortedIndividuals[j] = j;
-				}
-
-				//Sort the individuals with respect to its distance
-				//to individual 'i'
-				for(int j=0; j<presentExternalCensus-1; j++)
-					for(int l=j+1; l<presentExternalCensus; l++)
-						if(distance[j] > distance[l])
-						{
-						
-							auxDistance = distance[j];
-							distance[j] = distance[l];
-							distance[l] = auxDistance;
-							
-							auxSortedIndividual = sortedIndividuals[j];
-							sortedIndividuals[j] = sortedIndividuals[l];
-							sortedIndividuals[l] = auxSortedIndividual;
-						}
-			
-				k_nearest[i] = sortedIndividuals[kValue];
-				k_distance[i] = distance[kValue];
-			}
-
-			//Make the ordering having present the k_distance
-			//with k_nearest neighbour calculated in the previous step
-			for(int j=0; j<presentExternalCensus; j++)
-				sortedIndividuals[j] = j;
-				
-			for(int j=0; j<presentExternalCensus-1; j++)
-				for(int l=j+1; l<presentExternalCensus; l++)
-					if(k_distance[j] > k_distance[l])
-					{
-						auxDistance = k_distance[j];
-						k_distance[j] = k_distance[l];
-						k_distance[l] = auxDistance;
-						
-						auxSortedIndividual = sortedIndividuals[j];
-						sortedIndividuals[j] = sortedIndividuals[l];
-						sortedIndividuals[l] = auxSortedIndividual;
-					}
-			//Se selecciona el mas cercano con respecto al k-eth mi?oes cercano
-			eset.remove(k_nearest[sortedIndividuals[0]]);
-			presentExternalCensus --;
-		}
+		//Positions of the individuals that survive the truncation
+		int [] survivors = density.truncate(members, presentExternalCensus, externalSize);
+		
+		List<IIndividual> eset = new ArrayList<IIndividual>(survivors.length);
+		for(int i=0; i<survivors.length; i++)
+			eset.add(aset.get(survivors[i]));
 	
 		//the external population already has the wished size
 		return eset;
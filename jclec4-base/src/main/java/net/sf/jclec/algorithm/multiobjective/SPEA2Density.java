@@ -0,0 +1,495 @@
+package net.sf.jclec.algorithm.multiobjective;
+
+import java.util.Arrays;
+
+import net.sf.jclec.JCLEC;
+
+import net.sf.jclec.util.ParallelRows;
+
+/**
+ * Density estimation and archive truncation engine for SPEA2.
+ *
+ * Distances are computed on demand from the objective values of the
+ * points loaded in a ParetoKernels object, so memory grows linearly
+ * with the number of points. Density values (distance to the k-th
+ * nearest neighbour) are computed in parallel by rows. During
+ * truncation, every archive member keeps only its nearest alive
+ * neighbours, sorted by distance and updated incrementally after each
+ * removal. Lists are refilled when they become short, and the rest of
+ * the sorted distances are computed only when two members tie on all
+ * the neighbours they keep.
+ */
+
+public class SPEA2Density implements JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 4137826102894651740L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Maximum number of neighbours kept for each archive member */
+
+	private int neighbourhoodSize = 32;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Kernels with the loaded points */
+
+	private transient ParetoKernels kernels;
+
+	// Truncation buffers
+
+	/** Indexes (of loaded points) of archive members */
+
+	private transient int [] members;
+
+	/** Nearest alive neighbours of each member, sorted (row-major) */
+
+	private transient int [] neighbours = new int[0];
+
+	/** Length of each row in the neighbours buffer */
+
+	private transient int stride;
+
+	/** Number of neighbours kept for each member */
+
+	private transient int [] neighboursLength = new int[0];
+
+	/** Removed members flags */
+
+	private transient boolean [] removed = new boolean[0];
+
+	/** Number of members not removed */
+
+	private transient int alive;
+
+	/** Sorted distances of two members (used when their lists tie) */
+
+	private transient double [] first = new double[0], second = new double[0];
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty (default) constructor
+	 */
+
+	public SPEA2Density()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public int getNeighbourhoodSize()
+	{
+		return neighbourhoodSize;
+	}
+
+	/**
+	 * Set the maximum number of neighbours kept for each member during
+	 * truncation. It does not change the result, only the balance
+	 * between memory (members x neighbourhoodSize) and the number of
+	 * times lists are refilled.
+	 *
+	 * @param neighbourhoodSize Number of neighbours
+	 */
+
+	public void setNeighbourhoodSize(int neighbourhoodSize)
+	{
+		if (neighbourhoodSize < 1) {
+			throw new IllegalArgumentException("Neighbourhood size must be positive");
+		}
+		this.neighbourhoodSize = neighbourhoodSize;
+	}
+
+	/**
+	 * Access to the number of points loaded.
+	 *
+	 * @return Number of points
+	 */
+
+	public int getSize()
+	{
+		return (kernels == null) ? 0 : kernels.getSize();
+	}
+
+	/**
+	 * Use the points currently loaded in a kernels object. Distances
+	 * are read from the kernels, so they must not be reloaded while
+	 * this object is in use.
+	 *
+	 * @param kernels Pareto kernels with the points already loaded
+	 */
+
+	public void load(ParetoKernels kernels)
+	{
+		this.kernels = kernels;
+	}
+
+	/**
+	 * Access to the distance between two loaded points.
+	 *
+	 * @param i First point
+	 * @param j Second point
+	 *
+	 * @return Euclidean distance between points i and j
+	 */
+
+	public double getDistance(int i, int j)
+	{
+		return kernels.distance(i, j);
+	}
+
+	/**
+	 * Distance between a point and its k-th nearest neighbour. The
+	 * point itself is not considered a neighbour.
+	 *
+	 * @param i Point index
+	 * @param k Neighbour rank (1 is the nearest neighbour)
+	 *
+	 * @return Distance to the k-th nearest neighbour (or infinity if
+	 * there are no neighbours)
+	 */
+
+	public double kthNearestDistance(int i, int k)
+	{
+		return kthNearestDistance(i, k, new double[getSize()]);
+	}
+
+	/**
+	 * Calculate the SPEA2 density of all loaded points, that is,
+	 * 1/(sigma_k + 2), being sigma_k the distance to the k-th nearest
+	 * neighbour.
+	 *
+	 * @param k Neighbour rank
+	 * @param result Array where density values are stored
+	 */
+
+	public void density(final int k, final double [] result)
+	{
+		final int size = getSize();
+		kernels.getExecutor().execute(size, size*kernels.getNumberOfObjectives(), new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				double [] row = new double[size];
+				for (int i=from; i<to; i++) {
+					result[i] = 1.0 / (kthNearestDistance(i, k, row) + 2.0);
+				}
+			}
+		});
+	}
+
+	/**
+	 * SPEA2 archive truncation. Iteratively removes the member whose
+	 * sorted vector of distances to the rest of members is the
+	 * lexicographically smallest, until only <code>targetSize</code>
+	 * members remain.
+	 *
+	 * @param members Indexes (of loaded points) of archive members
+	 * @param numberOfMembers Number of archive members
+	 * @param targetSize Number of members to keep
+	 *
+	 * @return Indexes of surviving members, in their original order
+	 */
+
+	public int [] truncate(int [] members, int numberOfMembers, int targetSize)
+	{
+		final int m = numberOfMembers;
+		this.members = members;
+		// Allocate buffers
+		stride = Math.max(1, Math.min(neighbourhoodSize, m - 1));
+		neighbours = ensureCapacity(neighbours, m*stride);
+		neighboursLength = ensureCapacity(neighboursLength, m);
+		removed = ensureCapacity(removed, m);
+		Arrays.fill(removed, 0, m, false);
+		alive = m;
+		// Nearest neighbours of each member
+		kernels.getExecutor().execute(m, m, new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				for (int a=from; a<to; a++) {
+					fill(a, m);
+				}
+			}
+		});
+		// Remove members until target size is reached
+		while (alive > targetSize) {
+			// Member with the smallest neighbourhood
+			int victim = -1;
+			for (int a=0; a<m; a++) {
+				if (!removed[a] && (victim == -1 || compareNeighbourhoods(a, victim, m) < 0)) {
+					victim = a;
+				}
+			}
+			removed[victim] = true;
+			alive--;
+			// Remove victim from the neighbour lists of remaining members
+			for (int a=0; a<m; a++) {
+				if (!removed[a]) {
+					removeNeighbour(a, victim, m);
+				}
+			}
+		}
+		// Return surviving members
+		int [] result = new int[alive];
+		int n = 0;
+		for (int a=0; a<m; a++) {
+			if (!removed[a]) {
+				result[n++] = members[a];
+			}
+		}
+		this.members = null;
+		return result;
+	}
+
+	/**
+	 * Find the k-th smallest element of an array range. Elements in
+	 * the range are reordered.
+	 *
+	 * @param array Array to inspect
+	 * @param from First position of the range (inclusive)
+	 * @param to Last position of the range (exclusive)
+	 * @param k Rank of the element to find (0 is the smallest)
+	 *
+	 * @return k-th smallest element in the range
+	 */
+
+	public static double select(double [] array, int from, int to, int k)
+	{
+		int lo = from, hi = to - 1, target = from + k;
+		while (hi > lo) {
+			// Median of three pivot
+			int mid = (lo + hi) >>> 1;
+			double pivot = median(array[lo], array[mid], array[hi]);
+			// Partition range
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (array[i] < pivot) i++;
+				while (array[j] > pivot) j--;
+				if (i <= j) {
+					double tmp = array[i]; array[i] = array[j]; array[j] = tmp;
+					i++; j--;
+				}
+			}
+			// Continue in the partition that contains target
+			if (target <= j) {
+				hi = j;
+			}
+			else if (target >= i) {
+				lo = i;
+			}
+			else {
+				return array[target];
+			}
+		}
+		return array[target];
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * k-th nearest distance of point i, using row as buffer.
+	 */
+
+	private double kthNearestDistance(int i, int k, double [] row)
+	{
+		int size = getSize();
+		// Distances from i to the rest of points
+		int n = 0;
+		for (int j=0; j<size; j++) {
+			if (j != i) {
+				row[n++] = kernels.distance(i, j);
+			}
+		}
+		// No neighbours at all
+		if (n == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		// Return k-th order statistic
+		return select(row, 0, n, Math.min(Math.max(k, 1), n) - 1);
+	}
+
+	/**
+	 * Distance between two archive members.
+	 */
+
+	private final double distance(int a, int b)
+	{
+		return kernels.distance(members[a], members[b]);
+	}
+
+	/**
+	 * Neighbours order: by distance to member a, then by index.
+	 */
+
+	private final boolean precedes(int a, int b1, int b2)
+	{
+		double d1 = distance(a, b1);
+		double d2 = distance(a, b2);
+		return (d1 < d2) || (d1 == d2 && b1 < b2);
+	}
+
+	/**
+	 * Fill the neighbour list of member a with its nearest alive
+	 * neighbours (insertion into a bounded sorted list).
+	 */
+
+	private final void fill(int a, int m)
+	{
+		int base = a*stride;
+		int length = 0;
+		for (int b=0; b<m; b++) {
+			if (b == a || removed[b]) {
+				continue;
+			}
+			if (length == stride && !precedes(a, b, neighbours[base + length - 1])) {
+				continue;
+			}
+			// Insertion point
+			int lo = base, hi = base + length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (precedes(a, neighbours[mid], b)) {
+					lo = mid + 1;
+				}
+				else {
+					hi = mid;
+				}
+			}
+			// Shift the rest of the list (dropping the last one if full)
+			if (length < stride) {
+				length++;
+			}
+			System.arraycopy(neighbours, lo, neighbours, lo + 1, base + length - lo - 1);
+			neighbours[lo] = b;
+		}
+		neighboursLength[a] = length;
+	}
+
+	/**
+	 * Remove one neighbour from the sorted neighbour list of member a,
+	 * if the list contains it. The list is refilled if it becomes too
+	 * short while other alive members are not in it.
+	 */
+
+	private final void removeNeighbour(int a, int victim, int m)
+	{
+		int base = a*stride;
+		int length = neighboursLength[a];
+		// Victim is not among the neighbours kept
+		if (length == 0 || precedes(a, neighbours[base + length - 1], victim)) {
+			return;
+		}
+		// Binary search of victim position
+		int lo = base, hi = base + length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (precedes(a, neighbours[mid], victim)) {
+				lo = mid + 1;
+			}
+			else {
+				hi = mid;
+			}
+		}
+		// Shift the rest of the list
+		System.arraycopy(neighbours, lo + 1, neighbours, lo, base + length - lo - 1);
+		neighboursLength[a] = --length;
+		// Refill a short list
+		if (2*length < stride && length < alive - 1) {
+			fill(a, m);
+		}
+	}
+
+	/**
+	 * Lexicographic comparison of the sorted neighbour distances of
+	 * two members.
+	 */
+
+	private final int compareNeighbourhoods(int a, int b, int m)
+	{
+		int basea = a*stride, baseb = b*stride;
+		int length = Math.min(neighboursLength[a], neighboursLength[b]);
+		for (int p=0; p<length; p++) {
+			double da = distance(a, neighbours[basea + p]);
+			double db = distance(b, neighbours[baseb + p]);
+			if (da < db) {
+				return -1;
+			}
+			else if (da > db) {
+				return 1;
+			}
+		}
+		// Both lists hold every alive neighbour
+		if (length == alive - 1) {
+			return 0;
+		}
+		// Compare the rest of the sorted distances
+		int n = sortedDistances(a, m, first = ensureCapacity(first, m));
+		sortedDistances(b, m, second = ensureCapacity(second, m));
+		for (int p=length; p<n; p++) {
+			if (first[p] < second[p]) {
+				return -1;
+			}
+			else if (first[p] > second[p]) {
+				return 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Sorted distances from member a to the rest of alive members.
+	 */
+
+	private final int sortedDistances(int a, int m, double [] result)
+	{
+		int n = 0;
+		for (int b=0; b<m; b++) {
+			if (b != a && !removed[b]) {
+				result[n++] = distance(a, b);
+			}
+		}
+		Arrays.sort(result, 0, n);
+		return n;
+	}
+
+	private static final double median(double a, double b, double c)
+	{
+		if (a < b) {
+			return (b < c) ? b : ((a < c) ? c : a);
+		}
+		else {
+			return (a < c) ? a : ((b < c) ? c : b);
+		}
+	}
+
+	private static final double [] ensureCapacity(double [] array, int length)
+	{
+		return (array == null || array.length < length) ? new double[length] : array;
+	}
+
+	private static final int [] ensureCapacity(int [] array, int length)
+	{
+		return (array == null || array.length < length) ? new int[length] : array;
+	}
+
+	private static final boolean [] ensureCapacity(boolean [] array, int length)
+	{
+		return (array == null || array.length < length) ? new boolean[length] : array;
+	}
+}
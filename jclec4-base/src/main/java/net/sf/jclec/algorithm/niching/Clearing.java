@@ -1,6 +1,7 @@
 package net.sf.jclec.algorithm.niching;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.Comparator;
 
 import net.sf.jclec.IIndividual;
 import net.sf.jclec.fitness.IValueFitness;
@@ -44,9 +45,13 @@ public class Clearing extends SpatialNiching
 	
 	private transient double deltaShare = 0.0;
 
-	/** Sharing distance */
+	/** Position in nset of each bset individual */
 	
-	private transient double [][] dValues;
+	private transient int [] rank;
+
+	/** Niche members of the current winner (positions in nset) */
+	
+	private transient int [] members;
 
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -106,11 +111,26 @@ public class Clearing extends SpatialNiching
 	@Override
 	protected void createNiches() 
 	{
-		// Get all bset individual in sorted form and put them in nset
+		// Get all bset positions sorted by fitness (better first)
 		int bsetSize = bset.size();
-		List<IIndividual> aux = bettersSelector.select(bset, bsetSize);
-		for (IIndividual ind : aux)
-			nset.add(ind.copy());
+		Integer [] sorted = new Integer[bsetSize];
+		for (int i=0; i<bsetSize; i++)
+			sorted[i] = i;
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			public int compare(Integer one, Integer other) {
+				return evaluator.getComparator().compare(
+					bset.get(other).getFitness(), bset.get(one).getFitness());
+			}
+		});
+		// Put a copy of sorted individuals in nset
+		if (rank == null || rank.length < bsetSize) {
+			rank = new int[bsetSize];
+			members = new int[bsetSize];
+		}
+		for (int i=0; i<bsetSize; i++) {
+			nset.add(bset.get(sorted[i]).copy());
+			rank[sorted[i]] = i;
+		}
 
 		////////////////////
 		// Clearing process
@@ -118,22 +138,28 @@ public class Clearing extends SpatialNiching
 		
 		// Calculate delta share
 		calculateDeltaShare();
-		// Calculate dValues
-		calculateDValues();
-		
 		for (int i=0; i<bsetSize ; i++) {
 			// Current individual
 			IIndividual ind_i = nset.get(i);
 			// If fitness has not been cleared
 			if ( ((IValueFitness) ind_i.getFitness()).getValue() > 0 ) {
+				// Worse individuals that belong to current niche
+				final int winnerRank = i;
+				final int [] numberOfMembers = new int[1];
+				neighbours(sorted[i], deltaShare, new VPTree.Visitor() {
+					public void visit(int j, double dij) {
+						if (rank[j] > winnerRank)
+							members[numberOfMembers[0]++] = rank[j];
+					}
+				});
+				Arrays.sort(members, 0, numberOfMembers[0]);
 				// Number of individuals per niche
 				int numberOfWinners = 1;
-				for (int j=i+1; j<bsetSize; j++) {
+				for (int m=0; m<numberOfMembers[0]; m++) {
 					// Other individual
-					IIndividual ind_j = nset.get(j);
-					// If individual fitness has not been cleared and 
-					// individual belongs to current niche
-					if ( (((IValueFitness) ind_i.getFitness()).getValue() > 0) && (dValues[i][j] < deltaShare) ) {
+					IIndividual ind_j = nset.get(members[m]);
+					// If individual fitness has not been cleared
+					if ( ((IValueFitness) ind_j.getFitness()).getValue() > 0 ) {
 						if (numberOfWinners < kappa) {
 							numberOfWinners++;
 						}
@@ -161,37 +187,9 @@ public class Clearing extends SpatialNiching
 	
 	private final void calculateDeltaShare() 
 	{
-		double maximumDistance = -1.;
-		for(int i=0; i<bset.size(); i++)
-		{
-			for(int j=i+1; j<bset.size(); j++)
-			{
-				double d = distance.distance(bset.get(i), bset.get(j));
-				if( maximumDistance < d) maximumDistance = d;
-			}
-		}
+		// Maximum distance between bset individuals
+		double maximumDistance = maximumDistance();
 		// Set niche radius value
 		deltaShare = 0.2*maximumDistance;
 	} 	
-	
-	/**
-	 * Calculate distances between individuals in bset
-	 */
-	
-	private final void calculateDValues()
-	{
-		// Allocate space for sh_dij
-		int dijSize = bset.size();
-		dValues = new double [dijSize][];
-		for (int i=0; i<dijSize; i++)
-			dValues[i] = new double[dijSize];
-		//Calculate sh_dij values
-		for (int i=0; i<dijSize; i++) {
-			// Diagonal value is zero
-			dValues[i][i] = 0.0;
-			// Values over and under diagonal
-			for (int j=i+1; j<dijSize; j++) 
-				dValues[i][j] = dValues[j][i] = distance.distance(bset.get(i), bset.get(j));
-		}
-	}
 }
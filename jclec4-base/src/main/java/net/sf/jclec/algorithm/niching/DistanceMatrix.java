@@ -0,0 +1,380 @@
+package net.sf.jclec.algorithm.niching;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import net.sf.jclec.JCLEC;
+import net.sf.jclec.IDistance;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.util.IndexedDistance;
+import net.sf.jclec.util.ParallelRows;
+
+/**
+ * Pairwise distance matrix of a set of individuals.
+ *
+ * Only the upper triangle of the matrix is stored, in a flat array.
+ * Rows are computed in parallel, so the distance used must be safe to
+ * call from several threads. When the matrix is updated, distances
+ * between individuals that were already present in the previous set
+ * (same instance) are copied instead of being computed again.
+ *
+ * If the distance is an IndexedDistance, new individuals are packed
+ * before computing the rows, and distances are computed over the
+ * packed set.
+ */
+
+public class DistanceMatrix implements JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 2851607739481226517L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Distance between individuals */
+
+	private IDistance distance;
+
+	/** Row-block executor */
+
+	private ParallelRows executor;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of individuals */
+
+	private transient int size;
+
+	/** Position of each individual in the matrix */
+
+	private transient IdentityHashMap<IIndividual, Integer> positions =
+		new IdentityHashMap<IIndividual, Integer>();
+
+	/** Upper triangle (row-major, diagonal excluded) */
+
+	private transient double [] triangle = new double[0];
+
+	/** Upper triangle of the previous update (reused as buffer) */
+
+	private transient double [] previous = new double[0];
+
+	/** Position of each individual in the previous matrix (or -1) */
+
+	private transient int [] origin = new int[0];
+
+	/** Maximum distance in each row */
+
+	private transient double [] rowMaximum = new double[0];
+
+	/** Number of distances computed in each row */
+
+	private transient int [] rowComputed = new int[0];
+
+	/** Packed individuals (if distance is an IndexedDistance) */
+
+	private transient IndexedDistance.Points packed;
+
+	/** Maximum distance between two individuals */
+
+	private transient double maximumDistance = -1.;
+
+	/** Number of distances computed in the last update */
+
+	private transient long numberOfComputedDistances;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor. Uses all available processors.
+	 */
+
+	public DistanceMatrix()
+	{
+		this(new ParallelRows());
+	}
+
+	/**
+	 * Constructor that sets the row-block executor.
+	 *
+	 * @param executor Row-block executor
+	 */
+
+	public DistanceMatrix(ParallelRows executor)
+	{
+		super();
+		this.executor = executor;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public IDistance getDistance()
+	{
+		return distance;
+	}
+
+	/**
+	 * Set the distance used. Distances cached in the matrix are
+	 * discarded.
+	 *
+	 * @param distance New distance
+	 */
+
+	public void setDistance(IDistance distance)
+	{
+		this.distance = distance;
+		this.packed = null;
+		invalidate();
+	}
+
+	public ParallelRows getExecutor()
+	{
+		return executor;
+	}
+
+	public void setExecutor(ParallelRows executor)
+	{
+		this.executor = executor;
+	}
+
+	// Matrix access
+
+	/**
+	 * Number of individuals in the matrix.
+	 *
+	 * @return Matrix size
+	 */
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Distance between two individuals of the matrix.
+	 *
+	 * @param i First individual position
+	 * @param j Second individual position
+	 *
+	 * @return Distance between individuals i and j
+	 */
+
+	public double get(int i, int j)
+	{
+		if (i < j) {
+			return triangle[position(size, i, j)];
+		}
+		else if (i > j) {
+			return triangle[position(size, j, i)];
+		}
+		else {
+			return 0.0;
+		}
+	}
+
+	/**
+	 * Position of an individual in the matrix.
+	 *
+	 * @param ind Individual (compared by identity)
+	 *
+	 * @return Individual position, or -1 if it is not in the matrix
+	 */
+
+	public int indexOf(IIndividual ind)
+	{
+		Integer result = positions.get(ind);
+		return (result == null) ? -1 : result.intValue();
+	}
+
+	/**
+	 * Maximum distance between two individuals of the matrix.
+	 *
+	 * @return Maximum distance, or -1 if there are less than two
+	 * individuals
+	 */
+
+	public double getMaximumDistance()
+	{
+		return maximumDistance;
+	}
+
+	/**
+	 * Number of calls to the distance in the last update.
+	 *
+	 * @return Number of distances computed
+	 */
+
+	public long getNumberOfComputedDistances()
+	{
+		return numberOfComputedDistances;
+	}
+
+	// Matrix update
+
+	/**
+	 * Update the matrix with a new set of individuals. Only distances
+	 * involving individuals not present in the previous set are
+	 * computed.
+	 *
+	 * @param pop New set of individuals
+	 */
+
+	public void update(List<IIndividual> pop)
+	{
+		final int n = pop.size();
+		final int oldSize = size;
+		// Position of each individual in the previous matrix
+		origin = ensureCapacity(origin, n);
+		IdentityHashMap<IIndividual, Integer> newPositions =
+			new IdentityHashMap<IIndividual, Integer>(2*n);
+		for (int i=0; i<n; i++) {
+			IIndividual ind = pop.get(i);
+			Integer oldPosition = positions.get(ind);
+			origin[i] = (oldPosition == null) ? -1 : oldPosition.intValue();
+			if (!newPositions.containsKey(ind)) {
+				newPositions.put(ind, i);
+			}
+		}
+		// Swap triangle buffers
+		double [] tmp = previous;
+		previous = triangle;
+		triangle = ensureCapacity(tmp, triangleLength(n));
+		rowMaximum = ensureCapacity(rowMaximum, n);
+		rowComputed = ensureCapacity(rowComputed, n);
+		// Set new individuals
+		final List<IIndividual> newPoints = new ArrayList<IIndividual>(pop);
+		final IndexedDistance.Points points = pack(newPoints);
+		final int [] from = origin;
+		final double [] source = previous, target = triangle;
+		final double [] maxima = rowMaximum;
+		final int [] computed = rowComputed;
+		// Compute rows of the upper triangle
+		executor.execute(n, n/2 + 1, new ParallelRows.RowBlock() {
+			public void rows(int first, int last) {
+				for (int i=first; i<last; i++) {
+					IIndividual indi = newPoints.get(i);
+					int oi = from[i];
+					int base = position(n, i, i+1) - (i+1);
+					double max = -1.;
+					int count = 0;
+					for (int j=i+1; j<n; j++) {
+						int oj = from[j];
+						double d;
+						if (oi >= 0 && oj >= 0) {
+							// Both individuals were in the previous matrix
+							d = (oi == oj) ? 0.0 :
+								source[(oi < oj) ? position(oldSize, oi, oj) : position(oldSize, oj, oi)];
+						}
+						else {
+							d = (points != null) ? points.distance(i, j) :
+								distance.distance(indi, newPoints.get(j));
+							count++;
+						}
+						target[base + j] = d;
+						if (max < d) max = d;
+					}
+					maxima[i] = max;
+					computed[i] = count;
+				}
+			}
+		});
+		// Maximum distance and statistics
+		maximumDistance = -1.;
+		numberOfComputedDistances = 0;
+		for (int i=0; i<n; i++) {
+			if (maximumDistance < rowMaximum[i]) maximumDistance = rowMaximum[i];
+			numberOfComputedDistances += rowComputed[i];
+		}
+		// Set new state
+		size = n;
+		positions = newPositions;
+	}
+
+	/**
+	 * Discard all cached distances. Next update will compute the full
+	 * matrix.
+	 */
+
+	public void invalidate()
+	{
+		size = 0;
+		positions = new IdentityHashMap<IIndividual, Integer>();
+		maximumDistance = -1.;
+	}
+
+	/**
+	 * Position of element (i,j), being i < j, in the flat upper
+	 * triangle of a n x n matrix.
+	 *
+	 * @param n Matrix size
+	 * @param i Row
+	 * @param j Column
+	 *
+	 * @return Element position
+	 */
+
+	public static final int position(int n, int i, int j)
+	{
+		return (int) ((long) i*n - ((long) i*(i+1))/2 + (j - i - 1));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Pack individuals if the distance is an IndexedDistance and some
+	 * of them are not in the previous matrix.
+	 *
+	 * @return Packed individuals, or null if distances must be computed
+	 * with distance()
+	 */
+
+	private final IndexedDistance.Points pack(List<IIndividual> pop)
+	{
+		if (!(distance instanceof IndexedDistance)) {
+			return null;
+		}
+		for (int i=0; i<pop.size(); i++) {
+			if (origin[i] < 0) {
+				packed = ((IndexedDistance) distance).pack(pop, packed);
+				return packed;
+			}
+		}
+		return null;
+	}
+
+	private static final int triangleLength(int n)
+	{
+		long length = ((long) n*(n-1))/2;
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many individuals for a distance matrix: " + n);
+		}
+		return (int) length;
+	}
+
+	private static final double [] ensureCapacity(double [] array, int length)
+	{
+		return (array == null || array.length < length) ? new double[length] : array;
+	}
+
+	private static final int [] ensureCapacity(int [] array, int length)
+	{
+		return (array == null || array.length < length) ? new int[length] : array;
+	}
+}
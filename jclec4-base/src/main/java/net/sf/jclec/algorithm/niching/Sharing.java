@@ -4,6 +4,8 @@ import net.sf.jclec.IIndividual;
 
 import net.sf.jclec.fitness.SimpleValueFitness;
 
+import net.sf.jclec.util.ParallelRows;
+
 import org.apache.commons.configuration.Configuration;
 
 /**
@@ -41,9 +43,9 @@ public class Sharing extends SpatialNiching
 	
 	private transient double deltaShare = 0.0;
 	
-	/** Sharing distance */
+	/** Sum of sharing values of each individual */
 	
-	private transient double [][] sh_dij;
+	private transient double [] shares;
 	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -101,8 +103,8 @@ public class Sharing extends SpatialNiching
 	{
 		// Calculate niche radius
 		calculateDeltaShare();
-		// Calculate sh_dij values
-		calculateSh_dij();
+		// Calculate sharing sums
+		calculateShares();
 		// Create nset individuals
 		int i=0;
 		for (IIndividual ind : bset) {
@@ -115,7 +117,7 @@ public class Sharing extends SpatialNiching
 			// 2. Current fitness value
 			double currentFitnessValue = currentFitness.getValue();
 			// New fitness value
-			double newFitnessValue = currentFitnessValue/sum(sh_dij[i]);
+			double newFitnessValue = currentFitnessValue/shares[i];
 			// 3. New fitness
 			SimpleValueFitness newFitness = 
 				new SimpleValueFitness(newFitnessValue);
@@ -123,6 +125,8 @@ public class Sharing extends SpatialNiching
 			indcopy.setFitness(newFitness);
 			// Add individual copy to nset
 			nset.add(indcopy);
+			// Next individual
+			i++;
 		}
 	}
 
@@ -140,52 +144,38 @@ public class Sharing extends SpatialNiching
 	
 	private final void calculateDeltaShare() 
 	{
-		double maximumDistance = -1.;
-		for(int i=0; i<bset.size(); i++)
-		{
-			for(int j=i+1; j<bset.size(); j++)
-			{
-				double d = distance.distance(bset.get(i), bset.get(j));
-				if( maximumDistance < d) maximumDistance = d;
-			}
-		}
+		// Maximum distance between bset individuals
+		double maximumDistance = maximumDistance();
 		// Set niche radius value
 		deltaShare = 0.2*maximumDistance;
 	} 			
 	
-	private final void calculateSh_dij()
-	{
-		// Allocate space for sh_dij
-		int sh_dijSize = bset.size();
-		sh_dij = new double [sh_dijSize][];
-		for (int i=0; i<sh_dijSize; i++)
-			sh_dij[i] = new double[sh_dijSize];
-		//Calculate sh_dij values
-		for (int i=0; i<sh_dijSize; i++) {
-			// Diagonal value is zero
-			sh_dij[i][i] = 0.0;
-			// Values over and under diagonal
-			for (int j=i+1; j<sh_dijSize; j++) {
-				double dij = distance.distance(bset.get(i), bset.get(j));
-				sh_dij[i][j] = sh_dij[j][i] = 
-					(dij < deltaShare) ? Math.pow(dij/deltaShare, alpha) : 0.0;
-			}
-		}
-	}
-	
-	/** 
-	 * Sum all the elements of array and returns result
-	 * 
-	 * @param array Array whose elements be added
-	 * 
-	 * @return Sum of <code>array</code> elements
+	/**
+	 * Calculate, for each individual, the sum of its sharing values
+	 * with the individuals in its niche. Individuals out of the niche
+	 * radius have a sharing value of zero, so only the niche is visited.
 	 */
 	
-	private final double sum(double [] array)
+	private final void calculateShares()
 	{
-		double result = 0.0;
-		double arraylength = array.length;
-		for (int i=0; i<arraylength; i++) result += array[i];
-		return result;
+		// Allocate space for shares
+		final int sharesSize = bset.size();
+		if (shares == null || shares.length < sharesSize)
+			shares = new double[sharesSize];
+		final double [] result = shares;
+		//Calculate shares values
+		executor.execute(sharesSize, sharesSize, new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				for (int i=from; i<to; i++) {
+					final double [] sum = new double[1];
+					neighbours(i, deltaShare, new VPTree.Visitor() {
+						public void visit(int j, double dij) {
+							sum[0] += Math.pow(dij/deltaShare, alpha);
+						}
+					});
+					result[i] = sum[0];
+				}
+			}
+		});
 	}
 }
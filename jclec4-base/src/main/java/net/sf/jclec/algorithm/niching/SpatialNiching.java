@@ -9,8 +9,8 @@ import net.sf.jclec.IIndividual;
 
 import net.sf.jclec.algorithm.classic.SG;
 
-import net.sf.jclec.selector.WorsesSelector;
-import net.sf.jclec.selector.BettersSelector;
+import net.sf.jclec.util.Ranking;
+import net.sf.jclec.util.ParallelRows;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationRuntimeException;
@@ -34,6 +34,10 @@ public abstract class SpatialNiching extends SG
 	
 	protected IDistance distance;
 	
+	/** Population size from which a metric index is used instead of a distance matrix */
+	
+	protected int indexThreshold = 4096;
+	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------- Internal variables
 	/////////////////////////////////////////////////////////////////
@@ -42,13 +46,21 @@ public abstract class SpatialNiching extends SG
 	
 	protected List<IIndividual> nset = new ArrayList<IIndividual> ();
 	
-	/** Betters selector */
+	/** Executor used to compute distances in parallel */
 	
-	protected BettersSelector bettersSelector = new BettersSelector(this); 
-
-	/** Worses selector */
-
-	protected WorsesSelector worsesSelector = new WorsesSelector(this); 
+	protected transient ParallelRows executor = new ParallelRows();
+	
+	/** Distances between bset individuals (small populations) */
+	
+	protected transient DistanceMatrix distanceMatrix = new DistanceMatrix(executor);
+	
+	/** Metric index over bset individuals (large populations) */
+	
+	protected transient VPTree metricIndex = new VPTree(executor);
+	
+	/** Is metric index used in current generation? */
+	
+	protected transient boolean indexed;
 	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -77,6 +89,28 @@ public abstract class SpatialNiching extends SG
 	public void setDistance(IDistance distance)
 	{
 		this.distance = distance;
+		this.distanceMatrix.setDistance(distance);
+		this.metricIndex.setDistance(distance);
+	}
+	
+	public int getIndexThreshold()
+	{
+		return indexThreshold;
+	}
+	
+	public void setIndexThreshold(int indexThreshold)
+	{
+		this.indexThreshold = indexThreshold;
+	}
+	
+	public DistanceMatrix getDistanceMatrix()
+	{
+		return distanceMatrix;
+	}
+	
+	public VPTree getMetricIndex()
+	{
+		return metricIndex;
 	}
 	
 	// IConfigure interface
@@ -105,6 +139,13 @@ public abstract class SpatialNiching extends SG
 			}
 			// Set species
 			setDistance(distance);
+			// Number of threads used to compute distances
+			int parallelism = configuration.getInt("distance[@parallelism]", 
+				Runtime.getRuntime().availableProcessors());
+			executor.setParallelism(parallelism);
+			// Population size from which a metric index is used
+			int indexThreshold = configuration.getInt("distance[@index-threshold]", 4096);
+			setIndexThreshold(indexThreshold);
 		} 
 		catch (ClassNotFoundException e) {
 			throw new ConfigurationRuntimeException("Illegal distance classname");
@@ -130,6 +171,16 @@ public abstract class SpatialNiching extends SG
 	{
 		// Clear nset
 		nset.clear();
+		// Update distances between bset individuals. Large populations
+		// are indexed instead, so memory and time are not quadratic
+		indexed = bset.size() > indexThreshold;
+		if (indexed) {
+			distanceMatrix.invalidate();
+			metricIndex.build(bset);
+		}
+		else {
+			distanceMatrix.update(bset);
+		}
 		// Put "niche individuals" in nset
 		createNiches();
 		// Select individuals
@@ -163,17 +214,16 @@ public abstract class SpatialNiching extends SG
 		// Check size of cset. If less than bset.size, add better 
 		// individuals from bset
 		if(cset.size() < bset.size()) {			
-			cset.addAll(bettersSelector.select(bset, bset.size()-cset.size()));
+			cset.addAll(Ranking.best(bset, bset.size()-cset.size(), evaluator.getComparator()));
 		}		
 		// Else, do an elitist update
 		else
 		{
-			IIndividual bestInB = bettersSelector.select(bset, 1).get(0);
-			IIndividual bestInC = bettersSelector.select(cset, 1).get(0);			
+			IIndividual bestInB = Ranking.best(bset, evaluator.getComparator());
+			IIndividual bestInC = Ranking.best(cset, evaluator.getComparator());
 			if (compareIndividuals(bestInB, bestInC) == 1) {
-				IIndividual worstInC = worsesSelector.select(cset, 1).get(0);
 				// Remove worst individual in C
-				cset.remove(worstInC);
+				cset.remove(Ranking.worstIndex(cset, evaluator.getComparator()));
 				// Add best individual in B
 				cset.add(bestInB);				
 			}
@@ -190,6 +240,48 @@ public abstract class SpatialNiching extends SG
 	
 	protected abstract void createNiches();	
 	
+	/**
+	 * Maximum distance between two bset individuals.
+	 * 
+	 * @return Maximum distance, or -1 if there are less than two 
+	 * individuals
+	 */
+	
+	protected double maximumDistance()
+	{
+		return indexed ? metricIndex.diameter() : distanceMatrix.getMaximumDistance();
+	}
+	
+	/**
+	 * Visit all bset individuals whose distance to the individual at
+	 * position i is less than radius. The individual itself is not
+	 * visited. It can be called concurrently from several threads.
+	 * 
+	 * @param i Position of the individual in bset
+	 * @param radius Niche radius
+	 * @param visitor Visitor of the individuals found
+	 */
+	
+	protected void neighbours(final int i, double radius, final VPTree.Visitor visitor)
+	{
+		if (indexed) {
+			metricIndex.range(i, radius, new VPTree.Visitor() {
+				public void visit(int j, double d) {
+					if (j != i) visitor.visit(j, d);
+				}
+			});
+		}
+		else {
+			int size = distanceMatrix.getSize();
+			for (int j=0; j<size; j++) {
+				if (j != i) {
+					double d = distanceMatrix.get(i, j);
+					if (d < radius) visitor.visit(j, d);
+				}
+			}
+		}
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// ---------------------------------------------- Private methods
 	/////////////////////////////////////////////////////////////////
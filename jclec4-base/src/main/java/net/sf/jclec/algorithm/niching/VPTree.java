@@ -0,0 +1,452 @@
+package net.sf.jclec.algorithm.niching;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jclec.JCLEC;
+import net.sf.jclec.IDistance;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.util.IndexedDistance;
+import net.sf.jclec.util.ParallelRows;
+
+/**
+ * Vantage-point tree over a set of individuals.
+ *
+ * Each node takes one individual as vantage point and splits the rest
+ * of its individuals by the median of their distance to it. Range
+ * queries use the triangle inequality to discard subtrees, so the
+ * distance must be a metric (for instance, the Hamming distance).
+ *
+ * The tree is implicit: it is stored as a permutation of individual
+ * indexes and a few arrays of bounds, indexed by the position of the
+ * vantage point of each node. Queries do not modify the tree, so they
+ * can be done concurrently.
+ *
+ * If the distance is an IndexedDistance, indexed individuals are packed
+ * when the tree is built, and distances between them (while building,
+ * in queries by position and in diameter()) are computed over the
+ * packed set.
+ */
+
+public class VPTree implements JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -6306945276480951538L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Receives the individuals found by a range query.
+	 */
+
+	public interface Visitor
+	{
+		/**
+		 * Visit one individual.
+		 *
+		 * @param index Individual index (position in the list used
+		 * to build the tree)
+		 * @param distance Distance to the query individual
+		 */
+
+		public void visit(int index, double distance);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Distance between individuals */
+
+	private IDistance distance;
+
+	/** Row-block executor */
+
+	private ParallelRows executor;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of individuals */
+
+	private transient int size;
+
+	/** Indexed individuals */
+
+	private transient List<IIndividual> points = new ArrayList<IIndividual>();
+
+	/** Packed individuals (if distance is an IndexedDistance) */
+
+	private transient IndexedDistance.Points packed;
+
+	/** Individual index at each tree position */
+
+	private transient int [] order = new int[0];
+
+	/** First position of the outer child of each node */
+
+	private transient int [] split = new int[0];
+
+	/** Distance bounds of the inner child of each node */
+
+	private transient double [] innerMin = new double[0], innerMax = new double[0];
+
+	/** Distance bounds of the outer child of each node */
+
+	private transient double [] outerMin = new double[0], outerMax = new double[0];
+
+	/** Distances to the vantage point (used while building) */
+
+	private transient double [] buffer = new double[0];
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor. Uses all available processors.
+	 */
+
+	public VPTree()
+	{
+		this(new ParallelRows());
+	}
+
+	/**
+	 * Constructor that sets the row-block executor.
+	 *
+	 * @param executor Row-block executor
+	 */
+
+	public VPTree(ParallelRows executor)
+	{
+		super();
+		this.executor = executor;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public IDistance getDistance()
+	{
+		return distance;
+	}
+
+	public void setDistance(IDistance distance)
+	{
+		this.distance = distance;
+		this.packed = null;
+	}
+
+	public ParallelRows getExecutor()
+	{
+		return executor;
+	}
+
+	public void setExecutor(ParallelRows executor)
+	{
+		this.executor = executor;
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	// Building the tree
+
+	/**
+	 * Build the tree over a set of individuals.
+	 *
+	 * @param pop Individuals to index
+	 */
+
+	public void build(List<IIndividual> pop)
+	{
+		size = pop.size();
+		points = new ArrayList<IIndividual>(pop);
+		if (distance instanceof IndexedDistance) {
+			packed = ((IndexedDistance) distance).pack(points, packed);
+		}
+		// Allocate space
+		order = ensureCapacity(order, size);
+		split = ensureCapacity(split, size);
+		innerMin = ensureCapacity(innerMin, size);
+		innerMax = ensureCapacity(innerMax, size);
+		outerMin = ensureCapacity(outerMin, size);
+		outerMax = ensureCapacity(outerMax, size);
+		buffer = ensureCapacity(buffer, size);
+		// Initial order
+		for (int i=0; i<size; i++)
+			order[i] = i;
+		// Build nodes
+		if (size > 0) {
+			buildNode(0, size);
+		}
+	}
+
+	// Queries
+
+	/**
+	 * Visit all individuals whose distance to <code>query</code> is
+	 * strictly less than <code>radius</code>.
+	 *
+	 * @param query Query individual
+	 * @param radius Query radius
+	 * @param visitor Visitor of the individuals found
+	 */
+
+	public void range(IIndividual query, double radius, Visitor visitor)
+	{
+		if (size > 0) {
+			rangeNode(-1, query, radius, visitor, 0, size);
+		}
+	}
+
+	/**
+	 * Visit all individuals whose distance to the indexed individual
+	 * <code>i</code> is strictly less than <code>radius</code> (the
+	 * individual itself included).
+	 *
+	 * @param i Query individual index
+	 * @param radius Query radius
+	 * @param visitor Visitor of the individuals found
+	 */
+
+	public void range(int i, double radius, Visitor visitor)
+	{
+		if (size > 0) {
+			rangeNode(i, points.get(i), radius, visitor, 0, size);
+		}
+	}
+
+	/**
+	 * Distance between <code>query</code> and its farthest indexed
+	 * individual, if it is greater than <code>bound</code>.
+	 *
+	 * @param query Query individual
+	 * @param bound Lower bound of the result. Subtrees that cannot
+	 * improve it are not explored
+	 *
+	 * @return Maximum of bound and the farthest distance
+	 */
+
+	public double farthest(IIndividual query, double bound)
+	{
+		return (size > 0) ? farthestNode(-1, query, bound, 0, size) : bound;
+	}
+
+	/**
+	 * Maximum distance between two indexed individuals.
+	 *
+	 * @return Maximum distance, or -1 if there are less than two
+	 * individuals
+	 */
+
+	public double diameter()
+	{
+		if (size < 2) {
+			return -1.;
+		}
+		// Lower bound: two sweeps of farthest points
+		int a = farthestIndex(0);
+		int b = farthestIndex(a);
+		final double seed = distance(a, b);
+		// Exact value: farthest query from every individual
+		final double [] rowMaximum = new double[size];
+		executor.execute(size, 1, new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				for (int i=from; i<to; i++)
+					rowMaximum[i] = farthestNode(i, points.get(i), seed, 0, size);
+			}
+		});
+		double result = seed;
+		for (int i=0; i<size; i++)
+			if (result < rowMaximum[i]) result = rowMaximum[i];
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Build the node whose vantage point is at position lo, and that
+	 * contains positions [lo, hi).
+	 */
+
+	private void buildNode(final int lo, int hi)
+	{
+		// Leaf node
+		if (hi - lo == 1) {
+			split[lo] = hi;
+			return;
+		}
+		// Distances to the vantage point
+		final int vp = order[lo];
+		final int first = lo + 1;
+		executor.execute(hi - first, 1, new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				for (int p=first+from; p<first+to; p++)
+					buffer[p] = distance(vp, order[p]);
+			}
+		});
+		// Median split: inner child gets the nearest half
+		int mid = first + (hi - first)/2;
+		if (mid > first) {
+			select(first, hi, mid);
+		}
+		split[lo] = mid;
+		// Bounds of both children
+		innerMin[lo] = outerMin[lo] = Double.POSITIVE_INFINITY;
+		innerMax[lo] = outerMax[lo] = Double.NEGATIVE_INFINITY;
+		for (int p=first; p<mid; p++) {
+			if (innerMin[lo] > buffer[p]) innerMin[lo] = buffer[p];
+			if (innerMax[lo] < buffer[p]) innerMax[lo] = buffer[p];
+		}
+		for (int p=mid; p<hi; p++) {
+			if (outerMin[lo] > buffer[p]) outerMin[lo] = buffer[p];
+			if (outerMax[lo] < buffer[p]) outerMax[lo] = buffer[p];
+		}
+		// Build children
+		if (mid > first) {
+			buildNode(first, mid);
+		}
+		buildNode(mid, hi);
+	}
+
+	/**
+	 * Range query in the node at position lo. The query is the indexed
+	 * individual q, or query if q is negative (and so in farthestNode).
+	 */
+
+	private void rangeNode(int q, IIndividual query, double radius, Visitor visitor, int lo, int hi)
+	{
+		// Vantage point
+		double d = distance(q, query, order[lo]);
+		if (d < radius) {
+			visitor.visit(order[lo], d);
+		}
+		// Children that can contain individuals in range
+		int mid = split[lo];
+		if (mid > lo + 1 && innerMax[lo] > d - radius && innerMin[lo] < d + radius) {
+			rangeNode(q, query, radius, visitor, lo + 1, mid);
+		}
+		if (mid < hi && outerMax[lo] > d - radius && outerMin[lo] < d + radius) {
+			rangeNode(q, query, radius, visitor, mid, hi);
+		}
+	}
+
+	private double farthestNode(int q, IIndividual query, double bound, int lo, int hi)
+	{
+		// Vantage point
+		double d = distance(q, query, order[lo]);
+		if (bound < d) {
+			bound = d;
+		}
+		// Children that can contain farther individuals
+		int mid = split[lo];
+		if (mid > lo + 1 && d + innerMax[lo] > bound) {
+			bound = farthestNode(q, query, bound, lo + 1, mid);
+		}
+		if (mid < hi && d + outerMax[lo] > bound) {
+			bound = farthestNode(q, query, bound, mid, hi);
+		}
+		return bound;
+	}
+
+	/**
+	 * Index of the farthest individual from individual i (linear scan).
+	 */
+
+	private int farthestIndex(int i)
+	{
+		int result = i;
+		double max = -1.;
+		for (int j=0; j<size; j++) {
+			double d = distance(i, j);
+			if (max < d) {
+				max = d;
+				result = j;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Distance between indexed individuals i and j.
+	 */
+
+	private final double distance(int i, int j)
+	{
+		return (packed != null) ? packed.distance(i, j) : distance.distance(points.get(i), points.get(j));
+	}
+
+	/**
+	 * Distance between a query and the indexed individual j.
+	 */
+
+	private final double distance(int q, IIndividual query, int j)
+	{
+		return (q >= 0) ? distance(q, j) : distance.distance(query, points.get(j));
+	}
+
+	/**
+	 * Reorder positions [from, to) so that position k holds the k-th
+	 * smallest distance, nearer ones before it and farther ones after.
+	 */
+
+	private void select(int from, int to, int k)
+	{
+		int lo = from, hi = to - 1;
+		while (hi > lo) {
+			double pivot = buffer[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (buffer[i] < pivot) i++;
+				while (buffer[j] > pivot) j--;
+				if (i <= j) {
+					swap(i, j);
+					i++; j--;
+				}
+			}
+			if (k <= j) {
+				hi = j;
+			}
+			else if (k >= i) {
+				lo = i;
+			}
+			else {
+				return;
+			}
+		}
+	}
+
+	private final void swap(int i, int j)
+	{
+		double d = buffer[i]; buffer[i] = buffer[j]; buffer[j] = d;
+		int o = order[i]; order[i] = order[j]; order[j] = o;
+	}
+
+	private static final double [] ensureCapacity(double [] array, int length)
+	{
+		return (array == null || array.length < length) ? new double[length] : array;
+	}
+
+	private static final int [] ensureCapacity(int [] array, int length)
+	{
+		return (array == null || array.length < length) ? new int[length] : array;
+	}
+}
@@ -0,0 +1,249 @@
+package net.sf.jclec.algorithm.stop;
+
+import java.util.List;
+
+import net.sf.jclec.IDistance;
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.IStopCriterion;
+import net.sf.jclec.algorithm.PopulationAlgorithm;
+
+import net.sf.jclec.binarray.HammingDistance;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Stop when the population has lost its diversity.
+ *
+ * Diversity is the mean distance between individuals (by default, the
+ * Hamming distance of binary individuals), estimated with a fixed
+ * number of pairs of inhabitants, so its cost does not depend on the
+ * population size. Pairs are chosen by a generator of this criterion,
+ * not by the random generators of the algorithm, so checking diversity
+ * does not change the evolution.
+ */
+
+public class DiversityCriterion implements IStopCriterion, IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -5208479271735403016L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Distance between individuals */
+
+	protected IDistance distance = new HammingDistance();
+
+	/** Minimum mean distance */
+
+	protected double minDistance = 1.0;
+
+	/** Number of pairs sampled */
+
+	protected int sampleSize = 32;
+
+	/** Generations between checks */
+
+	protected int frequency = 1;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Last estimated diversity */
+
+	private double diversity = Double.NaN;
+
+	/** Sampling generator state */
+
+	private long seed;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public DiversityCriterion()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public IDistance getDistance()
+	{
+		return distance;
+	}
+
+	public void setDistance(IDistance distance)
+	{
+		this.distance = distance;
+	}
+
+	public double getMinDistance()
+	{
+		return minDistance;
+	}
+
+	public void setMinDistance(double minDistance)
+	{
+		this.minDistance = minDistance;
+	}
+
+	public int getSampleSize()
+	{
+		return sampleSize;
+	}
+
+	public void setSampleSize(int sampleSize)
+	{
+		if (sampleSize < 1) {
+			throw new IllegalArgumentException("Sample size must be positive");
+		}
+		this.sampleSize = sampleSize;
+	}
+
+	public int getFrequency()
+	{
+		return frequency;
+	}
+
+	public void setFrequency(int frequency)
+	{
+		if (frequency < 1) {
+			throw new IllegalArgumentException("Frequency must be positive");
+		}
+		this.frequency = frequency;
+	}
+
+	/**
+	 * @return Last estimated diversity (NaN if it has not been
+	 * estimated)
+	 */
+
+	public double getDiversity()
+	{
+		return diversity;
+	}
+
+	// IStopCriterion interface
+
+	public void reset(PopulationAlgorithm algorithm)
+	{
+		diversity = Double.NaN;
+		seed = 0x5DEECE66DL;
+	}
+
+	public boolean isFinished(PopulationAlgorithm algorithm)
+	{
+		if (algorithm.getGeneration() % frequency != 0) {
+			return false;
+		}
+		List<IIndividual> inds = algorithm.getInhabitants();
+		int size = inds.size();
+		if (size < 2) {
+			return false;
+		}
+		// Mean distance of sampled pairs
+		double sum = 0.0;
+		for (int i=0; i<sampleSize; i++) {
+			int one = next(size);
+			int other = (one + 1 + next(size - 1)) % size;
+			sum += distance.distance(inds.get(one), inds.get(other));
+		}
+		diversity = sum/sampleSize;
+		return diversity < minDistance;
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for this criterion are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>distance: IDistance (complex)</code></p>
+	 * Distance between individuals. Default value is HammingDistance
+	 * </li><li>
+	 * <code>[@min-distance] (double)</code></p>
+	 * Minimum mean distance. Default value is 1
+	 * </li><li>
+	 * <code>[@sample-size] (int)</code></p>
+	 * Number of pairs sampled. Default value is 32
+	 * </li><li>
+	 * <code>[@frequency] (int)</code></p>
+	 * Generations between checks. Default value is 1
+	 * </li>
+	 * </ul>
+	 */
+
+	@SuppressWarnings("unchecked")
+	public void configure(Configuration configuration)
+	{
+		// Distance
+		if (configuration.containsKey("distance[@type]")) {
+			try {
+				// Distance classname
+				String distanceClassname = configuration.getString("distance[@type]");
+				// Distance class
+				Class<? extends IDistance> distanceClass =
+					(Class<? extends IDistance>) Class.forName(distanceClassname);
+				// Distance instance
+				IDistance distance = distanceClass.newInstance();
+				// Configure distance if necessary
+				if (distance instanceof IConfigure) {
+					((IConfigure) distance).configure(configuration.subset("distance"));
+				}
+				// Set distance
+				setDistance(distance);
+			}
+			catch (ClassNotFoundException e) {
+				throw new ConfigurationRuntimeException("Illegal distance classname");
+			}
+			catch (InstantiationException e) {
+				throw new ConfigurationRuntimeException("Problems creating an instance of distance", e);
+			}
+			catch (IllegalAccessException e) {
+				throw new ConfigurationRuntimeException("Problems creating an instance of distance", e);
+			}
+		}
+		setMinDistance(configuration.getDouble("[@min-distance]", minDistance));
+		try {
+			setSampleSize(configuration.getInt("[@sample-size]", sampleSize));
+			setFrequency(configuration.getInt("[@frequency]", frequency));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Next sample index, in [0, bound).
+	 */
+
+	private int next(int bound)
+	{
+		seed = seed*6364136223846793005L + 1442695040888963407L;
+		return (int) (((seed >>> 33)*bound) >>> 31);
+	}
+}
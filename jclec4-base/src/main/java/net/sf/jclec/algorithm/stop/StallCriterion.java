@@ -0,0 +1,208 @@
+package net.sf.jclec.algorithm.stop;
+
+import java.util.Comparator;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IConfigure;
+
+import net.sf.jclec.algorithm.IStopCriterion;
+import net.sf.jclec.algorithm.PopulationAlgorithm;
+
+import net.sf.jclec.base.AbstractEvaluator;
+
+import net.sf.jclec.fitness.IValueFitness;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Stop when the best fitness has not improved for a number of
+ * generations.
+ *
+ * The best fitness is taken from the statistics of the evaluator (see
+ * AbstractEvaluator.getBestFitness()), so checking it does not depend on
+ * the population size.
+ */
+
+public class StallCriterion implements IStopCriterion, IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 4411253876420197362L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Generations without improvement before stopping */
+
+	protected int generations = 50;
+
+	/** Minimum improvement of value fitness */
+
+	protected double minImprovement = 0.0;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Best fitness until now */
+
+	private IFitness best;
+
+	/** Generations since last improvement */
+
+	private int stalledGenerations;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public StallCriterion()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public int getGenerations()
+	{
+		return generations;
+	}
+
+	public void setGenerations(int generations)
+	{
+		if (generations < 1) {
+			throw new IllegalArgumentException("Number of generations must be positive");
+		}
+		this.generations = generations;
+	}
+
+	public double getMinImprovement()
+	{
+		return minImprovement;
+	}
+
+	/**
+	 * Minimum change of the value of a value fitness to be considered
+	 * an improvement. It is ignored for other fitness.
+	 *
+	 * @param minImprovement Minimum improvement
+	 */
+
+	public void setMinImprovement(double minImprovement)
+	{
+		if (minImprovement < 0) {
+			throw new IllegalArgumentException("Minimum improvement must be positive (or zero)");
+		}
+		this.minImprovement = minImprovement;
+	}
+
+	/**
+	 * @return Generations since last improvement
+	 */
+
+	public int getStalledGenerations()
+	{
+		return stalledGenerations;
+	}
+
+	// IStopCriterion interface
+
+	public void reset(PopulationAlgorithm algorithm)
+	{
+		best = bestFitness(algorithm);
+		stalledGenerations = 0;
+	}
+
+	public boolean isFinished(PopulationAlgorithm algorithm)
+	{
+		IFitness current = bestFitness(algorithm);
+		if (improves(current, algorithm.getEvaluator().getComparator())) {
+			best = current;
+			stalledGenerations = 0;
+		}
+		else {
+			stalledGenerations++;
+		}
+		return stalledGenerations >= generations;
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for this criterion are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>[@generations] (int)</code></p>
+	 * Generations without improvement before stopping. Default value
+	 * is 50
+	 * </li><li>
+	 * <code>[@min-improvement] (double)</code></p>
+	 * Minimum improvement of value fitness. Default value is 0
+	 * </li>
+	 * </ul>
+	 */
+
+	public void configure(Configuration configuration)
+	{
+		try {
+			setGenerations(configuration.getInt("[@generations]", generations));
+			setMinImprovement(configuration.getDouble("[@min-improvement]", minImprovement));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Check if a fitness is an improvement of the best one.
+	 */
+
+	private boolean improves(IFitness current, Comparator<IFitness> comparator)
+	{
+		if (current == null || current == best) {
+			return false;
+		}
+		if (best == null) {
+			return true;
+		}
+		if (comparator.compare(current, best) <= 0) {
+			return false;
+		}
+		if (current instanceof IValueFitness && best instanceof IValueFitness) {
+			double change = ((IValueFitness) current).getValue() - ((IValueFitness) best).getValue();
+			return Math.abs(change) > minImprovement;
+		}
+		return true;
+	}
+
+	/**
+	 * Best fitness evaluated by the algorithm.
+	 */
+
+	static IFitness bestFitness(PopulationAlgorithm algorithm)
+	{
+		if (!(algorithm.getEvaluator() instanceof AbstractEvaluator)) {
+			throw new IllegalStateException("Fitness criteria need an AbstractEvaluator");
+		}
+		return ((AbstractEvaluator) algorithm.getEvaluator()).getBestFitness();
+	}
+}
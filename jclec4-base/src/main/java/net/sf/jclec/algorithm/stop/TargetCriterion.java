@@ -0,0 +1,152 @@
+package net.sf.jclec.algorithm.stop;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IConfigure;
+
+import net.sf.jclec.algorithm.IStopCriterion;
+import net.sf.jclec.algorithm.PopulationAlgorithm;
+
+import net.sf.jclec.base.AbstractEvaluator;
+
+import net.sf.jclec.fitness.SimpleValueFitness;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Stop when a fitness as good as a target value has been evaluated.
+ *
+ * The best fitness is compared with the target by the comparator of
+ * the evaluator, so the target is a minimum when fitness is maximized
+ * and a maximum when it is minimized.
+ *
+ * Optionally, it also stops when an acceptable fitness has been
+ * evaluated in this execution (see AbstractEvaluator), even if the
+ * individual has not survived. Population algorithms only check
+ * acceptable fitness in the current population.
+ */
+
+public class TargetCriterion implements IStopCriterion, IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -2093864139184526450L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Target fitness */
+
+	protected IFitness target;
+
+	/** Stop when any acceptable fitness has been evaluated */
+
+	protected boolean acceptable;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public TargetCriterion()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public IFitness getTarget()
+	{
+		return target;
+	}
+
+	public void setTarget(IFitness target)
+	{
+		this.target = target;
+	}
+
+	/**
+	 * Set a target value.
+	 *
+	 * @param value Target fitness value
+	 */
+
+	public void setTarget(double value)
+	{
+		setTarget(new SimpleValueFitness(value));
+	}
+
+	public boolean isAcceptable()
+	{
+		return acceptable;
+	}
+
+	public void setAcceptable(boolean acceptable)
+	{
+		this.acceptable = acceptable;
+	}
+
+	// IStopCriterion interface
+
+	public void reset(PopulationAlgorithm algorithm)
+	{
+		if (target == null && !acceptable) {
+			throw new IllegalStateException("Target fitness not set");
+		}
+		if (acceptable && !(algorithm.getEvaluator() instanceof AbstractEvaluator)) {
+			throw new IllegalStateException("Acceptable fitness statistics need an AbstractEvaluator");
+		}
+	}
+
+	public boolean isFinished(PopulationAlgorithm algorithm)
+	{
+		if (acceptable && ((AbstractEvaluator) algorithm.getEvaluator()).hasAcceptableFitness()) {
+			return true;
+		}
+		if (target == null) {
+			return false;
+		}
+		IFitness best = StallCriterion.bestFitness(algorithm);
+		return best != null && algorithm.getEvaluator().getComparator().compare(best, target) >= 0;
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for this criterion are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>[@value] (double)</code></p>
+	 * Target fitness value (required unless acceptable is set)
+	 * </li><li>
+	 * <code>[@acceptable] (boolean)</code></p>
+	 * Stop when any acceptable fitness has been evaluated. Default
+	 * value is false
+	 * </li>
+	 * </ul>
+	 */
+
+	public void configure(Configuration configuration)
+	{
+		setAcceptable(configuration.getBoolean("[@acceptable]", acceptable));
+		if (configuration.containsKey("[@value]")) {
+			setTarget(configuration.getDouble("[@value]"));
+		}
+		else if (!acceptable) {
+			throw new ConfigurationRuntimeException("Target value not set");
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package net.sf.jclec.algorithm.stop;
+
+import net.sf.jclec.IConfigure;
+
+import net.sf.jclec.algorithm.IStopCriterion;
+import net.sf.jclec.algorithm.PopulationAlgorithm;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Stop when the execution has taken a wall-clock time budget.
+ *
+ * Elapsed time is kept in checkpoints, so a restarted execution only
+ * gets the rest of the budget.
+ */
+
+public class TimeCriterion implements IStopCriterion, IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 7735915022068417845L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Time budget in milliseconds */
+
+	protected long budget = Long.MAX_VALUE;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Elapsed time in milliseconds */
+
+	private long elapsed;
+
+	/** Time of last check */
+
+	private transient long last;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public TimeCriterion()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	/**
+	 * @return Time budget in milliseconds
+	 */
+
+	public long getBudget()
+	{
+		return budget;
+	}
+
+	public void setBudget(long budget)
+	{
+		if (budget < 0) {
+			throw new IllegalArgumentException("Time budget must be positive (or zero)");
+		}
+		this.budget = budget;
+	}
+
+	/**
+	 * @return Elapsed time in milliseconds
+	 */
+
+	public long getElapsed()
+	{
+		return elapsed;
+	}
+
+	// IStopCriterion interface
+
+	public void reset(PopulationAlgorithm algorithm)
+	{
+		elapsed = 0;
+		last = currentTime();
+	}
+
+	public boolean isFinished(PopulationAlgorithm algorithm)
+	{
+		long now = currentTime();
+		elapsed += now - last;
+		last = now;
+		return elapsed >= budget;
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for this criterion are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>[@seconds] (double)</code></p>
+	 * Time budget in seconds
+	 * </li>
+	 * </ul>
+	 */
+
+	public void configure(Configuration configuration)
+	{
+		if (!configuration.containsKey("[@seconds]")) {
+			throw new ConfigurationRuntimeException("Time budget not set");
+		}
+		try {
+			setBudget(Math.round(1000*configuration.getDouble("[@seconds]")));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Current time in milliseconds (System.currentTimeMillis())
+	 */
+
+	protected long currentTime()
+	{
+		return System.currentTimeMillis();
+	}
+}
@@ -0,0 +1,221 @@
+package net.sf.jclec.base;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.util.ParallelRows;
+
+/**
+ * IEvaluator abstract implementation that evaluates individuals in
+ * batches.
+ *
+ * Individuals without fitness are gathered in an array, that is split
+ * into batches of consecutive individuals. Batches are evaluated in
+ * parallel by evaluateBatch(), so it must be thread safe, but each
+ * batch is evaluated by a single thread.
+ *
+ * By default, the batch size is set automatically: batches take about
+ * <code>batchTime</code> nanoseconds, according to the mean time per
+ * evaluation measured in previous calls, and there are at least as many
+ * batches as threads. Cheap evaluations are so done in large batches,
+ * and the cost of scheduling a task is shared by many individuals.
+ */
+
+public abstract class AbstractBatchEvaluator extends AbstractEvaluator
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -1860637320953285447L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Individuals per batch (0 to set it automatically) */
+
+	private int batchSize = 0;
+
+	/** Target time per batch in nanoseconds (automatic batch size) */
+
+	private long batchTime = 100000L;
+
+	/** Batch executor */
+
+	private ParallelRows executor = new ParallelRows();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Time spent in evaluateBatch() by all threads, in nanoseconds */
+
+	private final AtomicLong batchNanos = new AtomicLong();
+
+	/** Individuals evaluated by evaluateBatch() */
+
+	private final AtomicLong batchEvaluations = new AtomicLong();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor.
+	 */
+
+	public AbstractBatchEvaluator()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	/**
+	 * @return Individuals per batch (0 if it is set automatically)
+	 */
+
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize)
+	{
+		if (batchSize < 0) {
+			throw new IllegalArgumentException("Batch size must be positive (or zero)");
+		}
+		this.batchSize = batchSize;
+	}
+
+	public long getBatchTime()
+	{
+		return batchTime;
+	}
+
+	public void setBatchTime(long batchTime)
+	{
+		if (batchTime < 1) {
+			throw new IllegalArgumentException("Batch time must be positive");
+		}
+		this.batchTime = batchTime;
+	}
+
+	public int getNumberOfThreads()
+	{
+		return executor.getParallelism();
+	}
+
+	public void setNumberOfThreads(int numberOfThreads)
+	{
+		executor.setParallelism(numberOfThreads);
+	}
+
+	// IEvaluator interface
+
+	/**
+	 * Evaluate the individuals without fitness in batches.
+	 *
+	 * {@inheritDoc}
+	 */
+
+	@Override
+	public void evaluate(List<IIndividual> inds)
+	{
+		long time = System.currentTimeMillis(), nanoTime = System.nanoTime();
+		// Individuals to evaluate
+		int evaluations = 0;
+		final IIndividual [] pending = new IIndividual[inds.size()];
+		for (IIndividual ind : inds) {
+			if (ind.getFitness() == null) {
+				pending[evaluations++] = ind;
+			}
+		}
+		// Evaluate batches
+		executor.executeBlocks(evaluations, batchSize(evaluations), new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				long start = System.nanoTime();
+				evaluateBatch(pending, from, to);
+				batchNanos.addAndGet(System.nanoTime() - start);
+				batchEvaluations.addAndGet(to - from);
+			}
+		});
+		// Statistics
+		Comparator<IFitness> comparator = getComparator();
+		IFitness best = null;
+		boolean acceptable = false;
+		for (int i=0; i<evaluations; i++) {
+			IFitness fitness = pending[i].getFitness();
+			best = better(fitness, best, comparator);
+			acceptable |= fitness != null && fitness.isAcceptable();
+		}
+		synchronized (this) {
+			numberOfEvaluations += evaluations;
+			executionTime += System.currentTimeMillis() - time;
+			evaluationTime += System.nanoTime() - nanoTime;
+			updateStatistics(best, acceptable, comparator);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Evaluate a batch of individuals, setting their fitness.
+	 *
+	 * @param inds Array of individuals
+	 * @param from First individual in the batch (inclusive)
+	 * @param to Last individual in the batch (exclusive)
+	 */
+
+	protected abstract void evaluateBatch(IIndividual [] inds, int from, int to);
+
+	/**
+	 * Evaluate one individual as a batch.
+	 *
+	 * {@inheritDoc}
+	 */
+
+	@Override
+	protected void evaluate(IIndividual ind)
+	{
+		evaluateBatch(new IIndividual [] {ind}, 0, 1);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Batch size for n individuals.
+	 */
+
+	private int batchSize(int n)
+	{
+		int threads = executor.getParallelism();
+		// Enough batches to keep all threads busy
+		int maximum = Math.max(1, (n + threads - 1)/threads);
+		if (batchSize > 0) {
+			return batchSize;
+		}
+		long evaluated = batchEvaluations.get();
+		if (evaluated == 0) {
+			// No measures yet: several batches per thread
+			return Math.max(1, n/(4*threads));
+		}
+		double cost = Math.max(1.0, batchNanos.get()/(double) evaluated);
+		return (int) Math.max(1, Math.min(maximum, (long) Math.ceil(batchTime/cost)));
+	}
+}
@@ -1,13 +1,19 @@
 package net.sf.jclec.base;
 
+import java.util.Comparator;
 import java.util.List;
 
 import net.sf.jclec.IEvaluator;
+import net.sf.jclec.IFitness;
 import net.sf.jclec.IIndividual;
 
 /**
  * IEvaluator abstract implementation. 
  * 
+ * Besides the counters, the evaluator keeps the best fitness evaluated
+ * and whether an acceptable fitness has been evaluated, so that stop
+ * conditions can be checked without iterating the population.
+ * 
  * @author Sebastian Ventura 
  */
 
@@ -22,6 +28,18 @@ public abstract class AbstractEvaluator implements IEvaluator
 	
 	public long executionTime = 0;
 	
+	/** Evaluation time in nanoseconds */
+	
+	protected long evaluationTime = 0;
+	
+	/** Best fitness evaluated since last resetStatistics() */
+	
+	protected IFitness bestFitness;
+	
+	/** An acceptable fitness has been evaluated since last resetStatistics() */
+	
+	protected boolean acceptableFitness;
+	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -50,6 +68,63 @@ public abstract class AbstractEvaluator implements IEvaluator
 		return numberOfEvaluations;
 	}
 
+	/**
+	 * Set the number of evaluations (for instance, when an execution
+	 * is restored from a checkpoint).
+	 * 
+	 * @param numberOfEvaluations Number of evaluations until now
+	 */
+	
+	public synchronized void setNumberOfEvaluations(int numberOfEvaluations)
+	{
+		this.numberOfEvaluations = numberOfEvaluations;
+	}
+
+	/**
+	 * Access to evaluation time.
+	 * 
+	 * @return Time spent evaluating individuals, in nanoseconds
+	 */
+	
+	public long getEvaluationTime()
+	{
+		return evaluationTime;
+	}
+
+	/**
+	 * Access to the best fitness evaluated, according to the fitness
+	 * comparator.
+	 * 
+	 * @return Best fitness evaluated since last resetStatistics(), or
+	 * null if no individual has been evaluated
+	 */
+	
+	public synchronized IFitness getBestFitness()
+	{
+		return bestFitness;
+	}
+
+	/**
+	 * @return true if an acceptable fitness has been evaluated since
+	 * last resetStatistics()
+	 */
+	
+	public synchronized boolean hasAcceptableFitness()
+	{
+		return acceptableFitness;
+	}
+
+	/**
+	 * Forget best fitness and acceptable fitness (for instance, when a
+	 * new execution starts). Counters are not changed.
+	 */
+	
+	public synchronized void resetStatistics()
+	{
+		bestFitness = null;
+		acceptableFitness = false;
+	}
+
 	/**
 	 * For all individuals in "inds" array: if individual fitness  is
 	 * null, then evaluate this individual.
@@ -57,20 +132,36 @@ public abstract class AbstractEvaluator implements IEvaluator
 	 * This method is final. Is anyone wants implement this method in
 	 * another way should create a new IEvaluator class.
 	 * 
+	 * Counters are updated atomically, so this method can be called
+	 * concurrently if <code>evaluate(IIndividual)</code> is thread safe.
+	 * 
 	 * {@inheritDoc}
 	 */
 	
 	public void evaluate(List<IIndividual> inds) 
 	{
-		long time = System.currentTimeMillis();
+		long time = System.currentTimeMillis(), nanoTime = System.nanoTime();
+		int evaluations = 0;
+		Comparator<IFitness> comparator = getComparator();
+		IFitness best = null;
+		boolean acceptable = false;
 		
 		for (IIndividual ind : inds) {
 			if (ind.getFitness() == null) {
 				evaluate(ind);
-				numberOfEvaluations++;
+				evaluations++;
+				// Statistics
+				IFitness fitness = ind.getFitness();
+				best = better(fitness, best, comparator);
+				acceptable |= fitness != null && fitness.isAcceptable();
 			}
 		}
-		executionTime += System.currentTimeMillis() - time;
+		synchronized (this) {
+			numberOfEvaluations += evaluations;
+			executionTime += System.currentTimeMillis() - time;
+			evaluationTime += System.nanoTime() - nanoTime;
+			updateStatistics(best, acceptable, comparator);
+		}
 	}
 	
 	/////////////////////////////////////////////////////////////////
@@ -84,5 +175,48 @@ public abstract class AbstractEvaluator implements IEvaluator
 	 */
 	
 	protected abstract void evaluate(IIndividual ind);
+	
+	/**
+	 * Merge the statistics of a set of evaluations. Callers must hold
+	 * the lock of this evaluator.
+	 * 
+	 * The best fitness is copied, because some algorithms change the
+	 * fitness of their individuals after evaluation (as SPEA2 does).
+	 * 
+	 * @param best Best fitness in the set (or null)
+	 * @param acceptable Whether the set has an acceptable fitness
+	 * @param comparator Fitness comparator
+	 */
+	
+	protected final void updateStatistics(IFitness best, boolean acceptable, Comparator<IFitness> comparator)
+	{
+		IFitness result = better(best, bestFitness, comparator);
+		if (result != bestFitness) {
+			bestFitness = result.copy();
+		}
+		acceptableFitness |= acceptable;
+	}
+	
+	/**
+	 * Better of two fitness (any of them can be null).
+	 * 
+	 * @param fitness Fitness to compare
+	 * @param best Best fitness until now
+	 * @param comparator Fitness comparator (if null, first fitness is
+	 * kept)
+	 * 
+	 * @return fitness if it is better than best, best otherwise
+	 */
+	
+	protected static final IFitness better(IFitness fitness, IFitness best, Comparator<IFitness> comparator)
+	{
+		if (fitness == null) {
+			return best;
+		}
+		if (best == null || (comparator != null && comparator.compare(fitness, best) > 0)) {
+			return fitness;
+		}
+		return best;
+	}
 }
   
\ No newline at end of file
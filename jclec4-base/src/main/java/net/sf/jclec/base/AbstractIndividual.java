@@ -3,6 +3,7 @@ package net.sf.jclec.base;
 import net.sf.jclec.IFitness;
 import net.sf.jclec.IIndividual;
 
+import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.commons.lang.builder.ToStringBuilder;
 
 /**
@@ -116,6 +117,22 @@ public abstract class AbstractIndividual<G> implements IIndividual
 	
 	// java.lang.Object methods
 	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Hash code depends only on the genotype, so individuals can be kept
+	 * in hash sets (algorithms use them to skip equal individuals).
+	 * Subclasses whose equals() method does not compare genotypes must
+	 * override it.
+	 */
+	
+	@Override
+	public int hashCode()
+	{
+		HashCodeBuilder hcb = new HashCodeBuilder();
+		hcb.append(genotype);
+		return hcb.toHashCode();
+	}
 	
 	/**
 	 * Return an string that represent this fitness object legibly.
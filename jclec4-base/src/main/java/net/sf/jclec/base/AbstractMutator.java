@@ -8,6 +8,7 @@ import net.sf.jclec.IIndividual;
 import net.sf.jclec.IMutator;
 import net.sf.jclec.IPopulation;
 import net.sf.jclec.ISystem;
+import net.sf.jclec.util.PerformanceMetrics;
 import net.sf.jclec.util.random.IRandGen;
 
 /**
@@ -88,16 +89,23 @@ public abstract class AbstractMutator implements IMutator
 	
 	public List<IIndividual> mutate(List<IIndividual> parents) 
 	{
+		long time = System.nanoTime();
 		// Sets p list to actual parents
 		parentsBuffer = parents;
 		// Prepare recombination process
 		prepareMutation();
-		// Create a new list to put sons in it
-		sonsBuffer = new ArrayList<IIndividual> ();
+		// Create a new list to put sons in it (a new list is needed,
+		// because algorithms keep the returned one)
+		sonsBuffer = new ArrayList<IIndividual> (parents.size());
     	// For all individuals in "parents" ...
     	for (parentsCounter = 0; parentsCounter < parents.size(); parentsCounter ++) {
 			mutateNext();
     	}
+		// Record mutation time
+		PerformanceMetrics metrics = PerformanceMetrics.of(context);
+		if (metrics != null) {
+			metrics.record(PerformanceMetrics.MUTATOR, System.nanoTime() - time, sonsBuffer.size());
+		}
 		// Returns sons list
 		return sonsBuffer;
 	}
@@ -1,20 +1,20 @@
 package net.sf.jclec.base;
 
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-
 import net.sf.jclec.IIndividual;
 
 /**
  * IEvaluator parallel abstract implementation. 
  * 
+ * Individuals are evaluated in parallel batches (see
+ * AbstractBatchEvaluator), each batch calling evaluate(IIndividual)
+ * for its individuals. This method is called concurrently, so it
+ * must be thread safe.
+ * 
  * @author Alberto Cano
  * @author Sebastian Ventura
  */
 
-public abstract class AbstractParallelEvaluator extends AbstractEvaluator
+public abstract class AbstractParallelEvaluator extends AbstractBatchEvaluator
 {
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -32,65 +32,29 @@ public abstract class AbstractParallelEvaluator extends AbstractEvaluator
 	}
 
 	/////////////////////////////////////////////////////////////////
-	// ----------------------------------------------- Public methods
+	// -------------------------------------------- Protected methods
 	/////////////////////////////////////////////////////////////////
 
 	/**
-	 * For all individuals in "inds" array: if individual fitness  is
-	 * null, then evaluate this individual.
-	 * 
-	 * This method is final. Is anyone wants implement this method in
-	 * another way should create a new IEvaluator class.
+	 * Evaluate the individuals of a batch one by one.
 	 * 
 	 * {@inheritDoc}
 	 */
-	
-	public void evaluate(List<IIndividual> inds)
+
+	@Override
+	protected void evaluateBatch(IIndividual [] inds, int from, int to)
 	{
-		long time = System.currentTimeMillis();
-		
-		ExecutorService threadExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-		
-		for (IIndividual ind : inds)
-		{
-			if (ind.getFitness() == null)
-			{
-				threadExecutor.execute(new evaluationThread(ind));
-				numberOfEvaluations++;
-			}
+		for (int i=from; i<to; i++) {
+			evaluate(inds[i]);
 		}
-		
-		threadExecutor.shutdown();
-		
-		try
-		{
-			if (!threadExecutor.awaitTermination(30, TimeUnit.DAYS))
-				System.out.println("Threadpool timeout occurred");
-		}
-		catch (InterruptedException ie)
-		{
-			System.out.println("Threadpool prematurely terminated due to interruption in thread that created pool");
-		}
-
-		executionTime += System.currentTimeMillis() - time;
 	}
-	
-	/////////////////////////////////////////////////////////////////
-	// -------------------------------------------- Evaluation Thread
-	/////////////////////////////////////////////////////////////////
-	
-	private class evaluationThread extends Thread
-	{
-		private IIndividual ind;
-		
-	    public evaluationThread(IIndividual ind)
-	    {
-	        this.ind = ind;
-	    }
-	    
-	    public void run()
-	    {
-	    	evaluate(ind);
-	    }
-    }
-}
\ No newline at end of file
+
+	/**
+	 * Individual evaluation method.
+	 * 
+	 * @param ind Individual to evaluate
+	 */
+
+	@Override
+	protected abstract void evaluate(IIndividual ind);
+}
@@ -9,6 +9,7 @@ import net.sf.jclec.IIndividual;
 import net.sf.jclec.IPopulation;
 import net.sf.jclec.IRecombinator;
 
+import net.sf.jclec.util.PerformanceMetrics;
 import net.sf.jclec.util.random.IRandGen;
 
 /**
@@ -120,16 +121,23 @@ public abstract class AbstractRecombinator implements IRecombinator
 	
 	public List<IIndividual> recombine(List<IIndividual> parents) 
 	{
+		long time = System.nanoTime();
 		// Sets p list to actual parents
 		parentsBuffer = parents;
 		// Prepare recombination process
 		prepareRecombination();
-		// Create a new list to put sons in it
-		sonsBuffer = new ArrayList<IIndividual> ();
+		// Create a new list to put sons in it (a new list is needed,
+		// because algorithms keep the returned one)
+		sonsBuffer = new ArrayList<IIndividual> ((ppl > 0) ? (parents.size()/ppl)*spl : parents.size());
     	// For all individuals in "parents" ...
     	for (parentsCounter = 0; parentsCounter <= parents.size() - ppl; parentsCounter += ppl) {
 			recombineNext();
     	}
+		// Record recombination time
+		PerformanceMetrics metrics = PerformanceMetrics.of(context);
+		if (metrics != null) {
+			metrics.record(PerformanceMetrics.RECOMBINATOR, System.nanoTime() - time, sonsBuffer.size());
+		}
 		// Returns sons list
 		return sonsBuffer;
 	}
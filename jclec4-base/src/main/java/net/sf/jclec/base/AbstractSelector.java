@@ -7,6 +7,7 @@ import net.sf.jclec.IIndividual;
 import net.sf.jclec.IPopulation;
 import net.sf.jclec.ISelector;
 import net.sf.jclec.ISystem;
+import net.sf.jclec.util.PerformanceMetrics;
 
 /**
  * ISelector abstract implementation.
@@ -101,6 +102,7 @@ public abstract class AbstractSelector implements ISelector
 	
 	public List<IIndividual> select(List<IIndividual> src, int nofsel, boolean repeat) 
 	{
+		long time = System.nanoTime();
 		// Sets source set and actsrcsz
 		actsrc = src; actsrcsz = src.size();
 		// Prepare selection process
@@ -116,6 +118,11 @@ public abstract class AbstractSelector implements ISelector
 			}
 			result.add(selected);		
 		}		
+		// Record selection time
+		PerformanceMetrics metrics = PerformanceMetrics.of(context);
+		if (metrics != null) {
+			metrics.record(PerformanceMetrics.SELECTOR, System.nanoTime() - time, result.size());
+		}
 		// Returns selection
 		return result;
 	}
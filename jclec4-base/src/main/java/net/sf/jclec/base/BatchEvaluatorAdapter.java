@@ -0,0 +1,167 @@
+package net.sf.jclec.base;
+
+import java.util.Comparator;
+
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Batch evaluation of an existing evaluator.
+ *
+ * Individuals are evaluated in parallel batches by the
+ * evaluate(IIndividual) method of the adapted evaluator, that must be
+ * thread safe. Fitness comparator is that of the adapted evaluator.
+ */
+
+public class BatchEvaluatorAdapter extends AbstractParallelEvaluator implements IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 2290465806311795236L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Adapted evaluator */
+
+	private AbstractEvaluator evaluator;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor.
+	 */
+
+	public BatchEvaluatorAdapter()
+	{
+		super();
+	}
+
+	/**
+	 * Constructor that sets the adapted evaluator.
+	 *
+	 * @param evaluator Adapted evaluator
+	 */
+
+	public BatchEvaluatorAdapter(AbstractEvaluator evaluator)
+	{
+		super();
+		setEvaluator(evaluator);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public AbstractEvaluator getEvaluator()
+	{
+		return evaluator;
+	}
+
+	public void setEvaluator(AbstractEvaluator evaluator)
+	{
+		this.evaluator = evaluator;
+	}
+
+	// IEvaluator interface
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public Comparator<IFitness> getComparator()
+	{
+		return evaluator.getComparator();
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for BatchEvaluatorAdapter are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>evaluator: AbstractEvaluator (complex)</code></p>
+	 * Adapted evaluator
+	 * </li><li>
+	 * <code>[@batch-size] (int)</code></p>
+	 * Individuals per batch. Default value is 0 (set automatically)
+	 * </li><li>
+	 * <code>[@number-of-threads] (int)</code></p>
+	 * Number of evaluation threads. Default value is the number of
+	 * available processors
+	 * </li>
+	 * </ul>
+	 */
+
+	@SuppressWarnings("unchecked")
+	public void configure(Configuration configuration)
+	{
+		// Adapted evaluator
+		try {
+			// Evaluator classname
+			String evaluatorClassname =
+				configuration.getString("evaluator[@type]");
+			// Evaluator class
+			Class<? extends AbstractEvaluator> evaluatorClass =
+				(Class<? extends AbstractEvaluator>) Class.forName(evaluatorClassname);
+			// Evaluator instance
+			AbstractEvaluator evaluator = evaluatorClass.newInstance();
+			// Configure evaluator if necessary
+			if (evaluator instanceof IConfigure) {
+				((IConfigure) evaluator).configure(configuration.subset("evaluator"));
+			}
+			// Set evaluator
+			setEvaluator(evaluator);
+		}
+		catch (ClassNotFoundException e) {
+			throw new ConfigurationRuntimeException("Illegal evaluator classname");
+		}
+		catch (InstantiationException e) {
+			throw new ConfigurationRuntimeException("Problems creating an instance of evaluator", e);
+		}
+		catch (IllegalAccessException e) {
+			throw new ConfigurationRuntimeException("Problems creating an instance of evaluator", e);
+		}
+		catch (ClassCastException e) {
+			throw new ConfigurationRuntimeException("Evaluator must extend AbstractEvaluator", e);
+		}
+		// Batch size and number of threads
+		try {
+			setBatchSize(configuration.getInt("[@batch-size]", 0));
+			setNumberOfThreads(configuration.getInt("[@number-of-threads]", getNumberOfThreads()));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Evaluate an individual with the adapted evaluator.
+	 *
+	 * {@inheritDoc}
+	 */
+
+	@Override
+	protected void evaluate(IIndividual ind)
+	{
+		evaluator.evaluate(ind);
+	}
+}
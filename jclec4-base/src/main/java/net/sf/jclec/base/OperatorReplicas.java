@@ -0,0 +1,204 @@
+package net.sf.jclec.base;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jclec.ISystem;
+import net.sf.jclec.ITool;
+import net.sf.jclec.IPopulation;
+
+import net.sf.jclec.util.random.IRandGen;
+
+/**
+ * Copies of a genetic operator, used to apply it in parallel.
+ *
+ * Operators keep the state of a call in their fields, so each thread
+ * needs its own copy. Copies are created with the empty constructor
+ * (that sets transient fields, as the number of parents per litter of
+ * recombinators), and take a deep copy of the non-transient fields of
+ * the operator, made by serialization. They share the execution
+ * context, its species and its evaluator with the original operator.
+ * Random generators are not copied: copies are contextualized, so they
+ * create their own generators (and the context registers them in
+ * order, as those of any other operator).
+ */
+
+final class OperatorReplicas
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Static methods only
+	 */
+
+	private OperatorReplicas()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Create the replicas of an operator.
+	 *
+	 * @param operator Contextualized operator
+	 * @param context Execution context
+	 * @param numberOfReplicas Number of replicas
+	 *
+	 * @return List with the operator and numberOfReplicas-1 contextualized
+	 * copies of it
+	 */
+
+	@SuppressWarnings("unchecked")
+	static <T extends ITool> List<T> create(T operator, ISystem context, int numberOfReplicas)
+	{
+		// Objects shared by all replicas
+		List<Object> shared = new ArrayList<Object>();
+		shared.add(context);
+		if (context instanceof IPopulation) {
+			shared.add(((IPopulation) context).getSpecies());
+			shared.add(((IPopulation) context).getEvaluator());
+		}
+		List<T> result = new ArrayList<T>(numberOfReplicas);
+		result.add(operator);
+		try {
+			// Serialize operator once
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			ReplicaOutputStream out = new ReplicaOutputStream(buffer, shared);
+			out.writeObject(operator);
+			out.close();
+			byte [] contents = buffer.toByteArray();
+			// Create and contextualize copies
+			for (int i=1; i<numberOfReplicas; i++) {
+				ReplicaInputStream in = new ReplicaInputStream(new ByteArrayInputStream(contents), shared);
+				T replica = (T) fresh(in.readObject());
+				in.close();
+				replica.contextualize(context);
+				result.add(replica);
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Cannot copy operator " + operator.getClass().getName(), e);
+		}
+		catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Cannot copy operator " + operator.getClass().getName(), e);
+		}
+		catch (InstantiationException e) {
+			throw new IllegalStateException("Cannot copy operator " + operator.getClass().getName(), e);
+		}
+		catch (IllegalAccessException e) {
+			throw new IllegalStateException("Cannot copy operator " + operator.getClass().getName(), e);
+		}
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * New instance of the class of an object, with its non-static,
+	 * non-transient fields.
+	 */
+
+	private static Object fresh(Object copy) throws InstantiationException, IllegalAccessException
+	{
+		Object result = copy.getClass().newInstance();
+		for (Class<?> c = copy.getClass(); c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+					field.setAccessible(true);
+					field.set(result, field.get(copy));
+				}
+			}
+		}
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Inner types
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Reference to a shared object in a serialized operator.
+	 */
+
+	private static final class Shared implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		final int index;
+
+		Shared(int index)
+		{
+			this.index = index;
+		}
+	}
+
+	/**
+	 * Writes shared objects as references and random generators as
+	 * null.
+	 */
+
+	private static final class ReplicaOutputStream extends ObjectOutputStream
+	{
+		private final List<Object> shared;
+
+		ReplicaOutputStream(OutputStream out, List<Object> shared) throws IOException
+		{
+			super(out);
+			this.shared = shared;
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj)
+		{
+			for (int i=0; i<shared.size(); i++) {
+				if (obj == shared.get(i)) {
+					return new Shared(i);
+				}
+			}
+			return (obj instanceof IRandGen) ? null : obj;
+		}
+	}
+
+	/**
+	 * Resolves references to shared objects.
+	 */
+
+	private static final class ReplicaInputStream extends ObjectInputStream
+	{
+		private final List<Object> shared;
+
+		ReplicaInputStream(InputStream in, List<Object> shared) throws IOException
+		{
+			super(in);
+			this.shared = shared;
+			enableResolveObject(true);
+		}
+
+		@Override
+		protected Object resolveObject(Object obj)
+		{
+			return (obj instanceof Shared) ? shared.get(((Shared) obj).index) : obj;
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package net.sf.jclec.base;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import net.sf.jclec.ISystem;
+import net.sf.jclec.IRecombinator;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.util.ParallelRows;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+
+/**
+ * Parallel Recombinator.
+ *
+ * Litters of parents are split into a fixed number of partitions of
+ * consecutive litters, that are recombined in parallel by copies of the
+ * decorated recombinator. Each copy has its own random generator, and sons are
+ * returned in partition order, so the result depends on the number of
+ * partitions but not on the number of threads or their scheduling.
+ *
+ * Decorated recombinator is copied (see OperatorReplicas) when this
+ * recombinator is contextualized. It must not keep state between calls, other than
+ * its random generator.
+ */
+
+public class ParallelRecombinator extends DecoratedRecombinator
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 5190342771546823019L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of partitions (fixed, so results do not depend on the machine) */
+
+	protected int numberOfPartitions = 8;
+
+	/** Partitions executor */
+
+	protected ParallelRows executor = new ParallelRows();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Copies of decorated recombinator (one per partition) */
+
+	private transient List<IRecombinator> replicas;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor.
+	 */
+
+	public ParallelRecombinator()
+	{
+		super();
+	}
+
+	/**
+	 * Constructor that contextualizes this recombinator
+	 *
+	 * @param context New execution context
+	 */
+
+	public ParallelRecombinator(ISystem context)
+	{
+		super(context);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public final int getNumberOfPartitions()
+	{
+		return numberOfPartitions;
+	}
+
+	public final void setNumberOfPartitions(int numberOfPartitions)
+	{
+		if (numberOfPartitions < 1) {
+			throw new IllegalArgumentException("Number of partitions must be positive");
+		}
+		this.numberOfPartitions = numberOfPartitions;
+		replicas = null;
+	}
+
+	public final int getNumberOfThreads()
+	{
+		return executor.getParallelism();
+	}
+
+	public final void setNumberOfThreads(int numberOfThreads)
+	{
+		executor.setParallelism(numberOfThreads);
+	}
+
+	// IRecombinator interface
+
+	/**
+	 * Contextualize decorated recombinator and create its copies.
+	 *
+	 * {@inheritDoc}
+	 */
+
+	@Override
+	public void contextualize(ISystem context)
+	{
+		super.contextualize(context);
+		replicas = null;
+		if (decorated != null) {
+			replicas();
+		}
+	}
+
+	public List<IIndividual> recombine(List<IIndividual> parents)
+	{
+		final List<IRecombinator> replicas = replicas();
+		final List<IIndividual> source = parents;
+		final int ppl = getPpl();
+		// Partitions (at most one per litter)
+		final int litters = parents.size()/ppl;
+		final int partitions = Math.min(replicas.size(), litters);
+		final List<List<IIndividual>> sons = new ArrayList<List<IIndividual>>(Collections.<List<IIndividual>>nCopies(partitions, null));
+		executor.executeBlocks(partitions, 1, new ParallelRows.RowBlock() {
+			public void rows(int from, int to) {
+				for (int p=from; p<to; p++) {
+					int first = (int) ((long) p*litters/partitions), last = (int) ((long) (p+1)*litters/partitions);
+					sons.set(p, replicas.get(p).recombine(new ArrayList<IIndividual>(source.subList(first*ppl, last*ppl))));
+				}
+			}
+		});
+		// Merge sons in partition order
+		ArrayList<IIndividual> result = new ArrayList<IIndividual>(litters*getSpl());
+		for (List<IIndividual> partition : sons) {
+			result.addAll(partition);
+		}
+		return result;
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for ParallelRecombinator are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>decorated: IRecombinator (complex)</code></p>
+	 * Decorated recombinator
+	 * </li><li>
+	 * <code>[@number-of-partitions] (int)</code></p>
+	 * Number of partitions. Default value is 8. Results depend on this
+	 * number, so it does not depend on the machine
+	 * </li><li>
+	 * <code>[@number-of-threads] (int)</code></p>
+	 * Number of threads. Default value is the number of available
+	 * processors
+	 * </li>
+	 * </ul>
+	 */
+
+	@Override
+	public void configure(Configuration settings)
+	{
+		// Call super.configure() method
+		super.configure(settings);
+		// Set partitions and threads
+		try {
+			setNumberOfPartitions(settings.getInt("[@number-of-partitions]", numberOfPartitions));
+			setNumberOfThreads(settings.getInt("[@number-of-threads]", getNumberOfThreads()));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	// java.lang.Object methods
+
+	/**
+	 * Compare decorated recombinator and number of partitions.
+	 *
+	 * {@inheritDoc}
+	 */
+
+	public boolean equals(Object other)
+	{
+		if (other instanceof ParallelRecombinator) {
+			ParallelRecombinator o = (ParallelRecombinator) other;
+			EqualsBuilder eb = new EqualsBuilder();
+			eb.append(decorated, o.decorated);
+			eb.append(numberOfPartitions, o.numberOfPartitions);
+			return eb.isEquals();
+		}
+		else {
+			return false;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Copies of decorated recombinator, created if it or the number
+	 * of partitions have changed.
+	 */
+
+	private List<IRecombinator> replicas()
+	{
+		if (replicas == null || replicas.get(0) != decorated) {
+			replicas = OperatorReplicas.create(decorated, context, numberOfPartitions);
+		}
+		return replicas;
+	}
+}
@@ -4,6 +4,8 @@ import net.sf.jclec.ISpecies;
 
 import net.sf.jclec.base.AbstractCreator;
 
+import net.sf.jclec.util.random.Xoshiro;
+
 /**
  * Creation of BinArrayIndividual (and subclasses).
  *  
@@ -125,6 +127,16 @@ public class BinArrayCreator extends AbstractCreator
 	{
 		int gl = schema.length;
 		byte [] result = new byte[gl];
+		// Fast generators fill the genotype in bulk
+		if (randgen instanceof Xoshiro) {
+			((Xoshiro) randgen).nextBits(result, 0, gl);
+			for(int i=0; i<gl; i++) {
+				if (schema[i] != -1 ) {
+					result[i] = schema[i];	
+				}
+			}
+			return result;
+		}
 		for(int i=0; i<gl; i++) {
 			if (schema[i] == -1 ) {
 				result[i] = (byte) randgen.choose(0,2);
@@ -0,0 +1,113 @@
+package net.sf.jclec.binarray;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+
+import java.net.InetAddress;
+import java.net.Socket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.IEvaluator;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.fitness.IValueFitness;
+
+import org.apache.commons.configuration.XMLConfiguration;
+
+/**
+ * Worker process for BinArrayProcessEvaluator.
+ *
+ * Usage: <code>BinArrayEvaluationWorker evaluator-class
+ * [configuration-file] port token</code>
+ *
+ * The evaluator is created with its empty constructor and, if a
+ * configuration file is given and the evaluator is IConfigure,
+ * configured with it. Then the worker connects to the port (in the
+ * loopback address), sends the token and evaluates the individuals it receives, one at
+ * a time, until it is asked to exit or the connection is closed.
+ * Replies are flushed when there are no more requests waiting.
+ */
+
+public class BinArrayEvaluationWorker
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Static methods only
+	 */
+
+	private BinArrayEvaluationWorker()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	public static void main(String [] args) throws Exception
+	{
+		if (args.length < 3) {
+			System.err.println("Usage: BinArrayEvaluationWorker evaluator-class [configuration-file] port token");
+			System.exit(1);
+		}
+		// Create evaluator
+		IEvaluator evaluator = (IEvaluator) Class.forName(args[0]).newInstance();
+		if (args.length > 3 && evaluator instanceof IConfigure) {
+			((IConfigure) evaluator).configure(new XMLConfiguration(args[1]));
+		}
+		// Connect to the evaluator
+		int port = Integer.parseInt(args[args.length-2]);
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		try {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			// Identify this worker
+			out.write(args[args.length-1].getBytes("US-ASCII"));
+			out.flush();
+			List<IIndividual> request = new ArrayList<IIndividual>(1);
+			byte [] packed = new byte[0];
+			while (true) {
+				// Read request
+				int length;
+				try {
+					length = in.readInt();
+				}
+				catch (EOFException e) {
+					break;
+				}
+				if (length < 0) {
+					break;
+				}
+				if (packed.length != (length + 7) >>> 3) {
+					packed = new byte[(length + 7) >>> 3];
+				}
+				in.readFully(packed);
+				byte [] genotype = new byte[length];
+				BinArrayProcessEvaluator.unpack(packed, genotype);
+				// Evaluate individual
+				request.clear();
+				request.add(new BinArrayIndividual(genotype));
+				evaluator.evaluate(request);
+				// Send reply
+				out.writeDouble(((IValueFitness) request.get(0).getFitness()).getValue());
+				if (in.available() == 0) {
+					out.flush();
+				}
+			}
+			out.flush();
+		}
+		finally {
+			socket.close();
+		}
+	}
+}
@@ -80,6 +80,11 @@ public final class BinArrayIndividualSpecies extends BinArraySpecies implements
 	
 	public BinArrayIndividual createIndividual(byte[] genotype) 
 	{
+		BinArrayIndividual ind = recycledIndividual(BinArrayIndividual.class);
+		if (ind != null) {
+			ind.setGenotype(genotype);
+			return ind;
+		}
 		return new BinArrayIndividual(genotype);
 	}
 
@@ -99,6 +104,10 @@ public final class BinArrayIndividualSpecies extends BinArraySpecies implements
 	 * Genotype schema. This parameter contains characters '1', '0' 
 	 * and '*' to represent schema elements...   
 	 * </li>
+	 * <li>
+	 * <code>[@recycle] (boolean)</code></p>
+	 * Reuse the memory of discarded individuals. Default value is false
+	 * </li>
 	 * </ul> 
 	 */
 	
@@ -135,6 +144,8 @@ public final class BinArrayIndividualSpecies extends BinArraySpecies implements
 		}
 		// Set genotype schema
 		setGenotypeSchema(genotypeSchema);
+		// Set recycling
+		setRecycling(configuration.getBoolean("[@recycle]", false));
 	}
 
 	/////////////////////////////////////////////////////////////////
@@ -0,0 +1,684 @@
+package net.sf.jclec.binarray;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.base.AbstractBatchEvaluator;
+
+import net.sf.jclec.fitness.SimpleValueFitness;
+import net.sf.jclec.fitness.ValueFitnessComparator;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Evaluation of binary individuals in external worker processes.
+ *
+ * Each batch of individuals is sent to a worker process over a
+ * loopback socket. Workers are started with <code>command</code>, with
+ * the port number and a random token appended as last arguments, and
+ * must connect to that port and send the token. Connections that do
+ * not send the token of the worker are closed, so other local processes
+ * cannot take the place of a worker. There is a worker for each
+ * evaluation thread, and a worker evaluates one batch at a time, so it
+ * does not need to be thread safe.
+ *
+ * Protocol (big-endian):
+ *
+ * <ul>
+ * <li>
+ * Handshake: the worker sends its token (32 hexadecimal digits, in
+ * ASCII) as soon as it connects.
+ * </li><li>
+ * Request: genotype length (int), followed by the genotype packed in
+ * (length+7)/8 bytes, 8 loci per byte, first locus in the least
+ * significant bit. A negative length asks the worker to exit.
+ * </li><li>
+ * Reply: fitness value (double) of each request, in the same order.
+ * </li>
+ * </ul>
+ *
+ * Up to <code>window</code> requests are sent before their replies are
+ * read, so the worker never waits for the next individual. A worker that
+ * closes the connection, fails or takes more than <code>timeout</code>
+ * milliseconds to reply is killed, and the individuals without reply are
+ * sent to a new worker. A batch fails after <code>maxRetries</code>
+ * consecutive failures.
+ *
+ * Workers are stopped by shutdown() (or close()), that population
+ * algorithms call when evolution is finished, and when the virtual
+ * machine exits.
+ *
+ * BinArrayEvaluationWorker runs any AbstractEvaluator as a worker.
+ */
+
+public class BinArrayProcessEvaluator extends AbstractBatchEvaluator implements IConfigure, Closeable
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -3307195442631855918L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Constants
+	/////////////////////////////////////////////////////////////////
+
+	/** Length of worker tokens (hexadecimal digits) */
+
+	static final int TOKEN_LENGTH = 32;
+
+	/** Maximum time to wait for the token of a connection, in milliseconds */
+
+	private static final int HANDSHAKE_TIMEOUT = 2000;
+
+	/** Generator of worker tokens */
+
+	private static final SecureRandom TOKENS = new SecureRandom();
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Worker command line */
+
+	private List<String> command = new ArrayList<String>();
+
+	/** Maximize fitness values? */
+
+	private boolean maximize = true;
+
+	/** Maximum time to wait for a worker, in milliseconds */
+
+	private int timeout = 60000;
+
+	/** Maximum number of consecutive worker failures per batch */
+
+	private int maxRetries = 2;
+
+	/** Maximum number of requests sent before reading their replies */
+
+	private int window = 64;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Idle workers */
+
+	private transient LinkedBlockingQueue<Worker> idle = new LinkedBlockingQueue<Worker>();
+
+	/** All running workers */
+
+	private transient List<Worker> workers = new ArrayList<Worker>();
+
+	/** Number of workers restarted after a failure */
+
+	private transient int numberOfRestarts;
+
+	/** Stops the workers when the virtual machine exits (while there are workers) */
+
+	private transient Thread shutdownHook;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor.
+	 */
+
+	public BinArrayProcessEvaluator()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public List<String> getCommand()
+	{
+		return command;
+	}
+
+	public void setCommand(List<String> command)
+	{
+		if (command.isEmpty()) {
+			throw new IllegalArgumentException("Worker command must not be empty");
+		}
+		this.command = new ArrayList<String>(command);
+	}
+
+	public boolean isMaximize()
+	{
+		return maximize;
+	}
+
+	public void setMaximize(boolean maximize)
+	{
+		this.maximize = maximize;
+	}
+
+	public int getTimeout()
+	{
+		return timeout;
+	}
+
+	public void setTimeout(int timeout)
+	{
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Timeout must be positive (or zero for no timeout)");
+		}
+		this.timeout = timeout;
+	}
+
+	public int getMaxRetries()
+	{
+		return maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries)
+	{
+		if (maxRetries < 0) {
+			throw new IllegalArgumentException("Maximum number of retries must be positive (or zero)");
+		}
+		this.maxRetries = maxRetries;
+	}
+
+	public int getWindow()
+	{
+		return window;
+	}
+
+	public void setWindow(int window)
+	{
+		if (window < 1) {
+			throw new IllegalArgumentException("Window must be positive");
+		}
+		this.window = window;
+	}
+
+	/**
+	 * @return Number of workers restarted after a failure
+	 */
+
+	public synchronized int getNumberOfRestarts()
+	{
+		return numberOfRestarts;
+	}
+
+	/**
+	 * @return Number of running workers
+	 */
+
+	public synchronized int getNumberOfWorkers()
+	{
+		return workers.size();
+	}
+
+	// IEvaluator interface
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public Comparator<IFitness> getComparator()
+	{
+		return new ValueFitnessComparator(!maximize);
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for BinArrayProcessEvaluator are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>command (String)</code></p>
+	 * Worker command line (arguments separated by blanks)
+	 * </li><li>
+	 * <code>[@maximize] (boolean)</code></p>
+	 * Maximize fitness values. Default value is true
+	 * </li><li>
+	 * <code>[@number-of-workers] (int)</code></p>
+	 * Number of worker processes. Default value is the number of
+	 * available processors
+	 * </li><li>
+	 * <code>[@batch-size] (int)</code></p>
+	 * Individuals per batch. Default value is 0 (set automatically)
+	 * </li><li>
+	 * <code>[@timeout] (int)</code></p>
+	 * Maximum time to wait for a worker, in milliseconds. Default
+	 * value is 60000
+	 * </li><li>
+	 * <code>[@max-retries] (int)</code></p>
+	 * Maximum number of consecutive worker failures per batch. Default
+	 * value is 2
+	 * </li><li>
+	 * <code>[@window] (int)</code></p>
+	 * Requests sent before reading their replies. Default value is 64
+	 * </li>
+	 * </ul>
+	 */
+
+	public void configure(Configuration configuration)
+	{
+		try {
+			// Worker command
+			List<String> command = new ArrayList<String>();
+			StringTokenizer st = new StringTokenizer(configuration.getString("command", ""));
+			while (st.hasMoreTokens()) {
+				command.add(st.nextToken());
+			}
+			setCommand(command);
+			// Other properties
+			setMaximize(configuration.getBoolean("[@maximize]", true));
+			setNumberOfThreads(configuration.getInt("[@number-of-workers]", getNumberOfThreads()));
+			setBatchSize(configuration.getInt("[@batch-size]", 0));
+			setTimeout(configuration.getInt("[@timeout]", 60000));
+			setMaxRetries(configuration.getInt("[@max-retries]", 2));
+			setWindow(configuration.getInt("[@window]", 64));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	// Worker management
+
+	/**
+	 * Stop all workers. New workers are started if more individuals
+	 * are evaluated.
+	 */
+
+	public void shutdown()
+	{
+		List<Worker> stopped;
+		Thread hook;
+		synchronized (this) {
+			stopped = new ArrayList<Worker>(workers);
+			workers.clear();
+			idle.clear();
+			hook = shutdownHook;
+			shutdownHook = null;
+		}
+		for (Worker worker : stopped) {
+			worker.stop();
+		}
+		if (hook != null && hook != Thread.currentThread()) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(hook);
+			}
+			catch (IllegalStateException e) {
+				// Virtual machine is exiting
+			}
+		}
+	}
+
+	// Closeable interface
+
+	/**
+	 * Same as shutdown().
+	 */
+
+	public void close()
+	{
+		shutdown();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Evaluate a batch in a worker process.
+	 *
+	 * {@inheritDoc}
+	 */
+
+	@Override
+	protected void evaluateBatch(IIndividual [] inds, int from, int to)
+	{
+		int failures = 0;
+		while (from < to) {
+			Worker worker = acquire();
+			try {
+				from = worker.evaluate(inds, from, to);
+				release(worker);
+			}
+			catch (IOException e) {
+				// Replace failed worker
+				discard(worker);
+				// Individuals with reply are not sent again
+				int next = from;
+				while (next < to && inds[next].getFitness() != null) {
+					next++;
+				}
+				failures = (next > from) ? 1 : failures+1;
+				from = next;
+				if (failures > maxRetries) {
+					throw new RuntimeException("Evaluation worker failed", e);
+				}
+			}
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Take an idle worker, starting a new one if there are less
+	 * workers than threads.
+	 */
+
+	private Worker acquire()
+	{
+		Worker worker = null;
+		synchronized (this) {
+			worker = idle.poll();
+			if (worker != null) {
+				return worker;
+			}
+			if (workers.size() < getNumberOfThreads()) {
+				worker = new Worker();
+				workers.add(worker);
+				if (shutdownHook == null) {
+					shutdownHook = new Thread("jclec-workers-shutdown") {
+						public void run() {
+							shutdown();
+						}
+					};
+					Runtime.getRuntime().addShutdownHook(shutdownHook);
+				}
+			}
+		}
+		if (worker != null) {
+			try {
+				worker.start();
+				return worker;
+			}
+			catch (IOException e) {
+				synchronized (this) {
+					workers.remove(worker);
+				}
+				worker.stop();
+				throw new RuntimeException("Cannot start evaluation worker", e);
+			}
+		}
+		try {
+			return idle.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for a worker", e);
+		}
+	}
+
+	private synchronized void release(Worker worker)
+	{
+		if (workers.contains(worker)) {
+			idle.add(worker);
+		}
+		else {
+			// Stopped by shutdown()
+			worker.stop();
+		}
+	}
+
+	private void discard(Worker worker)
+	{
+		synchronized (this) {
+			workers.remove(worker);
+			numberOfRestarts++;
+		}
+		worker.stop();
+	}
+
+	/**
+	 * Pack a genotype, 8 loci per byte.
+	 *
+	 * @param genotype Genotype
+	 * @param packed Packed genotype ((length+7)/8 bytes)
+	 */
+
+	static final void pack(byte [] genotype, byte [] packed)
+	{
+		for (int i=0; i<packed.length; i++) {
+			packed[i] = 0;
+		}
+		for (int locus=0; locus<genotype.length; locus++) {
+			if (genotype[locus] != 0) {
+				packed[locus >>> 3] |= (1 << (locus & 7));
+			}
+		}
+	}
+
+	/**
+	 * Unpack a genotype.
+	 *
+	 * @param packed Packed genotype
+	 * @param genotype Genotype
+	 */
+
+	static final void unpack(byte [] packed, byte [] genotype)
+	{
+		for (int locus=0; locus<genotype.length; locus++) {
+			genotype[locus] = (byte) ((packed[locus >>> 3] >>> (locus & 7)) & 1);
+		}
+	}
+
+	/**
+	 * @return New worker token (TOKEN_LENGTH hexadecimal digits)
+	 */
+
+	private static String newToken()
+	{
+		byte [] bytes = new byte[TOKEN_LENGTH/2];
+		TOKENS.nextBytes(bytes);
+		StringBuilder result = new StringBuilder(TOKEN_LENGTH);
+		for (byte b : bytes) {
+			result.append(Character.forDigit((b >>> 4) & 0xf, 16));
+			result.append(Character.forDigit(b & 0xf, 16));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Time left until a deadline.
+	 *
+	 * @param deadline Deadline (Long.MAX_VALUE for no deadline)
+	 *
+	 * @return Milliseconds left (0 if there is no deadline)
+	 *
+	 * @throws SocketTimeoutException If the deadline has passed
+	 */
+
+	private static int remaining(long deadline) throws SocketTimeoutException
+	{
+		if (deadline == Long.MAX_VALUE) {
+			return 0;
+		}
+		long result = deadline - System.currentTimeMillis();
+		if (result <= 0) {
+			throw new SocketTimeoutException("Evaluation worker did not connect");
+		}
+		return (int) result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Worker process and its connection.
+	 */
+
+	private final class Worker
+	{
+		/** Worker process */
+
+		private Process process;
+
+		/** Connection */
+
+		private Socket socket;
+
+		private DataInputStream in;
+
+		private DataOutputStream out;
+
+		/** Packing buffer */
+
+		private byte [] packed = new byte[0];
+
+		/**
+		 * Start the process and wait for its connection. Connections
+		 * that do not send the token of this worker are closed.
+		 */
+
+		void start() throws IOException
+		{
+			String token = newToken();
+			ServerSocket server = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+			try {
+				List<String> commandLine = new ArrayList<String>(command);
+				commandLine.add(String.valueOf(server.getLocalPort()));
+				commandLine.add(token);
+				process = new ProcessBuilder(commandLine)
+					.redirectOutput(ProcessBuilder.Redirect.INHERIT)
+					.redirectError(ProcessBuilder.Redirect.INHERIT)
+					.start();
+				long deadline = (timeout == 0) ? Long.MAX_VALUE : System.currentTimeMillis() + timeout;
+				while (socket == null) {
+					server.setSoTimeout(remaining(deadline));
+					Socket candidate = server.accept();
+					if (authenticated(candidate, token, deadline)) {
+						socket = candidate;
+					}
+					else {
+						candidate.close();
+					}
+				}
+			}
+			finally {
+				server.close();
+			}
+			socket.setSoTimeout(timeout);
+			socket.setTcpNoDelay(true);
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		/**
+		 * Send individuals [from, to) and set their fitness.
+		 *
+		 * @return Position of the first individual without fitness
+		 * (to, unless an exception is thrown)
+		 */
+
+		int evaluate(IIndividual [] inds, int from, int to) throws IOException
+		{
+			int sent = from;
+			while (from < to) {
+				// Fill the window
+				if (sent < to && sent - from < window) {
+					while (sent < to && sent - from < window) {
+						send(((BinArrayIndividual) inds[sent++]).getGenotype());
+					}
+					out.flush();
+				}
+				// Read a reply
+				inds[from++].setFitness(new SimpleValueFitness(in.readDouble()));
+			}
+			return from;
+		}
+
+		/**
+		 * Ask the worker to exit, and kill it.
+		 */
+
+		void stop()
+		{
+			try {
+				if (out != null) {
+					out.writeInt(-1);
+					out.flush();
+				}
+			}
+			catch (IOException e) {
+				// Worker is already gone
+			}
+			try {
+				if (socket != null) {
+					socket.close();
+				}
+			}
+			catch (IOException e) {
+				// Nothing to do
+			}
+			if (process != null) {
+				process.destroy();
+			}
+		}
+
+		/**
+		 * Read the token of a new connection.
+		 *
+		 * @return true if it is the token of this worker
+		 */
+
+		private boolean authenticated(Socket candidate, String token, long deadline) throws IOException
+		{
+			int wait = remaining(deadline);
+			candidate.setSoTimeout((wait == 0) ? HANDSHAKE_TIMEOUT : Math.min(wait, HANDSHAKE_TIMEOUT));
+			byte [] received = new byte[TOKEN_LENGTH];
+			try {
+				new DataInputStream(candidate.getInputStream()).readFully(received);
+			}
+			catch (IOException e) {
+				// Closed or silent connection
+				return false;
+			}
+			return MessageDigest.isEqual(received, token.getBytes("US-ASCII"));
+		}
+
+		private void send(byte [] genotype) throws IOException
+		{
+			int length = (genotype.length + 7) >>> 3;
+			if (packed.length != length) {
+				packed = new byte[length];
+			}
+			pack(genotype, packed);
+			out.writeInt(genotype.length);
+			out.write(packed);
+		}
+	}
+}
@@ -4,6 +4,8 @@ import net.sf.jclec.ISpecies;
 
 import net.sf.jclec.base.AbstractRecombinator;
 
+import net.sf.jclec.util.random.Xoshiro;
+
 /**
  * BinArrayIndividual (and subclasses) specific recombinator.  
  * 
@@ -80,4 +82,29 @@ public abstract class BinArrayRecombinator extends AbstractRecombinator
 	 * representa a los individuos de la poblacin es de tipo IBinArraySpecies.
 	 * En caso negativo, lanza una excepcin.
 	 */	
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Random mask for 64 loci. Xoshiro generators give 64 bits in one
+	 * step. Other generators may have less than 32 bits of resolution
+	 * in raw() (24 for single precision ones), so only the 16 highest
+	 * bits of four raw() calls are used.
+	 * 
+	 * @return 64 random bits
+	 */
+	
+	protected final long randomBits()
+	{
+		if (randgen instanceof Xoshiro) {
+			return ((Xoshiro) randgen).nextLong();
+		}
+		long result = 0L;
+		for (int i=0; i<4; i++) {
+			result = (result << 16) | (long) (randgen.raw() * 0x1.0p16);
+		}
+		return result;
+	}
 }
@@ -1,6 +1,13 @@
 package net.sf.jclec.binarray;
 
+import java.util.Map;
+import java.util.HashMap;
+import java.util.ArrayDeque;
+
 import net.sf.jclec.ISpecies;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.util.Recycler;
 
 /**
  * Abstract implementation for IBinArraySpecies.
@@ -9,13 +16,19 @@ import net.sf.jclec.ISpecies;
  * represented individuals. This schema can be set in a subclass of this or can 
  * be calculated from other problem information.
  * 
+ * If recycling is enabled, the genotypes of discarded individuals are
+ * kept and reused by newGenotype(), so that operators do not allocate
+ * memory in each generation. Individuals given to recycle() must not be
+ * referenced anymore (see Recycler). Individuals are kept in a pool for
+ * each class, and no pool keeps more than the recycler capacity.
+ * 
  * @author Sebastian Ventura
  * 
  * @see BinArrayIndividualSpecies
  */
 
 @SuppressWarnings("serial")
-public abstract class BinArraySpecies implements ISpecies
+public abstract class BinArraySpecies implements ISpecies, Recycler
 {
 	/////////////////////////////////////////////////////////////////
 	// ----------------------------------------------------Properties
@@ -25,6 +38,26 @@ public abstract class BinArraySpecies implements ISpecies
 	
 	protected byte [] genotypeSchema;
 	
+	/** Reuse genotypes of discarded individuals */
+	
+	protected boolean recycling;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+	
+	/** Recycled genotypes */
+	
+	private transient ArrayDeque<byte []> genotypes;
+	
+	/** Recycled individuals (without genotype and fitness), by class */
+	
+	private transient Map<Class<?>, ArrayDeque<BinArrayIndividual>> shells;
+	
+	/** Maximum number of recycled genotypes and individuals per class */
+	
+	private transient int capacity = Integer.MAX_VALUE;
+	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -75,4 +108,134 @@ public abstract class BinArraySpecies implements ISpecies
 	{
 		return genotypeSchema;
 	}
+
+	// Setting and getting properties
+	
+	public boolean isRecycling()
+	{
+		return recycling;
+	}
+
+	public synchronized void setRecycling(boolean recycling)
+	{
+		this.recycling = recycling;
+		if (!recycling) {
+			genotypes = null;
+			shells = null;
+		}
+	}
+	
+	// Memory reuse
+	
+	/**
+	 * Allocate a genotype for a new individual. If recycling is enabled
+	 * the genotype of a discarded individual is returned, so its content
+	 * is undefined and must be completely overwritten.
+	 * 
+	 * @return A genotype of length getGenotypeLength()
+	 */
+	
+	public synchronized byte [] newGenotype()
+	{
+		if (genotypes != null && !genotypes.isEmpty()) {
+			return genotypes.pop();
+		}
+		return new byte[genotypeSchema.length];
+	}
+	
+	// Recycler interface
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public synchronized void recycle(IIndividual ind)
+	{
+		if (!recycling || !(ind instanceof BinArrayIndividual)) {
+			return;
+		}
+		if (genotypes == null) {
+			genotypes = new ArrayDeque<byte []>();
+			shells = new HashMap<Class<?>, ArrayDeque<BinArrayIndividual>>();
+		}
+		BinArrayIndividual bind = (BinArrayIndividual) ind;
+		byte [] genotype = bind.getGenotype();
+		if (genotype != null && genotype.length == genotypeSchema.length && genotypes.size() < capacity) {
+			genotypes.push(genotype);
+		}
+		bind.setGenotype(null);
+		bind.setFitness(null);
+		ArrayDeque<BinArrayIndividual> pool = shells.get(bind.getClass());
+		if (pool == null) {
+			pool = new ArrayDeque<BinArrayIndividual>();
+			shells.put(bind.getClass(), pool);
+		}
+		if (pool.size() < capacity) {
+			pool.push(bind);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public synchronized void setCapacity(int capacity)
+	{
+		this.capacity = capacity;
+		if (genotypes != null) {
+			while (genotypes.size() > capacity) {
+				genotypes.pop();
+			}
+			for (ArrayDeque<BinArrayIndividual> pool : shells.values()) {
+				while (pool.size() > capacity) {
+					pool.pop();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public IIndividual copy(IIndividual ind)
+	{
+		BinArrayIndividual bind = (BinArrayIndividual) ind;
+		byte [] genotype = bind.getGenotype();
+		if (!recycling || genotype.length != genotypeSchema.length) {
+			return ind.copy();
+		}
+		// Copy genotype into a recycled one
+		byte [] gother = newGenotype();
+		System.arraycopy(genotype, 0, gother, 0, gother.length);
+		// Create copy
+		BinArrayIndividual result = createIndividual(gother);
+		if (bind.getFitness() != null) {
+			result.setFitness(bind.getFitness().copy());
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Take a recycled individual of the given class, to be used in
+	 * createIndividual() implementations.
+	 * 
+	 * @param type Class of the individual
+	 * 
+	 * @return A recycled individual without genotype and fitness, or
+	 * null if there is none of this class
+	 */
+	
+	protected final synchronized BinArrayIndividual recycledIndividual(Class<? extends BinArrayIndividual> type)
+	{
+		if (shells == null) {
+			return null;
+		}
+		ArrayDeque<BinArrayIndividual> pool = shells.get(type);
+		return (pool == null) ? null : pool.poll();
+	}
 }
@@ -1,16 +1,22 @@
 package net.sf.jclec.binarray;
 
+import java.util.List;
+
 import net.sf.jclec.JCLEC;
-import net.sf.jclec.IDistance;
 import net.sf.jclec.IIndividual;
 
+import net.sf.jclec.util.IndexedDistance;
+
 /**
  * Hamming Distance.
  * 
+ * Sets of individuals can be packed in PackedGenotypes, that
+ * computes distances with bit operations over 64 loci at a time.
+ * 
  * @author Sebastian Ventura
  */
 
-public class HammingDistance implements IDistance, JCLEC 
+public class HammingDistance implements IndexedDistance, JCLEC 
 {
 	//////////////////////////////////////////////////////////////////////
 	// -------------------------------------------- Serialization constant
@@ -43,7 +49,7 @@ public class HammingDistance implements IDistance, JCLEC
 	public double distance(IIndividual one, IIndividual other) 
 	{
 		// Individual genotypes
-		byte [] gone   = ((BinArrayIndividual) other).getGenotype();
+		byte [] gone   = ((BinArrayIndividual) one).getGenotype();
 		byte [] gother = ((BinArrayIndividual) other).getGenotype();
 		// Setting Hamming distance
 		int distance = 0;
@@ -55,4 +61,15 @@ public class HammingDistance implements IDistance, JCLEC
 		// Returns hamming distance
 		return (double) distance;
 	}
+
+	// IndexedDistance interface
+
+	@Override
+	public Points pack(List<IIndividual> inds, Points buffer)
+	{
+		PackedGenotypes result = (buffer instanceof PackedGenotypes) ?
+			(PackedGenotypes) buffer : new PackedGenotypes();
+		result.load(inds);
+		return result;
+	}
 }
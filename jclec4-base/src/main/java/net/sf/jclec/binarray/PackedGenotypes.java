@@ -0,0 +1,199 @@
+package net.sf.jclec.binarray;
+
+import java.util.List;
+
+import net.sf.jclec.JCLEC;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.util.IndexedDistance;
+
+/**
+ * Packed copy of the genotypes of a set of binary individuals, used to
+ * compute Hamming distances.
+ *
+ * Genotypes are packed one bit per locus in a single long array
+ * (one row of 64-bit words per individual), so distances are computed
+ * with bit operations over 64 loci at a time, without going through
+ * the individual objects. The loaded individuals are kept, so
+ * positions can be mapped back to them with getIndividual().
+ *
+ * Arrays are reused by later calls to load(), so a population loaded
+ * every generation does not allocate memory once it reaches its size.
+ */
+
+public class PackedGenotypes implements IndexedDistance.Points, JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -7315896504120447385L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of loaded individuals */
+
+	private int size;
+
+	/** Genotype length */
+
+	private int genotypeLength;
+
+	/** Number of 64-bit words per genotype */
+
+	private int words;
+
+	/** Loaded individuals */
+
+	private transient IIndividual [] individuals = new IIndividual[0];
+
+	/** Packed genotypes (size x words, row-major) */
+
+	private transient long [] genotypes = new long[0];
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public PackedGenotypes()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Getting properties
+
+	/**
+	 * @return Number of loaded individuals
+	 */
+
+	public int size()
+	{
+		return size;
+	}
+
+	public int getGenotypeLength()
+	{
+		return genotypeLength;
+	}
+
+	/**
+	 * Access to a loaded individual.
+	 *
+	 * @param i Individual position
+	 *
+	 * @return Individual loaded in position i
+	 */
+
+	public IIndividual getIndividual(int i)
+	{
+		return individuals[i];
+	}
+
+	/**
+	 * Access to an allele of a packed genotype.
+	 *
+	 * @param i Individual position
+	 * @param locus Locus
+	 *
+	 * @return Allele value (0 or 1)
+	 */
+
+	public byte getAllele(int i, int locus)
+	{
+		return (byte) ((genotypes[i*words + (locus >>> 6)] >>> locus) & 1L);
+	}
+
+	// Loading individuals
+
+	/**
+	 * Load a set of individuals.
+	 *
+	 * @param pop Individuals to load. All of them must be
+	 * BinArrayIndividuals with genotypes of the same length
+	 */
+
+	public void load(List<IIndividual> pop)
+	{
+		// Number of individuals and genotype length
+		size = pop.size();
+		genotypeLength = (size == 0) ? 0 :
+			((BinArrayIndividual) pop.get(0)).getGenotype().length;
+		words = (genotypeLength + 63) >>> 6;
+		// Ensure capacity
+		if (individuals.length < size) {
+			individuals = new IIndividual[size];
+		}
+		if (genotypes.length < size*words) {
+			genotypes = new long[size*words];
+		}
+		// Pack individuals
+		for (int i=0; i<size; i++) {
+			IIndividual ind = pop.get(i);
+			individuals[i] = ind;
+			byte [] genotype = ((BinArrayIndividual) ind).getGenotype();
+			if (genotype.length != genotypeLength) {
+				throw new IllegalArgumentException("Genotypes must have the same length");
+			}
+			int base = i*words;
+			for (int w=0; w<words; w++) {
+				long word = 0L;
+				int first = w << 6, last = Math.min(first + 64, genotypeLength);
+				for (int locus=last-1; locus>=first; locus--) {
+					word = (word << 1) | (genotype[locus] != 0 ? 1L : 0L);
+				}
+				genotypes[base + w] = word;
+			}
+		}
+		// Clear references to previous individuals
+		for (int i=size; i<individuals.length && individuals[i] != null; i++) {
+			individuals[i] = null;
+		}
+	}
+
+	// Distance kernels
+
+	/**
+	 * Hamming distance between two loaded individuals.
+	 *
+	 * @param i First individual position
+	 * @param j Second individual position
+	 *
+	 * @return Number of loci with different alleles
+	 */
+
+	public int hammingDistance(int i, int j)
+	{
+		int result = 0;
+		int bi = i*words, bj = j*words;
+		for (int w=0; w<words; w++) {
+			result += Long.bitCount(genotypes[bi + w] ^ genotypes[bj + w]);
+		}
+		return result;
+	}
+
+	// IndexedDistance.Points interface
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * This is the Hamming distance.
+	 */
+
+	@Override
+	public double distance(int i, int j)
+	{
+		return (double) hammingDistance(i, j);
+	}
+}
@@ -0,0 +1,215 @@
+package net.sf.jclec.binarray.mut;
+
+import net.sf.jclec.IConfigure;
+
+import net.sf.jclec.binarray.BinArrayMutator;
+import net.sf.jclec.binarray.BinArrayIndividual;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * Bit flip mutator for BinArrayIndividual and subclasses.
+ * 
+ * Each mutable locus is flipped with probability locusMutationProb.
+ * Instead of drawing a random number per locus, the distance to the
+ * next flipped locus is drawn from a geometric distribution, so the
+ * cost of a mutation is proportional to the expected number of flips
+ * (plus the copy of the parent genotype), not to the genotype length.
+ */
+
+public class BitFlipMutator extends BinArrayMutator implements IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+	
+	/** Generated by Eclipse */
+	
+	private static final long serialVersionUID = -6385029213574718651L;
+	
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+	
+	/** Probability of flipping each locus */
+	
+	private double locusMutationProb;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+	
+	/** Logarithm of (1 - locusMutationProb) */
+	
+	private transient double logq;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Empty constructor.
+	 */
+	
+	public BitFlipMutator() 
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+	
+	// Setting and getting properties
+	
+	/**
+	 * @return Probability of flipping each locus
+	 */
+	
+	public double getLocusMutationProb() 
+	{
+		return locusMutationProb;
+	}
+
+	/**
+	 * Sets the probability of flipping each locus
+	 * 
+	 * @param locusMutationProb New probability (in [0,1])
+	 */
+	
+	public void setLocusMutationProb(double locusMutationProb) 
+	{
+		if (locusMutationProb < 0 || locusMutationProb > 1) {
+			throw new IllegalArgumentException("Locus mutation probability must be in [0,1]");
+		}
+		this.locusMutationProb = locusMutationProb;
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration method.
+	 * 
+	 * Configuration parameters for BitFlipMutator are:
+	 * 
+	 * <ul>
+	 * <li>
+	 * <code>[@locus-mutation-prob]: double</code></p>
+	 * Probability of flipping each locus. 
+	 * </li>
+	 * </ul>
+	 */
+	
+	public void configure(Configuration configuration) 
+	{
+		// Get the '[@locus-mutation-prob]' property
+		try {
+			setLocusMutationProb(configuration.getDouble("[@locus-mutation-prob]"));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+	
+	// java.lang.Object methods
+
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof BitFlipMutator) {
+			BitFlipMutator o = (BitFlipMutator) other;
+			EqualsBuilder eb = new EqualsBuilder();
+			eb.append(locusMutationProb, o.locusMutationProb);
+			return eb.isEquals();
+		}
+		else {
+			return false;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	public String toString()
+	{
+		ToStringBuilder tsb = new ToStringBuilder(this);
+		tsb.append(locusMutationProb);
+		return tsb.toString();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	// AbstractMutator methods
+
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	protected void prepareMutation() 
+	{
+		super.prepareMutation();
+		logq = Math.log1p(-locusMutationProb);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	protected void mutateNext() 
+	{
+		// Genome length
+		int gl = species.getGenotypeLength();
+		// Individual to mutate
+		BinArrayIndividual mutant = 
+			(BinArrayIndividual) parentsBuffer.get(parentsCounter);
+		// Creates mutant genotype
+		byte [] mgenome = species.newGenotype();
+		System.arraycopy(mutant.getGenotype(), 0, mgenome, 0, gl);
+		// Flip loci, jumping from one flipped locus to the next
+		if (locusMutationProb > 0) {
+			for (long locus = nextSkip(); locus < gl; locus += 1 + nextSkip()) {
+				if (schema[(int) locus] == -1) {
+					flip(mgenome, (int) locus);
+				}
+			}
+		}
+		// Returns mutant
+		sonsBuffer.add(species.createIndividual(mgenome));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Number of loci that are not flipped before the next flipped one.
+	 * It follows a geometric distribution with parameter
+	 * locusMutationProb.
+	 * 
+	 * @return Number of skipped loci
+	 */
+	
+	private final long nextSkip() 
+	{
+		if (locusMutationProb >= 1) {
+			return 0;
+		}
+		// Skip is infinite (so the loop ends) if raw() returns 0
+		double skip = Math.floor(Math.log(randgen.raw()) / logq);
+		return (skip < Integer.MAX_VALUE) ? (long) skip : Integer.MAX_VALUE;
+	}
+}
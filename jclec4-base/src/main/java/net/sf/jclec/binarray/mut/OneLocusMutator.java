@@ -51,7 +51,7 @@ public class OneLocusMutator extends BinArrayMutator
 		BinArrayIndividual mutant = 
 			(BinArrayIndividual) parentsBuffer.get(parentsCounter);
 		// Creates mutant genotype
-		byte [] mgenome = new byte[gl];
+		byte [] mgenome = species.newGenotype();
 		System.arraycopy(mutant.getGenotype(), 0, mgenome, 0, gl);
 		// Choose mutation point
 		int mp = getMutableLocus();
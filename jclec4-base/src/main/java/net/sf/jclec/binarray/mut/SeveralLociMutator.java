@@ -159,7 +159,7 @@ public class SeveralLociMutator extends BinArrayMutator implements IConfigure
 		BinArrayIndividual mutant = 
 			(BinArrayIndividual) parentsBuffer.get(parentsCounter);
 		// Creates mutant genotype
-		byte [] mgenome = new byte[gl];
+		byte [] mgenome = species.newGenotype();
 		System.arraycopy(mutant.getGenotype(), 0, mgenome, 0, gl);
 		// Choose mutation point
 		setMpoints(gl);
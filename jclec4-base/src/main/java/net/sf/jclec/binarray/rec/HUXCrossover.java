@@ -0,0 +1,111 @@
+package net.sf.jclec.binarray.rec;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.BinArrayRecombinator;
+
+/**
+ * Half uniform crossover (HUX) for BinArrayIndividual and subclasses.
+ * 
+ * Exactly half of the loci in which parents differ (rounded down) are
+ * exchanged, chosen at random. This is the recombination operator of
+ * the CHC algorithm. Sons are copies of the parents where the chosen
+ * loci are flipped, so only the exchanged loci are written one by one.
+ */
+
+public class HUXCrossover extends BinArrayRecombinator 
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+	
+	/** Generated by Eclipse */
+	
+	private static final long serialVersionUID = -5561937810542201647L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+	
+	/** Loci in which parents differ */
+	
+	private transient int [] differences;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Empty constructor
+	 */
+	
+	public HUXCrossover() 
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// java.lang.Object methods
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	public boolean equals(Object other)
+	{
+		return (other instanceof HUXCrossover);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	// AbstractRecombinator methods
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	protected void recombineNext() 
+	{
+		// Genotype length
+		int gl = species.getGenotypeLength();
+		// Parents genotypes
+		byte [] p0_genome = 
+			((BinArrayIndividual) parentsBuffer.get(parentsCounter)).getGenotype();
+		byte [] p1_genome = 
+			((BinArrayIndividual) parentsBuffer.get(parentsCounter+1)).getGenotype();
+		// Sons genotypes (copies of parents)
+		byte [] s0_genome = species.newGenotype();
+		byte [] s1_genome = species.newGenotype();
+		System.arraycopy(p0_genome, 0, s0_genome, 0, gl);
+		System.arraycopy(p1_genome, 0, s1_genome, 0, gl);
+		// Loci in which parents differ
+		if (differences == null || differences.length < gl) {
+			differences = new int[gl];
+		}
+		int nd = 0;
+		for (int i=0; i<gl; i++) {
+			if (p0_genome[i] != p1_genome[i]) {
+				differences[nd++] = i;
+			}
+		}
+		// Exchange half of them (partial Fisher-Yates shuffle)
+		int nx = nd/2;
+		for (int i=0; i<nx; i++) {
+			int j = randgen.choose(i, nd);
+			int locus = differences[j];
+			differences[j] = differences[i];
+			differences[i] = locus;
+			s0_genome[locus] = p1_genome[locus];
+			s1_genome[locus] = p0_genome[locus];
+		}
+		// Put sons in sons buffer
+		sonsBuffer.add(species.createIndividual(s0_genome));
+		sonsBuffer.add(species.createIndividual(s1_genome));
+	}
+}
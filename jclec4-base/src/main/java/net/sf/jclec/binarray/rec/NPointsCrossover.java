@@ -0,0 +1,220 @@
+package net.sf.jclec.binarray.rec;
+
+import java.util.Arrays;
+
+import net.sf.jclec.IConfigure;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.BinArrayRecombinator;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * N points crossover for BinArrayIndividual and subclasses.
+ * 
+ * Crossover points are all different. They are drawn with Floyd's
+ * sampling algorithm (exactly one random number per point) and the
+ * segments between them are copied with System.arraycopy().
+ */
+
+public class NPointsCrossover extends BinArrayRecombinator implements IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+	
+	/** Generated by Eclipse */
+	
+	private static final long serialVersionUID = 8893124075615436521L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+	
+	/** Number of crossover points */
+	
+	private int numberOfCrossoverPoints = 2;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+	
+	/** Crossover points */
+	
+	private transient int [] cp;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Empty constructor
+	 */
+	
+	public NPointsCrossover() 
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+	
+	/**
+	 * @return Number of crossover points
+	 */
+	
+	public int getNumberOfCrossoverPoints() 
+	{
+		return numberOfCrossoverPoints;
+	}
+
+	/**
+	 * Sets the number of crossover points
+	 * 
+	 * @param numberOfCrossoverPoints New number of points
+	 */
+	
+	public void setNumberOfCrossoverPoints(int numberOfCrossoverPoints) 
+	{
+		if (numberOfCrossoverPoints < 1) {
+			throw new IllegalArgumentException("Number of crossover points must be positive");
+		}
+		this.numberOfCrossoverPoints = numberOfCrossoverPoints;
+		this.cp = null;
+	}
+
+	// IConfigure interface
+	
+	/**
+	 * Configuration parameters for NPointsCrossover are:
+	 * 
+	 * <ul>
+	 * <li>
+	 * <code>[@number-of-crossover-points]: integer (default = 2)</code></p>
+	 * Number of crossover points. 
+	 * </li>
+	 * </ul>
+	 */
+	
+	public void configure(Configuration configuration) 
+	{
+		try {
+			setNumberOfCrossoverPoints(configuration.getInt("[@number-of-crossover-points]", 2));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+	
+	// java.lang.Object methods
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof NPointsCrossover) {
+			NPointsCrossover o = (NPointsCrossover) other;
+			EqualsBuilder eb = new EqualsBuilder();
+			eb.append(numberOfCrossoverPoints, o.numberOfCrossoverPoints);
+			return eb.isEquals();
+		}
+		else {
+			return false;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	public String toString()
+	{
+		ToStringBuilder tsb = new ToStringBuilder(this);
+		tsb.append(numberOfCrossoverPoints);
+		return tsb.toString();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	// AbstractRecombinator methods
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	protected void recombineNext() 
+	{
+		// Genotype length
+		int gl = species.getGenotypeLength();
+		// Parents genotypes
+		byte [] p0_genome = 
+			((BinArrayIndividual) parentsBuffer.get(parentsCounter)).getGenotype();
+		byte [] p1_genome = 
+			((BinArrayIndividual) parentsBuffer.get(parentsCounter+1)).getGenotype();
+		// Sons genotypes
+		byte [] s0_genome = species.newGenotype();
+		byte [] s1_genome = species.newGenotype();
+		// Crossover points (at most gl-1)
+		int ncp = Math.min(numberOfCrossoverPoints, gl-1);
+		setCrossoverPoints(gl, ncp);
+		// Copy segments, exchanging parents at each point
+		byte [] a = p0_genome, b = p1_genome;
+		int from = 0;
+		for (int i=0; i<=ncp; i++) {
+			int to = (i < ncp) ? cp[i] : gl;
+			System.arraycopy(a, from, s0_genome, from, to-from);
+			System.arraycopy(b, from, s1_genome, from, to-from);
+			byte [] tmp = a; a = b; b = tmp;
+			from = to;
+		}
+		// Put sons in sons buffer
+		sonsBuffer.add(species.createIndividual(s0_genome));
+		sonsBuffer.add(species.createIndividual(s1_genome));
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Choose ncp different points in [1, gl) and sort them.
+	 * 
+	 * @param gl Genotype length
+	 * @param ncp Number of points
+	 */
+	
+	private final void setCrossoverPoints(int gl, int ncp)
+	{
+		// Allocate space for cp
+		if (cp == null || cp.length < ncp) {
+			cp = new int[numberOfCrossoverPoints];
+		}
+		// Floyd's algorithm over the gl-1 candidate points
+		int n = gl - 1;
+		for (int i=0, j=n-ncp; i<ncp; i++, j++) {
+			int point = 1 + randgen.choose(0, j+1);
+			for (int k=0; k<i; k++) {
+				if (cp[k] == point) {
+					point = 1 + j;
+					break;
+				}
+			}
+			cp[i] = point;
+		}
+		Arrays.sort(cp, 0, ncp);
+	}
+}
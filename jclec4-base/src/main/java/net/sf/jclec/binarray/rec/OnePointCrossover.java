@@ -0,0 +1,86 @@
+package net.sf.jclec.binarray.rec;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.BinArrayRecombinator;
+
+/**
+ * One point crossover for BinArrayIndividual and subclasses.
+ * 
+ * Sons are built with two array copies per son, so the cost does not
+ * depend on the position of the crossover point.
+ */
+
+public class OnePointCrossover extends BinArrayRecombinator 
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+	
+	/** Generated by Eclipse */
+	
+	private static final long serialVersionUID = -2134076431245618302L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Empty constructor
+	 */
+	
+	public OnePointCrossover() 
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// java.lang.Object methods
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	public boolean equals(Object other)
+	{
+		return (other instanceof OnePointCrossover);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	// AbstractRecombinator methods
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	protected void recombineNext() 
+	{
+		// Genotype length
+		int gl = species.getGenotypeLength();
+		// Parents genotypes
+		byte [] p0_genome = 
+			((BinArrayIndividual) parentsBuffer.get(parentsCounter)).getGenotype();
+		byte [] p1_genome = 
+			((BinArrayIndividual) parentsBuffer.get(parentsCounter+1)).getGenotype();
+		// Sons genotypes
+		byte [] s0_genome = species.newGenotype();
+		byte [] s1_genome = species.newGenotype();
+		// Crossover point
+		int cp = randgen.choose(1, gl);
+		// Copy segments
+		System.arraycopy(p0_genome, 0, s0_genome, 0, cp);
+		System.arraycopy(p1_genome, cp, s0_genome, cp, gl-cp);
+		System.arraycopy(p1_genome, 0, s1_genome, 0, cp);
+		System.arraycopy(p0_genome, cp, s1_genome, cp, gl-cp);
+		// Put sons in sons buffer
+		sonsBuffer.add(species.createIndividual(s0_genome));
+		sonsBuffer.add(species.createIndividual(s1_genome));
+	}
+}
@@ -0,0 +1,92 @@
+package net.sf.jclec.binarray.rec;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.BinArrayRecombinator;
+
+/**
+ * Uniform crossover for BinArrayIndividual and subclasses.
+ * 
+ * Each locus is exchanged between the parents with probability 0.5.
+ * Loci are processed in blocks of 64, taking the exchange decisions
+ * from a 64 bits random mask instead of tossing a coin per locus.
+ */
+
+public class UniformCrossover extends BinArrayRecombinator 
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+	
+	/** Generated by Eclipse */
+	
+	private static final long serialVersionUID = 4423690127503316058L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Empty constructor
+	 */
+	
+	public UniformCrossover() 
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// java.lang.Object methods
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	public boolean equals(Object other)
+	{
+		return (other instanceof UniformCrossover);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	// AbstractRecombinator methods
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	@Override
+	protected void recombineNext() 
+	{
+		// Genotype length
+		int gl = species.getGenotypeLength();
+		// Parents genotypes
+		byte [] p0_genome = 
+			((BinArrayIndividual) parentsBuffer.get(parentsCounter)).getGenotype();
+		byte [] p1_genome = 
+			((BinArrayIndividual) parentsBuffer.get(parentsCounter+1)).getGenotype();
+		// Sons genotypes
+		byte [] s0_genome = species.newGenotype();
+		byte [] s1_genome = species.newGenotype();
+		// Exchange loci selected by random masks
+		for (int i=0; i<gl; i+=64) {
+			long mask = randomBits();
+			int end = Math.min(gl, i+64);
+			for (int j=i; j<end; j++, mask >>>= 1) {
+				// swap is 0 or -1 (all ones)
+				int swap = -(int) (mask & 1L);
+				int diff = (p0_genome[j] ^ p1_genome[j]) & swap;
+				s0_genome[j] = (byte) (p0_genome[j] ^ diff);
+				s1_genome[j] = (byte) (p1_genome[j] ^ diff);
+			}
+		}
+		// Put sons in sons buffer
+		sonsBuffer.add(species.createIndividual(s0_genome));
+		sonsBuffer.add(species.createIndividual(s1_genome));
+	}
+}
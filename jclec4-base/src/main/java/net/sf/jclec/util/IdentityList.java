@@ -0,0 +1,348 @@
+package net.sf.jclec.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.RandomAccess;
+
+import net.sf.jclec.JCLEC;
+import net.sf.jclec.IIndividual;
+
+/**
+ * List of individuals with membership by identity.
+ *
+ * contains(), indexOf() and remove(Object) compare individuals with
+ * <code>==</code> instead of equals(), using an identity hash index, so
+ * they do not compare genotypes and take O(1) time (remove(Object)
+ * still moves the following elements, as ArrayList does). removeAll()
+ * and retainAll() take one pass over the list. swapRemove() removes an
+ * element in O(1) time, moving the last element to its position.
+ *
+ * Algorithms use this list for sets in which an individual is the same
+ * object wherever it is referred, such as the inhabitants of a
+ * population.
+ */
+
+public class IdentityList extends AbstractList<IIndividual> implements RandomAccess, JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 3904218757431690385L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Elements */
+
+	private final ArrayList<IIndividual> inds;
+
+	/** Number of occurrences of each element (built lazily) */
+
+	private transient IdentityHashMap<IIndividual, Integer> counts;
+
+	/** Position of the first occurrence of each element (built lazily) */
+
+	private transient IdentityHashMap<IIndividual, Integer> positions;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public IdentityList()
+	{
+		super();
+		this.inds = new ArrayList<IIndividual>();
+	}
+
+	/**
+	 * Constructor that sets the initial elements.
+	 *
+	 * @param inds Initial elements
+	 */
+
+	public IdentityList(Collection<? extends IIndividual> inds)
+	{
+		super();
+		this.inds = new ArrayList<IIndividual>(inds);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// List interface
+
+	@Override
+	public IIndividual get(int index)
+	{
+		return inds.get(index);
+	}
+
+	@Override
+	public int size()
+	{
+		return inds.size();
+	}
+
+	@Override
+	public IIndividual set(int index, IIndividual ind)
+	{
+		IIndividual old = inds.set(index, ind);
+		if (counts != null) {
+			decrement(old);
+			increment(ind);
+		}
+		if (positions != null) {
+			if (counts.containsKey(old)) {
+				positions = null;
+			}
+			else {
+				positions.remove(old);
+				Integer position = positions.get(ind);
+				if (position == null || position > index) {
+					positions.put(ind, index);
+				}
+			}
+		}
+		return old;
+	}
+
+	@Override
+	public boolean add(IIndividual ind)
+	{
+		modCount++;
+		inds.add(ind);
+		if (counts != null) {
+			increment(ind);
+		}
+		if (positions != null && !positions.containsKey(ind)) {
+			positions.put(ind, inds.size()-1);
+		}
+		return true;
+	}
+
+	@Override
+	public void add(int index, IIndividual ind)
+	{
+		modCount++;
+		inds.add(index, ind);
+		if (counts != null) {
+			increment(ind);
+		}
+		positions = null;
+	}
+
+	@Override
+	public IIndividual remove(int index)
+	{
+		modCount++;
+		IIndividual old = inds.remove(index);
+		if (counts != null) {
+			decrement(old);
+		}
+		// Removing the last element does not move the others
+		if (positions != null && index == inds.size() && !counts.containsKey(old)) {
+			positions.remove(old);
+		}
+		else {
+			positions = null;
+		}
+		return old;
+	}
+
+	@Override
+	public void clear()
+	{
+		modCount++;
+		inds.clear();
+		counts = null;
+		positions = null;
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		return counts().containsKey(o);
+	}
+
+	@Override
+	public int indexOf(Object o)
+	{
+		if (!contains(o)) {
+			return -1;
+		}
+		return positions().get(o);
+	}
+
+	@Override
+	public int lastIndexOf(Object o)
+	{
+		if (contains(o)) {
+			for (int i=inds.size()-1; i>=0; i--) {
+				if (inds.get(i) == o) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}
+		remove(index);
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c)
+	{
+		return filter(c, false);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c)
+	{
+		return filter(c, true);
+	}
+
+	// Swap delete
+
+	/**
+	 * Remove an element, moving the last element to its position.
+	 *
+	 * @param index Position of the element
+	 *
+	 * @return Removed element
+	 */
+
+	public IIndividual swapRemove(int index)
+	{
+		int last = inds.size()-1;
+		if (index == last) {
+			return remove(index);
+		}
+		IIndividual old = inds.get(index);
+		IIndividual moved = inds.get(last);
+		modCount++;
+		inds.set(index, moved);
+		inds.remove(last);
+		if (counts != null) {
+			decrement(old);
+		}
+		// Elements with several occurrences invalidate positions
+		if (positions != null && !counts.containsKey(old) && counts.get(moved) == 1) {
+			positions.remove(old);
+			positions.put(moved, index);
+		}
+		else {
+			positions = null;
+		}
+		return old;
+	}
+
+	/**
+	 * Remove an element, moving the last element to its position.
+	 *
+	 * @param ind Element to remove
+	 *
+	 * @return true if ind was in this list
+	 */
+
+	public boolean swapRemove(IIndividual ind)
+	{
+		int index = indexOf(ind);
+		if (index < 0) {
+			return false;
+		}
+		swapRemove(index);
+		return true;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private IdentityHashMap<IIndividual, Integer> counts()
+	{
+		if (counts == null) {
+			counts = new IdentityHashMap<IIndividual, Integer>(2*inds.size());
+			for (IIndividual ind : inds) {
+				increment(ind);
+			}
+		}
+		return counts;
+	}
+
+	private IdentityHashMap<IIndividual, Integer> positions()
+	{
+		if (positions == null) {
+			counts();
+			positions = new IdentityHashMap<IIndividual, Integer>(2*inds.size());
+			for (int i=inds.size()-1; i>=0; i--) {
+				positions.put(inds.get(i), i);
+			}
+		}
+		return positions;
+	}
+
+	private void increment(IIndividual ind)
+	{
+		Integer count = counts.get(ind);
+		counts.put(ind, (count == null) ? 1 : count+1);
+	}
+
+	private void decrement(IIndividual ind)
+	{
+		int count = counts.get(ind);
+		if (count == 1) {
+			counts.remove(ind);
+		}
+		else {
+			counts.put(ind, count-1);
+		}
+	}
+
+	/**
+	 * Keep the elements that are (retain) or are not (!retain) in c.
+	 */
+
+	private boolean filter(Collection<?> c, boolean retain)
+	{
+		// Identity set of c elements
+		IdentityHashMap<Object, Boolean> members = new IdentityHashMap<Object, Boolean>(2*c.size());
+		for (Object o : c) {
+			members.put(o, Boolean.TRUE);
+		}
+		// Compact list
+		int size = inds.size(), kept = 0;
+		for (int i=0; i<size; i++) {
+			IIndividual ind = inds.get(i);
+			if (members.containsKey(ind) == retain) {
+				inds.set(kept++, ind);
+			}
+		}
+		if (kept == size) {
+			return false;
+		}
+		modCount++;
+		inds.subList(kept, size).clear();
+		counts = null;
+		positions = null;
+		return true;
+	}
+}
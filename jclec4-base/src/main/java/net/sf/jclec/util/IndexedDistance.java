@@ -0,0 +1,57 @@
+package net.sf.jclec.util;
+
+import java.util.List;
+
+import net.sf.jclec.IDistance;
+import net.sf.jclec.IIndividual;
+
+/**
+ * Distance that can be computed over a packed copy of a set of
+ * individuals.
+ *
+ * pack() copies the genotypes of a set of individuals in a compact
+ * representation once, and then the distance between two of them is
+ * computed by their positions in the set, without going through the
+ * individual objects. Packed points are not modified by distance(),
+ * so it can be called from several threads.
+ */
+
+public interface IndexedDistance extends IDistance
+{
+	/**
+	 * Packed set of individuals.
+	 */
+
+	public interface Points
+	{
+		/**
+		 * @return Number of individuals
+		 */
+
+		public int size();
+
+		/**
+		 * Distance between two packed individuals. It is the same value
+		 * that IDistance.distance() returns for them.
+		 *
+		 * @param i First individual position
+		 * @param j Second individual position
+		 *
+		 * @return Distance between individuals i and j
+		 */
+
+		public double distance(int i, int j);
+	}
+
+	/**
+	 * Pack a set of individuals.
+	 *
+	 * @param inds Individuals to pack
+	 * @param buffer Points returned by a previous call (or null). Its
+	 * memory is reused if possible, and its previous content is lost
+	 *
+	 * @return Packed individuals
+	 */
+
+	public Points pack(List<IIndividual> inds, Points buffer);
+}
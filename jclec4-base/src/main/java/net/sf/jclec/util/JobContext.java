@@ -0,0 +1,160 @@
+package net.sf.jclec.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+/**
+ * Identity and files of the scheduled job executed by the current
+ * thread.
+ *
+ * A job is identified by a key, the digest of its configuration file,
+ * and has its own directory. The scheduler sets them while it executes
+ * the job, and threads created by the job inherit them. Listeners
+ * resolve their relative files in the job directory, so jobs expanded
+ * from the same experiment do not overwrite each other's files.
+ *
+ * Out of the scheduler there is no current job: files are not
+ * resolved, and the current key is null.
+ */
+
+public final class JobContext
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Key and directory of the job executed by current thread */
+
+	private static final InheritableThreadLocal<Object []> current = new InheritableThreadLocal<Object []>();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Static methods only
+	 */
+
+	private JobContext()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Current job
+
+	/**
+	 * Set the job executed by the current thread (and by the threads it
+	 * creates from now on).
+	 *
+	 * @param key Job key
+	 * @param directory Job directory
+	 */
+
+	public static void enter(String key, File directory)
+	{
+		current.set(new Object [] {key, directory});
+	}
+
+	/**
+	 * The current thread does not execute a job any more.
+	 */
+
+	public static void exit()
+	{
+		current.remove();
+	}
+
+	/**
+	 * @return Key of the job executed by the current thread, or null if
+	 * it does not execute a scheduled job
+	 */
+
+	public static String currentKey()
+	{
+		Object [] job = current.get();
+		return (job == null) ? null : (String) job[0];
+	}
+
+	/**
+	 * Resolve a file of the job executed by the current thread.
+	 *
+	 * @param path File path
+	 *
+	 * @return If path is relative and the current thread executes a
+	 * scheduled job, the file in the job directory. Else, the file as
+	 * given
+	 */
+
+	public static File resolve(String path)
+	{
+		File file = new File(path);
+		Object [] job = current.get();
+		return (job == null || file.isAbsolute()) ? file : new File((File) job[1], path);
+	}
+
+	// Naming
+
+	/**
+	 * Job key: MD5 digest of its configuration file, in hexadecimal.
+	 *
+	 * @param file Configuration file
+	 *
+	 * @return Key of the file
+	 *
+	 * @throws IOException If the file cannot be read
+	 */
+
+	public static String key(File file) throws IOException
+	{
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			InputStream in = new FileInputStream(file);
+			try {
+				byte [] buffer = new byte[8192];
+				for (int n; (n = in.read(buffer)) > 0; ) {
+					digest.update(buffer, 0, n);
+				}
+			}
+			finally {
+				in.close();
+			}
+			StringBuilder result = new StringBuilder();
+			for (byte b : digest.digest()) {
+				result.append(Character.forDigit((b >> 4) & 0xF, 16));
+				result.append(Character.forDigit(b & 0xF, 16));
+			}
+			return result.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Make a key or name unique in a sweep. The second occurrence of a
+	 * name is name-2, and so on.
+	 *
+	 * @param name Key or name
+	 * @param used Keys or names already used. The result is added
+	 *
+	 * @return Unique key or name
+	 */
+
+	public static String unique(String name, Set<String> used)
+	{
+		String result = name;
+		for (int i=2; !used.add(result); i++) {
+			result = name + "-" + i;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,229 @@
+package net.sf.jclec.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.sf.jclec.JCLEC;
+
+/**
+ * Fork/join executor for row-oriented kernels.
+ *
+ * The range of rows [0, n) is recursively split into blocks that are
+ * processed by a fork/join pool. Each row must be written only by the
+ * block that contains it, so results never depend on the number of
+ * threads used.
+ *
+ * Pools are shared by all the executors with the same parallelism, so
+ * algorithms running at the same time (islands, scheduled jobs) do not
+ * multiply the number of threads. Pool threads are daemon threads, and
+ * the pool stops the ones that stay idle.
+ */
+
+public class ParallelRows implements JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -2170542306519946278L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Kernel applied over a block of rows.
+	 */
+
+	public interface RowBlock
+	{
+		/**
+		 * Process rows [from, to).
+		 *
+		 * @param from First row (inclusive)
+		 * @param to Last row (exclusive)
+		 */
+
+		public void rows(int from, int to);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of threads */
+
+	private int parallelism;
+
+	/** Minimum amount of work (cells) to go parallel */
+
+	private int sequentialThreshold = 4096;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Shared fork/join pools (by parallelism) */
+
+	private static final Map<Integer, ForkJoinPool> pools = new HashMap<Integer, ForkJoinPool>();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor. Uses all available processors.
+	 */
+
+	public ParallelRows()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor that sets the number of threads.
+	 *
+	 * @param parallelism Number of threads
+	 */
+
+	public ParallelRows(int parallelism)
+	{
+		super();
+		setParallelism(parallelism);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public final int getParallelism()
+	{
+		return parallelism;
+	}
+
+	public final void setParallelism(int parallelism)
+	{
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive");
+		}
+		this.parallelism = parallelism;
+	}
+
+	public final int getSequentialThreshold()
+	{
+		return sequentialThreshold;
+	}
+
+	public final void setSequentialThreshold(int sequentialThreshold)
+	{
+		this.sequentialThreshold = sequentialThreshold;
+	}
+
+	// Execution methods
+
+	/**
+	 * Apply a kernel over rows [0, numberOfRows).
+	 *
+	 * @param numberOfRows Number of rows
+	 * @param cellsPerRow Approximate work per row (used to decide
+	 * whether parallel execution is worthwhile)
+	 * @param kernel Kernel to apply
+	 */
+
+	public void execute(int numberOfRows, int cellsPerRow, RowBlock kernel)
+	{
+		if (numberOfRows <= 0) {
+			return;
+		}
+		if (parallelism == 1 || (long) numberOfRows*cellsPerRow < sequentialThreshold) {
+			kernel.rows(0, numberOfRows);
+		}
+		else {
+			// Several blocks per thread, so work stealing can balance
+			// rows of different cost
+			executeBlocks(numberOfRows, Math.max(1, numberOfRows/(16*parallelism)), kernel);
+		}
+	}
+
+	/**
+	 * Apply a kernel over rows [0, numberOfRows) in blocks of at most
+	 * <code>blockSize</code> rows. Blocks are processed in parallel if
+	 * there are more than one.
+	 *
+	 * @param numberOfRows Number of rows
+	 * @param blockSize Maximum number of rows per block
+	 * @param kernel Kernel to apply
+	 */
+
+	public void executeBlocks(int numberOfRows, int blockSize, RowBlock kernel)
+	{
+		if (numberOfRows <= 0) {
+			return;
+		}
+		if (parallelism == 1 || numberOfRows <= blockSize) {
+			kernel.rows(0, numberOfRows);
+		}
+		else {
+			pool(parallelism).invoke(new BlockTask(kernel, 0, numberOfRows, Math.max(1, blockSize)));
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Shared pool with the given parallelism (created lazily).
+	 */
+
+	private static ForkJoinPool pool(int parallelism)
+	{
+		synchronized (pools) {
+			ForkJoinPool result = pools.get(parallelism);
+			if (result == null) {
+				result = new ForkJoinPool(parallelism);
+				pools.put(parallelism, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Recursive splitting of a row range.
+	 */
+
+	@SuppressWarnings("serial")
+	private static final class BlockTask extends RecursiveAction
+	{
+		private final RowBlock kernel;
+
+		private final int from, to, grain;
+
+		BlockTask(RowBlock kernel, int from, int to, int grain)
+		{
+			this.kernel = kernel;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= grain) {
+				kernel.rows(from, to);
+			}
+			else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new BlockTask(kernel, from, mid, grain), new BlockTask(kernel, mid, to, grain));
+			}
+		}
+	}
+}
@@ -0,0 +1,363 @@
+package net.sf.jclec.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import net.sf.jclec.JCLEC;
+
+/**
+ * Performance counters of an algorithm execution.
+ *
+ * Keeps, for each timer (algorithm phases and genetic operators), the
+ * accumulated time in nanoseconds, the number of calls and the number
+ * of individuals processed. Phases also keep the number of bytes
+ * allocated by the algorithm thread, if the virtual machine supports
+ * it.
+ *
+ * Phases are measured by consecutive laps: <code>mark()</code> starts
+ * the first one, and each <code>lap()</code> closes the current phase
+ * and starts the next one. Counters are not synchronized; they must be
+ * updated from the thread that runs the algorithm. The only exception
+ * is record(), because operators can be applied in parallel (see
+ * ParallelMutator).
+ */
+
+public class PerformanceMetrics implements JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 4857619223150713427L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------------- Timers
+	/////////////////////////////////////////////////////////////////
+
+	public static final int INIT         = 0;
+	public static final int SELECTION    = 1;
+	public static final int GENERATION   = 2;
+	public static final int REPLACEMENT  = 3;
+	public static final int UPDATE       = 4;
+	public static final int CONTROL      = 5;
+	public static final int SELECTOR     = 6;
+	public static final int RECOMBINATOR = 7;
+	public static final int MUTATOR      = 8;
+	public static final int EVALUATOR    = 9;
+
+	/** Number of timers */
+
+	public static final int NUMBER_OF_TIMERS = 10;
+
+	/** Timer names (used in reports) */
+
+	public static final String [] TIMER_NAMES = {"init", "selection", "generation",
+		"replacement", "update", "control", "selector", "recombinator", "mutator", "evaluator"};
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * System that keeps performance metrics. Operators use it to find
+	 * the metrics of their execution context.
+	 */
+
+	public interface Measurable
+	{
+		/**
+		 * Access to performance metrics.
+		 *
+		 * @return Metrics of this system
+		 */
+
+		public PerformanceMetrics getMetrics();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Accumulated time (nanoseconds) */
+
+	private final long [] time = new long[NUMBER_OF_TIMERS];
+
+	/** Number of calls */
+
+	private final long [] calls = new long[NUMBER_OF_TIMERS];
+
+	/** Number of individuals processed */
+
+	private final long [] items = new long[NUMBER_OF_TIMERS];
+
+	/** Bytes allocated (phases only) */
+
+	private final long [] allocatedBytes = new long[NUMBER_OF_TIMERS];
+
+	/** Number of completed iterations */
+
+	private long iterations;
+
+	/** Number of evaluations */
+
+	private long evaluations;
+
+	/** Time of last reset */
+
+	private long startTime = System.nanoTime();
+
+	/** Elapsed time of a frozen copy (-1 if counters are live) */
+
+	private long frozenTime = -1;
+
+	/** Time of last mark or lap */
+
+	private transient long markTime;
+
+	/** Allocated bytes at last mark or lap */
+
+	private transient long markBytes;
+
+	/** Thread management bean (null if allocation is not measurable) */
+
+	private transient com.sun.management.ThreadMXBean threadBean;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor.
+	 */
+
+	public PerformanceMetrics()
+	{
+		super();
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				threadBean = sunBean;
+			}
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Metrics of an execution context.
+	 *
+	 * @param context Execution context
+	 *
+	 * @return Context metrics, or null if context is not measurable
+	 */
+
+	public static final PerformanceMetrics of(Object context)
+	{
+		return (context instanceof Measurable) ? ((Measurable) context).getMetrics() : null;
+	}
+
+	// Recording
+
+	/**
+	 * Clear all counters.
+	 */
+
+	public void reset()
+	{
+		for (int i=0; i<NUMBER_OF_TIMERS; i++) {
+			time[i] = calls[i] = items[i] = allocatedBytes[i] = 0;
+		}
+		iterations = evaluations = 0;
+		startTime = System.nanoTime();
+		frozenTime = -1;
+	}
+
+	/**
+	 * Start a sequence of phases.
+	 */
+
+	public void mark()
+	{
+		markTime = System.nanoTime();
+		markBytes = allocatedBytes();
+	}
+
+	/**
+	 * Close current phase and start the next one.
+	 *
+	 * @param phase Phase timer
+	 * @param individuals Individuals processed in the phase
+	 */
+
+	public void lap(int phase, int individuals)
+	{
+		long now = System.nanoTime(), bytes = allocatedBytes();
+		time[phase] += now - markTime;
+		calls[phase]++;
+		items[phase] += individuals;
+		allocatedBytes[phase] += bytes - markBytes;
+		markTime = now;
+		markBytes = bytes;
+	}
+
+	/**
+	 * Record an operator call.
+	 *
+	 * @param timer Operator timer
+	 * @param nanos Call duration
+	 * @param individuals Individuals processed
+	 */
+
+	public synchronized void record(int timer, long nanos, int individuals)
+	{
+		time[timer] += nanos;
+		calls[timer]++;
+		items[timer] += individuals;
+	}
+
+	/**
+	 * Set the totals of a timer measured elsewhere.
+	 *
+	 * @param timer Timer
+	 * @param nanos Accumulated time
+	 * @param individuals Individuals processed
+	 */
+
+	public void set(int timer, long nanos, long individuals)
+	{
+		time[timer] = nanos;
+		calls[timer] = individuals;
+		items[timer] = individuals;
+	}
+
+	/**
+	 * Record a completed iteration.
+	 */
+
+	public void iterationCompleted()
+	{
+		iterations++;
+	}
+
+	/**
+	 * Set the total number of evaluations.
+	 *
+	 * @param evaluations Number of evaluations
+	 */
+
+	public void setEvaluations(long evaluations)
+	{
+		this.evaluations = evaluations;
+	}
+
+	/**
+	 * Copy of current counters. The elapsed time of the copy does not
+	 * advance, so it can be read later from other threads.
+	 *
+	 * @return Frozen copy of these metrics
+	 */
+
+	public PerformanceMetrics copy()
+	{
+		PerformanceMetrics result = new PerformanceMetrics();
+		System.arraycopy(time, 0, result.time, 0, NUMBER_OF_TIMERS);
+		System.arraycopy(calls, 0, result.calls, 0, NUMBER_OF_TIMERS);
+		System.arraycopy(items, 0, result.items, 0, NUMBER_OF_TIMERS);
+		System.arraycopy(allocatedBytes, 0, result.allocatedBytes, 0, NUMBER_OF_TIMERS);
+		result.iterations = iterations;
+		result.evaluations = evaluations;
+		result.startTime = startTime;
+		result.frozenTime = getElapsedTime();
+		return result;
+	}
+
+	// Accessing counters
+
+	public long getTime(int timer)
+	{
+		return time[timer];
+	}
+
+	public long getCalls(int timer)
+	{
+		return calls[timer];
+	}
+
+	public long getIndividuals(int timer)
+	{
+		return items[timer];
+	}
+
+	public long getAllocatedBytes(int timer)
+	{
+		return allocatedBytes[timer];
+	}
+
+	public long getIterations()
+	{
+		return iterations;
+	}
+
+	public long getEvaluations()
+	{
+		return evaluations;
+	}
+
+	/**
+	 * @return Nanoseconds since last reset
+	 */
+
+	public long getElapsedTime()
+	{
+		return (frozenTime >= 0) ? frozenTime : System.nanoTime() - startTime;
+	}
+
+	/**
+	 * @return true if allocated bytes are measured
+	 */
+
+	public boolean isAllocationMeasured()
+	{
+		return threadBean != null;
+	}
+
+	// Gauges
+
+	/**
+	 * @return Evaluations per second since last reset
+	 */
+
+	public double getEvaluationsPerSecond()
+	{
+		return perSecond(evaluations);
+	}
+
+	/**
+	 * @return Individuals generated per second since last reset
+	 */
+
+	public double getIndividualsPerSecond()
+	{
+		return perSecond(items[GENERATION]);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private final double perSecond(long count)
+	{
+		long elapsed = getElapsedTime();
+		return (elapsed > 0) ? 1.e9*count/elapsed : 0.;
+	}
+
+	private final long allocatedBytes()
+	{
+		return (threadBean == null) ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
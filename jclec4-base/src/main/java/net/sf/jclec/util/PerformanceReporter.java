@@ -0,0 +1,309 @@
+package net.sf.jclec.util;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.AlgorithmEvent;
+import net.sf.jclec.IAlgorithmListener;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Listener that writes the performance metrics of an algorithm.
+ *
+ * Each report row contains the counters of the iterations completed
+ * since the previous row (time in nanoseconds, calls, individuals and
+ * allocated bytes of each timer) and the evaluations and individuals
+ * per second in that interval. Rows are written in CSV or in JSON (one
+ * object per line).
+ *
+ * The algorithm must be measurable (see PerformanceMetrics.Measurable).
+ * If the events received are measurable too (for instance, snapshots
+ * delivered asynchronously), their metrics are used instead.
+ */
+
+public class PerformanceReporter implements IAlgorithmListener, IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -1726301758244417352L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Report file name */
+
+	private String reportFilename = "metrics.csv";
+
+	/** Write JSON rows (else, CSV) */
+
+	private boolean json;
+
+	/** Iterations between reports */
+
+	private int reportFrequency = 1;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Report writer */
+
+	private transient Writer writer;
+
+	/** Counters at last report */
+
+	private transient long [] lastTime, lastCalls, lastIndividuals, lastBytes;
+
+	/** Iterations, evaluations and elapsed time at last report */
+
+	private transient long lastIterations, lastEvaluations, lastElapsedTime;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public PerformanceReporter()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	// Setting and getting properties
+
+	public String getReportFilename()
+	{
+		return reportFilename;
+	}
+
+	public void setReportFilename(String reportFilename)
+	{
+		this.reportFilename = reportFilename;
+	}
+
+	public boolean isJson()
+	{
+		return json;
+	}
+
+	public void setJson(boolean json)
+	{
+		this.json = json;
+	}
+
+	public int getReportFrequency()
+	{
+		return reportFrequency;
+	}
+
+	public void setReportFrequency(int reportFrequency)
+	{
+		if (reportFrequency < 1) {
+			throw new IllegalArgumentException("Report frequency must be positive");
+		}
+		this.reportFrequency = reportFrequency;
+	}
+
+	// IConfigure interface
+
+	/**
+	 * Configuration parameters for this listener are:
+	 *
+	 * <ul>
+	 * <li>
+	 * <code>report-file (String)</code></p>
+	 * Report file name. Default value is "metrics.csv". Relative names
+	 * of scheduled jobs are resolved in the job directory (see
+	 * JobContext.resolve())
+	 * </li><li>
+	 * <code>report-format (csv|json)</code></p>
+	 * Report format. Default value is "json" if report file name ends
+	 * with ".json", else "csv"
+	 * </li><li>
+	 * <code>report-frequency (int)</code></p>
+	 * Iterations between reports. Default value is 1
+	 * </li>
+	 * </ul>
+	 */
+
+	public void configure(Configuration settings)
+	{
+		// Report file
+		String filename = settings.getString("report-file", reportFilename);
+		setReportFilename(JobContext.resolve(filename).getPath());
+		// Report format
+		String format = settings.getString("report-format", filename.endsWith(".json") ? "json" : "csv");
+		if ("json".equals(format)) {
+			setJson(true);
+		}
+		else if ("csv".equals(format)) {
+			setJson(false);
+		}
+		else {
+			throw new ConfigurationRuntimeException("Illegal report format: " + format);
+		}
+		// Report frequency
+		try {
+			setReportFrequency(settings.getInt("report-frequency", reportFrequency));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	// IAlgorithmListener interface
+
+	public void algorithmStarted(AlgorithmEvent event)
+	{
+		PerformanceMetrics metrics = metrics(event);
+		lastTime = new long[PerformanceMetrics.NUMBER_OF_TIMERS];
+		lastCalls = new long[PerformanceMetrics.NUMBER_OF_TIMERS];
+		lastIndividuals = new long[PerformanceMetrics.NUMBER_OF_TIMERS];
+		lastBytes = new long[PerformanceMetrics.NUMBER_OF_TIMERS];
+		lastIterations = lastEvaluations = lastElapsedTime = 0;
+		try {
+			writer = new BufferedWriter(new FileWriter(reportFilename));
+			if (!json) {
+				writeHeader();
+			}
+			// Initialization row
+			writeRow(metrics);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Cannot write report file " + reportFilename, e);
+		}
+	}
+
+	public void iterationCompleted(AlgorithmEvent event)
+	{
+		PerformanceMetrics metrics = metrics(event);
+		if (metrics.getIterations() - lastIterations >= reportFrequency) {
+			try {
+				writeRow(metrics);
+			}
+			catch (IOException e) {
+				throw new IllegalStateException("Cannot write report file " + reportFilename, e);
+			}
+		}
+	}
+
+	public void algorithmFinished(AlgorithmEvent event)
+	{
+		close(metrics(event));
+	}
+
+	public void algorithmTerminated(AlgorithmEvent event)
+	{
+		close(metrics(event));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Metrics carried by the event (if it is measurable) or, else, the
+	 * current metrics of the algorithm.
+	 */
+
+	private static PerformanceMetrics metrics(AlgorithmEvent event)
+	{
+		PerformanceMetrics metrics = PerformanceMetrics.of(event);
+		if (metrics == null) {
+			metrics = PerformanceMetrics.of(event.getAlgorithm());
+		}
+		if (metrics == null) {
+			throw new IllegalArgumentException("This listener needs a measurable algorithm");
+		}
+		return metrics;
+	}
+
+	/**
+	 * Write pending iterations and close the report.
+	 */
+
+	private void close(PerformanceMetrics metrics)
+	{
+		if (writer == null) {
+			return;
+		}
+		try {
+			if (metrics.getIterations() > lastIterations) {
+				writeRow(metrics);
+			}
+			writer.close();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Cannot write report file " + reportFilename, e);
+		}
+		finally {
+			writer = null;
+		}
+	}
+
+	private void writeHeader() throws IOException
+	{
+		StringBuilder row = new StringBuilder("iteration,elapsed-ns,evaluations,evaluations-per-second,individuals-per-second");
+		for (int i=0; i<PerformanceMetrics.NUMBER_OF_TIMERS; i++) {
+			String name = PerformanceMetrics.TIMER_NAMES[i];
+			row.append(',').append(name).append("-ns,").append(name).append("-calls,")
+				.append(name).append("-individuals,").append(name).append("-bytes");
+		}
+		writer.write(row.append('\n').toString());
+	}
+
+	/**
+	 * Write the counters since last row.
+	 */
+
+	private void writeRow(PerformanceMetrics metrics) throws IOException
+	{
+		long elapsedTime = metrics.getElapsedTime();
+		long interval = elapsedTime - lastElapsedTime;
+		long evaluations = metrics.getEvaluations() - lastEvaluations;
+		long individuals = metrics.getIndividuals(PerformanceMetrics.GENERATION) - lastIndividuals[PerformanceMetrics.GENERATION];
+		StringBuilder row = new StringBuilder(512);
+		row.append(json ? "{\"iteration\":" : "").append(metrics.getIterations());
+		field(row, "elapsed-ns").append(interval);
+		field(row, "evaluations").append(evaluations);
+		field(row, "evaluations-per-second").append((interval > 0) ? 1.e9*evaluations/interval : 0.);
+		field(row, "individuals-per-second").append((interval > 0) ? 1.e9*individuals/interval : 0.);
+		for (int i=0; i<PerformanceMetrics.NUMBER_OF_TIMERS; i++) {
+			String name = PerformanceMetrics.TIMER_NAMES[i];
+			field(row, name + "-ns").append(metrics.getTime(i) - lastTime[i]);
+			field(row, name + "-calls").append(metrics.getCalls(i) - lastCalls[i]);
+			field(row, name + "-individuals").append(metrics.getIndividuals(i) - lastIndividuals[i]);
+			field(row, name + "-bytes").append(metrics.getAllocatedBytes(i) - lastBytes[i]);
+			lastTime[i] = metrics.getTime(i);
+			lastCalls[i] = metrics.getCalls(i);
+			lastIndividuals[i] = metrics.getIndividuals(i);
+			lastBytes[i] = metrics.getAllocatedBytes(i);
+		}
+		row.append(json ? "}\n" : "\n");
+		writer.write(row.toString());
+		lastIterations = metrics.getIterations();
+		lastEvaluations = metrics.getEvaluations();
+		lastElapsedTime = elapsedTime;
+	}
+
+	private StringBuilder field(StringBuilder row, String name)
+	{
+		return json ? row.append(",\"").append(name).append("\":") : row.append(',');
+	}
+}
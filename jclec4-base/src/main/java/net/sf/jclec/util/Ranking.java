@@ -0,0 +1,234 @@
+package net.sf.jclec.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+/**
+ * Partial selection of the best (or worst) individuals of a list.
+ *
+ * The best or worst individual is found in one pass, and the k best
+ * or worst individuals with a bounded heap, in O(n log k) time. Results
+ * are the same as the first k individuals selected by BettersSelector
+ * (or WorsesSelector): individuals with equal fitness keep their order
+ * in the list.
+ *
+ * Fitness comparators follow the IEvaluator convention: a positive
+ * result means that the first fitness is better.
+ */
+
+public final class Ranking
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Static methods only
+	 */
+
+	private Ranking()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * @param inds Individuals
+	 * @param comparator Fitness comparator
+	 *
+	 * @return Position of the first best individual (-1 if list is empty)
+	 */
+
+	public static int bestIndex(List<IIndividual> inds, Comparator<IFitness> comparator)
+	{
+		return extremeIndex(inds, comparator, true);
+	}
+
+	/**
+	 * @param inds Individuals
+	 * @param comparator Fitness comparator
+	 *
+	 * @return Position of the first worst individual (-1 if list is empty)
+	 */
+
+	public static int worstIndex(List<IIndividual> inds, Comparator<IFitness> comparator)
+	{
+		return extremeIndex(inds, comparator, false);
+	}
+
+	/**
+	 * @param inds Individuals
+	 * @param comparator Fitness comparator
+	 *
+	 * @return First best individual (null if list is empty)
+	 */
+
+	public static IIndividual best(List<IIndividual> inds, Comparator<IFitness> comparator)
+	{
+		int index = bestIndex(inds, comparator);
+		return (index < 0) ? null : inds.get(index);
+	}
+
+	/**
+	 * @param inds Individuals
+	 * @param comparator Fitness comparator
+	 *
+	 * @return First worst individual (null if list is empty)
+	 */
+
+	public static IIndividual worst(List<IIndividual> inds, Comparator<IFitness> comparator)
+	{
+		int index = worstIndex(inds, comparator);
+		return (index < 0) ? null : inds.get(index);
+	}
+
+	/**
+	 * Best individuals of a list.
+	 *
+	 * @param inds Individuals
+	 * @param k Number of individuals to select
+	 * @param comparator Fitness comparator
+	 *
+	 * @return New list with the min(k, inds.size()) best individuals,
+	 * from best to worst
+	 */
+
+	public static List<IIndividual> best(List<IIndividual> inds, int k, Comparator<IFitness> comparator)
+	{
+		return top(inds, k, comparator, true);
+	}
+
+	/**
+	 * Worst individuals of a list.
+	 *
+	 * @param inds Individuals
+	 * @param k Number of individuals to select
+	 * @param comparator Fitness comparator
+	 *
+	 * @return New list with the min(k, inds.size()) worst individuals,
+	 * from worst to best
+	 */
+
+	public static List<IIndividual> worst(List<IIndividual> inds, int k, Comparator<IFitness> comparator)
+	{
+		return top(inds, k, comparator, false);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private static int extremeIndex(List<IIndividual> inds, Comparator<IFitness> comparator, boolean best)
+	{
+		int result = -1;
+		IFitness extreme = null;
+		int i = 0;
+		for (IIndividual ind : inds) {
+			IFitness fitness = ind.getFitness();
+			if (result < 0) {
+				result = i;
+				extreme = fitness;
+			}
+			else {
+				int cmp = comparator.compare(fitness, extreme);
+				if (best ? cmp > 0 : cmp < 0) {
+					result = i;
+					extreme = fitness;
+				}
+			}
+			i++;
+		}
+		return result;
+	}
+
+	/**
+	 * Select the first k individuals in ranking order. The heap root is
+	 * the last selected individual in that order, so each candidate is
+	 * compared with it and replaces it if it goes before.
+	 */
+
+	private static List<IIndividual> top(List<IIndividual> inds, int k, Comparator<IFitness> comparator, boolean best)
+	{
+		int n = inds.size();
+		k = Math.max(0, Math.min(k, n));
+		// Fitness keys
+		IFitness [] keys = new IFitness[n];
+		for (int i=0; i<n; i++) {
+			keys[i] = inds.get(i).getFitness();
+		}
+		// Bounded heap
+		int [] heap = new int[k];
+		int size = 0;
+		for (int i=0; i<n && k>0; i++) {
+			if (size < k) {
+				heap[size] = i;
+				siftUp(heap, size++, keys, comparator, best);
+			}
+			else if (precedes(i, heap[0], keys, comparator, best)) {
+				heap[0] = i;
+				siftDown(heap, 0, size, keys, comparator, best);
+			}
+		}
+		// Heapsort selected individuals
+		for (int last=size-1; last>0; last--) {
+			int tmp = heap[0]; heap[0] = heap[last]; heap[last] = tmp;
+			siftDown(heap, 0, last, keys, comparator, best);
+		}
+		List<IIndividual> result = new ArrayList<IIndividual>(k);
+		for (int i=0; i<size; i++) {
+			result.add(inds.get(heap[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * Ranking order: a goes before b if its fitness is better (worse)
+	 * or if they are equal and a comes first in the list.
+	 */
+
+	private static boolean precedes(int a, int b, IFitness [] keys, Comparator<IFitness> comparator, boolean best)
+	{
+		int cmp = comparator.compare(keys[a], keys[b]);
+		if (cmp != 0) {
+			return best ? cmp > 0 : cmp < 0;
+		}
+		return a < b;
+	}
+
+	private static void siftUp(int [] heap, int i, IFitness [] keys, Comparator<IFitness> comparator, boolean best)
+	{
+		while (i > 0) {
+			int parent = (i-1) >>> 1;
+			if (!precedes(heap[parent], heap[i], keys, comparator, best)) {
+				break;
+			}
+			int tmp = heap[parent]; heap[parent] = heap[i]; heap[i] = tmp;
+			i = parent;
+		}
+	}
+
+	private static void siftDown(int [] heap, int i, int size, IFitness [] keys, Comparator<IFitness> comparator, boolean best)
+	{
+		while (true) {
+			int child = 2*i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child+1 < size && precedes(heap[child], heap[child+1], keys, comparator, best)) {
+				child++;
+			}
+			if (!precedes(heap[i], heap[child], keys, comparator, best)) {
+				break;
+			}
+			int tmp = heap[child]; heap[child] = heap[i]; heap[i] = tmp;
+			i = child;
+		}
+	}
+}
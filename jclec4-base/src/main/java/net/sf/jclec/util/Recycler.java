@@ -0,0 +1,63 @@
+package net.sf.jclec.util;
+
+import net.sf.jclec.IIndividual;
+
+/**
+ * Object that recycles the memory of discarded individuals.
+ *
+ * Ownership rules:
+ *
+ * <ul>
+ * <li>
+ * Only the algorithm that owns a population recycles individuals, and
+ * only those that it has removed from the population for good.
+ * </li><li>
+ * A recycled individual must not be referenced anywhere else (other
+ * sets, listeners, archives...). Its genotype and fitness are cleared
+ * and the object is reused later for a new individual.
+ * </li><li>
+ * Operators that create individuals take their memory from the
+ * recycler of their context species.
+ * </li>
+ * </ul>
+ *
+ * Recycling is disabled by default. Then, individuals are never reused
+ * and this interface has no effect.
+ */
+
+public interface Recycler
+{
+	/**
+	 * @return true if discarded individuals are reused
+	 */
+
+	public boolean isRecycling();
+
+	/**
+	 * Give back a discarded individual.
+	 *
+	 * @param ind Individual that is not referenced anymore
+	 */
+
+	public void recycle(IIndividual ind);
+
+	/**
+	 * Limit the memory kept. Discarded individuals given back when the
+	 * recycler is full are left to the garbage collector.
+	 *
+	 * @param capacity Maximum number of individuals (and genotypes)
+	 * kept for reuse
+	 */
+
+	public void setCapacity(int capacity);
+
+	/**
+	 * Copy an individual, reusing recycled memory if possible.
+	 *
+	 * @param ind Individual to copy
+	 *
+	 * @return Copy of ind
+	 */
+
+	public IIndividual copy(IIndividual ind);
+}
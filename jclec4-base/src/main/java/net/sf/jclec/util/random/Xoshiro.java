@@ -0,0 +1,221 @@
+package net.sf.jclec.util.random;
+
+/**
+ * Xoshiro256** random generator.
+ * 
+ * Generator with 256 bits of state and period 2^256-1, that produces
+ * 64 random bits with a few shifts, rotations and xors. State is
+ * initialized from a 64 bits seed using SplitMix64, so generators with
+ * different seeds behave as independent streams.
+ * 
+ * Besides IRandGen methods, this generator fills arrays with random
+ * integers (nextInts) and random bits (nextBits), taking 64 bits from
+ * each step of the generator.
+ * 
+ * This generator is not thread safe: each thread must use its own
+ * generator (see XoshiroFactory).
+ * 
+ * @see XoshiroFactory
+ */
+
+public class Xoshiro extends AbstractRandGen 
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+	
+	/** Generated by Eclipse */
+	
+	private static final long serialVersionUID = 2975170488463392104L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Constants
+	/////////////////////////////////////////////////////////////////
+	
+	/** SplitMix64 increment (golden ratio) */
+	
+	static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+	
+	/** Generator state */
+	
+	private long s0, s1, s2, s3;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Empty constructor
+	 */
+	
+	public Xoshiro() 
+	{
+		super();
+	}
+
+	/**
+	 * Constructor that sets the seed.
+	 * 
+	 * @param seed Generator seed
+	 */
+	
+	public Xoshiro(long seed) 
+	{
+		super();
+		setSeed(seed);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Initialize generator state.
+	 * 
+	 * @param seed Generator seed
+	 */
+	
+	public void setSeed(long seed)
+	{
+		// SplitMix64 sequence starting at seed
+		s0 = mix(seed += GOLDEN_GAMMA);
+		s1 = mix(seed += GOLDEN_GAMMA);
+		s2 = mix(seed += GOLDEN_GAMMA);
+		s3 = mix(seed += GOLDEN_GAMMA);
+	}
+	
+	/**
+	 * @return 64 random bits
+	 */
+	
+	public final long nextLong()
+	{
+		long result = Long.rotateLeft(s1 * 5, 7) * 9;
+		long t = s1 << 17;
+		s2 ^= s0;
+		s3 ^= s1;
+		s1 ^= s2;
+		s0 ^= s3;
+		s2 ^= t;
+		s3 = Long.rotateLeft(s3, 45);
+		return result;
+	}
+	
+	/**
+	 * Fill an array with random integers in [lo, hi).
+	 * 
+	 * @param dest  Destination array
+	 * @param from  First position to fill
+	 * @param to    Position after the last one to fill
+	 * @param lo    Lower bound (inclusive)
+	 * @param hi    Upper bound (exclusive)
+	 */
+	
+	public void nextInts(int [] dest, int from, int to, int lo, int hi)
+	{
+		for (int i=from; i<to; i++) {
+			dest[i] = choose(lo, hi);
+		}
+	}
+	
+	/**
+	 * Fill an array with random bits (values 0 or 1). Each step of the
+	 * generator gives 64 bits.
+	 * 
+	 * @param dest Destination array
+	 * @param from First position to fill
+	 * @param to   Position after the last one to fill
+	 */
+	
+	public void nextBits(byte [] dest, int from, int to)
+	{
+		int i = from;
+		while (i < to) {
+			long word = nextLong();
+			int end = Math.min(to, i + 64);
+			for (; i<end; i++) {
+				dest[i] = (byte) (word & 1L);
+				word >>>= 1;
+			}
+		}
+	}
+	
+	/**
+	 * Fill an array with random words.
+	 * 
+	 * @param dest Destination array
+	 * @param from First position to fill
+	 * @param to   Position after the last one to fill
+	 */
+	
+	public void nextBits(long [] dest, int from, int to)
+	{
+		for (int i=from; i<to; i++) {
+			dest[i] = nextLong();
+		}
+	}
+	
+	/**
+	 * Create a new generator, seeded with the output of this one.
+	 * 
+	 * @return New generator
+	 */
+	
+	public Xoshiro split()
+	{
+		return new Xoshiro(nextLong());
+	}
+	
+	// IRandGen interface
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Returns a number in the open interval (0,1), with 53 random bits.
+	 */
+	
+	public double raw() 
+	{
+		return ((nextLong() >>> 11) + 0.5) * 0x1.0p-53;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Numbers are taken from the upper 32 bits of nextLong() by a
+	 * multiplication, without conversion to floating point.
+	 */
+	
+	@Override
+	public int choose(int lo, int hi) 
+	{
+		long range = (long) hi - lo;
+		if (range <= 0 || range > 0xffffffffL) {
+			return super.choose(lo, hi);
+		}
+		return (int) (lo + (((nextLong() >>> 32) * range) >>> 32));
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Package methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * SplitMix64 output function.
+	 * 
+	 * @param z Value to mix
+	 * 
+	 * @return Mixed value
+	 */
+	
+	static final long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,103 @@
+package net.sf.jclec.util.random;
+
+/**
+ * Xoshiro random generators factory.
+ * 
+ * All generators created by this factory are derived from its seed.
+ * Stream i is seeded by mixing the factory seed and i with SplitMix64,
+ * so creating a generator costs a few multiplications and streams do
+ * not depend on the order in which they are created:
+ * 
+ * <ul>
+ * <li>
+ * <code>createRandGen()</code> returns streams 0, 1, 2... in successive
+ * calls, as other factories do.
+ * </li><li>
+ * <code>createRandGen(stream)</code> returns a given stream. Parallel
+ * code uses the thread (or island) index as stream, so that results
+ * are reproducible whatever the threads scheduling.
+ * </li>
+ * </ul>
+ * 
+ * Configuration is the same as for other factories (seed attribute).
+ * 
+ * @see Xoshiro
+ */
+
+public class XoshiroFactory extends AbstractRandGenFactory 
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+	
+	/** Generated by Eclipse */
+	
+	private static final long serialVersionUID = -1740852265926703316L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+	
+	/** Next stream returned by createRandGen() */
+	
+	private long nextStream;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Empty constructor
+	 */
+	
+	public XoshiroFactory() 
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+	
+	// Setting properties
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Streams are numbered again from 0.
+	 */
+	
+	@Override
+	public synchronized void setSeed(int seed)
+	{
+		super.setSeed(seed);
+		nextStream = 0;
+	}
+	
+	// Factory methods
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Returns the next stream of this factory.
+	 */
+	
+	public synchronized IRandGen createRandGen() 
+	{
+		return createRandGen(nextStream++);
+	}
+	
+	/**
+	 * Create the generator of a given stream. Two calls with the same
+	 * stream return generators that produce the same sequence.
+	 * 
+	 * @param stream Stream index
+	 * 
+	 * @return Generator for the stream
+	 */
+	
+	public Xoshiro createRandGen(long stream)
+	{
+		return new Xoshiro(Xoshiro.mix(Xoshiro.mix(seed) + stream * Xoshiro.GOLDEN_GAMMA));
+	}
+}
@@ -0,0 +1,162 @@
+package net.sf.jclec;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import org.apache.commons.configuration.XMLConfiguration;
+
+/**
+ * Tests for ExperimentBuilder.
+ */
+
+public class ExperimentBuilderTest extends TestCase
+{
+	/** Experiment with multi-valued elements (nested) and attributes */
+
+	private static final String EXPERIMENT = "<experiment>"
+		+ "<process algorithm-type=\"net.sf.jclec.algorithm.classic.SG\">"
+		+ "<population-size multi=\"true\">"
+		+ "<population-size>10</population-size>"
+		+ "<population-size>20</population-size>"
+		+ "</population-size>"
+		+ "<species type=\"net.sf.jclec.binarray.BinArrayIndividualSpecies\" genotype-length=\"multi\">"
+		+ "<genotype-length>5</genotype-length>"
+		+ "<genotype-length>6</genotype-length>"
+		+ "<genotype-length>7</genotype-length>"
+		+ "</species>"
+		+ "<mutator multi=\"true\">"
+		+ "<mutator type=\"net.sf.jclec.binarray.mut.BitFlipMutator\" mut-prob=\"multi\">"
+		+ "<mut-prob>0.1</mut-prob>"
+		+ "<mut-prob>0.2</mut-prob>"
+		+ "</mutator>"
+		+ "<mutator type=\"net.sf.jclec.binarray.mut.OneLocusMutator\" mut-prob=\"0.3\"/>"
+		+ "</mutator>"
+		+ "</process>"
+		+ "</experiment>";
+
+	/**
+	 * Configurations built by the file based builder for EXPERIMENT, in
+	 * order: name suffix, population size, genotype length, mutator and
+	 * mutation probability.
+	 */
+
+	private static final String [][] EXPANSION = {
+		{"_0_0_0_0", "10", "5", "BitFlipMutator", "0.1"},
+		{"_0_0_0_1", "10", "5", "BitFlipMutator", "0.2"},
+		{"_0_0_1_0", "10", "6", "BitFlipMutator", "0.1"},
+		{"_0_0_1_1", "10", "6", "BitFlipMutator", "0.2"},
+		{"_0_0_2_0", "10", "7", "BitFlipMutator", "0.1"},
+		{"_0_0_2_1", "10", "7", "BitFlipMutator", "0.2"},
+		{"_0_1_0", "10", "5", "OneLocusMutator", "0.3"},
+		{"_0_1_1", "10", "6", "OneLocusMutator", "0.3"},
+		{"_0_1_2", "10", "7", "OneLocusMutator", "0.3"},
+		{"_1_0_0_0", "20", "5", "BitFlipMutator", "0.1"},
+		{"_1_0_0_1", "20", "5", "BitFlipMutator", "0.2"},
+		{"_1_0_1_0", "20", "6", "BitFlipMutator", "0.1"},
+		{"_1_0_1_1", "20", "6", "BitFlipMutator", "0.2"},
+		{"_1_0_2_0", "20", "7", "BitFlipMutator", "0.1"},
+		{"_1_0_2_1", "20", "7", "BitFlipMutator", "0.2"},
+		{"_1_1_0", "20", "5", "OneLocusMutator", "0.3"},
+		{"_1_1_1", "20", "6", "OneLocusMutator", "0.3"},
+		{"_1_1_2", "20", "7", "OneLocusMutator", "0.3"}
+	};
+
+	/**
+	 * A parsed experiment expands to the same configurations, with the
+	 * same names and in the same order, as the file based builder. The
+	 * document is not modified.
+	 */
+
+	public void testExpansion() throws Exception
+	{
+		XMLConfiguration experiment = TestAlgorithms.configuration(EXPERIMENT);
+		String document = keys(experiment).toString();
+		assertExpansion("exp.xml", new ExperimentBuilder().expandExperiment(experiment.getDocument(), "exp.xml"));
+		assertEquals(document, keys(experiment).toString());
+		// The document can be expanded again
+		assertExpansion("other", new ExperimentBuilder().expandExperiment(experiment.getDocument(), "other"));
+	}
+
+	/**
+	 * An experiment file expands as its document; a file without
+	 * multi-valued elements is its only configuration.
+	 */
+
+	public void testFileExpansion() throws Exception
+	{
+		File file = File.createTempFile("experiment", ".xml");
+		try {
+			write(file, EXPERIMENT);
+			assertExpansion(file.getPath(), new ExperimentBuilder().expandExperiment(file.getPath()));
+
+			write(file, "<experiment>" + TestAlgorithms.xml(1, 10, 5, 20, "net.sf.jclec.binarray.OneMax", "") + "</experiment>");
+			Iterator<XMLConfiguration> configurations = new ExperimentBuilder().expandExperiment(file.getPath());
+			XMLConfiguration configuration = configurations.next();
+			assertFalse(configurations.hasNext());
+			assertEquals(file.getPath(), configuration.getFileName());
+			assertEquals(10, configuration.getInt("process.population-size"));
+			List<String> jobs = new ExperimentBuilder().buildExperiment(file.getPath());
+			assertEquals(1, jobs.size());
+			assertEquals(file.getPath(), jobs.get(0));
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	private static void assertExpansion(String baseName, Iterator<XMLConfiguration> configurations)
+	{
+		for (String [] expected : EXPANSION) {
+			assertTrue(expected[0], configurations.hasNext());
+			XMLConfiguration configuration = configurations.next();
+			assertEquals(baseName + expected[0], configuration.getFileName());
+			List<String> keys = keys(configuration);
+			assertEquals(keys.toString(), 6, keys.size());
+			assertEquals("net.sf.jclec.algorithm.classic.SG", configuration.getString("process[@algorithm-type]"));
+			assertEquals(expected[1], configuration.getString("process.population-size"));
+			assertEquals("net.sf.jclec.binarray.BinArrayIndividualSpecies", configuration.getString("process.species[@type]"));
+			assertEquals(expected[2], configuration.getString("process.species[@genotype-length]"));
+			assertEquals("net.sf.jclec.binarray.mut." + expected[3], configuration.getString("process.mutator[@type]"));
+			assertEquals(expected[4], configuration.getString("process.mutator[@mut-prob]"));
+		}
+		assertFalse(configurations.hasNext());
+		try {
+			configurations.next();
+			fail();
+		}
+		catch (NoSuchElementException e) {
+			// Expected
+		}
+	}
+
+	private static List<String> keys(XMLConfiguration configuration)
+	{
+		List<String> result = new ArrayList<String>();
+		for (Iterator<?> keys = configuration.getKeys(); keys.hasNext(); ) {
+			String key = (String) keys.next();
+			result.add(key + "=" + configuration.getList(key));
+		}
+		return result;
+	}
+
+	private static void write(File file, String contents) throws IOException
+	{
+		Writer out = new FileWriter(file);
+		try {
+			out.write(contents);
+		}
+		finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package net.sf.jclec;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.binarray.OneMax;
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import net.sf.jclec.util.JobContext;
+
+/**
+ * Tests for ExperimentScheduler.
+ */
+
+public class ExperimentSchedulerTest extends TestCase
+{
+	private File directory;
+
+	private PrintStream stdout, stderr;
+
+	@Override
+	protected void setUp() throws IOException
+	{
+		directory = File.createTempFile("experiments", "");
+		directory.delete();
+		directory.mkdirs();
+		stdout = System.out;
+		stderr = System.err;
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		System.setOut(stdout);
+		System.setErr(stderr);
+		delete(directory);
+	}
+
+	/**
+	 * A resumed sweep only executes the jobs that are not recorded as
+	 * finished in the manifest.
+	 */
+
+	public void testResume() throws Exception
+	{
+		File output = new File(directory, "output");
+		List<String> jobs = new ArrayList<String>();
+		jobs.add(job("a.xml", 1));
+		jobs.add(job("b.xml", 2));
+		ExperimentScheduler scheduler = scheduler(output, false);
+		String console = run(scheduler, jobs);
+		assertTrue(console, console.contains("Scheduling 2 jobs (0 already finished)"));
+		assertEquals(2, manifest(output).size());
+
+		jobs.add(job("c.xml", 3));
+		scheduler = scheduler(output, true);
+		console = run(scheduler, jobs);
+		assertTrue(console, console.contains("Scheduling 1 jobs (2 already finished)"));
+		List<String> manifest = manifest(output);
+		assertEquals(3, manifest.size());
+		assertTrue(manifest.get(2).startsWith(JobContext.key(new File(jobs.get(2))) + "\tok\t"));
+		assertTrue(manifest.get(2).endsWith("c.xml"));
+		// Without resume, all the jobs are executed again
+		console = run(scheduler(output, false), jobs);
+		assertTrue(console, console.contains("Scheduling 3 jobs (0 already finished)"));
+		assertEquals(3, manifest(output).size());
+	}
+
+	/**
+	 * Each job has its own log and its own directory for relative
+	 * listener files, also for identical job files. Console streams
+	 * are restored after the sweep.
+	 */
+
+	public void testOutputIsolation() throws Exception
+	{
+		File output = new File(directory, "output");
+		File other = new File(directory, "other");
+		other.mkdirs();
+		List<String> jobs = Arrays.asList(job("a.xml", 1), job("b.xml", 2), copy(job("a.xml", 1), new File(other, "a.xml")));
+		ExperimentScheduler scheduler = scheduler(output, false);
+		run(scheduler, jobs);
+		assertEquals(0, scheduler.getNumberOfFailures());
+		String key = JobContext.key(new File(jobs.get(0)));
+		String [][] expected = {
+			{"a.xml", key}, {"b.xml", JobContext.key(new File(jobs.get(1)))}, {"a.xml-2", key + "-2"}
+		};
+		for (String [] job : expected) {
+			String log = read(new File(output, job[0] + ".log"));
+			assertEquals(log, "Job " + job[1] + "\n", log);
+			File jobDirectory = new File(output, job[0]);
+			assertEquals(job[1] + "\n", read(new File(jobDirectory, "job.txt")));
+			assertTrue(new File(jobDirectory, "metrics.csv").exists());
+		}
+		assertFalse(new File("job.txt").exists());
+	}
+
+	/**
+	 * A job with a configuration error fails with a message that names
+	 * the job, and does not stop the other jobs.
+	 */
+
+	public void testConfigurationFailure() throws Exception
+	{
+		File output = new File(directory, "output");
+		File file = new File(directory, "bad.xml");
+		write(file, "<experiment>" + TestAlgorithms.xml(1, 10, 5, 20, "no.such.Evaluator", "") + "</experiment>");
+		List<String> jobs = Arrays.asList(file.getPath(), job("a.xml", 1));
+		ExperimentScheduler scheduler = scheduler(output, false);
+		run(scheduler, jobs);
+		assertEquals(1, scheduler.getNumberOfFailures());
+		String log = read(new File(output, "bad.xml.log"));
+		assertTrue(log, log.startsWith("Configuration exception in job " + JobContext.key(file) + ": Illegal evaluator classname"));
+		List<String> manifest = manifest(output);
+		assertEquals(2, manifest.size());
+		int failed = 0;
+		for (String line : manifest)
+			if (line.startsWith(JobContext.key(file) + "\tfailed\t"))
+				failed++;
+		assertEquals(1, failed);
+	}
+
+	private ExperimentScheduler scheduler(File output, boolean resume)
+	{
+		ExperimentScheduler result = new ExperimentScheduler();
+		result.setOutputDirectory(output);
+		result.setParallelism(2);
+		result.setResume(resume);
+		return result;
+	}
+
+	/**
+	 * Run a sweep, capturing the console.
+	 *
+	 * @return Console output
+	 */
+
+	private String run(ExperimentScheduler scheduler, List<String> jobs) throws IOException
+	{
+		ByteArrayOutputStream console = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(console, true), err = new PrintStream(console, true);
+		try {
+			System.setOut(out);
+			System.setErr(err);
+			scheduler.run(jobs);
+			assertSame(out, System.out);
+			assertSame(err, System.err);
+		}
+		finally {
+			System.setOut(stdout);
+			System.setErr(stderr);
+		}
+		return console.toString();
+	}
+
+	/**
+	 * Write a job file, with a PerformanceReporter and a JobListener.
+	 *
+	 * @return Job file path
+	 */
+
+	private String job(String name, int seed) throws IOException
+	{
+		File file = new File(directory, name);
+		write(file, "<experiment>"
+			+ TestAlgorithms.xml(seed, 10, 5, 20, OneMax.class.getName(),
+				"<listener type=\"net.sf.jclec.util.PerformanceReporter\"><report-file>metrics.csv</report-file></listener>"
+				+ "<listener type=\"" + JobListener.class.getName() + "\"/>")
+			+ "</experiment>");
+		return file.getPath();
+	}
+
+	private static String copy(String path, File file) throws IOException
+	{
+		write(file, read(new File(path)));
+		return file.getPath();
+	}
+
+	private static List<String> manifest(File output) throws IOException
+	{
+		List<String> result = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new FileReader(new File(output, ExperimentScheduler.MANIFEST_FILENAME)));
+		try {
+			for (String line; (line = in.readLine()) != null; )
+				result.add(line);
+		}
+		finally {
+			in.close();
+		}
+		return result;
+	}
+
+	private static String read(File file) throws IOException
+	{
+		StringBuilder result = new StringBuilder();
+		FileReader in = new FileReader(file);
+		try {
+			char [] buffer = new char[1024];
+			for (int n; (n = in.read(buffer)) > 0; )
+				result.append(buffer, 0, n);
+		}
+		finally {
+			in.close();
+		}
+		return result.toString();
+	}
+
+	private static void write(File file, String contents) throws IOException
+	{
+		Writer out = new FileWriter(file);
+		try {
+			out.write(contents);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static void delete(File file)
+	{
+		File [] files = file.listFiles();
+		if (files != null) {
+			for (File child : files)
+				delete(child);
+		}
+		file.delete();
+	}
+
+	/**
+	 * Writes the key of its job to the console and to a relative file.
+	 */
+
+	public static final class JobListener implements IAlgorithmListener
+	{
+		public void algorithmStarted(AlgorithmEvent event)
+		{
+			// Nothing to do
+		}
+
+		public void iterationCompleted(AlgorithmEvent event)
+		{
+			// Nothing to do
+		}
+
+		public void algorithmFinished(AlgorithmEvent event)
+		{
+			System.out.println("Job " + JobContext.currentKey());
+			try {
+				write(JobContext.resolve("job.txt"), JobContext.currentKey() + "\n");
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		public void algorithmTerminated(AlgorithmEvent event)
+		{
+			// Nothing to do
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package net.sf.jclec.algorithm;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.AlgorithmEvent;
+import net.sf.jclec.IAlgorithmListener;
+
+import net.sf.jclec.algorithm.classic.SG;
+
+import net.sf.jclec.binarray.TestAlgorithms;
+
+/**
+ * Tests for Checkpointer.
+ */
+
+public class CheckpointerTest extends TestCase
+{
+	private File directory;
+
+	@Override
+	protected void setUp() throws IOException
+	{
+		directory = File.createTempFile("checkpoints", "");
+		directory.delete();
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		File [] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files)
+				file.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * A run restored from a checkpoint ends as the uninterrupted run.
+	 */
+
+	public void testRoundTrip() throws Exception
+	{
+		SG uninterrupted = algorithm(20);
+		Checkpointer checkpointer = checkpointer("job");
+		checkpointer.setKeep(10);
+		uninterrupted.addListener(checkpointer);
+		uninterrupted.execute();
+		File checkpoint = new File(directory, "checkpoint-10" + Checkpointer.EXTENSION);
+		assertTrue(checkpoint.exists());
+		// Last iteration fires algorithmFinished, not iterationCompleted
+		assertEquals(new File(directory, "checkpoint-15" + Checkpointer.EXTENSION), checkpointer.latest());
+
+		SG restored = algorithm(20);
+		checkpointer.restore(restored, checkpoint);
+		restored.execute();
+		assertEquals(20, restored.getGeneration());
+		assertEquals(TestAlgorithms.genotypes(uninterrupted.getInhabitants()), TestAlgorithms.genotypes(restored.getInhabitants()));
+		assertEquals(uninterrupted.getEvaluator().getNumberOfEvaluations(), restored.getEvaluator().getNumberOfEvaluations());
+	}
+
+	/**
+	 * Inside an AsyncListener, checkpoints are still taken on the
+	 * algorithm thread, while slow listeners lag behind.
+	 */
+
+	public void testAsync() throws Exception
+	{
+		SG uninterrupted = algorithm(20);
+		uninterrupted.execute();
+
+		SG algorithm = algorithm(20);
+		AsyncListener async = new AsyncListener();
+		async.setCapacity(1);
+		async.addListener(new IAlgorithmListener() {
+			public void algorithmStarted(AlgorithmEvent event) {
+			}
+			public void iterationCompleted(AlgorithmEvent event) {
+				try {
+					Thread.sleep(20);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			public void algorithmFinished(AlgorithmEvent event) {
+			}
+			public void algorithmTerminated(AlgorithmEvent event) {
+			}
+		});
+		Checkpointer checkpointer = checkpointer("job");
+		checkpointer.setKeep(10);
+		async.addListener(checkpointer);
+		algorithm.addListener(async);
+		algorithm.execute();
+		assertTrue(async.getNumberOfDroppedEvents() > 0);
+		for (int generation=5; generation<20; generation+=5) {
+			assertTrue(new File(directory, "checkpoint-" + generation + Checkpointer.EXTENSION).exists());
+		}
+
+		SG restored = algorithm(20);
+		checkpointer.restore(restored, new File(directory, "checkpoint-10" + Checkpointer.EXTENSION));
+		restored.execute();
+		assertEquals(TestAlgorithms.genotypes(uninterrupted.getInhabitants()), TestAlgorithms.genotypes(restored.getInhabitants()));
+	}
+
+	/**
+	 * Checkpoints of other jobs in the same directory are ignored.
+	 */
+
+	public void testOtherJob() throws Exception
+	{
+		SG algorithm = algorithm(10);
+		algorithm.addListener(checkpointer("one"));
+		algorithm.execute();
+		Checkpointer other = checkpointer("other");
+		assertNull(other.latest());
+		try {
+			other.restore(algorithm(10), checkpointer("one").latest());
+			fail("Checkpoint of another job restored");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Old checkpoints are deleted only if they were written by the
+	 * same job.
+	 */
+
+	public void testDeleteOwnCheckpoints() throws Exception
+	{
+		SG algorithm = algorithm(20);
+		Checkpointer one = checkpointer("one");
+		one.setKeep(10);
+		algorithm.addListener(one);
+		algorithm.execute();
+		algorithm = algorithm(20);
+		Checkpointer other = checkpointer("other");
+		other.setFrequency(4);
+		algorithm.addListener(other);
+		algorithm.execute();
+		for (int generation=5; generation<20; generation+=5) {
+			assertTrue(new File(directory, "checkpoint-" + generation + Checkpointer.EXTENSION).exists());
+		}
+		assertEquals(new File(directory, "checkpoint-15" + Checkpointer.EXTENSION), one.latest());
+		for (int generation=4; generation<=8; generation+=4) {
+			assertFalse(new File(directory, "checkpoint-" + generation + Checkpointer.EXTENSION).exists());
+		}
+		assertEquals(new File(directory, "checkpoint-16" + Checkpointer.EXTENSION), other.latest());
+	}
+
+	private Checkpointer checkpointer(String job)
+	{
+		Checkpointer result = new Checkpointer();
+		result.setDirectory(directory);
+		result.setFrequency(5);
+		result.setJob(job);
+		return result;
+	}
+
+	private static SG algorithm(int generations) throws Exception
+	{
+		return TestAlgorithms.sg(1234, 30, generations, 40, "");
+	}
+}
@@ -0,0 +1,186 @@
+package net.sf.jclec.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IIndividual;
+import net.sf.jclec.IAlgorithmListener;
+
+import net.sf.jclec.algorithm.classic.SG;
+
+import net.sf.jclec.binarray.OneMax;
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import net.sf.jclec.util.random.IRandGen;
+
+/**
+ * Tests for IslandModel.
+ *
+ * Islands run on their own threads, so the arrival of immigrants
+ * depends on scheduling. Most tests run the islands in lockstep on the
+ * test thread (all islands complete a generation before the next one),
+ * which makes migrations reproducible.
+ */
+
+public class IslandModelTest extends TestCase
+{
+	private static final int SEED = 2024;
+
+	private static final int ISLANDS = 3;
+
+	private static final int GENERATIONS = 12;
+
+	/**
+	 * Migrations do not change the random streams of the islands: with
+	 * no migration, islands evolve as single algorithms configured with
+	 * the island seeds.
+	 */
+
+	public void testIslandStreams() throws Exception
+	{
+		IslandModel model = model(IslandModel.RANDOM, GENERATIONS + 1);
+		lockstep(model);
+		for (int i=0; i<ISLANDS; i++) {
+			SG single = TestAlgorithms.sg(IslandModel.islandSeed(SEED, i), 10, GENERATIONS, 30, "");
+			single.execute();
+			assertEquals("island " + i, TestAlgorithms.genotypes(single.getInhabitants()), TestAlgorithms.genotypes(model.getIslands().get(i).getInhabitants()));
+		}
+	}
+
+	/**
+	 * In a ring, each island sends migrants to the next one.
+	 */
+
+	public void testRing() throws Exception
+	{
+		IslandModel model = model(IslandModel.RING, 1);
+		for (int i=0; i<ISLANDS; i++)
+			assertTrue(Arrays.equals(new int [] {(i + 1) % ISLANDS}, model.destinations(i, null)));
+	}
+
+	/**
+	 * In a random topology, each island sends migrants to any other
+	 * island, never to itself.
+	 */
+
+	public void testRandom() throws Exception
+	{
+		IslandModel model = model(IslandModel.RANDOM, 1);
+		for (int i=0; i<ISLANDS; i++) {
+			IRandGen randgen = model.migrationRandGen(i);
+			int [] counts = new int[ISLANDS];
+			for (int n=0; n<600; n++) {
+				int [] to = model.destinations(i, randgen);
+				assertEquals(1, to.length);
+				counts[to[0]]++;
+			}
+			for (int j=0; j<ISLANDS; j++)
+				assertEquals(i != j, counts[j] > 0);
+		}
+		// Each island has its own migrations stream
+		assertFalse(sequence(model.migrationRandGen(0)).equals(sequence(model.migrationRandGen(1))));
+		assertEquals(sequence(model.migrationRandGen(1)), sequence(model.migrationRandGen(1)));
+	}
+
+	/**
+	 * Islands receive copies of the migrants, so no individual is
+	 * shared by two islands.
+	 */
+
+	public void testMigrantsAreCopies() throws Exception
+	{
+		IslandModel model = model(IslandModel.FULL, 1);
+		model.setMigrationSize(3);
+		lockstep(model);
+		Map<IIndividual, Integer> owners = new IdentityHashMap<IIndividual, Integer>();
+		for (int i=0; i<ISLANDS; i++) {
+			for (IIndividual ind : model.getIslands().get(i).getInhabitants()) {
+				Integer owner = owners.put(ind, i);
+				assertTrue(owner == null || owner == i);
+			}
+		}
+		// Migrants have reached other islands (islands have different
+		// seeds, so they only share genotypes by migration)
+		List<String> genotypes = TestAlgorithms.genotypes(model.getIslands().get(1).getInhabitants());
+		genotypes.retainAll(TestAlgorithms.genotypes(model.getIslands().get(0).getInhabitants()));
+		assertFalse(genotypes.isEmpty());
+	}
+
+	/**
+	 * Two runs with the same seed are identical.
+	 */
+
+	public void testSameSeed() throws Exception
+	{
+		List<List<String>> runs = new ArrayList<List<String>>();
+		for (int run=0; run<2; run++) {
+			IslandModel model = model(IslandModel.RANDOM, 2);
+			lockstep(model);
+			List<String> genotypes = new ArrayList<String>();
+			for (PopulationAlgorithm island : model.getIslands())
+				genotypes.addAll(TestAlgorithms.genotypes(island.getInhabitants()));
+			runs.add(genotypes);
+		}
+		assertEquals(runs.get(0), runs.get(1));
+	}
+
+	/**
+	 * Threaded execution runs all islands until they finish.
+	 */
+
+	public void testExecute() throws Exception
+	{
+		IslandModel model = model(IslandModel.RING, 2);
+		model.execute();
+		for (PopulationAlgorithm island : model.getIslands()) {
+			assertEquals(GENERATIONS, island.getGeneration());
+			for (IAlgorithmListener listener : island.listeners)
+				assertFalse(listener instanceof IslandModel.Migration);
+		}
+	}
+
+	private static IslandModel model(String topology, int interval) throws Exception
+	{
+		String island = TestAlgorithms.xml(SEED, 10, GENERATIONS, 30, OneMax.class.getName(), "")
+			.replace("<process ", "<island ").replace("</process>", "</island>");
+		IslandModel result = new IslandModel();
+		result.configure(TestAlgorithms.configuration("<process>"
+			+ "<number-of-islands>" + ISLANDS + "</number-of-islands>"
+			+ "<topology>" + topology + "</topology>"
+			+ "<migration-interval>" + interval + "</migration-interval>"
+			+ "<migration-size>2</migration-size>"
+			+ island
+			+ "</process>"));
+		return result;
+	}
+
+	/**
+	 * Run the islands of a model in lockstep.
+	 */
+
+	private static void lockstep(IslandModel model)
+	{
+		model.doInit();
+		for (PopulationAlgorithm island : model.getIslands())
+			island.doInit();
+		for (int g=0; g<GENERATIONS; g++) {
+			for (PopulationAlgorithm island : model.getIslands()) {
+				island.doIterate();
+				island.fireIterationCompleted();
+			}
+		}
+	}
+
+	private static List<Integer> sequence(IRandGen randgen)
+	{
+		List<Integer> result = new ArrayList<Integer>();
+		for (int i=0; i<20; i++)
+			result.add(randgen.choose(0, 1000));
+		return result;
+	}
+}
@@ -0,0 +1,154 @@
+package net.sf.jclec.algorithm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.classic.SG;
+import net.sf.jclec.algorithm.stop.DiversityCriterion;
+import net.sf.jclec.algorithm.stop.StallCriterion;
+import net.sf.jclec.algorithm.stop.TargetCriterion;
+import net.sf.jclec.algorithm.stop.TimeCriterion;
+import net.sf.jclec.algorithm.stop.TimeCriterionTest.ManualTimeCriterion;
+
+import net.sf.jclec.binarray.AcceptableOneMax;
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.TestAlgorithms;
+
+/**
+ * Tests for PopulationAlgorithm.
+ */
+
+public class PopulationAlgorithmTest extends TestCase
+{
+	private static final int LENGTH = 16;
+
+	private static final String CRITERIA =
+		"<stop-criterion type=\"" + StallCriterion.class.getName() + "\" generations=\"1000\"/>"
+		+ "<stop-criterion type=\"" + DiversityCriterion.class.getName() + "\" min-distance=\"0\" sample-size=\"16\"/>"
+		+ "<stop-criterion type=\"" + ManualTimeCriterion.class.getName() + "\" seconds=\"100\"/>"
+		+ "<stop-criterion type=\"" + TargetCriterion.class.getName() + "\" acceptable=\"true\"/>";
+
+	/**
+	 * By default, evolution only finishes when an individual of the
+	 * population has an acceptable fitness, not when an acceptable
+	 * fitness has been evaluated and discarded.
+	 */
+
+	public void testAcceptableFitnessInPopulation() throws Exception
+	{
+		PopulationAlgorithm algorithm = algorithm("");
+		algorithm.doInit();
+		assertEquals(AbstractAlgorithm.NEW, algorithm.state);
+		// Evaluated, but not in the population
+		IIndividual acceptable = allOnes();
+		algorithm.getEvaluator().evaluate(new ArrayList<IIndividual>(Arrays.asList(acceptable)));
+		assertTrue(acceptable.getFitness().isAcceptable());
+		algorithm.doControl();
+		assertEquals(AbstractAlgorithm.NEW, algorithm.state);
+		// In the population
+		algorithm.bset.set(0, acceptable);
+		algorithm.doControl();
+		assertEquals(AbstractAlgorithm.FINISHED, algorithm.state);
+	}
+
+	/**
+	 * TargetCriterion, configured without target value, can stop when
+	 * any acceptable fitness has been evaluated.
+	 */
+
+	public void testAcceptableFitnessEvaluated() throws Exception
+	{
+		PopulationAlgorithm algorithm = algorithm(
+			"<stop-criterion type=\"" + TargetCriterion.class.getName() + "\" acceptable=\"true\"/>");
+		assertEquals(1, algorithm.getStopCriteria().size());
+		assertTrue(((TargetCriterion) algorithm.getStopCriteria().get(0)).isAcceptable());
+		algorithm.doInit();
+		assertEquals(AbstractAlgorithm.NEW, algorithm.state);
+		algorithm.getEvaluator().evaluate(new ArrayList<IIndividual>(Arrays.asList(allOnes())));
+		algorithm.doControl();
+		assertEquals(AbstractAlgorithm.FINISHED, algorithm.state);
+	}
+
+	/**
+	 * Stop criteria are configured in order, with their settings.
+	 */
+
+	public void testStopCriteriaConfiguration() throws Exception
+	{
+		List<IStopCriterion> criteria = algorithm(CRITERIA).getStopCriteria();
+		assertEquals(4, criteria.size());
+		StallCriterion stall = (StallCriterion) criteria.get(0);
+		assertEquals(1000, stall.getGenerations());
+		DiversityCriterion diversity = (DiversityCriterion) criteria.get(1);
+		assertEquals(0.0, diversity.getMinDistance(), 0.0);
+		assertEquals(16, diversity.getSampleSize());
+		assertEquals(ManualTimeCriterion.class, criteria.get(2).getClass());
+		assertEquals(100000, ((TimeCriterion) criteria.get(2)).getBudget());
+		TargetCriterion target = (TargetCriterion) criteria.get(3);
+		assertTrue(target.isAcceptable());
+		assertNull(target.getTarget());
+	}
+
+	/**
+	 * doInit() resets stop criteria, and a checkpoint restores their
+	 * state in the first doIterate(), so a restored run continues as
+	 * the uninterrupted one.
+	 */
+
+	public void testStopCriteriaCheckpoint() throws Exception
+	{
+		PopulationAlgorithm uninterrupted = algorithm(CRITERIA);
+		ManualTimeCriterion clock = (ManualTimeCriterion) uninterrupted.getStopCriteria().get(2);
+		uninterrupted.doInit();
+		for (int i=0; i<5; i++) {
+			clock.time += 10;
+			uninterrupted.doIterate();
+		}
+		assertEquals(50, clock.getElapsed());
+		ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+		uninterrupted.writeCheckpoint(checkpoint);
+		clock.time += 10;
+		uninterrupted.doIterate();
+
+		PopulationAlgorithm restored = algorithm(CRITERIA);
+		restored.readCheckpoint(new ByteArrayInputStream(checkpoint.toByteArray()));
+		ManualTimeCriterion restoredClock = (ManualTimeCriterion) restored.getStopCriteria().get(2);
+		restoredClock.time = 7000;
+		restored.doInit();
+		// Reset by doInit()
+		assertEquals(0, restoredClock.getElapsed());
+		assertEquals(5, restored.getGeneration());
+		restoredClock.time += 10;
+		restored.doIterate();
+		// Restored by doIterate()
+		assertEquals(60, restoredClock.getElapsed());
+		assertEquals(6, restored.getGeneration());
+		assertEquals(((StallCriterion) uninterrupted.getStopCriteria().get(0)).getStalledGenerations(),
+			((StallCriterion) restored.getStopCriteria().get(0)).getStalledGenerations());
+		assertEquals(((DiversityCriterion) uninterrupted.getStopCriteria().get(1)).getDiversity(),
+			((DiversityCriterion) restored.getStopCriteria().get(1)).getDiversity(), 0.0);
+		assertEquals(TestAlgorithms.genotypes(uninterrupted.getInhabitants()), TestAlgorithms.genotypes(restored.getInhabitants()));
+	}
+
+	private static PopulationAlgorithm algorithm(String extra) throws Exception
+	{
+		SG result = new SG();
+		result.configure(TestAlgorithms.configuration(
+			TestAlgorithms.xml(1, 10, 100, LENGTH, AcceptableOneMax.class.getName(), extra)));
+		return result;
+	}
+
+	private static IIndividual allOnes()
+	{
+		byte [] genotype = new byte[LENGTH];
+		Arrays.fill(genotype, (byte) 1);
+		return new BinArrayIndividual(genotype);
+	}
+}
@@ -0,0 +1,205 @@
+package net.sf.jclec.algorithm.classic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.AlgorithmEvent;
+import net.sf.jclec.IAlgorithmListener;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.base.AbstractSelector;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.OneMax;
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import net.sf.jclec.fitness.SimpleValueFitness;
+
+import net.sf.jclec.util.IdentityList;
+
+/**
+ * Tests for AsyncSS.
+ *
+ * Every third evaluation is slow, so sons finish out of breeding order.
+ */
+
+public class AsyncSSTest extends TestCase
+{
+	private static final int POPULATION_SIZE = 12;
+
+	private static final int GENERATIONS = 60;
+
+	/**
+	 * Litters of two sons never take more workers than
+	 * evaluationsInFlight, and the population size is constant.
+	 */
+
+	public void testEvaluationsInFlight() throws Exception
+	{
+		for (int inFlight : new int [] {1, 3, 4}) {
+			final AsyncSS algorithm = algorithm(inFlight, 1000, "");
+			final int bound = inFlight;
+			algorithm.addListener(new Invariants() {
+				public void iterationCompleted(AlgorithmEvent event) {
+					assertTrue(algorithm.getNumberOfPendingEvaluations() <= bound);
+					assertEquals(POPULATION_SIZE, algorithm.getInhabitants().size());
+				}
+			});
+			algorithm.execute();
+			assertEquals(GENERATIONS, algorithm.getGeneration());
+			assertTrue(((SlowOneMax) algorithm.getEvaluator()).maxRunning.get() <= inFlight);
+			assertEquals(POPULATION_SIZE, algorithm.getInhabitants().size());
+			assertEquals(0, algorithm.getNumberOfStaleSons());
+		}
+	}
+
+	/**
+	 * Sons bred before more than maxStaleness insertions are discarded,
+	 * so with maximum staleness 0 a generation inserts one son at most.
+	 */
+
+	public void testStaleSons() throws Exception
+	{
+		final AsyncSS algorithm = algorithm(4, 0, "");
+		algorithm.addListener(new Invariants() {
+			List<IIndividual> previous;
+			public void algorithmStarted(AlgorithmEvent event) {
+				previous = new ArrayList<IIndividual>(algorithm.getInhabitants());
+			}
+			public void iterationCompleted(AlgorithmEvent event) {
+				List<IIndividual> inhabitants = algorithm.getInhabitants();
+				int replaced = 0;
+				for (int i=0; i<POPULATION_SIZE; i++)
+					if (inhabitants.get(i) != previous.get(i))
+						replaced++;
+				assertTrue(replaced <= 1);
+				previous = new ArrayList<IIndividual>(inhabitants);
+			}
+		});
+		algorithm.execute();
+		assertTrue(algorithm.getNumberOfStaleSons() > 0);
+		assertEquals(POPULATION_SIZE, algorithm.getInhabitants().size());
+	}
+
+	/**
+	 * A son replaces the inhabitant chosen by the replacement selector,
+	 * not another inhabitant equal to it.
+	 */
+
+	public void testReplacementByIdentity() throws Exception
+	{
+		final AsyncSS algorithm = algorithm(2, 1000,
+			"<replacement-selector type=\"" + LastSelector.class.getName() + "\"/>");
+		final List<IIndividual> copies = new ArrayList<IIndividual>();
+		algorithm.addListener(new Invariants() {
+			public void algorithmStarted(AlgorithmEvent event) {
+				// Population of equal individuals
+				BinArrayIndividual zeros = new BinArrayIndividual(new byte[30], new SimpleValueFitness(0));
+				for (int i=0; i<POPULATION_SIZE; i++)
+					copies.add(zeros.copy());
+				algorithm.setInhabitants(new IdentityList(copies));
+			}
+			public void iterationCompleted(AlgorithmEvent event) {
+				for (int i=0; i<POPULATION_SIZE-1; i++)
+					assertSame(copies.get(i), algorithm.getInhabitants().get(i));
+			}
+		});
+		algorithm.execute();
+		assertNotSame(copies.get(POPULATION_SIZE-1), algorithm.getInhabitants().get(POPULATION_SIZE-1));
+	}
+
+	private static AsyncSS algorithm(int inFlight, int maxStaleness, String extra) throws Exception
+	{
+		AsyncSS result = new AsyncSS();
+		result.configure(TestAlgorithms.configuration(TestAlgorithms.xml(11, POPULATION_SIZE, GENERATIONS, 30,
+			SlowOneMax.class.getName(),
+			"<evaluations-in-flight>" + inFlight + "</evaluations-in-flight>"
+			+ "<max-staleness>" + maxStaleness + "</max-staleness>"
+			+ extra)));
+		return result;
+	}
+
+	/**
+	 * OneMax where every third evaluation takes some milliseconds.
+	 */
+
+	public static final class SlowOneMax extends OneMax
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		private final AtomicInteger running = new AtomicInteger();
+
+		final AtomicInteger maxRunning = new AtomicInteger();
+
+		@Override
+		protected void evaluate(IIndividual ind)
+		{
+			int now = running.incrementAndGet();
+			for (int max = maxRunning.get(); now > max && !maxRunning.compareAndSet(max, now); max = maxRunning.get());
+			try {
+				if (calls.getAndIncrement() % 3 == 0) {
+					Thread.sleep(5);
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			super.evaluate(ind);
+			running.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Selects the last individual of the source.
+	 */
+
+	public static final class LastSelector extends AbstractSelector
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void prepareSelection()
+		{
+			// Nothing to prepare
+		}
+
+		@Override
+		protected IIndividual selectNext()
+		{
+			return actsrc.get(actsrcsz - 1);
+		}
+	}
+
+	/**
+	 * Listener that checks invariants of an execution.
+	 */
+
+	private static class Invariants implements IAlgorithmListener
+	{
+		public void algorithmStarted(AlgorithmEvent event)
+		{
+			// Nothing to check
+		}
+
+		public void iterationCompleted(AlgorithmEvent event)
+		{
+			// Nothing to check
+		}
+
+		public void algorithmFinished(AlgorithmEvent event)
+		{
+			// Nothing to check
+		}
+
+		public void algorithmTerminated(AlgorithmEvent event)
+		{
+			// Nothing to check
+		}
+	}
+}
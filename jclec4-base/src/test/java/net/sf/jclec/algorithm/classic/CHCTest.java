@@ -0,0 +1,274 @@
+package net.sf.jclec.algorithm.classic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.AlgorithmEvent;
+import net.sf.jclec.IAlgorithmListener;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.OneMax;
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import net.sf.jclec.fitness.IValueFitness;
+import net.sf.jclec.fitness.SimpleValueFitness;
+
+import net.sf.jclec.util.IdentityList;
+
+/**
+ * Tests for CHC.
+ */
+
+public class CHCTest extends TestCase
+{
+	private static final int POPULATION_SIZE = 10;
+
+	private static final int LENGTH = 30;
+
+	/**
+	 * d is decremented by unsuccessful generations, and a restart sets
+	 * it to restart d.
+	 */
+
+	public void testRestart() throws Exception
+	{
+		CHC algorithm = algorithm(5, 3, false, 0, "");
+		algorithm.doInit();
+		assertEquals(5, algorithm.getActualD());
+		// No couple passes incest prevention, so no generation succeeds
+		for (int i=0; i<=5; i++) {
+			algorithm.setInhabitants(copies(individual(0, 5)));
+			algorithm.doSelection();
+			algorithm.doGeneration();
+			algorithm.doUpdate();
+			assertEquals(i == 5 ? 1 : 0, algorithm.getNumberOfRestarts());
+		}
+		assertEquals(3, algorithm.getActualD());
+		assertEquals(POPULATION_SIZE, algorithm.getInhabitants().size());
+		// Survivor is kept
+		assertEquals(5.0, value(algorithm.getInhabitants().get(0)), 0.0);
+	}
+
+	/**
+	 * Fast converging epochs that do not improve increase restart d by
+	 * a half, up to initial d; an epoch that improves sets it back.
+	 */
+
+	public void testAdaptiveRestart() throws Exception
+	{
+		CHC algorithm = algorithm(10, 4, true, 0, "");
+		algorithm.doInit();
+		int [] expected = {4, 6, 9, 10, 10};
+		for (int restartD : expected) {
+			algorithm.setInhabitants(copies(individual(0, 5)));
+			algorithm.doRestart();
+			assertEquals(restartD, algorithm.getActualRestartD());
+			assertEquals(restartD, algorithm.getActualD());
+		}
+		// Improvement
+		algorithm.setInhabitants(copies(individual(0, 6)));
+		algorithm.doRestart();
+		assertEquals(4, algorithm.getActualRestartD());
+		assertEquals(4, algorithm.getActualD());
+		// Slow epochs do not increase restart d
+		algorithm.setGeneration(100);
+		algorithm.setInhabitants(copies(individual(0, 6)));
+		algorithm.doRestart();
+		assertEquals(4, algorithm.getActualRestartD());
+		assertEquals(expected.length + 2, algorithm.getNumberOfRestarts());
+	}
+
+	/**
+	 * The archive keeps copies of the best individuals of different
+	 * basins, from best to worst.
+	 */
+
+	public void testArchive() throws Exception
+	{
+		CHC algorithm = algorithm(5, 4, false, 2, "");
+		algorithm.doInit();
+		BinArrayIndividual a = individual(0, 5), b = individual(10, 8), c = individual(25, 3);
+		for (BinArrayIndividual best : new BinArrayIndividual [] {a, b, c}) {
+			algorithm.setInhabitants(copies(best));
+			algorithm.doRestart();
+		}
+		List<IIndividual> archive = algorithm.getArchive();
+		assertEquals(TestAlgorithms.genotypes(list(b, a)), TestAlgorithms.genotypes(archive));
+		for (IIndividual ind : algorithm.getInhabitants())
+			for (IIndividual archived : archive)
+				assertNotSame(ind, archived);
+		// A better individual in the basin of b replaces it
+		BinArrayIndividual d = individual(10, 9);
+		algorithm.setInhabitants(copies(d));
+		algorithm.doRestart();
+		assertEquals(TestAlgorithms.genotypes(list(d, a)), TestAlgorithms.genotypes(algorithm.getArchive()));
+		// A worse individual in the basin of d does not
+		algorithm.setInhabitants(copies(individual(11, 7)));
+		algorithm.doRestart();
+		assertEquals(TestAlgorithms.genotypes(list(d, a)), TestAlgorithms.genotypes(algorithm.getArchive()));
+	}
+
+	/**
+	 * In a restart, only new individuals of unknown fitness are
+	 * evaluated; those equal to a survivor take its fitness.
+	 */
+
+	public void testRestartEvaluations() throws Exception
+	{
+		CHC algorithm = algorithm(5, 3, false, 0,
+			"<mutator type=\"net.sf.jclec.binarray.mut.BitFlipMutator\" locus-mutation-prob=\"0.02\"/>");
+		algorithm.doInit();
+		RecordingOneMax evaluator = (RecordingOneMax) algorithm.getEvaluator();
+		evaluator.evaluated.clear();
+		int evaluations = evaluator.getNumberOfEvaluations();
+		algorithm.setInhabitants(copies(individual(0, 5)));
+		// Restarts follow a selection (pset is reused)
+		algorithm.doSelection();
+		algorithm.doRestart();
+		assertEquals(0, evaluator.known);
+		assertTrue(algorithm.getSavedEvaluations() > 0);
+		assertEquals(POPULATION_SIZE - 1, evaluator.evaluated.size() + algorithm.getSavedEvaluations());
+		assertEquals(evaluations + evaluator.evaluated.size(), evaluator.getNumberOfEvaluations());
+		for (IIndividual ind : algorithm.getInhabitants())
+			assertEquals(ones(ind), value(ind), 0.0);
+	}
+
+	/**
+	 * A run restored from a checkpoint, with restart state in it, ends
+	 * as the uninterrupted run.
+	 */
+
+	public void testCheckpoint() throws Exception
+	{
+		CHC uninterrupted = algorithm(3, 3, true, 3, "");
+		final ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+		final List<Integer> restarts = new ArrayList<Integer>();
+		uninterrupted.addListener(new IAlgorithmListener() {
+			public void algorithmStarted(AlgorithmEvent event) {
+			}
+			public void iterationCompleted(AlgorithmEvent event) {
+				CHC algorithm = (CHC) event.getAlgorithm();
+				if (algorithm.getGeneration() == 30) {
+					restarts.add(algorithm.getNumberOfRestarts());
+					try {
+						algorithm.writeCheckpoint(checkpoint);
+					}
+					catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}
+			public void algorithmFinished(AlgorithmEvent event) {
+			}
+			public void algorithmTerminated(AlgorithmEvent event) {
+			}
+		});
+		uninterrupted.execute();
+		assertTrue(restarts.get(0) > 0);
+
+		CHC restored = algorithm(3, 3, true, 3, "");
+		restored.readCheckpoint(new ByteArrayInputStream(checkpoint.toByteArray()));
+		restored.execute();
+		assertEquals(uninterrupted.getGeneration(), restored.getGeneration());
+		assertEquals(uninterrupted.getNumberOfRestarts(), restored.getNumberOfRestarts());
+		assertEquals(uninterrupted.getSavedEvaluations(), restored.getSavedEvaluations());
+		assertEquals(uninterrupted.getActualD(), restored.getActualD());
+		assertEquals(uninterrupted.getActualRestartD(), restored.getActualRestartD());
+		assertEquals(TestAlgorithms.genotypes(uninterrupted.getArchive()), TestAlgorithms.genotypes(restored.getArchive()));
+		assertEquals(TestAlgorithms.genotypes(uninterrupted.getInhabitants()), TestAlgorithms.genotypes(restored.getInhabitants()));
+		assertEquals(uninterrupted.getEvaluator().getNumberOfEvaluations(), restored.getEvaluator().getNumberOfEvaluations());
+	}
+
+	private static CHC algorithm(int initialD, int restartD, boolean adaptive, int archiveSize, String extra) throws Exception
+	{
+		CHC result = new CHC();
+		result.configure(TestAlgorithms.configuration("<process>"
+			+ "<rand-gen-factory type=\"net.sf.jclec.util.random.XoshiroFactory\" seed=\"31\"/>"
+			+ "<population-size>" + POPULATION_SIZE + "</population-size>"
+			+ "<max-of-generations>60</max-of-generations>"
+			+ "<species type=\"net.sf.jclec.binarray.BinArrayIndividualSpecies\" genotype-length=\"" + LENGTH + "\"/>"
+			+ "<evaluator type=\"" + RecordingOneMax.class.getName() + "\"/>"
+			+ "<provider type=\"net.sf.jclec.binarray.BinArrayCreator\"/>"
+			+ "<initial-d>" + initialD + "</initial-d>"
+			+ "<distance type=\"net.sf.jclec.binarray.HammingDistance\"/>"
+			+ "<recombinator type=\"net.sf.jclec.binarray.rec.HUXCrossover\"/>"
+			+ "<restart-d adaptive=\"" + adaptive + "\">" + restartD + "</restart-d>"
+			+ "<archive-size>" + archiveSize + "</archive-size>"
+			+ extra
+			+ "</process>"));
+		return result;
+	}
+
+	/**
+	 * Evaluated individual with ones in [from, from + ones).
+	 */
+
+	private static BinArrayIndividual individual(int from, int ones)
+	{
+		byte [] genotype = new byte[LENGTH];
+		for (int i=from; i<from+ones; i++)
+			genotype[i] = 1;
+		return new BinArrayIndividual(genotype, new SimpleValueFitness(ones));
+	}
+
+	private static List<IIndividual> copies(IIndividual ind)
+	{
+		List<IIndividual> result = new ArrayList<IIndividual>();
+		for (int i=0; i<POPULATION_SIZE; i++)
+			result.add(ind.copy());
+		return new IdentityList(result);
+	}
+
+	private static List<IIndividual> list(IIndividual... inds)
+	{
+		List<IIndividual> result = new ArrayList<IIndividual>();
+		for (IIndividual ind : inds)
+			result.add(ind);
+		return result;
+	}
+
+	private static double value(IIndividual ind)
+	{
+		return ((IValueFitness) ind.getFitness()).getValue();
+	}
+
+	private static int ones(IIndividual ind)
+	{
+		int result = 0;
+		for (byte b : ((BinArrayIndividual) ind).getGenotype())
+			result += b;
+		return result;
+	}
+
+	/**
+	 * OneMax that records the individuals it is asked to evaluate.
+	 */
+
+	public static final class RecordingOneMax extends OneMax
+	{
+		private static final long serialVersionUID = 1L;
+
+		final List<IIndividual> evaluated = new ArrayList<IIndividual>();
+
+		/** Individuals of known fitness passed to the evaluator */
+
+		int known;
+
+		@Override
+		public void evaluate(List<IIndividual> inds)
+		{
+			for (IIndividual ind : inds) {
+				if (ind.getFitness() != null)
+					known++;
+				evaluated.add(ind);
+			}
+			super.evaluate(inds);
+		}
+	}
+}
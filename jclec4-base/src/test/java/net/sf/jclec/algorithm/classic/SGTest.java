@@ -0,0 +1,57 @@
+package net.sf.jclec.algorithm.classic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import net.sf.jclec.fitness.IValueFitness;
+
+/**
+ * Tests for SG.
+ */
+
+public class SGTest extends TestCase
+{
+	/**
+	 * A pipelined run ends as the sequential run with the same seed.
+	 */
+
+	public void testPipelinedGeneration() throws Exception
+	{
+		SG sequential = algorithm("");
+		sequential.execute();
+		assertNull(sequential.getPipeline());
+
+		String [] pipelines = {
+			"<pipeline enabled=\"true\" batch-size=\"1\" threads=\"1\"/>",
+			"<pipeline enabled=\"true\" batch-size=\"7\" threads=\"3\"/>",
+			"<pipeline enabled=\"true\" batch-size=\"64\" threads=\"2\"/>"
+		};
+		for (String pipeline : pipelines) {
+			SG pipelined = algorithm(pipeline);
+			assertNotNull(pipelined.getPipeline());
+			pipelined.execute();
+			assertEquals(pipeline, TestAlgorithms.genotypes(sequential.getInhabitants()), TestAlgorithms.genotypes(pipelined.getInhabitants()));
+			assertEquals(pipeline, fitnesses(sequential.getInhabitants()), fitnesses(pipelined.getInhabitants()));
+			assertEquals(pipeline, sequential.getEvaluator().getNumberOfEvaluations(), pipelined.getEvaluator().getNumberOfEvaluations());
+		}
+	}
+
+	private static SG algorithm(String pipeline) throws Exception
+	{
+		return TestAlgorithms.sg(4321, 50, 20, 60, pipeline);
+	}
+
+	private static List<Double> fitnesses(List<IIndividual> inds)
+	{
+		List<Double> result = new ArrayList<Double>();
+		for (IIndividual ind : inds)
+			result.add(((IValueFitness) ind.getFitness()).getValue());
+		return result;
+	}
+}
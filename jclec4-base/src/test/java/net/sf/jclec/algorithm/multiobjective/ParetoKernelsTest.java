@@ -0,0 +1,131 @@
+package net.sf.jclec.algorithm.multiobjective;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.fitness.CompositeFitness;
+import net.sf.jclec.fitness.IValueFitness;
+import net.sf.jclec.fitness.ParetoComparator;
+
+import net.sf.jclec.util.ParallelRows;
+
+/**
+ * Tests for ParetoKernels.
+ *
+ * Every kernel is compared with the result of calling the Pareto
+ * comparator (or computing the distance) for each pair of individuals.
+ */
+
+public class ParetoKernelsTest extends TestCase
+{
+	public void testValueComparators()
+	{
+		Random random = new Random(1);
+		for (int trial=0; trial<30; trial++) {
+			int objectives = 2 + trial%3;
+			List<IIndividual> points = SPEA2DensityTest.randomPoints(random, 1 + random.nextInt(150), objectives, trial%2 == 0);
+			check(points, SPEA2DensityTest.comparator(objectives), 1 + trial%4);
+		}
+	}
+
+	public void testOtherComparators()
+	{
+		Random random = new Random(2);
+		for (int trial=0; trial<30; trial++) {
+			int objectives = 2 + trial%3;
+			List<IIndividual> points = SPEA2DensityTest.randomPoints(random, 1 + random.nextInt(150), objectives, trial%2 == 0);
+			ParetoComparator comparator = SPEA2DensityTest.comparator(objectives);
+			// Closest to 0.5 is better (no direction)
+			comparator.getComponentComparators()[trial%objectives] = new Comparator<IFitness>() {
+				public int compare(IFitness one, IFitness other) {
+					double d1 = Math.abs(((IValueFitness) one).getValue() - 0.5);
+					double d2 = Math.abs(((IValueFitness) other).getValue() - 0.5);
+					return (d1 < d2) ? 1 : ((d1 > d2) ? -1 : 0);
+				}
+			};
+			check(points, comparator, 1 + trial%4);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private static void check(List<IIndividual> points, ParetoComparator comparator, int threads)
+	{
+		ParallelRows executor = new ParallelRows(threads);
+		executor.setSequentialThreshold(1);
+		ParetoKernels kernels = new ParetoKernels(executor);
+		kernels.load(points, comparator);
+		assertTrue(kernels.isLoaded(points));
+		kernels.computeDominance();
+		int size = points.size();
+		// Dominance
+		long [] strength = new long[size];
+		int [] dominatedBy = new int[size];
+		for (int i=0; i<size; i++) {
+			for (int j=0; j<size; j++) {
+				int expected = (i == j) ? 0 : comparator.compare(fitness(points, i), fitness(points, j));
+				assertEquals(expected == 1, kernels.dominates(i, j));
+				if (i != j) {
+					assertEquals(expected, kernels.comparePoints(i, j));
+				}
+				if (expected == 1) {
+					strength[i]++;
+					dominatedBy[j]++;
+				}
+			}
+		}
+		long [] raw = new long[size];
+		for (int i=0; i<size; i++) {
+			for (int j=0; j<size; j++) {
+				if (i != j && comparator.compare(fitness(points, j), fitness(points, i)) == 1)
+					raw[i] += strength[j];
+			}
+		}
+		long [] result = new long[size];
+		kernels.strength(result);
+		assertEquals(strength, result);
+		kernels.rawFitness(strength, result);
+		assertEquals(raw, result);
+		int [] counts = new int[size];
+		kernels.dominatedByCount(counts);
+		for (int i=0; i<size; i++)
+			assertEquals(dominatedBy[i], counts[i]);
+		// Distances
+		double [] distances = new double[size*size];
+		kernels.distances(distances);
+		for (int i=0; i<size; i++) {
+			for (int j=0; j<size; j++)
+				assertEquals(distance(points, i, j), distances[i*size + j], 1e-12);
+		}
+	}
+
+	private static CompositeFitness fitness(List<IIndividual> points, int i)
+	{
+		return (CompositeFitness) points.get(i).getFitness();
+	}
+
+	private static double distance(List<IIndividual> points, int i, int j)
+	{
+		IFitness [] one = fitness(points, i).getComponents(), other = fitness(points, j).getComponents();
+		double result = 0.0;
+		for (int o=0; o<one.length; o++) {
+			double diff = ((IValueFitness) one[o]).getValue() - ((IValueFitness) other[o]).getValue();
+			result += diff*diff;
+		}
+		return Math.sqrt(result);
+	}
+
+	private static void assertEquals(long [] expected, long [] actual)
+	{
+		for (int i=0; i<expected.length; i++)
+			assertEquals(expected[i], actual[i]);
+	}
+}
@@ -0,0 +1,208 @@
+package net.sf.jclec.algorithm.multiobjective;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+
+import net.sf.jclec.fitness.CompositeFitness;
+import net.sf.jclec.fitness.ISimpleFitness;
+import net.sf.jclec.fitness.ParetoComparator;
+import net.sf.jclec.fitness.SimpleValueFitness;
+import net.sf.jclec.fitness.ValueFitnessComparator;
+
+import net.sf.jclec.util.ParallelRows;
+
+/**
+ * Tests for SPEA2Density.
+ *
+ * Densities and truncations are compared with a direct implementation
+ * that sorts all the distances of every member at each step, as the
+ * dense distance matrix version did.
+ */
+
+public class SPEA2DensityTest extends TestCase
+{
+	public void testDensity()
+	{
+		Random random = new Random(1);
+		for (int trial=0; trial<20; trial++) {
+			ParetoKernels kernels = load(randomPoints(random, 1 + random.nextInt(60), 2 + trial%2, trial%3 == 0), 1 + trial%4);
+			SPEA2Density density = new SPEA2Density();
+			density.load(kernels);
+			int size = kernels.getSize();
+			for (int k=1; k<4; k++) {
+				double [] result = new double[size];
+				density.density(k, result);
+				for (int i=0; i<size; i++) {
+					double [] row = sortedDistances(kernels, i, all(size), new boolean[size]);
+					double expected = (row.length == 0) ? 0.0 : 1.0/(row[Math.min(k, row.length) - 1] + 2.0);
+					assertEquals(expected, result[i], 0.0);
+				}
+			}
+		}
+	}
+
+	public void testTruncate()
+	{
+		Random random = new Random(2);
+		for (int trial=0; trial<60; trial++) {
+			int size = 2 + random.nextInt(80);
+			ParetoKernels kernels = load(randomPoints(random, size, 2 + trial%3, trial%2 == 0), 1 + trial%4);
+			// Archive members (a random subset of the loaded points)
+			int [] members = new int[size];
+			int m = 0;
+			for (int i=0; i<size; i++) {
+				if (random.nextInt(4) != 0) {
+					members[m++] = i;
+				}
+			}
+			int target = random.nextInt(m + 1);
+			int [] expected = referenceTruncate(kernels, members, m, target);
+			for (int neighbourhood : new int [] {1, 2, 3, 32}) {
+				SPEA2Density density = new SPEA2Density();
+				density.setNeighbourhoodSize(neighbourhood);
+				density.load(kernels);
+				int [] copy = Arrays.copyOf(members, m);
+				assertTrue(Arrays.equals(expected, density.truncate(copy, m, target)));
+			}
+		}
+	}
+
+	public void testTruncateKeepsSmallArchives()
+	{
+		ParetoKernels kernels = load(randomPoints(new Random(3), 10, 2, false), 1);
+		SPEA2Density density = new SPEA2Density();
+		density.load(kernels);
+		int [] members = {1, 3, 5};
+		assertTrue(Arrays.equals(members, density.truncate(members, 3, 5)));
+	}
+
+	public void testSelect()
+	{
+		Random random = new Random(4);
+		for (int trial=0; trial<100; trial++) {
+			double [] array = new double[1 + random.nextInt(50)];
+			for (int i=0; i<array.length; i++)
+				array[i] = random.nextInt(10);
+			double [] sorted = array.clone();
+			Arrays.sort(sorted);
+			int k = random.nextInt(array.length);
+			assertEquals(sorted[k], SPEA2Density.select(array, 0, array.length, k), 0.0);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Truncation with the sorted distances of every alive member
+	 * computed from scratch at each step.
+	 */
+
+	private static int [] referenceTruncate(ParetoKernels kernels, int [] members, int m, int target)
+	{
+		boolean [] removed = new boolean[m];
+		for (int alive=m; alive>target; alive--) {
+			int victim = -1;
+			double [] victimDistances = null;
+			for (int a=0; a<m; a++) {
+				if (!removed[a]) {
+					double [] distances = sortedDistances(kernels, a, members, removed);
+					if (victim == -1 || compare(distances, victimDistances) < 0) {
+						victim = a;
+						victimDistances = distances;
+					}
+				}
+			}
+			removed[victim] = true;
+		}
+		List<Integer> result = new ArrayList<Integer>();
+		for (int a=0; a<m; a++) {
+			if (!removed[a])
+				result.add(members[a]);
+		}
+		int [] array = new int[result.size()];
+		for (int i=0; i<array.length; i++)
+			array[i] = result.get(i);
+		return array;
+	}
+
+	private static double [] sortedDistances(ParetoKernels kernels, int a, int [] members, boolean [] removed)
+	{
+		double [] result = new double[removed.length];
+		int n = 0;
+		for (int b=0; b<removed.length; b++) {
+			if (b != a && !removed[b])
+				result[n++] = kernels.distance(members[a], members[b]);
+		}
+		result = Arrays.copyOf(result, n);
+		Arrays.sort(result);
+		return result;
+	}
+
+	private static int compare(double [] one, double [] other)
+	{
+		for (int i=0; i<one.length; i++) {
+			if (one[i] < other[i])
+				return -1;
+			else if (one[i] > other[i])
+				return 1;
+		}
+		return 0;
+	}
+
+	private static int [] all(int size)
+	{
+		int [] result = new int[size];
+		for (int i=0; i<size; i++)
+			result[i] = i;
+		return result;
+	}
+
+	/**
+	 * Random points. With ties, objectives take a few integer values,
+	 * so there are repeated points and equal distances.
+	 */
+
+	static List<IIndividual> randomPoints(Random random, int size, int objectives, boolean ties)
+	{
+		List<IIndividual> result = new ArrayList<IIndividual>();
+		for (int i=0; i<size; i++) {
+			ISimpleFitness [] components = new ISimpleFitness[objectives];
+			for (int o=0; o<objectives; o++)
+				components[o] = new SimpleValueFitness(ties ? random.nextInt(4) : random.nextDouble());
+			result.add(new BinArrayIndividual(new byte[] {(byte) i}, new CompositeFitness(components)));
+		}
+		return result;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static ParetoComparator comparator(int objectives)
+	{
+		Comparator<IFitness> [] components = new Comparator[objectives];
+		for (int o=0; o<objectives; o++)
+			components[o] = new ValueFitnessComparator(o%2 == 1);
+		ParetoComparator result = new ParetoComparator();
+		result.setComponentComparators(components);
+		return result;
+	}
+
+	private static ParetoKernels load(List<IIndividual> points, int threads)
+	{
+		ParallelRows executor = new ParallelRows(threads);
+		executor.setSequentialThreshold(1);
+		ParetoKernels result = new ParetoKernels(executor);
+		result.load(points, comparator(((CompositeFitness) points.get(0).getFitness()).getComponents().length));
+		return result;
+	}
+}
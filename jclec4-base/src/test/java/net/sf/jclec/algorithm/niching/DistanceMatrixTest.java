@@ -0,0 +1,128 @@
+package net.sf.jclec.algorithm.niching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IDistance;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.HammingDistance;
+
+import net.sf.jclec.util.ParallelRows;
+
+/**
+ * Tests for DistanceMatrix.
+ *
+ * After every incremental update, the matrix is compared with one
+ * computed from scratch for the same individuals.
+ */
+
+public class DistanceMatrixTest extends TestCase
+{
+	public void testIncrementalUpdatePacked()
+	{
+		checkGenerations(new HammingDistance(), 1);
+		checkGenerations(new HammingDistance(), 3);
+	}
+
+	public void testIncrementalUpdate()
+	{
+		checkGenerations(plain(new HammingDistance()), 1);
+		checkGenerations(plain(new HammingDistance()), 4);
+	}
+
+	public void testSmallSets()
+	{
+		DistanceMatrix matrix = new DistanceMatrix(new ParallelRows(1));
+		matrix.setDistance(new HammingDistance());
+		matrix.update(new ArrayList<IIndividual>());
+		assertEquals(0, matrix.getSize());
+		assertEquals(-1.0, matrix.getMaximumDistance(), 0.0);
+		List<IIndividual> one = randomIndividuals(new Random(1), 1, 10);
+		matrix.update(one);
+		assertEquals(1, matrix.getSize());
+		assertEquals(-1.0, matrix.getMaximumDistance(), 0.0);
+		assertEquals(0, matrix.indexOf(one.get(0)));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Several generations that keep part of the individuals, shuffle
+	 * them, repeat some of them and add new ones.
+	 */
+
+	private static void checkGenerations(IDistance distance, int threads)
+	{
+		Random random = new Random(threads);
+		ParallelRows executor = new ParallelRows(threads);
+		executor.setSequentialThreshold(1);
+		DistanceMatrix matrix = new DistanceMatrix(executor);
+		matrix.setDistance(distance);
+		List<IIndividual> pop = randomIndividuals(random, 50, 70);
+		for (int generation=0; generation<10; generation++) {
+			matrix.update(pop);
+			DistanceMatrix full = new DistanceMatrix(new ParallelRows(1));
+			full.setDistance(distance);
+			full.update(pop);
+			assertEquals(pop.size(), matrix.getSize());
+			assertEquals(full.getMaximumDistance(), matrix.getMaximumDistance(), 0.0);
+			for (int i=0; i<pop.size(); i++) {
+				for (int j=0; j<pop.size(); j++) {
+					double expected = (i == j) ? 0.0 : distance.distance(pop.get(i), pop.get(j));
+					assertEquals(expected, full.get(i, j), 0.0);
+					assertEquals(expected, matrix.get(i, j), 0.0);
+				}
+				assertSame(pop.get(matrix.indexOf(pop.get(i))), pop.get(i));
+			}
+			// Only pairs with a new individual were computed
+			if (generation > 0) {
+				assertTrue(matrix.getNumberOfComputedDistances() < full.getNumberOfComputedDistances());
+			}
+			// Next generation
+			List<IIndividual> next = new ArrayList<IIndividual>();
+			for (IIndividual ind : pop) {
+				if (random.nextInt(3) != 0)
+					next.add(ind);
+			}
+			if (!next.isEmpty()) {
+				next.add(next.get(random.nextInt(next.size())));
+			}
+			next.addAll(randomIndividuals(random, 5 + random.nextInt(20), 70));
+			Collections.shuffle(next, random);
+			pop = next;
+		}
+	}
+
+	/**
+	 * Distance that cannot pack individuals.
+	 */
+
+	static IDistance plain(final IDistance distance)
+	{
+		return new IDistance() {
+			public double distance(IIndividual one, IIndividual other) {
+				return distance.distance(one, other);
+			}
+		};
+	}
+
+	static List<IIndividual> randomIndividuals(Random random, int size, int length)
+	{
+		List<IIndividual> result = new ArrayList<IIndividual>();
+		for (int i=0; i<size; i++) {
+			byte [] genotype = new byte[length];
+			for (int locus=0; locus<length; locus++)
+				genotype[locus] = (byte) random.nextInt(2);
+			result.add(new BinArrayIndividual(genotype));
+		}
+		return result;
+	}
+}
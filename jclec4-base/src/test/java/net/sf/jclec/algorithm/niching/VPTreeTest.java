@@ -0,0 +1,137 @@
+package net.sf.jclec.algorithm.niching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IDistance;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.binarray.HammingDistance;
+
+import net.sf.jclec.util.ParallelRows;
+
+/**
+ * Tests for VPTree.
+ *
+ * Range, farthest and diameter queries are compared with a linear scan
+ * of all the individuals.
+ */
+
+public class VPTreeTest extends TestCase
+{
+	public void testQueriesPacked()
+	{
+		check(new HammingDistance(), 1);
+		check(new HammingDistance(), 4);
+	}
+
+	public void testQueries()
+	{
+		check(DistanceMatrixTest.plain(new HammingDistance()), 1);
+		check(DistanceMatrixTest.plain(new HammingDistance()), 3);
+	}
+
+	public void testSmallTrees()
+	{
+		VPTree tree = new VPTree(new ParallelRows(1));
+		tree.setDistance(new HammingDistance());
+		tree.build(new ArrayList<IIndividual>());
+		assertEquals(-1.0, tree.diameter(), 0.0);
+		List<IIndividual> one = DistanceMatrixTest.randomIndividuals(new Random(1), 1, 8);
+		tree.build(one);
+		assertEquals(-1.0, tree.diameter(), 0.0);
+		assertEquals(0.0, tree.farthest(one.get(0), -1.0), 0.0);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private static void check(IDistance distance, int threads)
+	{
+		Random random = new Random(threads);
+		ParallelRows executor = new ParallelRows(threads);
+		executor.setSequentialThreshold(1);
+		VPTree tree = new VPTree(executor);
+		tree.setDistance(distance);
+		// Short genotypes give many repeated distances
+		for (int length : new int [] {6, 40, 130}) {
+			List<IIndividual> pop = DistanceMatrixTest.randomIndividuals(random, 1 + random.nextInt(300), length);
+			tree.build(pop);
+			assertEquals(pop.size(), tree.getSize());
+			// Diameter
+			double diameter = -1.0;
+			for (int i=0; i<pop.size(); i++) {
+				for (int j=i+1; j<pop.size(); j++)
+					diameter = Math.max(diameter, distance.distance(pop.get(i), pop.get(j)));
+			}
+			assertEquals(diameter, tree.diameter(), 0.0);
+			List<IIndividual> queries = new ArrayList<IIndividual>(pop.subList(0, Math.min(10, pop.size())));
+			queries.addAll(DistanceMatrixTest.randomIndividuals(random, 10, length));
+			for (int q=0; q<queries.size(); q++) {
+				IIndividual query = queries.get(q);
+				// Farthest individual
+				double farthest = -1.0;
+				for (IIndividual ind : pop)
+					farthest = Math.max(farthest, distance.distance(query, ind));
+				assertEquals(farthest, tree.farthest(query, -1.0), 0.0);
+				assertEquals(farthest + 1, tree.farthest(query, farthest + 1), 0.0);
+				// Range queries
+				for (double radius : new double [] {0.5, 1.0, length/4.0, length/2.0, length + 1.0}) {
+					List<String> expected = new ArrayList<String>();
+					for (int i=0; i<pop.size(); i++) {
+						double d = distance.distance(query, pop.get(i));
+						if (d < radius)
+							expected.add(i + ":" + d);
+					}
+					assertEquals(expected, range(tree, query, radius));
+					if (q < pop.size() && query == pop.get(q)) {
+						assertEquals(expected, range(tree, q, radius));
+					}
+				}
+			}
+		}
+	}
+
+	private static List<String> range(VPTree tree, IIndividual query, double radius)
+	{
+		final List<String> result = new ArrayList<String>();
+		tree.range(query, radius, new VPTree.Visitor() {
+			public void visit(int index, double distance) {
+				result.add(index + ":" + distance);
+			}
+		});
+		sort(result);
+		return result;
+	}
+
+	private static List<String> range(VPTree tree, int i, double radius)
+	{
+		final List<String> result = new ArrayList<String>();
+		tree.range(i, radius, new VPTree.Visitor() {
+			public void visit(int index, double distance) {
+				result.add(index + ":" + distance);
+			}
+		});
+		sort(result);
+		return result;
+	}
+
+	/**
+	 * Sort "index:distance" entries by index.
+	 */
+
+	private static void sort(List<String> entries)
+	{
+		Collections.sort(entries, new Comparator<String>() {
+			public int compare(String one, String other) {
+				return Integer.parseInt(one.substring(0, one.indexOf(':'))) - Integer.parseInt(other.substring(0, other.indexOf(':')));
+			}
+		});
+	}
+}
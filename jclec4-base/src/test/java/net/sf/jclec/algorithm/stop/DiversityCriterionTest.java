@@ -0,0 +1,223 @@
+package net.sf.jclec.algorithm.stop;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IDistance;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.classic.SG;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Tests for DiversityCriterion.
+ */
+
+public class DiversityCriterionTest extends TestCase
+{
+	private static final int LENGTH = 40;
+
+	/**
+	 * A population of copies has no diversity.
+	 */
+
+	public void testIdenticalPopulation() throws Exception
+	{
+		SG algorithm = TestAlgorithms.sg(1, 10);
+		List<IIndividual> inds = new ArrayList<IIndividual>();
+		for (int i=0; i<10; i++)
+			inds.add(individual(i % 3 == 0));
+		algorithm.setInhabitants(inds);
+		DiversityCriterion criterion = new DiversityCriterion();
+		criterion.reset(algorithm);
+		assertTrue(Double.isNaN(criterion.getDiversity()));
+		assertFalse(criterion.isFinished(algorithm));
+		assertTrue(criterion.getDiversity() >= 1.0);
+
+		inds.clear();
+		for (int i=0; i<10; i++)
+			inds.add(individual(true));
+		algorithm.setInhabitants(inds);
+		assertTrue(criterion.isFinished(algorithm));
+		assertEquals(0.0, criterion.getDiversity(), 0.0);
+	}
+
+	/**
+	 * Sampled pairs are two different inhabitants, so two opposite
+	 * individuals are always at the maximum distance.
+	 */
+
+	public void testDifferentInhabitants() throws Exception
+	{
+		SG algorithm = TestAlgorithms.sg(1, 2);
+		List<IIndividual> inds = new ArrayList<IIndividual>();
+		inds.add(individual(false));
+		inds.add(individual(true));
+		algorithm.setInhabitants(inds);
+		DiversityCriterion criterion = new DiversityCriterion();
+		criterion.setMinDistance(LENGTH);
+		criterion.reset(algorithm);
+		assertFalse(criterion.isFinished(algorithm));
+		assertEquals(LENGTH, criterion.getDiversity(), 0.0);
+	}
+
+	/**
+	 * The sampling generator covers the population with pairs of
+	 * different inhabitants, and reset() restarts its sequence.
+	 */
+
+	public void testSampling() throws Exception
+	{
+		SG algorithm = TestAlgorithms.sg(1, 7);
+		List<IIndividual> inds = new ArrayList<IIndividual>();
+		for (int i=0; i<7; i++)
+			inds.add(individual(false));
+		algorithm.setInhabitants(inds);
+		PairsDistance distance = new PairsDistance(inds);
+		DiversityCriterion criterion = new DiversityCriterion();
+		criterion.setDistance(distance);
+		criterion.setSampleSize(500);
+		criterion.reset(algorithm);
+		criterion.isFinished(algorithm);
+		assertEquals(500, distance.pairs.size());
+		int [][] counts = new int[7][7];
+		for (int [] pair : distance.pairs) {
+			assertTrue(pair[0] != pair[1]);
+			counts[pair[0]][pair[1]]++;
+		}
+		for (int i=0; i<7; i++)
+			for (int j=0; j<7; j++)
+				assertEquals(i != j, counts[i][j] > 0);
+
+		List<int []> first = new ArrayList<int []>(distance.pairs);
+		distance.pairs.clear();
+		criterion.isFinished(algorithm);
+		assertFalse(same(first, distance.pairs));
+		distance.pairs.clear();
+		criterion.reset(algorithm);
+		criterion.isFinished(algorithm);
+		assertTrue(same(first, distance.pairs));
+	}
+
+	/**
+	 * Diversity is only estimated in generations multiple of the
+	 * frequency.
+	 */
+
+	public void testFrequency() throws Exception
+	{
+		SG algorithm = TestAlgorithms.sg(1, 10);
+		List<IIndividual> inds = new ArrayList<IIndividual>();
+		for (int i=0; i<10; i++)
+			inds.add(individual(true));
+		algorithm.setInhabitants(inds);
+		DiversityCriterion criterion = new DiversityCriterion();
+		criterion.setFrequency(3);
+		criterion.reset(algorithm);
+		algorithm.setGeneration(1);
+		assertFalse(criterion.isFinished(algorithm));
+		assertTrue(Double.isNaN(criterion.getDiversity()));
+		algorithm.setGeneration(3);
+		assertTrue(criterion.isFinished(algorithm));
+		assertEquals(0.0, criterion.getDiversity(), 0.0);
+	}
+
+	/**
+	 * Checking diversity does not use the generators of the algorithm.
+	 */
+
+	public void testSameEvolution() throws Exception
+	{
+		SG plain = TestAlgorithms.sg(9, 20, 15, LENGTH, "");
+		plain.execute();
+		SG checked = TestAlgorithms.sg(9, 20, 15, LENGTH,
+			"<stop-criterion type=\"" + DiversityCriterion.class.getName() + "\" min-distance=\"0\" sample-size=\"100\"/>");
+		checked.execute();
+		assertEquals(15, checked.getGeneration());
+		assertFalse(Double.isNaN(((DiversityCriterion) checked.getStopCriteria().get(0)).getDiversity()));
+		assertEquals(TestAlgorithms.genotypes(plain.getInhabitants()), TestAlgorithms.genotypes(checked.getInhabitants()));
+	}
+
+	/**
+	 * Configuration errors are reported as ConfigurationRuntimeException.
+	 */
+
+	public void testConfiguration() throws Exception
+	{
+		DiversityCriterion criterion = new DiversityCriterion();
+		criterion.configure(TestAlgorithms.configuration(
+			"<stop-criterion min-distance=\"2.5\" sample-size=\"8\" frequency=\"4\">"
+			+ "<distance type=\"" + PairsDistance.class.getName() + "\"/>"
+			+ "</stop-criterion>"));
+		assertEquals(2.5, criterion.getMinDistance(), 0.0);
+		assertEquals(8, criterion.getSampleSize());
+		assertEquals(4, criterion.getFrequency());
+		assertTrue(criterion.getDistance() instanceof PairsDistance);
+		try {
+			new DiversityCriterion().configure(TestAlgorithms.configuration("<stop-criterion sample-size=\"0\"/>"));
+			fail();
+		}
+		catch (ConfigurationRuntimeException e) {
+			// Expected
+		}
+	}
+
+	private static BinArrayIndividual individual(boolean ones)
+	{
+		byte [] genotype = new byte[LENGTH];
+		for (int i=0; i<LENGTH; i++)
+			genotype[i] = (byte) (ones ? 1 : 0);
+		return new BinArrayIndividual(genotype);
+	}
+
+	private static boolean same(List<int []> one, List<int []> other)
+	{
+		if (one.size() != other.size())
+			return false;
+		for (int i=0; i<one.size(); i++)
+			if (one.get(i)[0] != other.get(i)[0] || one.get(i)[1] != other.get(i)[1])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Distance that records the positions of the compared individuals.
+	 */
+
+	public static final class PairsDistance implements IDistance
+	{
+		private final List<IIndividual> inds;
+
+		final List<int []> pairs = new ArrayList<int []>();
+
+		public PairsDistance()
+		{
+			this(new ArrayList<IIndividual>());
+		}
+
+		PairsDistance(List<IIndividual> inds)
+		{
+			this.inds = inds;
+		}
+
+		public double distance(IIndividual one, IIndividual other)
+		{
+			pairs.add(new int [] {position(one), position(other)});
+			return 0.0;
+		}
+
+		private int position(IIndividual ind)
+		{
+			for (int i=0; i<inds.size(); i++)
+				if (inds.get(i) == ind)
+					return i;
+			throw new AssertionError();
+		}
+	}
+}
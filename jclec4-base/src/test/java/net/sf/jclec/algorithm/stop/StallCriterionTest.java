@@ -0,0 +1,128 @@
+package net.sf.jclec.algorithm.stop;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.multiobjective.SPEA2;
+
+import net.sf.jclec.base.AbstractEvaluator;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.mut.BitFlipMutator;
+
+import net.sf.jclec.fitness.CompositeValueFitness;
+import net.sf.jclec.fitness.ISimpleFitness;
+import net.sf.jclec.fitness.IValueFitness;
+import net.sf.jclec.fitness.SimpleValueFitness;
+import net.sf.jclec.fitness.ValueFitnessComparator;
+
+import org.apache.commons.configuration.XMLConfiguration;
+
+/**
+ * Tests for StallCriterion.
+ */
+
+public class StallCriterionTest extends TestCase
+{
+	private static final int MAX_OF_GENERATIONS = 50;
+
+	private static final int STALL_GENERATIONS = 5;
+
+	/**
+	 * SPEA2 overwrites the value of evaluated fitness with D+R. The
+	 * best fitness kept by the evaluator must not change with it, so
+	 * the evolution stalls (nothing beats the value 0 given by the
+	 * evaluator).
+	 */
+
+	public void testSPEA2() throws Exception
+	{
+		XMLConfiguration configuration = new XMLConfiguration();
+		configuration.load(new StringReader(
+			"<process>"
+			+ "<rand-gen-factory type=\"net.sf.jclec.util.random.XoshiroFactory\" seed=\"1234\"/>"
+			+ "<population-size>20</population-size>"
+			+ "<max-of-generations>" + MAX_OF_GENERATIONS + "</max-of-generations>"
+			+ "<species type=\"net.sf.jclec.binarray.BinArrayIndividualSpecies\" genotype-length=\"30\"/>"
+			+ "<evaluator type=\"" + TwoObjectives.class.getName() + "\"/>"
+			+ "<provider type=\"net.sf.jclec.binarray.BinArrayCreator\"/>"
+			+ "<parents-selector type=\"net.sf.jclec.selector.RandomSelector\"/>"
+			+ "<external-population-size>10</external-population-size>"
+			+ "<k-value>3</k-value>"
+			+ "<stop-criterion type=\"net.sf.jclec.algorithm.stop.StallCriterion\" generations=\"" + STALL_GENERATIONS + "\"/>"
+			+ "</process>"));
+		MutationSPEA2 algorithm = new MutationSPEA2();
+		algorithm.configure(configuration);
+		BitFlipMutator mutator = new BitFlipMutator();
+		mutator.setLocusMutationProb(0.1);
+		algorithm.setMutator(mutator);
+		algorithm.setMutationProb(1.0);
+		algorithm.execute();
+
+		assertTrue(algorithm.getGeneration() < MAX_OF_GENERATIONS);
+		IFitness best = ((AbstractEvaluator) algorithm.getEvaluator()).getBestFitness();
+		assertEquals(0.0, ((IValueFitness) best).getValue(), 0.0);
+		List<IIndividual> inds = new ArrayList<IIndividual>(algorithm.getInhabitants());
+		inds.addAll(algorithm.geExternalPopulation());
+		for (IIndividual ind : inds)
+			assertNotSame(best, ind.getFitness());
+	}
+
+	/**
+	 * SPEA2 whose sons are mutated copies of the parents.
+	 */
+
+	private static final class MutationSPEA2 extends SPEA2
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void doGeneration()
+		{
+			List<IIndividual> sons = new ArrayList<IIndividual>();
+			for (IIndividual ind : pset)
+				sons.add(ind.copy());
+			cset = mutator.mutate(sons);
+			cset.addAll(mutator.getSterile());
+			evaluator.evaluate(cset);
+		}
+	}
+
+	/**
+	 * Ones in the first half and zeros in the second half of the
+	 * genotype (maximized). Fitness value is minimized, as SPEA2 does.
+	 */
+
+	public static final class TwoObjectives extends AbstractEvaluator
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Comparator<IFitness> comparator = new ValueFitnessComparator(true);
+
+		public Comparator<IFitness> getComparator()
+		{
+			return comparator;
+		}
+
+		protected void evaluate(IIndividual ind)
+		{
+			byte [] genotype = ((BinArrayIndividual) ind).getGenotype();
+			int ones = 0, zeros = 0;
+			for (int i=0; i<genotype.length; i++) {
+				if (i < genotype.length/2)
+					ones += genotype[i];
+				else
+					zeros += 1 - genotype[i];
+			}
+			ind.setFitness(new CompositeValueFitness(new ISimpleFitness [] {
+				new SimpleValueFitness(ones), new SimpleValueFitness(zeros)}));
+		}
+	}
+}
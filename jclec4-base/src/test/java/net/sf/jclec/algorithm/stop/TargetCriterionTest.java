@@ -0,0 +1,164 @@
+package net.sf.jclec.algorithm.stop;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.classic.SG;
+
+import net.sf.jclec.binarray.AcceptableOneMax;
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.OneMax;
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import net.sf.jclec.fitness.IValueFitness;
+import net.sf.jclec.fitness.ValueFitnessComparator;
+
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Tests for TargetCriterion.
+ */
+
+public class TargetCriterionTest extends TestCase
+{
+	private static final int LENGTH = 8;
+
+	/**
+	 * When fitness is maximized, the target is a minimum.
+	 */
+
+	public void testMaximized() throws Exception
+	{
+		SG algorithm = algorithm(OneMax.class);
+		TargetCriterion criterion = new TargetCriterion();
+		criterion.setTarget(6);
+		criterion.reset(algorithm);
+		assertFalse(criterion.isFinished(algorithm));
+		evaluate(algorithm, 5);
+		assertFalse(criterion.isFinished(algorithm));
+		evaluate(algorithm, 6);
+		assertTrue(criterion.isFinished(algorithm));
+	}
+
+	/**
+	 * When fitness is minimized, the target is a maximum.
+	 */
+
+	public void testMinimized() throws Exception
+	{
+		SG algorithm = algorithm(MinOneMax.class);
+		TargetCriterion criterion = new TargetCriterion();
+		criterion.setTarget(2);
+		criterion.reset(algorithm);
+		evaluate(algorithm, 3);
+		assertFalse(criterion.isFinished(algorithm));
+		evaluate(algorithm, 7);
+		assertFalse(criterion.isFinished(algorithm));
+		evaluate(algorithm, 2);
+		assertTrue(criterion.isFinished(algorithm));
+	}
+
+	/**
+	 * With acceptable set, any acceptable fitness evaluated is enough,
+	 * even if no target has been set.
+	 */
+
+	public void testAcceptable() throws Exception
+	{
+		SG algorithm = algorithm(AcceptableOneMax.class);
+		TargetCriterion criterion = new TargetCriterion();
+		criterion.setAcceptable(true);
+		criterion.reset(algorithm);
+		evaluate(algorithm, LENGTH - 1);
+		assertFalse(criterion.isFinished(algorithm));
+		evaluate(algorithm, LENGTH);
+		assertTrue(criterion.isFinished(algorithm));
+		// Without acceptable, the all ones individual is not a target
+		criterion = new TargetCriterion();
+		criterion.setTarget(LENGTH + 1);
+		criterion.reset(algorithm);
+		assertFalse(criterion.isFinished(algorithm));
+	}
+
+	/**
+	 * A criterion needs a target or acceptable set.
+	 */
+
+	public void testReset() throws Exception
+	{
+		SG algorithm = algorithm(OneMax.class);
+		try {
+			new TargetCriterion().reset(algorithm);
+			fail();
+		}
+		catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	public void testConfiguration() throws Exception
+	{
+		TargetCriterion criterion = new TargetCriterion();
+		criterion.configure(TestAlgorithms.configuration("<stop-criterion value=\"3.5\"/>"));
+		assertEquals(3.5, ((IValueFitness) criterion.getTarget()).getValue(), 0.0);
+		assertFalse(criterion.isAcceptable());
+
+		criterion = new TargetCriterion();
+		criterion.configure(TestAlgorithms.configuration("<stop-criterion acceptable=\"true\"/>"));
+		assertNull(criterion.getTarget());
+		assertTrue(criterion.isAcceptable());
+
+		try {
+			new TargetCriterion().configure(TestAlgorithms.configuration("<stop-criterion acceptable=\"false\"/>"));
+			fail();
+		}
+		catch (ConfigurationRuntimeException e) {
+			// Expected
+		}
+	}
+
+	private static SG algorithm(Class<?> evaluator) throws Exception
+	{
+		SG result = new SG();
+		result.configure(TestAlgorithms.configuration(
+			TestAlgorithms.xml(1, 10, 10, LENGTH, evaluator.getName(), "")));
+		return result;
+	}
+
+	/**
+	 * Evaluate an individual with the given number of ones.
+	 */
+
+	private static void evaluate(SG algorithm, int ones)
+	{
+		byte [] genotype = new byte[LENGTH];
+		for (int i=0; i<ones; i++)
+			genotype[i] = 1;
+		List<IIndividual> inds = new ArrayList<IIndividual>();
+		inds.add(new BinArrayIndividual(genotype));
+		algorithm.getEvaluator().evaluate(inds);
+	}
+
+	/**
+	 * Number of ones in the genotype (minimized).
+	 */
+
+	public static final class MinOneMax extends OneMax
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Comparator<IFitness> comparator = new ValueFitnessComparator(true);
+
+		@Override
+		public Comparator<IFitness> getComparator()
+		{
+			return comparator;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package net.sf.jclec.algorithm.stop;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Tests for TimeCriterion.
+ */
+
+public class TimeCriterionTest extends TestCase
+{
+	/**
+	 * Elapsed time is accumulated between checks, from the last reset.
+	 */
+
+	public void testBudget()
+	{
+		ManualTimeCriterion criterion = new ManualTimeCriterion();
+		criterion.setBudget(100);
+		criterion.time = 1000;
+		criterion.reset(null);
+		assertEquals(0, criterion.getElapsed());
+		criterion.time = 1060;
+		assertFalse(criterion.isFinished(null));
+		assertEquals(60, criterion.getElapsed());
+		criterion.time = 1099;
+		assertFalse(criterion.isFinished(null));
+		criterion.time = 1100;
+		assertTrue(criterion.isFinished(null));
+		assertEquals(100, criterion.getElapsed());
+		// Time before reset is not counted
+		criterion.time = 5000;
+		criterion.reset(null);
+		criterion.time = 5050;
+		assertFalse(criterion.isFinished(null));
+		assertEquals(50, criterion.getElapsed());
+	}
+
+	/**
+	 * Default clock is the system clock.
+	 */
+
+	public void testSystemClock() throws Exception
+	{
+		TimeCriterion criterion = new TimeCriterion();
+		criterion.setBudget(20);
+		long before = System.currentTimeMillis();
+		criterion.reset(null);
+		Thread.sleep(40);
+		assertTrue(criterion.isFinished(null));
+		assertTrue(criterion.getElapsed() >= 20);
+		assertTrue(criterion.getElapsed() <= System.currentTimeMillis() - before);
+	}
+
+	public void testConfiguration() throws Exception
+	{
+		TimeCriterion criterion = new TimeCriterion();
+		criterion.configure(TestAlgorithms.configuration("<stop-criterion seconds=\"1.25\"/>"));
+		assertEquals(1250, criterion.getBudget());
+		for (String xml : new String [] {"<stop-criterion/>", "<stop-criterion seconds=\"-1\"/>"}) {
+			try {
+				new TimeCriterion().configure(TestAlgorithms.configuration(xml));
+				fail(xml);
+			}
+			catch (ConfigurationRuntimeException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Time criterion with a clock set by tests.
+	 */
+
+	public static class ManualTimeCriterion extends TimeCriterion
+	{
+		private static final long serialVersionUID = 1L;
+
+		/** Current time (not restored from checkpoints) */
+
+		public transient long time;
+
+		@Override
+		protected long currentTime()
+		{
+			return time;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package net.sf.jclec.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.classic.SG;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.TestAlgorithms;
+import net.sf.jclec.binarray.mut.BitFlipMutator;
+import net.sf.jclec.binarray.rec.UniformCrossover;
+
+/**
+ * Tests for ParallelMutator and ParallelRecombinator.
+ */
+
+public class ParallelOperatorsTest extends TestCase
+{
+	private static final int LENGTH = 64;
+
+	/**
+	 * Sons depend on the number of partitions, not on the number of
+	 * threads.
+	 */
+
+	public void testMutatorDeterminism() throws Exception
+	{
+		List<IIndividual> parents = parents(101);
+		List<String> expected = null;
+		for (int threads : new int [] {1, 2, 3, 8}) {
+			for (int repetition=0; repetition<3; repetition++) {
+				ParallelMutator mutator = new ParallelMutator();
+				BitFlipMutator decorated = new BitFlipMutator();
+				decorated.setLocusMutationProb(0.1);
+				mutator.setDecorated(decorated);
+				mutator.setNumberOfThreads(threads);
+				mutator.contextualize(context());
+				List<IIndividual> sons = new ArrayList<IIndividual>();
+				for (int generation=0; generation<3; generation++)
+					sons.addAll(mutator.mutate(parents));
+				List<String> result = TestAlgorithms.genotypes(sons);
+				if (expected == null)
+					expected = result;
+				assertEquals("Threads: " + threads, expected, result);
+			}
+		}
+	}
+
+	public void testRecombinatorDeterminism() throws Exception
+	{
+		List<IIndividual> parents = parents(100);
+		List<String> expected = null;
+		for (int threads : new int [] {1, 2, 3, 8}) {
+			for (int repetition=0; repetition<3; repetition++) {
+				ParallelRecombinator recombinator = new ParallelRecombinator();
+				recombinator.setDecorated(new UniformCrossover());
+				recombinator.setNumberOfThreads(threads);
+				recombinator.contextualize(context());
+				List<IIndividual> sons = new ArrayList<IIndividual>();
+				for (int generation=0; generation<3; generation++)
+					sons.addAll(recombinator.recombine(parents));
+				assertEquals(parents.size()*3, sons.size());
+				List<String> result = TestAlgorithms.genotypes(sons);
+				if (expected == null)
+					expected = result;
+				assertEquals("Threads: " + threads, expected, result);
+			}
+		}
+	}
+
+	/**
+	 * Contextualized algorithm with a fixed seed.
+	 */
+
+	private static SG context() throws Exception
+	{
+		return TestAlgorithms.sg(1234, 10, 10, LENGTH, "");
+	}
+
+	private static List<IIndividual> parents(int size)
+	{
+		Random random = new Random(7);
+		List<IIndividual> result = new ArrayList<IIndividual>();
+		for (int i=0; i<size; i++) {
+			byte [] genotype = new byte[LENGTH];
+			for (int j=0; j<LENGTH; j++)
+				genotype[j] = (byte) random.nextInt(2);
+			result.add(new BinArrayIndividual(genotype));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,60 @@
+package net.sf.jclec.binarray;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.fitness.SimpleValueFitness;
+
+/**
+ * OneMax where genotypes with all loci set to 1 have an acceptable
+ * fitness.
+ */
+
+public class AcceptableOneMax extends OneMax
+{
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected void evaluate(IIndividual ind)
+	{
+		byte [] genotype = ((BinArrayIndividual) ind).getGenotype();
+		int ones = 0;
+		for (byte b : genotype)
+			ones += b;
+		ind.setFitness(new Fitness(ones, ones == genotype.length));
+	}
+
+	/**
+	 * Value fitness that can be acceptable.
+	 */
+
+	public static class Fitness extends SimpleValueFitness
+	{
+		private static final long serialVersionUID = 1L;
+
+		private boolean acceptable;
+
+		public Fitness()
+		{
+			super();
+		}
+
+		public Fitness(double value, boolean acceptable)
+		{
+			super(value);
+			this.acceptable = acceptable;
+		}
+
+		@Override
+		public boolean isAcceptable()
+		{
+			return acceptable;
+		}
+
+		@Override
+		public IFitness copy()
+		{
+			return new Fitness(getValue(), acceptable);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package net.sf.jclec.binarray;
+
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.classic.SG;
+
+import net.sf.jclec.fitness.IValueFitness;
+
+import org.apache.commons.configuration.XMLConfiguration;
+
+/**
+ * Tests for BinArrayProcessEvaluator.
+ */
+
+public class BinArrayProcessEvaluatorTest extends TestCase
+{
+	/**
+	 * Workers evaluate the individuals, and they are stopped when the
+	 * algorithm finishes.
+	 */
+
+	public void testWorkersStopWithAlgorithm() throws Exception
+	{
+		XMLConfiguration configuration = new XMLConfiguration();
+		configuration.load(new StringReader(
+			"<process>"
+			+ "<rand-gen-factory type=\"net.sf.jclec.util.random.XoshiroFactory\" seed=\"1234\"/>"
+			+ "<population-size>20</population-size>"
+			+ "<max-of-generations>3</max-of-generations>"
+			+ "<species type=\"net.sf.jclec.binarray.BinArrayIndividualSpecies\" genotype-length=\"37\"/>"
+			+ "<evaluator type=\"net.sf.jclec.binarray.BinArrayProcessEvaluator\" number-of-workers=\"2\"><command>java</command></evaluator>"
+			+ "<provider type=\"net.sf.jclec.binarray.BinArrayCreator\"/>"
+			+ "<parents-selector type=\"net.sf.jclec.selector.RandomSelector\"/>"
+			+ "<recombinator type=\"net.sf.jclec.binarray.rec.UniformCrossover\" rec-prob=\"0.9\"/>"
+			+ "<mutator type=\"net.sf.jclec.binarray.mut.BitFlipMutator\" mut-prob=\"0.2\" locus-mutation-prob=\"0.05\"/>"
+			+ "</process>"));
+		SG algorithm = new SG();
+		algorithm.configure(configuration);
+		BinArrayProcessEvaluator evaluator = (BinArrayProcessEvaluator) algorithm.getEvaluator();
+		evaluator.setCommand(Arrays.asList(
+			System.getProperty("java.home") + "/bin/java", "-cp", System.getProperty("java.class.path"),
+			BinArrayEvaluationWorker.class.getName(), OneMax.class.getName()));
+		algorithm.execute();
+
+		assertEquals(0, evaluator.getNumberOfWorkers());
+		assertTrue(evaluator.getNumberOfEvaluations() >= 20);
+		for (IIndividual ind : algorithm.getInhabitants()) {
+			int ones = 0;
+			for (byte b : ((BinArrayIndividual) ind).getGenotype())
+				ones += b;
+			assertEquals((double) ones, ((IValueFitness) ind.getFitness()).getValue(), 0.0);
+		}
+	}
+
+	/**
+	 * Connections made before the worker, silent or with a wrong token,
+	 * are rejected, and the worker still evaluates the individuals.
+	 */
+
+	public void testForeignConnections() throws Exception
+	{
+		BinArrayProcessEvaluator evaluator = new BinArrayProcessEvaluator();
+		evaluator.setNumberOfThreads(1);
+		evaluator.setTimeout(20000);
+		evaluator.setCommand(Arrays.asList(
+			System.getProperty("java.home") + "/bin/java", "-cp", System.getProperty("java.class.path"),
+			Intruder.class.getName(), OneMax.class.getName()));
+		try {
+			List<IIndividual> inds = new ArrayList<IIndividual>();
+			for (int i=0; i<10; i++) {
+				byte [] genotype = new byte[12];
+				for (int j=0; j<i; j++)
+					genotype[j] = 1;
+				inds.add(new BinArrayIndividual(genotype));
+			}
+			evaluator.evaluate(inds);
+			for (int i=0; i<10; i++)
+				assertEquals((double) i, ((IValueFitness) inds.get(i).getFitness()).getValue(), 0.0);
+			assertEquals(1, evaluator.getNumberOfWorkers());
+			assertEquals(0, evaluator.getNumberOfRestarts());
+		}
+		finally {
+			evaluator.shutdown();
+		}
+	}
+
+	/**
+	 * Worker that first connects to the port as foreign clients: one
+	 * connection that sends nothing and one that sends a wrong token.
+	 */
+
+	public static class Intruder
+	{
+		public static void main(String [] args) throws Exception
+		{
+			int port = Integer.parseInt(args[args.length-2]);
+			Socket silent = new Socket(InetAddress.getLoopbackAddress(), port);
+			Socket forged = new Socket(InetAddress.getLoopbackAddress(), port);
+			OutputStream out = forged.getOutputStream();
+			for (int i=0; i<BinArrayProcessEvaluator.TOKEN_LENGTH; i++)
+				out.write('0');
+			out.flush();
+			try {
+				BinArrayEvaluationWorker.main(args);
+			}
+			finally {
+				silent.close();
+				forged.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package net.sf.jclec.binarray;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the recycling of BinArraySpecies.
+ */
+
+public class BinArraySpeciesTest extends TestCase
+{
+	/**
+	 * Individuals are reused only for their own class, and individuals
+	 * of other classes remain available.
+	 */
+
+	public void testPoolsByClass()
+	{
+		MarkedSpecies species = species(new MarkedSpecies());
+		BinArrayIndividual plain = new BinArrayIndividual(species.newGenotype());
+		MarkedIndividual marked = new MarkedIndividual(species.newGenotype());
+		species.recycle(marked);
+		species.recycle(plain);
+		assertNull(plain.getGenotype());
+		assertNull(marked.getGenotype());
+		// Plain individuals
+		BinArrayIndividual ind = species.createPlain(new byte[4]);
+		assertSame(plain, ind);
+		assertNotSame(plain, species.createPlain(new byte[4]));
+		// Marked individual is still available
+		ind = species.createIndividual(new byte[4]);
+		assertSame(marked, ind);
+		assertNotSame(marked, species.createIndividual(new byte[4]));
+	}
+
+	/**
+	 * The recycler keeps at most capacity genotypes and individuals of
+	 * each class.
+	 */
+
+	public void testCapacity()
+	{
+		MarkedSpecies species = species(new MarkedSpecies());
+		species.setCapacity(3);
+		List<BinArrayIndividual> discarded = new ArrayList<BinArrayIndividual>();
+		Map<Object, Boolean> recycled = new IdentityHashMap<Object, Boolean>();
+		for (int i=0; i<5; i++) {
+			BinArrayIndividual plain = new BinArrayIndividual(new byte[4]);
+			BinArrayIndividual marked = new MarkedIndividual(new byte[4]);
+			recycled.put(plain, Boolean.TRUE);
+			recycled.put(marked, Boolean.TRUE);
+			recycled.put(plain.getGenotype(), Boolean.TRUE);
+			recycled.put(marked.getGenotype(), Boolean.TRUE);
+			discarded.add(plain);
+			discarded.add(marked);
+		}
+		for (BinArrayIndividual ind : discarded)
+			species.recycle(ind);
+		int genotypes = 0, plains = 0, markeds = 0;
+		for (int i=0; i<10; i++) {
+			if (recycled.containsKey(species.newGenotype()))
+				genotypes++;
+			if (recycled.containsKey(species.createPlain(new byte[4])))
+				plains++;
+			if (recycled.containsKey(species.createIndividual(new byte[4])))
+				markeds++;
+		}
+		assertEquals(3, genotypes);
+		assertEquals(3, plains);
+		assertEquals(3, markeds);
+		// Lower capacity discards kept genotypes
+		byte [][] kept = {new byte[4], new byte[4]};
+		species.recycle(new BinArrayIndividual(kept[0]));
+		species.recycle(new BinArrayIndividual(kept[1]));
+		species.setCapacity(1);
+		byte [] genotype = species.newGenotype();
+		assertTrue(genotype == kept[0] || genotype == kept[1]);
+		genotype = species.newGenotype();
+		assertTrue(genotype != kept[0] && genotype != kept[1]);
+	}
+
+	private static MarkedSpecies species(MarkedSpecies species)
+	{
+		species.setGenotypeSchema(new byte[4]);
+		species.setRecycling(true);
+		return species;
+	}
+
+	@SuppressWarnings("serial")
+	private static final class MarkedIndividual extends BinArrayIndividual
+	{
+		MarkedIndividual(byte [] genotype)
+		{
+			super(genotype);
+		}
+	}
+
+	/**
+	 * Species that creates plain and marked individuals.
+	 */
+
+	@SuppressWarnings("serial")
+	private static final class MarkedSpecies extends BinArraySpecies
+	{
+		@Override
+		public BinArrayIndividual createIndividual(byte [] genotype)
+		{
+			BinArrayIndividual ind = recycledIndividual(MarkedIndividual.class);
+			if (ind != null) {
+				ind.setGenotype(genotype);
+				return ind;
+			}
+			return new MarkedIndividual(genotype);
+		}
+
+		BinArrayIndividual createPlain(byte [] genotype)
+		{
+			BinArrayIndividual ind = recycledIndividual(BinArrayIndividual.class);
+			if (ind != null) {
+				ind.setGenotype(genotype);
+				return ind;
+			}
+			return new BinArrayIndividual(genotype);
+		}
+
+		void setGenotypeSchema(byte [] genotypeSchema)
+		{
+			this.genotypeSchema = genotypeSchema;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package net.sf.jclec.binarray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.util.IndexedDistance;
+
+/**
+ * Tests for HammingDistance and its packed genotypes.
+ */
+
+public class HammingDistanceTest extends TestCase
+{
+	public void testDistance()
+	{
+		HammingDistance distance = new HammingDistance();
+		BinArrayIndividual one = new BinArrayIndividual(new byte [] {0, 1, 1, 0, 1});
+		BinArrayIndividual other = new BinArrayIndividual(new byte [] {1, 1, 0, 0, 1});
+		assertEquals(2.0, distance.distance(one, other), 0.0);
+		assertEquals(2.0, distance.distance(other, one), 0.0);
+		assertEquals(0.0, distance.distance(one, one), 0.0);
+	}
+
+	public void testPackedDistances()
+	{
+		Random random = new Random(1);
+		HammingDistance distance = new HammingDistance();
+		IndexedDistance.Points points = null;
+		// Buffer reused with several sizes and genotype lengths
+		for (int length : new int [] {1, 63, 64, 65, 200, 7, 128}) {
+			List<IIndividual> inds = randomIndividuals(random, 1 + random.nextInt(40), length);
+			points = distance.pack(inds, points);
+			assertEquals(inds.size(), points.size());
+			PackedGenotypes packed = (PackedGenotypes) points;
+			for (int i=0; i<inds.size(); i++) {
+				assertSame(inds.get(i), packed.getIndividual(i));
+				byte [] genotype = ((BinArrayIndividual) inds.get(i)).getGenotype();
+				for (int locus=0; locus<length; locus++)
+					assertEquals(genotype[locus], packed.getAllele(i, locus));
+				for (int j=0; j<inds.size(); j++)
+					assertEquals(distance.distance(inds.get(i), inds.get(j)), points.distance(i, j), 0.0);
+			}
+		}
+	}
+
+	public void testDifferentLengths()
+	{
+		List<IIndividual> inds = new ArrayList<IIndividual>();
+		inds.add(new BinArrayIndividual(new byte [] {0, 1}));
+		inds.add(new BinArrayIndividual(new byte [] {0, 1, 1}));
+		try {
+			new PackedGenotypes().load(inds);
+			fail("Genotypes of different lengths loaded");
+		}
+		catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	static List<IIndividual> randomIndividuals(Random random, int size, int length)
+	{
+		List<IIndividual> result = new ArrayList<IIndividual>();
+		for (int i=0; i<size; i++) {
+			byte [] genotype = new byte[length];
+			for (int locus=0; locus<length; locus++)
+				genotype[locus] = (byte) random.nextInt(2);
+			result.add(new BinArrayIndividual(genotype));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,35 @@
+package net.sf.jclec.binarray;
+
+import java.util.Comparator;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.base.AbstractEvaluator;
+
+import net.sf.jclec.fitness.SimpleValueFitness;
+import net.sf.jclec.fitness.ValueFitnessComparator;
+
+/**
+ * Evaluator used in tests: number of ones in the genotype (maximized).
+ */
+
+public class OneMax extends AbstractEvaluator
+{
+	private static final long serialVersionUID = 1L;
+
+	private final Comparator<IFitness> comparator = new ValueFitnessComparator(false);
+
+	public Comparator<IFitness> getComparator()
+	{
+		return comparator;
+	}
+
+	protected void evaluate(IIndividual ind)
+	{
+		int ones = 0;
+		for (byte b : ((BinArrayIndividual) ind).getGenotype())
+			ones += b;
+		ind.setFitness(new SimpleValueFitness(ones));
+	}
+}
@@ -0,0 +1,114 @@
+package net.sf.jclec.binarray;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.classic.SG;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+
+/**
+ * Binary algorithms used in tests.
+ *
+ * The algorithm is a SG with XoshiroFactory generators, binary
+ * individuals of BinArrayIndividualSpecies created by BinArrayCreator,
+ * random parents selection, uniform crossover and bit flip mutation.
+ */
+
+public final class TestAlgorithms
+{
+	private TestAlgorithms()
+	{
+		super();
+	}
+
+	/**
+	 * SG of 10 generations that maximizes the number of ones in 40 loci.
+	 *
+	 * @param seed Generators seed
+	 * @param populationSize Population size
+	 */
+
+	public static SG sg(int seed, int populationSize) throws ConfigurationException
+	{
+		return sg(seed, populationSize, 10, 40, "");
+	}
+
+	/**
+	 * SG that maximizes the number of ones (OneMax).
+	 *
+	 * @param seed Generators seed
+	 * @param populationSize Population size
+	 * @param generations Maximum of generations
+	 * @param genotypeLength Genotype length
+	 * @param extra Other configuration elements (XML)
+	 */
+
+	public static SG sg(int seed, int populationSize, int generations, int genotypeLength, String extra) throws ConfigurationException
+	{
+		SG result = new SG();
+		result.configure(configuration(xml(seed, populationSize, generations, genotypeLength, OneMax.class.getName(), extra)));
+		return result;
+	}
+
+	/**
+	 * Configuration of the test algorithm.
+	 *
+	 * @param seed Generators seed
+	 * @param populationSize Population size
+	 * @param generations Maximum of generations
+	 * @param genotypeLength Genotype length
+	 * @param evaluator Evaluator classname
+	 * @param extra Other configuration elements (XML)
+	 *
+	 * @return XML configuration
+	 */
+
+	public static String xml(int seed, int populationSize, int generations, int genotypeLength, String evaluator, String extra)
+	{
+		return "<process algorithm-type=\"net.sf.jclec.algorithm.classic.SG\">"
+			+ "<rand-gen-factory type=\"net.sf.jclec.util.random.XoshiroFactory\" seed=\"" + seed + "\"/>"
+			+ "<population-size>" + populationSize + "</population-size>"
+			+ "<max-of-generations>" + generations + "</max-of-generations>"
+			+ "<species type=\"net.sf.jclec.binarray.BinArrayIndividualSpecies\" genotype-length=\"" + genotypeLength + "\"/>"
+			+ "<evaluator type=\"" + evaluator + "\"/>"
+			+ "<provider type=\"net.sf.jclec.binarray.BinArrayCreator\"/>"
+			+ "<parents-selector type=\"net.sf.jclec.selector.RandomSelector\"/>"
+			+ "<recombinator type=\"net.sf.jclec.binarray.rec.UniformCrossover\" rec-prob=\"0.9\"/>"
+			+ "<mutator type=\"net.sf.jclec.binarray.mut.BitFlipMutator\" mut-prob=\"0.2\" locus-mutation-prob=\"0.05\"/>"
+			+ extra
+			+ "</process>";
+	}
+
+	/**
+	 * @param xml XML configuration
+	 *
+	 * @return Loaded configuration
+	 */
+
+	public static XMLConfiguration configuration(String xml) throws ConfigurationException
+	{
+		XMLConfiguration result = new XMLConfiguration();
+		result.load(new StringReader(xml));
+		return result;
+	}
+
+	/**
+	 * @param inds Binary individuals
+	 *
+	 * @return Genotypes of the individuals, as strings
+	 */
+
+	public static List<String> genotypes(List<IIndividual> inds)
+	{
+		List<String> result = new ArrayList<String>();
+		for (IIndividual ind : inds)
+			result.add(Arrays.toString(((BinArrayIndividual) ind).getGenotype()));
+		return result;
+	}
+}
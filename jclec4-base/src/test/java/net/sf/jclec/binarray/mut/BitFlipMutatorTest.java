@@ -0,0 +1,109 @@
+package net.sf.jclec.binarray.mut;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.classic.SG;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.TestAlgorithms;
+
+/**
+ * Tests for BitFlipMutator.
+ */
+
+public class BitFlipMutatorTest extends TestCase
+{
+	private static final int LENGTH = 100;
+
+	private static final int PARENTS = 2000;
+
+	/**
+	 * Flips per locus and per individual follow the binomial
+	 * distribution of independent flips with probability
+	 * locusMutationProb. Limits are 5 standard deviations.
+	 */
+
+	public void testEmpiricalRate() throws Exception
+	{
+		for (double p : new double [] {0.001, 0.05, 0.3, 0.9}) {
+			int [][] flips = flips(p);
+			// Total rate
+			long total = 0;
+			for (int [] ind : flips)
+				for (int locus : ind)
+					total += locus;
+			double trials = (double) PARENTS*LENGTH;
+			assertEquals("Rate " + p, p*trials, total, 5*Math.sqrt(trials*p*(1-p)));
+			// Rate in each quarter of the genotype
+			for (int quarter=0; quarter<4; quarter++) {
+				long count = 0;
+				for (int [] ind : flips)
+					for (int locus=quarter*LENGTH/4; locus<(quarter+1)*LENGTH/4; locus++)
+						count += ind[locus];
+				assertEquals("Rate " + p + ", quarter " + quarter, p*trials/4, count, 5*Math.sqrt(trials/4*p*(1-p)));
+			}
+			// Variance of flips per individual
+			double sum = 0, sum2 = 0;
+			for (int [] ind : flips) {
+				int count = 0;
+				for (int locus : ind)
+					count += locus;
+				sum += count;
+				sum2 += (double) count*count;
+			}
+			double mean = sum/PARENTS, variance = sum2/PARENTS - mean*mean;
+			double expected = LENGTH*p*(1-p);
+			assertEquals("Variance " + p, expected, variance, 5*expected*Math.sqrt(2.0/(PARENTS-1)) + 1e-9);
+		}
+	}
+
+	/**
+	 * No locus is flipped with probability 0, and all loci are flipped
+	 * with probability 1.
+	 */
+
+	public void testExtremeRates() throws Exception
+	{
+		for (int [] ind : flips(0.0))
+			for (int locus : ind)
+				assertEquals(0, locus);
+		for (int [] ind : flips(1.0))
+			for (int locus : ind)
+				assertEquals(1, locus);
+	}
+
+	/**
+	 * Mutate PARENTS individuals with all loci set to 0.
+	 *
+	 * @return Loci of sons (1 if flipped)
+	 */
+
+	private static int [][] flips(double p) throws Exception
+	{
+		SG context = TestAlgorithms.sg(2024, 10, 1, LENGTH, "");
+		BitFlipMutator mutator = new BitFlipMutator();
+		mutator.setLocusMutationProb(p);
+		mutator.contextualize(context);
+		List<IIndividual> parents = new ArrayList<IIndividual>(PARENTS);
+		for (int i=0; i<PARENTS; i++)
+			parents.add(new BinArrayIndividual(new byte[LENGTH]));
+		List<IIndividual> sons = mutator.mutate(parents);
+		assertEquals(PARENTS, sons.size());
+		int [][] result = new int[PARENTS][LENGTH];
+		for (int i=0; i<PARENTS; i++) {
+			byte [] parent = ((BinArrayIndividual) parents.get(i)).getGenotype();
+			byte [] genotype = ((BinArrayIndividual) sons.get(i)).getGenotype();
+			for (int locus=0; locus<LENGTH; locus++) {
+				// Parents are not modified
+				assertEquals(0, parent[locus]);
+				result[i][locus] = genotype[locus];
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,313 @@
+package net.sf.jclec.binarray.rec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.classic.SG;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.BinArrayRecombinator;
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import net.sf.jclec.util.random.IRandGen;
+import net.sf.jclec.util.random.Xoshiro;
+import net.sf.jclec.util.random.AbstractRandGen;
+
+/**
+ * Invariants of binary crossovers.
+ */
+
+public class CrossoverTest extends TestCase
+{
+	private static final int [] LENGTHS = {2, 7, 64, 65, 130};
+
+	private static final int PAIRS = 500;
+
+	/**
+	 * Sons of any crossover have, at each locus, the values of both
+	 * parents, and parents are not modified.
+	 */
+
+	public void testComplementarySons() throws Exception
+	{
+		Random random = new Random(3);
+		for (int length : LENGTHS) {
+			for (BinArrayRecombinator recombinator : recombinators()) {
+				List<IIndividual> parents = randomParents(random, length);
+				List<byte []> copies = new ArrayList<byte []>();
+				for (IIndividual parent : parents)
+					copies.add(((BinArrayIndividual) parent).getGenotype().clone());
+				List<IIndividual> sons = recombine(recombinator, length, parents);
+				assertEquals(parents.size(), sons.size());
+				for (int p=0; p<parents.size(); p+=2) {
+					byte [] p0 = genotype(parents, p), p1 = genotype(parents, p+1);
+					byte [] s0 = genotype(sons, p), s1 = genotype(sons, p+1);
+					assertEquals(length, s0.length);
+					for (int i=0; i<length; i++) {
+						assertEquals(copies.get(p)[i], p0[i]);
+						assertEquals(copies.get(p+1)[i], p1[i]);
+						assertEquals(p0[i] + p1[i], s0[i] + s1[i]);
+						assertTrue(s0[i] == p0[i] || s0[i] == p1[i]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * One and N points crossovers exchange consecutive segments, with
+	 * exactly the requested number of different points.
+	 */
+
+	public void testCrossoverPoints() throws Exception
+	{
+		for (int length : LENGTHS) {
+			List<IIndividual> sons = recombine(new OnePointCrossover(), length, oppositeParents(length));
+			for (int p=0; p<sons.size(); p+=2) {
+				byte [] s0 = genotype(sons, p);
+				assertEquals(0, s0[0]);
+				assertEquals(1, switches(s0));
+			}
+			for (int points : new int [] {1, 2, 5, 200}) {
+				NPointsCrossover recombinator = new NPointsCrossover();
+				recombinator.setNumberOfCrossoverPoints(points);
+				sons = recombine(recombinator, length, oppositeParents(length));
+				int ncp = Math.min(points, length-1);
+				int [] cuts = new int[length];
+				for (int p=0; p<sons.size(); p+=2) {
+					byte [] s0 = genotype(sons, p);
+					assertEquals(0, s0[0]);
+					assertEquals(ncp, switches(s0));
+					for (int i=1; i<length; i++)
+						if (s0[i] != s0[i-1])
+							cuts[i]++;
+				}
+				// Points are chosen uniformly (limits are 5 standard deviations)
+				double q = (double) ncp/(length-1);
+				for (int i=1; i<length; i++)
+					assertEquals(PAIRS*q, cuts[i], 5*Math.sqrt(PAIRS*q*(1-q)) + 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * Uniform crossover exchanges each locus with probability 1/2
+	 * (limits are 5 standard deviations).
+	 */
+
+	public void testUniformRate() throws Exception
+	{
+		for (int length : LENGTHS) {
+			List<IIndividual> sons = recombine(new UniformCrossover(), length, oppositeParents(length));
+			int [] exchanged = exchanged(sons, length);
+			long total = 0;
+			for (int i=0; i<length; i++) {
+				assertEquals(PAIRS/2.0, exchanged[i], 5*Math.sqrt(PAIRS/4.0));
+				total += exchanged[i];
+			}
+			assertEquals(PAIRS*length/2.0, total, 5*Math.sqrt(PAIRS*length/4.0));
+		}
+	}
+
+	/**
+	 * HUX exchanges exactly half (rounded down) of the loci in which
+	 * parents differ, and leaves equal loci unchanged.
+	 */
+
+	public void testHUXExchangesHalf() throws Exception
+	{
+		Random random = new Random(5);
+		for (int length : LENGTHS) {
+			List<IIndividual> parents = randomParents(random, length);
+			List<IIndividual> sons = recombine(new HUXCrossover(), length, parents);
+			for (int p=0; p<parents.size(); p+=2) {
+				byte [] p0 = genotype(parents, p), p1 = genotype(parents, p+1);
+				byte [] s0 = genotype(sons, p), s1 = genotype(sons, p+1);
+				int differences = 0, exchanges = 0;
+				for (int i=0; i<length; i++) {
+					if (p0[i] != p1[i]) {
+						differences++;
+						if (s0[i] == p1[i]) {
+							exchanges++;
+						}
+					}
+					else {
+						assertEquals(p0[i], s0[i]);
+						assertEquals(p1[i], s1[i]);
+					}
+				}
+				assertEquals(differences/2, exchanges);
+			}
+		}
+	}
+
+	/**
+	 * HUX chooses exchanged loci uniformly (limits are 5 standard
+	 * deviations).
+	 */
+
+	public void testHUXUniformChoice() throws Exception
+	{
+		for (int length : LENGTHS) {
+			List<IIndividual> sons = recombine(new HUXCrossover(), length, oppositeParents(length));
+			int [] exchanged = exchanged(sons, length);
+			double q = (double) (length/2)/length;
+			for (int i=0; i<length; i++)
+				assertEquals(PAIRS*q, exchanged[i], 5*Math.sqrt(PAIRS*q*(1-q)) + 1e-9);
+		}
+	}
+
+	/**
+	 * Each bit of the random masks is set with probability 1/2, also
+	 * with generators of low resolution (limits are 5 standard
+	 * deviations).
+	 */
+
+	public void testRandomBits()
+	{
+		IRandGen [] generators = {new Xoshiro(11), new CoarseRandGen(13)};
+		for (IRandGen generator : generators) {
+			MaskRecombinator recombinator = new MaskRecombinator(generator);
+			int [] ones = new int[64];
+			for (int i=0; i<2*PAIRS; i++) {
+				long mask = recombinator.mask();
+				for (int bit=0; bit<64; bit++)
+					ones[bit] += (int) ((mask >>> bit) & 1L);
+			}
+			for (int bit=0; bit<64; bit++)
+				assertEquals(generator.getClass().getSimpleName() + " bit " + bit, PAIRS, ones[bit], 5*Math.sqrt(PAIRS/2.0));
+		}
+	}
+
+	private static BinArrayRecombinator [] recombinators()
+	{
+		NPointsCrossover npoints = new NPointsCrossover();
+		npoints.setNumberOfCrossoverPoints(3);
+		return new BinArrayRecombinator [] {
+			new OnePointCrossover(), npoints, new UniformCrossover(), new HUXCrossover()
+		};
+	}
+
+	private static List<IIndividual> recombine(BinArrayRecombinator recombinator, int length, List<IIndividual> parents) throws Exception
+	{
+		SG context = TestAlgorithms.sg(77, 10, 1, length, "");
+		recombinator.contextualize(context);
+		return recombinator.recombine(parents);
+	}
+
+	/**
+	 * PAIRS pairs of random parents.
+	 */
+
+	private static List<IIndividual> randomParents(Random random, int length)
+	{
+		List<IIndividual> result = new ArrayList<IIndividual>(2*PAIRS);
+		for (int i=0; i<2*PAIRS; i++) {
+			byte [] genotype = new byte[length];
+			for (int j=0; j<length; j++)
+				genotype[j] = (byte) random.nextInt(2);
+			result.add(new BinArrayIndividual(genotype));
+		}
+		return result;
+	}
+
+	/**
+	 * PAIRS pairs of parents with all loci set to 0 and 1, so the first
+	 * son shows which loci have been exchanged.
+	 */
+
+	private static List<IIndividual> oppositeParents(int length)
+	{
+		List<IIndividual> result = new ArrayList<IIndividual>(2*PAIRS);
+		for (int i=0; i<PAIRS; i++) {
+			byte [] ones = new byte[length];
+			for (int j=0; j<length; j++)
+				ones[j] = 1;
+			result.add(new BinArrayIndividual(new byte[length]));
+			result.add(new BinArrayIndividual(ones));
+		}
+		return result;
+	}
+
+	/**
+	 * Times each locus has been exchanged (sons of opposite parents).
+	 */
+
+	private static int [] exchanged(List<IIndividual> sons, int length)
+	{
+		int [] result = new int[length];
+		for (int p=0; p<sons.size(); p+=2) {
+			byte [] s0 = genotype(sons, p);
+			for (int i=0; i<length; i++)
+				result[i] += s0[i];
+		}
+		return result;
+	}
+
+	private static int switches(byte [] genotype)
+	{
+		int result = 0;
+		for (int i=1; i<genotype.length; i++)
+			if (genotype[i] != genotype[i-1])
+				result++;
+		return result;
+	}
+
+	private static byte [] genotype(List<IIndividual> inds, int index)
+	{
+		return ((BinArrayIndividual) inds.get(index)).getGenotype();
+	}
+
+	/**
+	 * Generator with the resolution of single precision values (24
+	 * bits).
+	 */
+
+	private static final class CoarseRandGen extends AbstractRandGen
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Random random;
+
+		CoarseRandGen(long seed)
+		{
+			random = new Random(seed);
+		}
+
+		@Override
+		public double raw()
+		{
+			return random.nextInt(1 << 24) * 0x1.0p-24;
+		}
+	}
+
+	/**
+	 * Gives access to the random masks of a generator.
+	 */
+
+	private static final class MaskRecombinator extends BinArrayRecombinator
+	{
+		private static final long serialVersionUID = 1L;
+
+		MaskRecombinator(IRandGen randgen)
+		{
+			this.randgen = randgen;
+		}
+
+		long mask()
+		{
+			return randomBits();
+		}
+
+		@Override
+		protected void recombineNext()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
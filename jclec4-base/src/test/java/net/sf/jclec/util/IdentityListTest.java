@@ -0,0 +1,144 @@
+package net.sf.jclec.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+
+/**
+ * Tests for IdentityList.
+ */
+
+public class IdentityListTest extends TestCase
+{
+	/**
+	 * Random operations give the same results as an ArrayList with
+	 * identity comparisons. Individuals of the pool are equal (by
+	 * equals()) in pairs, and they are added several times.
+	 */
+
+	public void testBookkeeping()
+	{
+		Random random = new Random(42);
+		IIndividual [] pool = new IIndividual[8];
+		for (int i=0; i<pool.length; i++)
+			pool[i] = new BinArrayIndividual(new byte [] {(byte) (i/2)});
+		for (int run=0; run<50; run++) {
+			IdentityList list = new IdentityList();
+			List<IIndividual> model = new ArrayList<IIndividual>();
+			for (int step=0; step<200; step++) {
+				IIndividual ind = pool[random.nextInt(pool.length)];
+				int size = model.size();
+				switch (random.nextInt(model.isEmpty() ? 2 : 9)) {
+					case 0:
+						list.add(ind);
+						model.add(ind);
+						break;
+					case 1: {
+						int index = random.nextInt(size+1);
+						list.add(index, ind);
+						model.add(index, ind);
+						break;
+					}
+					case 2: {
+						int index = random.nextInt(size);
+						assertSame(model.set(index, ind), list.set(index, ind));
+						break;
+					}
+					case 3: {
+						int index = random.nextInt(size);
+						assertSame(model.remove(index), list.remove(index));
+						break;
+					}
+					case 4: {
+						int index = indexOf(model, ind);
+						assertEquals(index >= 0, list.remove(ind));
+						if (index >= 0)
+							model.remove(index);
+						break;
+					}
+					case 5: {
+						int index = random.nextInt(size);
+						assertSame(model.get(index), list.swapRemove(index));
+						model.set(index, model.get(size-1));
+						model.remove(size-1);
+						break;
+					}
+					case 6: {
+						int index = indexOf(model, ind);
+						assertEquals(index >= 0, list.swapRemove(ind));
+						if (index >= 0) {
+							model.set(index, model.get(size-1));
+							model.remove(size-1);
+						}
+						break;
+					}
+					case 7: {
+						List<IIndividual> c = Arrays.asList(ind, pool[random.nextInt(pool.length)]);
+						boolean retain = random.nextBoolean();
+						List<IIndividual> expected = new ArrayList<IIndividual>();
+						for (IIndividual each : model) {
+							if ((indexOf(c, each) >= 0) == retain)
+								expected.add(each);
+						}
+						assertEquals(expected.size() != size, retain ? list.retainAll(c) : list.removeAll(c));
+						model = expected;
+						break;
+					}
+					default:
+						// Only queries
+						break;
+				}
+				check(list, model, pool);
+			}
+		}
+	}
+
+	/**
+	 * Equal individuals are kept once in hash sets, as NSGA2 and SPEA2
+	 * need.
+	 */
+
+	public void testHashCode()
+	{
+		Set<IIndividual> set = new HashSet<IIndividual>();
+		assertTrue(set.add(new BinArrayIndividual(new byte [] {0, 1, 1})));
+		assertFalse(set.add(new BinArrayIndividual(new byte [] {0, 1, 1})));
+		assertTrue(set.add(new BinArrayIndividual(new byte [] {1, 1, 1})));
+	}
+
+	private static void check(IdentityList list, List<IIndividual> model, IIndividual [] pool)
+	{
+		assertEquals(model.size(), list.size());
+		for (int i=0; i<model.size(); i++)
+			assertSame(model.get(i), list.get(i));
+		for (IIndividual ind : pool) {
+			int first = indexOf(model, ind), last = -1;
+			for (int i=model.size()-1; i>=0 && last<0; i--) {
+				if (model.get(i) == ind)
+					last = i;
+			}
+			assertEquals(first >= 0, list.contains(ind));
+			assertEquals(first, list.indexOf(ind));
+			assertEquals(last, list.lastIndexOf(ind));
+		}
+		assertFalse(list.contains(new BinArrayIndividual(new byte [] {0})));
+	}
+
+	private static int indexOf(List<IIndividual> inds, IIndividual ind)
+	{
+		for (int i=0; i<inds.size(); i++) {
+			if (inds.get(i) == ind)
+				return i;
+		}
+		return -1;
+	}
+}
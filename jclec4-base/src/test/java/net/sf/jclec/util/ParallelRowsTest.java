@@ -0,0 +1,61 @@
+package net.sf.jclec.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for ParallelRows.
+ */
+
+public class ParallelRowsTest extends TestCase
+{
+	public void testEveryRowOnce()
+	{
+		for (int threads=1; threads<=4; threads++) {
+			ParallelRows executor = new ParallelRows(threads);
+			for (int rows : new int [] {0, 1, 7, 100, 1000}) {
+				for (int blockSize : new int [] {1, 3, 64}) {
+					final AtomicIntegerArray visits = new AtomicIntegerArray(Math.max(rows, 1));
+					executor.executeBlocks(rows, blockSize, new ParallelRows.RowBlock() {
+						public void rows(int from, int to) {
+							for (int i=from; i<to; i++)
+								visits.incrementAndGet(i);
+						}
+					});
+					for (int i=0; i<rows; i++)
+						assertEquals(1, visits.get(i));
+				}
+			}
+		}
+	}
+
+	public void testSharedPool()
+	{
+		int before = poolThreads();
+		// Several executors with the same parallelism
+		for (int i=0; i<10; i++) {
+			new ParallelRows(3).executeBlocks(100, 1, new ParallelRows.RowBlock() {
+				public void rows(int from, int to) {
+					try {
+						Thread.sleep(1);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+		assertTrue(poolThreads() - before <= 3);
+	}
+
+	private static int poolThreads()
+	{
+		int result = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("ForkJoinPool-"))
+				result++;
+		}
+		return result;
+	}
+}
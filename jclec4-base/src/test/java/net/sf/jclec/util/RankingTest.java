@@ -0,0 +1,103 @@
+package net.sf.jclec.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+
+import net.sf.jclec.algorithm.classic.SG;
+
+import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.binarray.TestAlgorithms;
+
+import net.sf.jclec.selector.BettersSelector;
+import net.sf.jclec.selector.WorsesSelector;
+
+/**
+ * Tests for Ranking.
+ */
+
+public class RankingTest extends TestCase
+{
+	private SG context;
+
+	private Comparator<IFitness> comparator;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		context = TestAlgorithms.sg(1, 10, 1, 6, "");
+		comparator = context.getEvaluator().getComparator();
+	}
+
+	/**
+	 * The k best (worst) individuals are the first k selected by
+	 * BettersSelector (WorsesSelector), with ties in list order. Short
+	 * genotypes give many individuals with the same fitness.
+	 */
+
+	public void testSelectorOrder()
+	{
+		Random random = new Random(7);
+		BettersSelector betters = new BettersSelector(context);
+		WorsesSelector worses = new WorsesSelector(context);
+		for (int run=0; run<50; run++) {
+			List<IIndividual> inds = individuals(random, 1 + random.nextInt(60));
+			for (int k=0; k<=inds.size(); k+=1+random.nextInt(5)) {
+				assertSameOrder(betters.select(inds, k, true), Ranking.best(inds, k, comparator));
+				assertSameOrder(worses.select(inds, k, true), Ranking.worst(inds, k, comparator));
+			}
+			// More individuals than the list size
+			assertSameOrder(betters.select(inds, inds.size(), true), Ranking.best(inds, inds.size()+3, comparator));
+		}
+	}
+
+	/**
+	 * The best (worst) individual is the first one of the selector.
+	 */
+
+	public void testExtremes()
+	{
+		Random random = new Random(11);
+		BettersSelector betters = new BettersSelector(context);
+		WorsesSelector worses = new WorsesSelector(context);
+		for (int run=0; run<50; run++) {
+			List<IIndividual> inds = individuals(random, 1 + random.nextInt(60));
+			IIndividual best = betters.select(inds, 1, true).get(0);
+			IIndividual worst = worses.select(inds, 1, true).get(0);
+			assertSame(best, Ranking.best(inds, comparator));
+			assertSame(worst, Ranking.worst(inds, comparator));
+			assertSame(best, inds.get(Ranking.bestIndex(inds, comparator)));
+			assertSame(worst, inds.get(Ranking.worstIndex(inds, comparator)));
+		}
+		List<IIndividual> empty = new ArrayList<IIndividual>();
+		assertEquals(-1, Ranking.bestIndex(empty, comparator));
+		assertNull(Ranking.worst(empty, comparator));
+		assertTrue(Ranking.best(empty, 3, comparator).isEmpty());
+	}
+
+	private List<IIndividual> individuals(Random random, int size)
+	{
+		List<IIndividual> result = new ArrayList<IIndividual>(size);
+		for (int i=0; i<size; i++) {
+			byte [] genotype = new byte[6];
+			for (int j=0; j<genotype.length; j++)
+				genotype[j] = (byte) random.nextInt(2);
+			result.add(new BinArrayIndividual(genotype));
+		}
+		context.getEvaluator().evaluate(result);
+		return result;
+	}
+
+	private static void assertSameOrder(List<IIndividual> expected, List<IIndividual> actual)
+	{
+		assertEquals(expected.size(), actual.size());
+		for (int i=0; i<expected.size(); i++)
+			assertSame("Position " + i, expected.get(i), actual.get(i));
+	}
+}
@@ -0,0 +1,113 @@
+package net.sf.jclec.util.random;
+
+import java.lang.reflect.Field;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for Xoshiro.
+ */
+
+public class XoshiroTest extends TestCase
+{
+	/**
+	 * Outputs of the reference implementation of xoshiro256** with state
+	 * {1, 2, 3, 4}.
+	 */
+
+	public void testReferenceState() throws Exception
+	{
+		Xoshiro generator = new Xoshiro();
+		long [] state = {1L, 2L, 3L, 4L};
+		String [] names = {"s0", "s1", "s2", "s3"};
+		for (int i=0; i<names.length; i++) {
+			Field field = Xoshiro.class.getDeclaredField(names[i]);
+			field.setAccessible(true);
+			field.setLong(generator, state[i]);
+		}
+		long [] expected = {
+			11520L, 0L, 1509978240L, 1215971899390074240L,
+			1216172134540287360L, 607988272756665600L
+		};
+		for (long value : expected)
+			assertEquals(value, generator.nextLong());
+	}
+
+	/**
+	 * Outputs of the reference implementation of SplitMix64 with seed 0.
+	 */
+
+	public void testSplitMix()
+	{
+		long [] expected = {
+			0xe220a8397b1dcdafL, 0x6e789e6aa1b965f4L,
+			0x06c45d188009454fL, 0xf88bb8a8724c81ecL
+		};
+		long seed = 0L;
+		for (long value : expected)
+			assertEquals(value, Xoshiro.mix(seed += Xoshiro.GOLDEN_GAMMA));
+	}
+
+	/**
+	 * Outputs of the reference implementations, with the state seeded
+	 * by SplitMix64.
+	 */
+
+	public void testSeeded()
+	{
+		assertSequence(new Xoshiro(0L),
+			0x99ec5f36cb75f2b4L, 0xbf6e1f784956452aL, 0x1a5f849d4933e6e0L, 0x6aa594f1262d2d2cL);
+		assertSequence(new Xoshiro(1234567L),
+			0x30a3a1c363600467L, 0x19405f0f579929caL, 0x115beaac046ddbd9L, 0xeb17caf48f27d7f6L);
+	}
+
+	/**
+	 * Bits are taken from the least significant bit of each word, and
+	 * a word is not shared by two calls.
+	 */
+
+	public void testNextBits()
+	{
+		Xoshiro words = new Xoshiro(99L), bits = new Xoshiro(99L);
+		byte [] dest = new byte[150];
+		bits.nextBits(dest, 10, 80);
+		bits.nextBits(dest, 80, 150);
+		int i = 10;
+		for (int end : new int [] {74, 80, 144, 150}) {
+			long word = words.nextLong();
+			for (; i<end; i++, word >>>= 1)
+				assertEquals("Bit " + i, (byte) (word & 1L), dest[i]);
+		}
+		for (i=0; i<10; i++)
+			assertEquals(0, dest[i]);
+		assertEquals(words.nextLong(), bits.nextLong());
+	}
+
+	/**
+	 * Numbers are in range, and streams of a factory only depend on its
+	 * seed.
+	 */
+
+	public void testRangesAndStreams()
+	{
+		Xoshiro generator = new Xoshiro(5L);
+		for (int i=0; i<10000; i++) {
+			double raw = generator.raw();
+			assertTrue(raw > 0.0 && raw < 1.0);
+			int choice = generator.choose(-3, 4);
+			assertTrue(choice >= -3 && choice < 4);
+		}
+		XoshiroFactory one = new XoshiroFactory(), other = new XoshiroFactory();
+		one.setSeed(17);
+		other.setSeed(17);
+		for (int stream=0; stream<4; stream++)
+			assertEquals(one.createRandGen(stream).nextLong(), other.createRandGen(stream).nextLong());
+		assertFalse(one.createRandGen(0).nextLong() == one.createRandGen(1).nextLong());
+	}
+
+	private static void assertSequence(Xoshiro generator, long... expected)
+	{
+		for (long value : expected)
+			assertEquals(value, generator.nextLong());
+	}
+}